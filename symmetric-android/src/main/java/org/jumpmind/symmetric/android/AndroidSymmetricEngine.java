@@ -156,15 +156,18 @@ public class AndroidSymmetricEngine extends AbstractSymmetricEngine {
 
     @Override
     protected INodeCommunicationService buildNodeCommunicationService(IClusterService clusterService, INodeService nodeService,
-            IParameterService parameterService, IConfigurationService configurationService, ISymmetricDialect symmetricDialect) {
-        return new AndroidNodeCommunicationService(clusterService, nodeService, parameterService, configurationService, symmetricDialect);
+            IParameterService parameterService, IConfigurationService configurationService, IExtensionService extensionService,
+            ISymmetricDialect symmetricDialect) {
+        return new AndroidNodeCommunicationService(clusterService, nodeService, parameterService, configurationService,
+                extensionService, symmetricDialect);
     }
 
     class AndroidNodeCommunicationService extends NodeCommunicationService {
 
         public AndroidNodeCommunicationService(IClusterService clusterService, INodeService nodeService,
-                IParameterService parameterService, IConfigurationService configurationService, ISymmetricDialect symmetricDialect) {
-            super(clusterService, nodeService, parameterService, configurationService, symmetricDialect);
+                IParameterService parameterService, IConfigurationService configurationService, IExtensionService extensionService,
+                ISymmetricDialect symmetricDialect) {
+            super(clusterService, nodeService, parameterService, configurationService, extensionService, symmetricDialect);
         }
 
         @Override
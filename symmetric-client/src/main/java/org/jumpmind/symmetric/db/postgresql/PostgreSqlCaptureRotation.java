@@ -0,0 +1,222 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.db.postgresql;
+
+import java.util.Date;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
+import org.jumpmind.symmetric.ext.IPurgePartitionHandler;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages the rotating capture tables that PostgreSQL triggers write to when
+ * trigger.capture.rotation.table.count is set. Each capture table inherits
+ * from data and shares its data_id sequence, so routing, extraction and the
+ * purge keep reading and deleting through data. Triggers insert into an empty
+ * capture table whose before insert trigger moves the row into the capture
+ * table of the current time bucket. Once a capture table is neither the current
+ * nor the previous bucket, the purge truncates it when all of its rows are safe
+ * to purge.
+ */
+public class PostgreSqlCaptureRotation implements IPurgePartitionHandler, IBuiltInExtensionPoint {
+
+    static final int MIN_TABLE_COUNT = 3;
+
+    static final String SQL_TABLE_INSTALLED = "select count(*) from information_schema.tables where table_name = ? and table_schema = ?";
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected IDatabasePlatform platform;
+
+    protected String tablePrefix;
+
+    protected int tableCount;
+
+    protected long periodSeconds;
+
+    public PostgreSqlCaptureRotation(IParameterService parameterService, IDatabasePlatform platform) {
+        this.platform = platform;
+        this.tablePrefix = parameterService.getTablePrefix();
+        this.tableCount = getTableCount(parameterService);
+        this.periodSeconds = Math.max(1, parameterService.getLong(
+                ParameterConstants.TRIGGER_CAPTURE_ROTATION_PERIOD_MINUTES, 1440)) * 60;
+    }
+
+    public static int getTableCount(IParameterService parameterService) {
+        int count = parameterService.getInt(ParameterConstants.TRIGGER_CAPTURE_ROTATION_TABLE_COUNT, 0);
+        return count > 0 ? Math.max(count, MIN_TABLE_COUNT) : 0;
+    }
+
+    public static String getCaptureTableName(String tablePrefix) {
+        return TableConstants.getTableName(tablePrefix, TableConstants.SYM_DATA) + "_capture";
+    }
+
+    public void install() {
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+        String dataTable = qualify(TableConstants.getTableName(tablePrefix, TableConstants.SYM_DATA));
+        for (int i = 0; i < tableCount; i++) {
+            String tableName = getBucketTableName(i);
+            if (!isTableInstalled(tableName)) {
+                log.info("Installing rotating capture table {}", tableName);
+                sqlTemplate.update("create table " + qualify(tableName) + " (like " + dataTable
+                        + " including all) inherits (" + dataTable + ")");
+            }
+        }
+
+        String routeFunction = getRouteFunctionName();
+        sqlTemplate.update(buildRouteFunctionSql());
+
+        String captureTable = getCaptureTableName(tablePrefix);
+        if (!isTableInstalled(captureTable)) {
+            log.info("Installing capture table {}", captureTable);
+            sqlTemplate.update("create table " + qualify(captureTable) + " () inherits (" + dataTable + ")");
+            sqlTemplate.update("create trigger " + routeFunction + " before insert on "
+                    + qualify(captureTable) + " for each row execute procedure "
+                    + qualify(routeFunction) + "()");
+        }
+    }
+
+    public void uninstall() {
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+        sqlTemplate.update("drop table if exists " + qualify(getCaptureTableName(tablePrefix)) + " cascade");
+        sqlTemplate.update("drop function if exists " + qualify(getRouteFunctionName()) + "() cascade");
+        int i = 0;
+        while (isTableInstalled(getBucketTableName(i))) {
+            sqlTemplate.update("drop table " + qualify(getBucketTableName(i)) + " cascade");
+            i++;
+        }
+    }
+
+    public int purgePartitions(String tableName, String idColumnName, long maxId, Date retentionCutoff) {
+        if (!tableName.equalsIgnoreCase(TableConstants.getTableName(tablePrefix, TableConstants.SYM_DATA))) {
+            return 0;
+        }
+        int current = platform.getSqlTemplate().queryForInt("select " + getBucketExpression());
+        int previous = (current + tableCount - 1) % tableCount;
+        int truncated = 0;
+        for (int i = 0; i < tableCount; i++) {
+            if (i != current && i != previous && truncate(getBucketTableName(i), maxId, retentionCutoff)) {
+                truncated++;
+            }
+        }
+        return truncated;
+    }
+
+    /**
+     * Truncate a retired capture table when every row in it is at or below
+     * maxId and older than the retention cutoff. The table is locked without
+     * waiting so a straggling capture transaction makes the purge skip the
+     * table until the next run instead of blocking.
+     */
+    protected boolean truncate(String tableName, long maxId, Date retentionCutoff) {
+        ISqlTemplate sqlTemplate = platform.getSqlTemplate();
+        String table = qualify(tableName);
+        long maxDataId = sqlTemplate.queryForLong("select max(data_id) from " + table);
+        if (maxDataId <= 0 || maxDataId > maxId) {
+            return false;
+        }
+        Date newest = sqlTemplate.queryForObject("select max(create_time) from " + table, Date.class);
+        if (newest != null && !newest.before(retentionCutoff)) {
+            return false;
+        }
+
+        ISqlTransaction transaction = null;
+        try {
+            transaction = sqlTemplate.startSqlTransaction();
+            transaction.prepareAndExecute("lock table " + table + " in access exclusive mode nowait");
+            if (transaction.queryForLong("select max(data_id) from " + table) > maxId) {
+                transaction.rollback();
+                return false;
+            }
+            transaction.prepareAndExecute("truncate table " + table);
+            transaction.commit();
+            log.info("Truncated retired capture table {} up to data id {}", tableName, maxDataId);
+            return true;
+        } catch (SqlException ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            log.info("Skipping retired capture table {} because it could not be locked: {}",
+                    tableName, ex.getMessage());
+            return false;
+        } finally {
+            if (transaction != null) {
+                transaction.close();
+            }
+        }
+    }
+
+    protected String buildRouteFunctionSql() {
+        StringBuilder sql = new StringBuilder();
+        sql.append("create or replace function ").append(qualify(getRouteFunctionName()))
+                .append("() returns trigger as $function$\n");
+        sql.append("  declare bucket integer;\n");
+        sql.append("  begin\n");
+        sql.append("    bucket := ").append(getBucketExpression()).append(";\n");
+        for (int i = 0; i < tableCount; i++) {
+            sql.append(i == 0 ? "    if" : "    elsif").append(" bucket = ").append(i)
+                    .append(" then insert into ").append(qualify(getBucketTableName(i)))
+                    .append(" values (new.*);\n");
+        }
+        sql.append("    end if;\n");
+        sql.append("    return null;\n");
+        sql.append("  end;\n");
+        sql.append("$function$ language plpgsql");
+        return sql.toString();
+    }
+
+    /**
+     * The bucket is derived from the database clock so every node in a
+     * cluster and every restart agrees on the current capture table.
+     */
+    protected String getBucketExpression() {
+        return "cast(mod(cast(floor(extract(epoch from current_timestamp) / " + periodSeconds
+                + ") as bigint), " + tableCount + ") as integer)";
+    }
+
+    protected String getBucketTableName(int bucket) {
+        return TableConstants.getTableName(tablePrefix, TableConstants.SYM_DATA) + "_" + bucket;
+    }
+
+    protected String getRouteFunctionName() {
+        return getCaptureTableName(tablePrefix) + "_route";
+    }
+
+    protected boolean isTableInstalled(String tableName) {
+        return platform.getSqlTemplate().queryForInt(SQL_TABLE_INSTALLED, tableName,
+                platform.getDefaultSchema()) > 0;
+    }
+
+    protected String qualify(String name) {
+        String schema = platform.getDefaultSchema();
+        return StringUtils.isNotBlank(schema) ? schema + "." + name : name;
+    }
+
+}
@@ -123,8 +123,22 @@ public class PostgreSqlSymmetricDialect extends AbstractSymmetricDialect impleme
                     "                                $$ LANGUAGE plpgsql;                                                                                                                                                   ";
             install(sql, largeObjects);
         }
+
+        if (PostgreSqlCaptureRotation.getTableCount(parameterService) > 0) {
+            PostgreSqlCaptureRotation captureRotation = new PostgreSqlCaptureRotation(parameterService, platform);
+            captureRotation.install();
+            if (extensionService != null) {
+                extensionService.addExtensionPoint(captureRotation);
+            }
+        }
         
     }
+
+    @Override
+    public void dropTablesAndDatabaseObjects() {
+        new PostgreSqlCaptureRotation(parameterService, platform).uninstall();
+        super.dropTablesAndDatabaseObjects();
+    }
     
     @Override
     public void dropRequiredDatabaseObjects() {
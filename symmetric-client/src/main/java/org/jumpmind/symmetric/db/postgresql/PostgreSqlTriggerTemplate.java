@@ -77,7 +77,7 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "                                begin                                                                                                                                                                  \n" +
 "                                  $(custom_before_insert_text) \n" +
 "                                  if $(syncOnInsertCondition) and $(syncOnIncomingBatchCondition) then                                                                                                 \n" +
-"                                    insert into $(defaultSchema)$(prefixName)_data                                                                                                                     \n" +
+"                                    insert into $(defaultSchema)$(captureTable)                                                                                                                        \n" +
 "                                    (table_name, event_type, trigger_hist_id, row_data, channel_id, transaction_id, source_node_id, external_data, create_time)                                        \n" +
 "                                    values(                                                                                                                                                            \n" +
 "                                      '$(targetTableName)',                                                                                                                                            \n" +
@@ -101,7 +101,7 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "                                begin                                                                                                                                                                  \n" +
 "                                  $(custom_before_insert_text) \n" +
 "                                  if $(syncOnInsertCondition) and $(syncOnIncomingBatchCondition) then                                                                                                 \n" +
-"                                    insert into $(defaultSchema)$(prefixName)_data                                                                                                                     \n" +
+"                                    insert into $(defaultSchema)$(captureTable)                                                                                                                        \n" +
 "                                    (table_name, event_type, trigger_hist_id, pk_data, channel_id, transaction_id, source_node_id, external_data, create_time)                                        \n" +
 "                                    values(                                                                                                                                                            \n" +
 "                                      '$(targetTableName)',                                                                                                                                            \n" +
@@ -135,7 +135,7 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "                                    var_row_data := $(columns); \n" +
 "                                    var_old_data := $(oldColumns); \n" +
 "                                    if $(dataHasChangedCondition) then \n" +
-"                                    insert into $(defaultSchema)$(prefixName)_data                                                                                                                     \n" +
+"                                    insert into $(defaultSchema)$(captureTable)                                                                                                                        \n" +
 "                                    (table_name, event_type, trigger_hist_id, pk_data, row_data, old_data, channel_id, transaction_id, source_node_id, external_data, create_time)                     \n" +
 "                                    values(                                                                                                                                                            \n" +
 "                                      '$(targetTableName)',                                                                                                                                            \n" +
@@ -167,7 +167,7 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "                                    var_row_data := $(columns); \n" +
 "                                    var_old_data := $(oldColumns); \n" +
 "                                    if $(dataHasChangedCondition) then \n" +
-"                                    insert into $(defaultSchema)$(prefixName)_data                                                                                                                     \n" +
+"                                    insert into $(defaultSchema)$(captureTable)                                                                                                                        \n" +
 "                                    (table_name, event_type, trigger_hist_id, pk_data, channel_id, transaction_id, source_node_id, external_data, create_time)                     \n" +
 "                                    values(                                                                                                                                                            \n" +
 "                                      '$(targetTableName)',                                                                                                                                            \n" +
@@ -196,7 +196,7 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "                                begin                                                                                                                                                                  \n" +
 "                                  $(custom_before_delete_text) \n" +
 "                                  if $(syncOnDeleteCondition) and $(syncOnIncomingBatchCondition) then                                                                                                 \n" +
-"                                    insert into $(defaultSchema)$(prefixName)_data                                                                                                                     \n" +
+"                                    insert into $(defaultSchema)$(captureTable)                                                                                                                        \n" +
 "                                    (table_name, event_type, trigger_hist_id, pk_data, old_data, channel_id, transaction_id, source_node_id, external_data, create_time)                               \n" +
 "                                    values(                                                                                                                                                            \n" +
 "                                      '$(targetTableName)',                                                                                                                                            \n" +
@@ -224,6 +224,15 @@ public class PostgreSqlTriggerTemplate extends AbstractTriggerTemplate {
 "select $(columns) from $(schemaName)$(tableName) t where $(whereClause)                                                                                                                                " );
     }
 
+    @Override
+    protected String getCaptureTableName(String tablePrefix) {
+        if (PostgreSqlCaptureRotation.getTableCount(symmetricDialect.getParameterService()) > 0) {
+            return PostgreSqlCaptureRotation.getCaptureTableName(tablePrefix);
+        } else {
+            return super.getCaptureTableName(tablePrefix);
+        }
+    }
+
     @Override
     protected boolean requiresWrappedBlobTemplateForBlobType() {
         return true;
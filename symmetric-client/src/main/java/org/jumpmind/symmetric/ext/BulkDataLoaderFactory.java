@@ -55,6 +55,14 @@ public class BulkDataLoaderFactory implements IDataLoaderFactory, ISymmetricEngi
         } else if (DatabaseNamesConstants.REDSHIFT.equals(engine.getDatabasePlatform().getName())) {
             return new RedshiftBulkDataLoaderFactory(engine).getDataWriter(sourceNodeId, symmetricDialect, transformWriter,
                     filters, errorHandlers, conflictSettings, resolvedData);
+        } else if (DatabaseNamesConstants.H2.equals(engine.getDatabasePlatform().getName())
+                || DatabaseNamesConstants.DERBY.equals(engine.getDatabasePlatform().getName())
+                || DatabaseNamesConstants.SQLITE.equals(engine.getDatabasePlatform().getName())) {
+            return new EmbeddedBulkDataLoaderFactory(engine).getDataWriter(sourceNodeId, symmetricDialect, transformWriter,
+                    filters, errorHandlers, conflictSettings, resolvedData);
+        } else if (engine.getDatabasePlatform().getDatabaseInfo().isMultiRowInsertSupported()) {
+            return new MultiRowInsertBulkDataLoaderFactory(engine).getDataWriter(sourceNodeId, symmetricDialect, transformWriter,
+                    filters, errorHandlers, conflictSettings, resolvedData);
         } else {
             return dataLoaderFactories.get(new DefaultDataLoaderFactory().getTypeName()).getDataWriter(sourceNodeId,
                     symmetricDialect, transformWriter, filters, errorHandlers, conflictSettings, resolvedData);
@@ -70,7 +78,11 @@ public class BulkDataLoaderFactory implements IDataLoaderFactory, ISymmetricEngi
                 || DatabaseNamesConstants.ORACLE.equals(platform.getName())
                 || DatabaseNamesConstants.POSTGRESQL.equals(platform.getName())
                 || DatabaseNamesConstants.GREENPLUM.equals(platform.getName())
-                || DatabaseNamesConstants.REDSHIFT.equals(platform.getName())) {
+                || DatabaseNamesConstants.REDSHIFT.equals(platform.getName())
+                || DatabaseNamesConstants.H2.equals(platform.getName())
+                || DatabaseNamesConstants.DERBY.equals(platform.getName())
+                || DatabaseNamesConstants.SQLITE.equals(platform.getName())
+                || platform.getDatabaseInfo().isMultiRowInsertSupported()) {
             return true;
         }
         return false;
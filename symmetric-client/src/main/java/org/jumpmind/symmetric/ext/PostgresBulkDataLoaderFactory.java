@@ -56,10 +56,12 @@ public class PostgresBulkDataLoaderFactory extends DefaultDataLoaderFactory {
             List<? extends Conflict> conflictSettings, List<ResolvedData> resolvedData) {
 
         int maxRowsBeforeFlush = parameterService.getInt("postgres.bulk.load.max.rows.before.flush", 10000);
+        int bufferSize = parameterService.getInt("postgres.bulk.load.buffer.size", 262144);
+        int bufferCount = parameterService.getInt("postgres.bulk.load.buffer.count", 4);
         
         return new PostgresBulkDatabaseWriter(symmetricDialect.getPlatform(), 
                 buildDatabaseWriterSettings(filters, errorHandlers, conflictSettings, resolvedData), jdbcExtractor,
-                maxRowsBeforeFlush);
+                maxRowsBeforeFlush, bufferSize, bufferCount);
     }
 
     public boolean isPlatformSupported(IDatabasePlatform platform) {
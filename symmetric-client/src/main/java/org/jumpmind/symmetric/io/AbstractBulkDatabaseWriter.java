@@ -3,6 +3,7 @@ package org.jumpmind.symmetric.io;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
 import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
 import org.jumpmind.symmetric.model.IncomingBatch;
@@ -23,6 +24,10 @@ public abstract class AbstractBulkDatabaseWriter extends DefaultDatabaseWriter{
         if (useDefaultDataWriter) {
             writeDefault(data);
         }else{
+            if (data.getDataEventType() == DataEventType.INSERT) {
+                // apply queued primary key deletes and updates ahead of the bulk loaded rows
+                flushPrimaryKeyBatch();
+            }
             bulkWrite(data);
         }
     }
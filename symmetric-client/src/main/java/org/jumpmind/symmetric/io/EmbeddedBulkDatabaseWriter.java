@@ -0,0 +1,185 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.Conflict;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+
+/**
+ * Bulk writer for the embedded databases (H2, Derby and SQLite) that do not
+ * have a native bulk load API. Consecutive inserts for a table are queued up
+ * as a JDBC batch on the writer's transaction and executed every
+ * maxRowsBeforeFlush rows. Updates, deletes and everything else flush the
+ * pending inserts and are written by the default writer. The after write
+ * filters for the queued rows run once the JDBC batch has executed.
+ * <p>
+ * If a flush fails the batch errors out and is retried by the default writer,
+ * which is where conflict resolution happens.
+ */
+public class EmbeddedBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
+
+    protected int maxRowsBeforeFlush;
+
+    protected DmlStatement insertStatement;
+
+    protected List<CsvData> queuedData = new ArrayList<CsvData>();
+
+    public EmbeddedBulkDatabaseWriter(IDatabasePlatform platform, DatabaseWriterSettings settings,
+            int maxRowsBeforeFlush) {
+        super(platform, settings);
+        this.maxRowsBeforeFlush = maxRowsBeforeFlush;
+    }
+
+    @Override
+    public boolean start(Table table) {
+        flush();
+        return super.start(table);
+    }
+
+    @Override
+    public void end(Table table) {
+        flush();
+        super.end(table);
+    }
+
+    protected void bulkWrite(CsvData data) {
+        DataEventType dataEventType = data.getDataEventType();
+
+        switch (dataEventType) {
+            case INSERT:
+                statistics.get(batch).increment(DataWriterStatisticConstants.STATEMENTCOUNT);
+                statistics.get(batch).increment(DataWriterStatisticConstants.LINENUMBER);
+                if (filterBefore(data)) {
+                    statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+                    try {
+                        if (insertStatement == null) {
+                            prepareInsert();
+                        }
+                        Conflict conflict = writerSettings.pickConflict(targetTable, batch);
+                        String[] values = (String[]) ArrayUtils.addAll(getRowData(data, CsvData.ROW_DATA),
+                                insertStatement.getLookupKeyData(getLookupDataMap(data, conflict)));
+                        Object[] objectValues = platform.getObjectValues(batch.getBinaryEncoding(), values,
+                                insertStatement.getMetaData(), false, writerSettings.isFitToColumn());
+                        /*
+                         * The transaction executes the JDBC batch on its own
+                         * when it reaches db.jdbc.execute.batch.size rows
+                         */
+                        queuedData.add(data);
+                        countInserts(transaction.addRow(data, objectValues, insertStatement.getTypes()));
+                    } finally {
+                        statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+                    }
+                    uncommittedCount++;
+                    if (queuedData.size() >= maxRowsBeforeFlush) {
+                        flush();
+                    }
+                }
+                break;
+            case UPDATE:
+            case DELETE:
+            default:
+                flush();
+                writeDefault(data);
+                break;
+        }
+
+        checkForEarlyCommit();
+    }
+
+    protected void prepareInsert() {
+        insertStatement = platform.createDmlStatement(DmlType.INSERT, targetTable,
+                writerSettings.getTextColumnExpression());
+        if (log.isDebugEnabled()) {
+            log.debug("Preparing bulk dml: " + insertStatement.getSql());
+        }
+        /*
+         * The default writer shares the transaction, so make it prepare its own
+         * statement the next time it is used
+         */
+        currentDmlStatement = null;
+        transaction.prepare(insertStatement.getSql());
+        transaction.setInBatchMode(true);
+        queuedData.clear();
+    }
+
+    protected void flush() {
+        if (insertStatement != null) {
+            List<CsvData> rows = new ArrayList<CsvData>(queuedData);
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            try {
+                if (rows.size() > 0) {
+                    countInserts(transaction.flush());
+                }
+            } catch (SqlException ex) {
+                log.info("Failed to flush {} rows for the {} table from batch {}.  The last flushed line number of the batch was {}",
+                        new Object[] { rows.size(), targetTable.getFullyQualifiedTableName(), batch.getNodeBatchId(),
+                                statistics.get(batch).get(DataWriterStatisticConstants.LINENUMBER) });
+                throw ex;
+            } finally {
+                transaction.setInBatchMode(false);
+                insertStatement = null;
+                queuedData.clear();
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            }
+
+            for (CsvData data : rows) {
+                lastData = data;
+                filterAfter(data);
+            }
+        }
+    }
+
+    protected void countInserts(int count) {
+        if (count > 0) {
+            statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT, count);
+            getTargetTableStatistics().incrementInsertCount(count);
+        }
+    }
+
+    @Override
+    protected void commit(boolean earlyCommit) {
+        flush();
+        super.commit(earlyCommit);
+    }
+
+    @Override
+    protected void rollback() {
+        if (insertStatement != null) {
+            transaction.setInBatchMode(false);
+            insertStatement = null;
+            queuedData.clear();
+        }
+        super.rollback();
+    }
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.ConflictException;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+
+/**
+ * Platform neutral bulk writer for databases that support listing several
+ * rows in the values clause of an insert. Consecutive inserts for a table are
+ * buffered and written with one statement per flush. The number of rows in a
+ * statement is limited by the bind parameter limit in {@link DatabaseInfo}.
+ * <p>
+ * When a flush fails and the database can continue the transaction after a
+ * failed statement, the buffered rows are inserted one at a time so that
+ * conflicts are detected and resolved the same way the default writer does.
+ * Otherwise the batch errors and is retried by the default writer. The after
+ * write filters for the buffered rows run once the rows are inserted.
+ */
+public class MultiRowInsertBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
+
+    protected int maxRowsBeforeFlush;
+
+    protected int rowsPerStatement;
+
+    protected DmlStatement insertStatement;
+
+    protected String preparedSql;
+
+    protected List<CsvData> bufferedData = new ArrayList<CsvData>();
+
+    protected List<Object[]> bufferedValues = new ArrayList<Object[]>();
+
+    public MultiRowInsertBulkDatabaseWriter(IDatabasePlatform platform, DatabaseWriterSettings settings,
+            int maxRowsBeforeFlush) {
+        super(platform, settings);
+        this.maxRowsBeforeFlush = maxRowsBeforeFlush;
+    }
+
+    @Override
+    public boolean start(Table table) {
+        flush();
+        insertStatement = null;
+        return super.start(table);
+    }
+
+    @Override
+    public void end(Table table) {
+        flush();
+        super.end(table);
+    }
+
+    protected void bulkWrite(CsvData data) {
+        DataEventType dataEventType = data.getDataEventType();
+
+        switch (dataEventType) {
+            case INSERT:
+                statistics.get(batch).increment(DataWriterStatisticConstants.STATEMENTCOUNT);
+                statistics.get(batch).increment(DataWriterStatisticConstants.LINENUMBER);
+                if (filterBefore(data)) {
+                    if (insertStatement == null) {
+                        buildInsertStatement();
+                    }
+                    bufferedData.add(data);
+                    bufferedValues.add(platform.getObjectValues(batch.getBinaryEncoding(),
+                            getRowData(data, CsvData.ROW_DATA), insertStatement.getMetaData(), false,
+                            writerSettings.isFitToColumn()));
+                    uncommittedCount++;
+                    if (bufferedData.size() >= rowsPerStatement) {
+                        flush();
+                    }
+                }
+                break;
+            case UPDATE:
+            case DELETE:
+            default:
+                flush();
+                preparedSql = null;
+                writeDefault(data);
+                break;
+        }
+
+        checkForEarlyCommit();
+    }
+
+    protected void buildInsertStatement() {
+        insertStatement = platform.createDmlStatement(DmlType.INSERT, targetTable.getCatalog(),
+                targetTable.getSchema(), targetTable.getName(), null, targetTable.getColumns(), null,
+                writerSettings.getTextColumnExpression());
+        rowsPerStatement = Math.max(1, maxRowsBeforeFlush);
+        DatabaseInfo databaseInfo = platform.getDatabaseInfo();
+        int parametersPerRow = insertStatement.getTypes().length;
+        if (databaseInfo.getMaxBindParameters() > 0 && parametersPerRow > 0) {
+            rowsPerStatement = Math.min(rowsPerStatement,
+                    Math.max(1, databaseInfo.getMaxBindParameters() / parametersPerRow));
+        }
+    }
+
+    protected void flush() {
+        if (bufferedData.size() > 0) {
+            List<CsvData> rows = new ArrayList<CsvData>(bufferedData);
+            boolean fallBackToRowByRow = false;
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            try {
+                String sql = insertStatement.buildMultiRowInsertSql(rows.size());
+                int[] rowTypes = insertStatement.getTypes();
+                int[] types = new int[rowTypes.length * rows.size()];
+                Object[] values = new Object[rowTypes.length * rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    System.arraycopy(rowTypes, 0, types, i * rowTypes.length, rowTypes.length);
+                    System.arraycopy(bufferedValues.get(i), 0, values, i * rowTypes.length, rowTypes.length);
+                }
+                if (!sql.equals(preparedSql)) {
+                    /*
+                     * The default writer shares the transaction, so make it
+                     * prepare its own statement the next time it is used
+                     */
+                    currentDmlStatement = null;
+                    transaction.prepare(sql);
+                    preparedSql = sql;
+                }
+                long count = transaction.addRow(null, values, types);
+                statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT, count);
+                getTargetTableStatistics().incrementInsertCount(count);
+            } catch (SqlException ex) {
+                preparedSql = null;
+                if (platform.getDatabaseInfo().isRequiresSavePointsInTransaction()) {
+                    log.info("Failed to flush {} rows for the {} table from batch {}.  The last flushed line number of the batch was {}",
+                            new Object[] { rows.size(), targetTable.getFullyQualifiedTableName(), batch.getNodeBatchId(),
+                                    statistics.get(batch).get(DataWriterStatisticConstants.LINENUMBER) });
+                    throw ex;
+                }
+                log.debug("Failed to insert {} rows with one statement.  Falling back to inserting them one at a time", rows.size());
+                fallBackToRowByRow = true;
+            } finally {
+                bufferedData.clear();
+                bufferedValues.clear();
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            }
+
+            if (fallBackToRowByRow) {
+                insertRowByRow(rows);
+            } else {
+                for (CsvData data : rows) {
+                    lastData = data;
+                    filterAfter(data);
+                }
+            }
+        }
+    }
+
+    protected void insertRowByRow(List<CsvData> rows) {
+        currentDmlStatement = null;
+        for (CsvData data : rows) {
+            context.put(CONFLICT_ERROR, null);
+            LoadStatus loadStatus = insert(data);
+            if (loadStatus == LoadStatus.CONFLICT) {
+                if (conflictResolver != null) {
+                    conflictResolver.needsResolved(this, data, loadStatus);
+                } else {
+                    throw new ConflictException(data, targetTable, false,
+                            writerSettings.pickConflict(targetTable, batch),
+                            (Exception) context.get(CONFLICT_ERROR));
+                }
+            }
+            lastData = data;
+            filterAfter(data);
+        }
+    }
+
+    @Override
+    protected void targetTableWasChangedByFilter(Table oldTargetTable) {
+        flush();
+        insertStatement = null;
+        super.targetTableWasChangedByFilter(oldTargetTable);
+    }
+
+    @Override
+    protected void commit(boolean earlyCommit) {
+        flush();
+        super.commit(earlyCommit);
+    }
+
+    @Override
+    protected void rollback() {
+        bufferedData.clear();
+        bufferedValues.clear();
+        preparedSql = null;
+        super.rollback();
+    }
+
+}
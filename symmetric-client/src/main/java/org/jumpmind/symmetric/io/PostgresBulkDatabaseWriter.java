@@ -22,6 +22,10 @@ package org.jumpmind.symmetric.io;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.binary.Hex;
@@ -40,11 +44,24 @@ import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.jumpmind.util.CustomizableThreadFactory;
 import org.postgresql.copy.CopyIn;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 
+/**
+ * Loads inserts with the PostgreSQL COPY command. Rows are encoded on the
+ * loader thread into pooled byte buffers. Full buffers are streamed to
+ * {@link CopyIn} by a dedicated copy thread, so encoding and the database write
+ * overlap. The number of buffers in the pool bounds how far the encoder can get
+ * ahead of the database.
+ * <p>
+ * The COPY stays open for consecutive inserts into the same table and columns,
+ * even across table boundaries in the batch. It ends when a different table
+ * starts, a non insert event arrives or the batch ends, so the rows are in the
+ * table before the filters are told the batch is complete.
+ */
 public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
 
     protected NativeJdbcExtractor jdbcExtractor;
@@ -55,15 +72,41 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
 
     protected CopyIn copyIn;
 
+    protected String copySql;
+
     protected int loadedRows = 0;
 
     protected boolean needsBinaryConversion;
-    
+
+    protected int bufferSize;
+
+    protected int bufferCount;
+
+    protected int allocatedBuffers;
+
+    protected BlockingQueue<byte[]> bufferPool;
+
+    protected byte[] currentBuffer;
+
+    protected int currentBufferLength;
+
+    protected ExecutorService copyExecutor;
+
+    protected volatile Exception copyException;
+
     public PostgresBulkDatabaseWriter(IDatabasePlatform platform, DatabaseWriterSettings settings,
             NativeJdbcExtractor jdbcExtractor, int maxRowsBeforeFlush) {
+        this(platform, settings, jdbcExtractor, maxRowsBeforeFlush, 256 * 1024, 4);
+    }
+
+    public PostgresBulkDatabaseWriter(IDatabasePlatform platform, DatabaseWriterSettings settings,
+            NativeJdbcExtractor jdbcExtractor, int maxRowsBeforeFlush, int bufferSize, int bufferCount) {
         super(platform, settings);
         this.jdbcExtractor = jdbcExtractor;
         this.maxRowsBeforeFlush = maxRowsBeforeFlush;
+        this.bufferSize = Math.max(1024, bufferSize);
+        this.bufferCount = Math.max(2, bufferCount);
+        this.bufferPool = new ArrayBlockingQueue<byte[]>(this.bufferCount);
     }
     
     @Override
@@ -103,12 +146,11 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
                         }
                         String formattedData = CsvUtils.escapeCsvData(parsedData, '\n', '\'', CsvWriter.ESCAPE_MODE_DOUBLED);
                         byte[] dataToLoad = formattedData.getBytes();
-                        copyIn.writeToCopy(dataToLoad, 0, dataToLoad.length);
+                        writeToCopy(dataToLoad);
                         loadedRows++;
                     } catch (Exception ex) {
                         throw getPlatform().getSqlTemplate().translate(ex);
                     }
-                    //endCopy();
                     break;
                 case UPDATE:
                 case DELETE:
@@ -130,9 +172,95 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
         statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
     }
 
+    /**
+     * Appends an encoded row to the current buffer, handing the buffer off to
+     * the copy thread when it is full. Blocks when every pooled buffer is
+     * waiting to be written.
+     */
+    protected void writeToCopy(byte[] dataToLoad) throws InterruptedException {
+        checkCopyException();
+        if (currentBuffer != null && currentBufferLength + dataToLoad.length > currentBuffer.length) {
+            submitCurrentBuffer();
+        }
+        if (dataToLoad.length > bufferSize) {
+            submitBuffer(dataToLoad, dataToLoad.length);
+        } else {
+            if (currentBuffer == null) {
+                currentBuffer = bufferPool.poll();
+                if (currentBuffer == null && allocatedBuffers < bufferCount) {
+                    currentBuffer = new byte[bufferSize];
+                    allocatedBuffers++;
+                } else if (currentBuffer == null) {
+                    currentBuffer = bufferPool.take();
+                }
+                currentBufferLength = 0;
+            }
+            System.arraycopy(dataToLoad, 0, currentBuffer, currentBufferLength, dataToLoad.length);
+            currentBufferLength += dataToLoad.length;
+        }
+    }
+
+    protected void submitCurrentBuffer() {
+        if (currentBuffer != null) {
+            if (currentBufferLength > 0) {
+                submitBuffer(currentBuffer, currentBufferLength);
+            } else {
+                bufferPool.offer(currentBuffer);
+            }
+            currentBuffer = null;
+            currentBufferLength = 0;
+        }
+    }
+
+    protected void submitBuffer(final byte[] buffer, final int length) {
+        final CopyIn copy = copyIn;
+        copyExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (copyException == null) {
+                        copy.writeToCopy(buffer, 0, length);
+                    }
+                } catch (Exception ex) {
+                    copyException = ex;
+                } finally {
+                    if (buffer.length == bufferSize) {
+                        bufferPool.offer(buffer);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Hands off the partially filled buffer and waits for the copy thread to
+     * write everything it has been given. Afterwards the loader thread is the
+     * only one using the copy.
+     */
+    protected void drain() {
+        submitCurrentBuffer();
+        try {
+            copyExecutor.submit(new Runnable() {
+                public void run() {
+                }
+            }).get();
+        } catch (Exception ex) {
+            throw getPlatform().getSqlTemplate().translate(ex);
+        }
+    }
+
+    protected void checkCopyException() {
+        Exception ex = copyException;
+        if (ex != null) {
+            copyException = null;
+            throw getPlatform().getSqlTemplate().translate(ex);
+        }
+    }
+
     protected void flush() {
         if (copyIn != null) {
             try {
+                drain();
+                checkCopyException();
                 if (copyIn.isActive()) {
                     copyIn.flushCopy();
                 }
@@ -152,6 +280,18 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
         } catch (Exception ex) {
             throw getPlatform().getSqlTemplate().translate(ex);
         }
+        if (copyExecutor == null) {
+            copyExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("postgres-bulk-copy"));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (copyExecutor != null) {
+            copyExecutor.shutdown();
+            copyExecutor = null;
+        }
+        super.close();
     }
 
     protected void startCopy() {
@@ -162,6 +302,7 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
                     log.debug("starting bulk copy using: {}", sql);
                 }
                 copyIn = copyManager.copyIn(sql);
+                copySql = sql;
             } catch (Exception ex) {
                 throw getPlatform().getSqlTemplate().translate(ex);
             }
@@ -184,34 +325,63 @@ public class PostgresBulkDatabaseWriter extends AbstractBulkDatabaseWriter {
                     throw getPlatform().getSqlTemplate().translate(ex);
                 } finally {
                     copyIn = null;
+                    copySql = null;
                 }
             }
         }
     }
+
+    protected void cancelCopy() {
+        if (copyIn != null) {
+            try {
+                drain();
+            } catch (Exception ex) {
+                log.warn("Failed to finish writing to the bulk copy before cancelling it", ex);
+            }
+            try {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            } catch (SQLException ex) {
+                log.warn("Failed to cancel the bulk copy", ex);
+            } finally {
+                copyIn = null;
+                copySql = null;
+                copyException = null;
+            }
+        }
+    }
     
     @Override
     public boolean start(Table table) {
-        return super.start(table);
+        boolean process = super.start(table);
+        if (copyIn != null && (targetTable == null || !createCopyMgrSql().equals(copySql))) {
+            endCopy();
+        }
+        return process;
     }
 
     @Override
     public void end(Table table) {
-        try {
-            endCopy();
-        } finally {
-            super.end(table);
-        }
+        /*
+         * The copy is left open in case the next table is the same table.  It
+         * is ended by start(Table) or when the batch ends.
+         */
+        super.end(table);
+    }
+
+    @Override
+    protected void commit(boolean earlyCommit) {
+        endCopy();
+        super.commit(earlyCommit);
     }
 
     @Override
     public void end(Batch batch, boolean inError) {
-        if (inError && copyIn != null) {
-            try {
-                copyIn.cancelCopy();
-            } catch (SQLException e) {
-            } finally {
-                copyIn = null;
-            }
+        if (inError) {
+            cancelCopy();
+        } else {
+            endCopy();
         }
         super.end(batch, inError);
     }
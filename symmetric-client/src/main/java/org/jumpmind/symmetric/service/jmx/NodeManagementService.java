@@ -42,6 +42,9 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.statistic.NodeChannelLag;
+import org.jumpmind.symmetric.statistic.ReplicationLagTracker;
+import org.jumpmind.symmetric.statistic.SequenceStats;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.NodeConnectionStatistics;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -260,6 +263,91 @@ public class NodeManagementService implements IBuiltInExtensionPoint, ISymmetric
         engine.getClusterService().clearAllLocks();
     }
 
+    @ManagedAttribute(description = "The age in milliseconds of the oldest batch not yet acknowledged by any node")
+    public long getReplicationLagMillis() {
+        return engine.getStatisticManager().getReplicationLagTracker().getMaxLagMillis();
+    }
+
+    @ManagedAttribute(description = "The create time of the newest captured data minus that of the newest routed data")
+    public long getRoutingLagMillis() {
+        return engine.getStatisticManager().getReplicationLagTracker().getRoutingLagMillis();
+    }
+
+    @ManagedAttribute(description = "The number of data ids captured past the newest routed data id")
+    public long getUnroutedDataIdCount() {
+        return engine.getStatisticManager().getReplicationLagTracker().getUnroutedDataCount();
+    }
+
+    @ManagedOperation(description = "Get the age in milliseconds of the oldest batch not yet acknowledged by a node")
+    @ManagedOperationParameters({ @ManagedOperationParameter(name = "nodeId", description = "The node id") })
+    public long getReplicationLagMillisForNode(String nodeId) {
+        return engine.getStatisticManager().getReplicationLagTracker().getLagMillis(nodeId);
+    }
+
+    @ManagedOperation(description = "Get the number of rows routed to a node but not yet acknowledged")
+    @ManagedOperationParameters({ @ManagedOperationParameter(name = "nodeId", description = "The node id") })
+    public long getUnacknowledgedRowCountForNode(String nodeId) {
+        return engine.getStatisticManager().getReplicationLagTracker().getUnacknowledgedRowCount(nodeId);
+    }
+
+    @ManagedAttribute(description = "Get the replication watermarks and lag for each node and channel")
+    public String getReplicationLagAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        ReplicationLagTracker lagTracker = engine.getStatisticManager().getReplicationLagTracker();
+        long now = System.currentTimeMillis();
+        StringBuilder out = new StringBuilder();
+        out.append("CAPTURED: ").append(lagTracker.getCaptured());
+        out.append("   ROUTING LAG MS: ").append(lagTracker.getRoutingLagMillis());
+        out.append(lineFeed);
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        out.append("             NODE ID          CHANNEL ID        ROUTED     EXTRACTED          SENT         ACKED  UNACKED ROWS        LAG MS");
+        out.append(lineFeed);
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        for (NodeChannelLag lag : lagTracker.getNodeChannelLags()) {
+            out.append(StringUtils.leftPad(lag.getNodeId(), 20));
+            out.append(StringUtils.leftPad(lag.getChannelId(), 20));
+            out.append(StringUtils.leftPad(Long.toString(lag.getRouted().getId()), 14));
+            out.append(StringUtils.leftPad(Long.toString(lag.getExtracted().getId()), 14));
+            out.append(StringUtils.leftPad(Long.toString(lag.getSent().getId()), 14));
+            out.append(StringUtils.leftPad(Long.toString(lag.getAcknowledged().getId()), 14));
+            out.append(StringUtils.leftPad(Long.toString(lag.getUnacknowledgedRowCount()), 14));
+            out.append(StringUtils.leftPad(Long.toString(lag.getLagMillis(now)), 14));
+            out.append(lineFeed);
+        }
+        return out.toString();
+    }
+
+    @ManagedAttribute(description = "Get the number of blocks reserved, how long they took and the contention for each sequence")
+    public String getSequenceStatisticsAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        StringBuilder out = new StringBuilder();
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        out.append("       SEQUENCE NAME       REFILLS  VALUES RESERVED   AVG REFILL MS   MAX REFILL MS  LAST REFILL MS    CONTENTION");
+        out.append(lineFeed);
+        out.append("-------------------------------------------------------------------------------------------------------------------------------");
+        out.append(lineFeed);
+        for (SequenceStats stats : engine.getSequenceService().getSequenceStats().values()) {
+            out.append(StringUtils.leftPad(stats.getSequenceName(), 20));
+            out.append(StringUtils.leftPad(Long.toString(stats.getRefillCount()), 14));
+            out.append(StringUtils.leftPad(Long.toString(stats.getValuesReserved()), 17));
+            out.append(StringUtils.leftPad(Long.toString(stats.getAverageRefillMillis()), 16));
+            out.append(StringUtils.leftPad(Long.toString(stats.getMaxRefillMillis()), 16));
+            out.append(StringUtils.leftPad(Long.toString(stats.getLastRefillMillis()), 16));
+            out.append(StringUtils.leftPad(Long.toString(stats.getContentionCount()), 14));
+            out.append(lineFeed);
+        }
+        return out.toString();
+    }
+
     @ManagedOperation(description = "Check to see if the initial load for a node id is complete.  This method will throw an exception if the load error'd out or was never started.")
     @ManagedOperationParameters({ @ManagedOperationParameter(name = "nodeId", description = "The node id") })
     public boolean areAllLoadBatchesComplete(String nodeId) {
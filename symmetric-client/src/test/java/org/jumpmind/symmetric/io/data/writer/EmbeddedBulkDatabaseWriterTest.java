@@ -0,0 +1,158 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.h2.H2DatabasePlatform;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.symmetric.io.EmbeddedBulkDatabaseWriter;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class EmbeddedBulkDatabaseWriterTest extends AbstractBulkDatabaseWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        String driver = DbTestUtils.getEnvironmentSpecificProperties(DbTestUtils.ROOT).get(
+                BasicDataSourcePropertyConstants.DB_POOL_DRIVER);
+        if (driver.equals("org.h2.Driver")) {
+            platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+            platform.createDatabase(platform.readDatabaseFromXml("/testBulkWriter.xml", true), true, false);
+        }
+    }
+
+    @Before
+    public void setupTest() {
+        setErrorExpected(false);
+    }
+
+    protected boolean shouldTestRun(IDatabasePlatform platform) {
+        return platform != null && platform instanceof H2DatabasePlatform;
+    }
+
+    @Test
+    public void testInsertCountFromFlushedRows() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            List<CsvData> data = new ArrayList<CsvData>();
+            for (int i = 0; i < 25; i++) {
+                data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+            }
+            Assert.assertEquals(25, writeData(data));
+            Assert.assertEquals(25, countRows(getTestTable()));
+
+            long insertCount = 0;
+            for (Statistics statistics : lastDataWriterUsed.getStatistics().values()) {
+                insertCount += statistics.get(DataWriterStatisticConstants.INSERTCOUNT);
+            }
+            Assert.assertEquals(25, insertCount);
+        }
+    }
+
+    @Test
+    public void testInsertCountAcrossJdbcBatches() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            /*
+             * More than the default db.jdbc.execute.batch.size of 100, so the
+             * transaction executes the JDBC batch while rows are added
+             */
+            int rowCount = 250;
+            List<CsvData> data = new ArrayList<CsvData>();
+            for (int i = 0; i < rowCount; i++) {
+                data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+            }
+            Table table = platform.getTableFromCache(getTestTable(), false);
+            EmbeddedBulkDatabaseWriter writer = new EmbeddedBulkDatabaseWriter(platform, writerSettings,
+                    rowCount + 1);
+            Assert.assertEquals(rowCount, writeData(writer, new TableCsvData(table, data)));
+            Assert.assertEquals(rowCount, countRows(getTestTable()));
+
+            long insertCount = 0;
+            for (Statistics statistics : writer.getStatistics().values()) {
+                insertCount += statistics.get(DataWriterStatisticConstants.INSERTCOUNT);
+            }
+            Assert.assertEquals(rowCount, insertCount);
+        }
+    }
+
+    @Test
+    public void testAfterWriteFiltersRunOnceRowsAreFlushed() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            final List<Long> rowsSeenByFilter = new ArrayList<Long>();
+            final List<EmbeddedBulkDatabaseWriter> writers = new ArrayList<EmbeddedBulkDatabaseWriter>();
+            List<IDatabaseWriterFilter> filters = writerSettings.getDatabaseWriterFilters();
+            List<IDatabaseWriterFilter> testFilters = new ArrayList<IDatabaseWriterFilter>();
+            testFilters.add(new DatabaseWriterFilterAdapter() {
+                @Override
+                public void afterWrite(DataContext context, Table table, CsvData data) {
+                    rowsSeenByFilter.add(writers.get(0).getTransaction().queryForLong(
+                            "select count(*) from " + getTestTable()));
+                }
+            });
+            writerSettings.setDatabaseWriterFilters(testFilters);
+            try {
+                EmbeddedBulkDatabaseWriter writer = (EmbeddedBulkDatabaseWriter) create();
+                writers.add(writer);
+                List<CsvData> data = new ArrayList<CsvData>();
+                for (int i = 0; i < 15; i++) {
+                    data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+                }
+                Table table = platform.getTableFromCache(getTestTable(), false);
+                Assert.assertEquals(15, writeData(writer, new TableCsvData(table, data)));
+                Assert.assertEquals(15, rowsSeenByFilter.size());
+                for (int i = 0; i < rowsSeenByFilter.size(); i++) {
+                    Assert.assertEquals(i < 10 ? 10l : 15l, rowsSeenByFilter.get(i).longValue());
+                }
+            } finally {
+                writerSettings.setDatabaseWriterFilters(filters);
+            }
+        }
+    }
+
+    protected String[] newValues(String id) {
+        return new String[] { id, "stri'ng2", "string not null2", "char2", "char not null2",
+                "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663",
+                encode("string") };
+    }
+
+    protected AbstractDatabaseWriter create() {
+        return new EmbeddedBulkDatabaseWriter(platform, writerSettings, 10);
+    }
+
+    protected long writeData(List<CsvData> data) {
+        Table table = platform.getTableFromCache(getTestTable(), false);
+        return writeData(create(), new TableCsvData(table, data));
+    }
+
+}
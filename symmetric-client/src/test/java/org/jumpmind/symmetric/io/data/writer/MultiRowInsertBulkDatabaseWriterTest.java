@@ -0,0 +1,200 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.h2.H2DatabasePlatform;
+import org.jumpmind.db.platform.hsqldb2.HsqlDb2DatabasePlatform;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.symmetric.io.MultiRowInsertBulkDatabaseWriter;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MultiRowInsertBulkDatabaseWriterTest extends AbstractBulkDatabaseWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        String driver = DbTestUtils.getEnvironmentSpecificProperties(DbTestUtils.ROOT).get(
+                BasicDataSourcePropertyConstants.DB_POOL_DRIVER);
+        if (driver.equals("org.h2.Driver") || driver.equals("org.hsqldb.jdbcDriver")) {
+            platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+            platform.createDatabase(platform.readDatabaseFromXml("/testBulkWriter.xml", true), true, false);
+        }
+    }
+
+    @Before
+    public void setupTest() {
+        setErrorExpected(false);
+    }
+
+    protected boolean shouldTestRun(IDatabasePlatform platform) {
+        return platform != null
+                && (platform instanceof H2DatabasePlatform || platform instanceof HsqlDb2DatabasePlatform);
+    }
+
+    @Override
+    @Test
+    public void testDuplicateRow() {
+        if (shouldTestRun(platform)) {
+            /*
+             * The failed flush is replayed one row at a time in the same
+             * transaction, so the duplicate is resolved on the first try
+             */
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            String id = getNextId();
+            List<CsvData> data = new ArrayList<CsvData>();
+            data.add(new CsvData(DataEventType.INSERT, newValues(id)));
+            data.add(new CsvData(DataEventType.INSERT, newValues(id)));
+            Assert.assertEquals(2, writeData(data));
+            Assert.assertEquals(1, countRows(getTestTable()));
+        }
+    }
+
+    @Test
+    public void testInsertExistingRowFallsBackToRowByRow() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            String existingId = getNextId();
+            insertAndVerify(newValues(existingId));
+
+            List<CsvData> data = new ArrayList<CsvData>();
+            data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+            String[] updatedValues = newValues(existingId);
+            updatedValues[1] = "updated by fallback";
+            data.add(new CsvData(DataEventType.INSERT, updatedValues));
+            data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+            Assert.assertEquals(3, writeData(data));
+            Assert.assertEquals(3, countRows(getTestTable()));
+            assertTestTableEquals(existingId, newValues(existingId, "updated by fallback"));
+        }
+    }
+
+    @Test
+    public void testRowsPerStatementLimitedByBindParameters() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            int maxBindParameters = platform.getDatabaseInfo().getMaxBindParameters();
+            platform.getDatabaseInfo().setMaxBindParameters(TEST_COLUMNS.length * 4);
+            try {
+                final List<Integer> flushedRows = new ArrayList<Integer>();
+                MultiRowInsertBulkDatabaseWriter writer = new MultiRowInsertBulkDatabaseWriter(platform,
+                        writerSettings, 10) {
+                    @Override
+                    protected void flush() {
+                        if (bufferedData.size() > 0) {
+                            flushedRows.add(bufferedData.size());
+                        }
+                        super.flush();
+                    }
+                };
+                List<CsvData> data = new ArrayList<CsvData>();
+                for (int i = 0; i < 10; i++) {
+                    data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+                }
+                Table table = platform.getTableFromCache(getTestTable(), false);
+                Assert.assertEquals(10, writeData(writer, new TableCsvData(table, data)));
+                Assert.assertEquals(10, countRows(getTestTable()));
+                Assert.assertEquals("[4, 4, 2]", flushedRows.toString());
+            } finally {
+                platform.getDatabaseInfo().setMaxBindParameters(maxBindParameters);
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateFlushesBufferedInserts() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            String id = getNextId();
+            List<CsvData> data = new ArrayList<CsvData>();
+            data.add(new CsvData(DataEventType.INSERT, newValues(id)));
+            data.add(new CsvData(DataEventType.UPDATE, new String[] { id }, newValues(id,
+                    "updated after insert")));
+            Assert.assertEquals(2, writeData(data));
+            assertTestTableEquals(id, newValues(id, "updated after insert"));
+        }
+    }
+
+    @Test
+    public void testAfterWriteFiltersRunOnceRowsAreInserted() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            final List<Long> rowsSeenByFilter = new ArrayList<Long>();
+            final List<MultiRowInsertBulkDatabaseWriter> writers = new ArrayList<MultiRowInsertBulkDatabaseWriter>();
+            List<IDatabaseWriterFilter> filters = writerSettings.getDatabaseWriterFilters();
+            List<IDatabaseWriterFilter> testFilters = new ArrayList<IDatabaseWriterFilter>();
+            testFilters.add(new DatabaseWriterFilterAdapter() {
+                @Override
+                public void afterWrite(DataContext context, Table table, CsvData data) {
+                    rowsSeenByFilter.add(writers.get(0).getTransaction().queryForLong(
+                            "select count(*) from " + getTestTable()));
+                }
+            });
+            writerSettings.setDatabaseWriterFilters(testFilters);
+            try {
+                MultiRowInsertBulkDatabaseWriter writer = (MultiRowInsertBulkDatabaseWriter) create();
+                writers.add(writer);
+                List<CsvData> data = new ArrayList<CsvData>();
+                for (int i = 0; i < 15; i++) {
+                    data.add(new CsvData(DataEventType.INSERT, newValues(getNextId())));
+                }
+                Table table = platform.getTableFromCache(getTestTable(), false);
+                Assert.assertEquals(15, writeData(writer, new TableCsvData(table, data)));
+                Assert.assertEquals(15, rowsSeenByFilter.size());
+                for (int i = 0; i < rowsSeenByFilter.size(); i++) {
+                    Assert.assertEquals(i < 10 ? 10l : 15l, rowsSeenByFilter.get(i).longValue());
+                }
+            } finally {
+                writerSettings.setDatabaseWriterFilters(filters);
+            }
+        }
+    }
+
+    protected String[] newValues(String id) {
+        return newValues(id, "stri'ng2");
+    }
+
+    protected String[] newValues(String id, String stringValue) {
+        return new String[] { id, stringValue, "string not null2", "char2", "char not null2",
+                "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663",
+                encode("string") };
+    }
+
+    protected AbstractDatabaseWriter create() {
+        return new MultiRowInsertBulkDatabaseWriter(platform, writerSettings, 10);
+    }
+
+    protected long writeData(List<CsvData> data) {
+        Table table = platform.getTableFromCache(getTestTable(), false);
+        return writeData(create(), new TableCsvData(table, data));
+    }
+
+}
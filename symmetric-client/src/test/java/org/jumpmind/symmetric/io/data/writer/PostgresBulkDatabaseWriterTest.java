@@ -20,14 +20,22 @@
  */
 package org.jumpmind.symmetric.io.data.writer;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.jumpmind.db.DbTestUtils;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.platform.postgresql.PostgreSqlDatabasePlatform;
 import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.symmetric.io.PostgresBulkDatabaseWriter;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
 import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -55,6 +63,106 @@ public class PostgresBulkDatabaseWriterTest extends AbstractBulkDatabaseWriterTe
     public void testInsertWithNonEscaped() {
     }
 
+    @Test
+    public void testCopySpansSeveralTables() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table test_bulkload_table_1");
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            Table table1 = platform.getTableFromCache("test_bulkload_table_1", false);
+            Table table2 = platform.getTableFromCache(getTestTable(), false);
+
+            PostgresBulkDatabaseWriter writer = (PostgresBulkDatabaseWriter) create();
+            List<Table> tables = new ArrayList<Table>();
+            List<List<CsvData>> datas = new ArrayList<List<CsvData>>();
+            tables.add(table2);
+            datas.add(newInserts(3, true));
+            tables.add(table2);
+            datas.add(newInserts(2, true));
+            tables.add(table1);
+            datas.add(newInserts(2, false));
+            tables.add(table2);
+            datas.add(newInserts(1, true));
+            writeBatch(writer, tables, datas);
+
+            Assert.assertEquals(6, countRows(getTestTable()));
+            Assert.assertEquals(2, countRows("test_bulkload_table_1"));
+        }
+    }
+
+    @Test
+    public void testBatchCompleteSeesCopiedRows() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            Table table = platform.getTableFromCache(getTestTable(), false);
+
+            final List<Integer> rowsAtBatchComplete = new ArrayList<Integer>();
+            final PostgresBulkDatabaseWriter[] writer = new PostgresBulkDatabaseWriter[1];
+            DatabaseWriterSettings settings = new DatabaseWriterSettings();
+            List<IDatabaseWriterFilter> filters = new ArrayList<IDatabaseWriterFilter>();
+            filters.add(new DatabaseWriterFilterAdapter() {
+                @Override
+                public void batchComplete(DataContext context) {
+                    rowsAtBatchComplete.add(writer[0].getTransaction().queryForInt(
+                            "select count(*) from " + getTestTable()));
+                }
+            });
+            settings.setDatabaseWriterFilters(filters);
+            writer[0] = new PostgresBulkDatabaseWriter(platform, settings,
+                    new CommonsDbcpNativeJdbcExtractor(), 1000);
+
+            List<List<CsvData>> datas = new ArrayList<List<CsvData>>();
+            datas.add(newInserts(5, true));
+            writeBatch(writer[0], Collections.singletonList(table), datas);
+
+            Assert.assertEquals(1, rowsAtBatchComplete.size());
+            Assert.assertEquals(5, rowsAtBatchComplete.get(0).intValue());
+            Assert.assertEquals(5, countRows(getTestTable()));
+        }
+    }
+
+    /**
+     * Writes all of the tables in one batch so the copy can stay open across
+     * the table boundaries.
+     */
+    protected void writeBatch(AbstractDatabaseWriter writer, List<Table> tables, List<List<CsvData>> datas) {
+        Batch batch = new Batch(BatchType.LOAD, getNextBatchId(), "default", BinaryEncoding.BASE64,
+                "00000", "00001", false);
+        writer.open(new DataContext(batch));
+        try {
+            writer.start(batch);
+            for (int i = 0; i < tables.size(); i++) {
+                if (writer.start(tables.get(i))) {
+                    for (CsvData data : datas.get(i)) {
+                        writer.write(data);
+                    }
+                    writer.end(tables.get(i));
+                }
+            }
+            writer.end(batch, false);
+        } catch (RuntimeException ex) {
+            writer.end(batch, true);
+            throw ex;
+        } finally {
+            writer.close();
+        }
+    }
+
+    protected List<CsvData> newInserts(int count, boolean withBlob) {
+        List<CsvData> data = new ArrayList<CsvData>();
+        for (int i = 0; i < count; i++) {
+            String[] values = { getNextId(), "stri'ng2", "string not null2", "char2", "char not null2",
+                    "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663" };
+            if (withBlob) {
+                String[] valuesWithBlob = new String[values.length + 1];
+                System.arraycopy(values, 0, valuesWithBlob, 0, values.length);
+                valuesWithBlob[values.length] = encode("string");
+                values = valuesWithBlob;
+            }
+            data.add(new CsvData(DataEventType.INSERT, values));
+        }
+        return data;
+    }
+
     protected boolean shouldTestRun(IDatabasePlatform platform) {
         return platform != null && platform instanceof PostgreSqlDatabasePlatform;
     }
@@ -68,6 +68,7 @@ import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IBandwidthService;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.IContextService;
 import org.jumpmind.symmetric.service.IDataExtractorService;
 import org.jumpmind.symmetric.service.IDataLoaderService;
@@ -97,6 +98,7 @@ import org.jumpmind.symmetric.service.impl.AcknowledgeService;
 import org.jumpmind.symmetric.service.impl.BandwidthService;
 import org.jumpmind.symmetric.service.impl.ClusterService;
 import org.jumpmind.symmetric.service.impl.ConfigurationService;
+import org.jumpmind.symmetric.service.impl.ConfigurationVersionService;
 import org.jumpmind.symmetric.service.impl.ContextService;
 import org.jumpmind.symmetric.service.impl.DataExtractorService;
 import org.jumpmind.symmetric.service.impl.DataLoaderService;
@@ -127,6 +129,7 @@ import org.jumpmind.symmetric.statistic.StatisticManager;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.ITransportManager;
+import org.jumpmind.symmetric.transport.PullNotifier;
 import org.jumpmind.symmetric.transport.TransportManagerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -171,6 +174,8 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
 
     protected IConcurrentConnectionManager concurrentConnectionManager;
 
+    protected PullNotifier pullNotifier;
+
     protected ITransportManager transportManager;
     
     protected ITransportManager offlineTransportManager;
@@ -215,6 +220,8 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
 
     protected ISequenceService sequenceService;
 
+    protected IConfigurationVersionService configurationVersionService;
+
     protected IExtensionService extensionService;
     
     protected IGroupletService groupletService;
@@ -322,9 +329,12 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         this.bandwidthService = new BandwidthService(parameterService);
         this.sequenceService = new SequenceService(parameterService, symmetricDialect);
         this.stagingManager = createStagingManager();
-        this.nodeService = new NodeService(parameterService, symmetricDialect, securityService, extensionService);
+        this.configurationVersionService = new ConfigurationVersionService(parameterService,
+                symmetricDialect, sequenceService);
+        this.nodeService = new NodeService(parameterService, symmetricDialect, securityService,
+                extensionService, configurationVersionService);
         this.configurationService = new ConfigurationService(parameterService, symmetricDialect,
-                nodeService);
+                nodeService, configurationVersionService);
         this.clusterService = new ClusterService(parameterService, symmetricDialect);
         this.statisticService = new StatisticService(parameterService, symmetricDialect);
         this.statisticManager = new StatisticManager(parameterService, nodeService,
@@ -332,6 +342,7 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         this.statisticManager = createStatisticManager();
         this.concurrentConnectionManager = new ConcurrentConnectionManager(parameterService,
                 statisticManager);
+        this.pullNotifier = new PullNotifier();
         this.purgeService = new PurgeService(parameterService, symmetricDialect, clusterService,
                 statisticManager, extensionService);
         this.transformService = new TransformService(parameterService, symmetricDialect,
@@ -341,10 +352,11 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         this.groupletService = new GroupletService(this);
         this.triggerRouterService = new TriggerRouterService(this);
         this.outgoingBatchService = new OutgoingBatchService(parameterService, symmetricDialect,
-                nodeService, configurationService, sequenceService, clusterService, extensionService);
+                nodeService, configurationService, sequenceService, clusterService, extensionService,
+                statisticManager);
         this.dataService = new DataService(this, extensionService);
         this.routerService = buildRouterService();
-        this.nodeCommunicationService = buildNodeCommunicationService(clusterService, nodeService, parameterService, configurationService, symmetricDialect);
+        this.nodeCommunicationService = buildNodeCommunicationService(clusterService, nodeService, parameterService, configurationService, extensionService, symmetricDialect);
         this.incomingBatchService = new IncomingBatchService(parameterService, symmetricDialect, clusterService);
         this.dataExtractorService = new DataExtractorService(this);
         this.transportManager = new TransportManagerFactory(this).create();
@@ -394,8 +406,8 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
     }    
 
     protected INodeCommunicationService buildNodeCommunicationService(IClusterService clusterService, INodeService nodeService, IParameterService parameterService, 
-    		IConfigurationService configurationService, ISymmetricDialect symmetricDialect) {
-        return new NodeCommunicationService(clusterService, nodeService, parameterService, configurationService, symmetricDialect);
+    		IConfigurationService configurationService, IExtensionService extensionService, ISymmetricDialect symmetricDialect) {
+        return new NodeCommunicationService(clusterService, nodeService, parameterService, configurationService, extensionService, symmetricDialect);
     }
 
     abstract protected IStagingManager createStagingManager();
@@ -758,6 +770,12 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         if (nodeCommunicationService != null) {
         	nodeCommunicationService.stop();
         }
+        if (fileSyncService != null) {
+            fileSyncService.stop();
+        }
+        if (dataLoaderService != null) {
+            dataLoaderService.stop();
+        }
         
         if (statisticManager != null) {
             List<ProcessInfo> infos = statisticManager.getProcessInfos();
@@ -826,6 +844,7 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
     public void removeAndCleanupNode(String nodeId) {
         log.info("Removing node {}", nodeId);
         nodeService.deleteNode(nodeId, false);
+        statisticManager.getReplicationLagTracker().removeNode(nodeId);
         log.info("Done removing node ID {}", nodeId);        
     }
 
@@ -1063,6 +1082,10 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         return concurrentConnectionManager;
     }
 
+    public PullNotifier getPullNotifier() {
+        return pullNotifier;
+    }
+
     public String getTablePrefix() {
         return parameterService.getTablePrefix();
     }
@@ -1095,6 +1118,10 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         return sequenceService;
     }
 
+    public IConfigurationVersionService getConfigurationVersionService() {
+        return configurationVersionService;
+    }
+
     public INodeCommunicationService getNodeCommunicationService() {
         return nodeCommunicationService;
     }
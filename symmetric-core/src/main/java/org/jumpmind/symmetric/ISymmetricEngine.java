@@ -37,6 +37,7 @@ import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IBandwidthService;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.IContextService;
 import org.jumpmind.symmetric.service.IDataExtractorService;
 import org.jumpmind.symmetric.service.IDataLoaderService;
@@ -66,6 +67,7 @@ import org.jumpmind.symmetric.service.ITriggerRouterService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.IConcurrentConnectionManager;
 import org.jumpmind.symmetric.transport.ITransportManager;
+import org.jumpmind.symmetric.transport.PullNotifier;
 import org.slf4j.Logger;
 
 public interface ISymmetricEngine {
@@ -280,6 +282,8 @@ public interface ISymmetricEngine {
     
     public IConcurrentConnectionManager getConcurrentConnectionManager();
     
+    public PullNotifier getPullNotifier();
+    
     public ITransformService getTransformService();
     
     public ILoadFilterService getLoadFilterService();
@@ -289,6 +293,8 @@ public interface ISymmetricEngine {
     public INodeCommunicationService getNodeCommunicationService();
     
     public ISequenceService getSequenceService();
+
+    public IConfigurationVersionService getConfigurationVersionService();
     
     public String getTablePrefix();
     
@@ -74,6 +74,11 @@ final public class ParameterConstants {
     public final static String PULL_THREAD_COUNT_PER_SERVER = "pull.thread.per.server.count";
     public final static String PULL_MINIMUM_PERIOD_MS = "pull.period.minimum.ms";
     public final static String PULL_LOCK_TIMEOUT_MS = "pull.lock.timeout.ms";
+    public final static String PULL_LONG_POLL_MS = "pull.long.poll.ms";
+    public final static String PULL_LONG_POLL_MAX_MS = "pull.long.poll.max.ms";
+    public final static String PULL_LONG_POLL_MAX_PARKED = "pull.long.poll.max.parked";
+    public final static String PULL_LONG_POLL_CHECK_MS = "pull.long.poll.check.ms";
+    public final static String PULL_ACK_PIGGYBACK_ENABLED = "pull.ack.piggyback.enabled";
 
     public final static String PUSH_THREAD_COUNT_PER_SERVER = "push.thread.per.server.count";
     public final static String PUSH_MINIMUM_PERIOD_MS = "push.period.minimum.ms";
@@ -93,6 +98,11 @@ final public class ParameterConstants {
     public final static String FILE_PUSH_MINIMUM_PERIOD_MS = "file.push.period.minimum.ms";
     public final static String FILE_PUSH_LOCK_TIMEOUT_MS = "file.push.lock.timeout.ms";
 
+    public final static String NODE_COMMUNICATION_SCHEDULER = "node.communication.scheduler";
+    public final static String NODE_COMMUNICATION_SCHEDULER_MAX_WAIT_MS = "node.communication.scheduler.max.wait.ms";
+    public final static String NODE_COMMUNICATION_THREADS_PER_NODE = "node.communication.threads.per.node";
+    public final static String NODE_COMMUNICATION_PERSIST_PERIOD_MS = "node.communication.persist.period.ms";
+
     public final static String JOB_RANDOM_MAX_START_TIME_MS = "job.random.max.start.time.ms";
 
     public final static String REGISTRATION_NUMBER_OF_ATTEMPTS = "registration.number.of.attempts";
@@ -177,6 +187,7 @@ final public class ParameterConstants {
     public final static String ROUTING_DATA_READER_THRESHOLD_GAPS_TO_USE_GREATER_QUERY = "routing.data.reader.threshold.gaps.to.use.greater.than.query";
     public final static String ROUTING_LOG_STATS_ON_BATCH_ERROR = "routing.log.stats.on.batch.error";
     public final static String ROUTING_COLLECT_STATS_UNROUTED = "routing.collect.stats.unrouted";
+    public final static String ROUTING_COLLECT_CAPTURED_WATERMARK = "routing.collect.captured.watermark";
     public final static String ROUTING_USE_FAST_GAP_DETECTOR = "routing.use.fast.gap.detector";
     public final static String ROUTING_DETECT_INVALID_GAPS = "routing.detect.invalid.gaps";
     public final static String ROUTING_QUERY_CHANNELS_FIRST = "routing.query.channels.first";
@@ -195,6 +206,7 @@ final public class ParameterConstants {
     public final static String DATA_LOADER_SEND_ACK_KEEPALIVE = "send.ack.keepalive.ms";
     public final static String DATA_LOADER_TIME_BETWEEN_ACK_RETRIES = "time.between.ack.retries.ms";
     public final static String DATA_LOADER_MAX_ROWS_BEFORE_COMMIT = "dataloader.max.rows.before.commit";
+    public final static String DATA_LOADER_MAX_ROWS_IN_PRIMARY_KEY_BATCH = "dataloader.max.rows.in.primary.key.batch";
     public final static String DATA_LOADER_CREATE_TABLE_ALTER_TO_MATCH_DB_CASE = "dataloader.create.table.alter.to.match.db.case";
     public final static String DATA_LOADER_TEXT_COLUMN_EXPRESSION = "dataloader.text.column.expression";
     public final static String DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT = "dataloader.sleep.time.after.early.commit";
@@ -221,12 +233,18 @@ final public class ParameterConstants {
 
     public final static String TRANSPORT_HTTP_MANUAL_REDIRECTS_ENABLED = "http.manual.redirects.enabled";
     public final static String TRANSPORT_HTTP_TIMEOUT = "http.timeout.ms";
+    public final static String TRANSPORT_HTTP_KEEP_ALIVE = "http.keep.alive";
+    public final static String TRANSPORT_HTTP_MAX_CONNECTIONS_PER_HOST = "http.max.connections.per.host";
     public final static String TRANSPORT_HTTP_PUSH_STREAM_ENABLED = "http.push.stream.output.enabled";
     public final static String TRANSPORT_HTTP_PUSH_STREAM_SIZE = "http.push.stream.output.size";
     public final static String TRANSPORT_HTTP_USE_COMPRESSION_CLIENT = "http.compression";
     public final static String TRANSPORT_HTTP_COMPRESSION_DISABLED_SERVLET = "web.compression.disabled";
     public final static String TRANSPORT_HTTP_COMPRESSION_LEVEL = "compression.level";
     public final static String TRANSPORT_HTTP_COMPRESSION_STRATEGY = "compression.strategy";
+    public final static String TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_ENABLED = "compression.adaptive.enabled";
+    public final static String TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_RECALIBRATE_MS = "compression.adaptive.recalibrate.ms";
+    public final static String TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_SAMPLE_SIZE = "compression.adaptive.sample.size";
+    public final static String TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_SAMPLE_MS = "compression.adaptive.sample.ms";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_USERNAME = "http.basic.auth.username";
     public final static String TRANSPORT_HTTP_BASIC_AUTH_PASSWORD = "http.basic.auth.password";
     public final static String TRANSPORT_TYPE = "transport.type";
@@ -245,12 +263,15 @@ final public class ParameterConstants {
     public final static String CACHE_TIMEOUT_TABLES_IN_MS = "cache.table.time.ms";
     public final static String CACHE_TIMEOUT_MONITOR_IN_MS = "cache.monitor.time.ms";
     public final static String CACHE_TIMEOUT_NOTIFICATION_IN_MS = "cache.notification.time.ms";
+    public final static String CACHE_CONFIG_VERSION_CHECK_IN_MS = "cache.config.version.check.ms";
     public final static String CACHE_CHANNEL_COMMON_BATCHES_IN_MS = "cache.channel.common.batches.time.ms";
     public final static String CACHE_CHANNEL_DEFAULT_ROUTER_IN_MS = "cache.channel.default.router.time.ms";
 
     public final static String TRIGGER_UPDATE_CAPTURE_CHANGED_DATA_ONLY = "trigger.update.capture.changed.data.only.enabled";
     public final static String TRIGGER_CREATE_BEFORE_INITIAL_LOAD = "trigger.create.before.initial.load.enabled";
     public final static String TRIGGER_CAPTURE_DDL_CHANGES = "trigger.capture.ddl.changes";
+    public final static String TRIGGER_CAPTURE_ROTATION_TABLE_COUNT = "trigger.capture.rotation.table.count";
+    public final static String TRIGGER_CAPTURE_ROTATION_PERIOD_MINUTES = "trigger.capture.rotation.period.minutes";
 
     public final static String DB_METADATA_IGNORE_CASE = "db.metadata.ignore.case";
     public final static String DB_NATIVE_EXTRACTOR = "db.native.extractor";
@@ -281,12 +302,19 @@ final public class ParameterConstants {
     public final static String PURGE_MAX_NUMBER_OF_DATA_IDS = "job.purge.max.num.data.to.delete.in.tx";
     public final static String PURGE_MAX_NUMBER_OF_BATCH_IDS = "job.purge.max.num.batches.to.delete.in.tx";
     public final static String PURGE_MAX_NUMBER_OF_EVENT_BATCH_IDS = "job.purge.max.num.data.event.batches.to.delete.in.tx";
+    public final static String PURGE_THREAD_COUNT = "job.purge.thread.count";
+    public final static String PURGE_DELETE_TARGET_MS = "job.purge.delete.target.ms";
+    public final static String PURGE_PARTITION_DROP_ENABLED = "job.purge.partition.drop.enabled";
 
     public final static String JMX_LINE_FEED = "jmx.line.feed";
 
     public final static String IP_FILTERS = "ip.filters";
 
     public final static String WEB_BATCH_URI_HANDLER_ENABLE = "web.batch.servlet.enable";
+    public final static String WEB_ASYNC_ENABLED = "web.async.enabled";
+    public final static String WEB_ASYNC_WORKER_THREADS = "web.async.worker.threads";
+    public final static String WEB_ASYNC_WORKER_QUEUE_SIZE = "web.async.worker.queue.size";
+    public final static String WEB_ASYNC_TIMER_THREADS = "web.async.timer.threads";
 
     public final static String NODE_COPY_MODE_ENABLED = "node.copy.mode.enabled";
 
@@ -315,6 +343,8 @@ final public class ParameterConstants {
 
     public final static String SEQUENCE_TIMEOUT_MS = "sequence.timeout.ms";
 
+    public final static String SEQUENCE_BLOCK_SIZE = "sequence.block.size";
+
     public final static String REST_API_ENABLED = "rest.api.enable";
 
     public final static String REST_HEARTBEAT_ON_PULL = "rest.api.heartbeat.on.pull";
@@ -327,6 +357,24 @@ final public class ParameterConstants {
     
     public final static String FILE_SYNC_USE_CRC = "file.sync.use.crc";
     
+    public final static String FILE_SYNC_CRC_THREAD_COUNT = "file.sync.crc.thread.count";
+    
+    public final static String FILE_SYNC_CRC_CACHE_SIZE = "file.sync.crc.cache.size";
+    
+    public final static String FILE_SYNC_USE_WATCHER = "file.sync.use.watcher";
+    
+    public final static String FILE_SYNC_COMPRESSION_LEVEL = "file.sync.compression.level";
+    
+    public final static String FILE_SYNC_STORED_EXTENSIONS = "file.sync.stored.extensions";
+    
+    public final static String FILE_SYNC_COMPRESSION_SAMPLE_SIZE = "file.sync.compression.sample.size";
+    
+    public final static String FILE_SYNC_DELTA_ENABLED = "file.sync.delta.enabled";
+    
+    public final static String FILE_SYNC_DELTA_MIN_FILE_SIZE = "file.sync.delta.min.file.size";
+    
+    public final static String FILE_SYNC_DELTA_MIN_BLOCK_SIZE = "file.sync.delta.min.block.size";
+    
     public final static String FILE_SYNC_PREVENT_PING_BACK = "file.sync.prevent.ping.back";
 
     public final static String FILE_SYNC_LOCK_WAIT_MS = "file.sync.lock.wait.ms";
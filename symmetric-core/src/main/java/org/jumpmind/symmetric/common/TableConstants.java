@@ -61,6 +61,7 @@ public class TableConstants {
     public static final String SYM_CONFLICT = "conflict";
     public static final String SYM_NODE_GROUP_CHANNEL_WND = "node_group_channel_wnd";
     public static final String SYM_NODE_HOST_CHANNEL_STATS = "node_host_channel_stats";
+    public static final String SYM_NODE_HOST_CHANNEL_LATENCY = "node_host_channel_latency";
     public static final String SYM_INCOMING_ERROR = "incoming_error";
     public static final String SYM_SEQUENCE = "sequence";
     public static final String SYM_TABLE_RELOAD_REQUEST = "table_reload_request";
@@ -160,6 +161,7 @@ public class TableConstants {
         tables.add(getTableName(tablePrefix, SYM_NODE_GROUP_CHANNEL_WND));
         tables.add(getTableName(tablePrefix, SYM_PARAMETER));
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_CHANNEL_STATS));
+        tables.add(getTableName(tablePrefix, SYM_NODE_HOST_CHANNEL_LATENCY));
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_STATS));
         tables.add(getTableName(tablePrefix, SYM_NODE_HOST_JOB_STATS));
         tables.add(getTableName(tablePrefix, SYM_REGISTRATION_REDIRECT));
@@ -573,6 +573,7 @@ abstract public class AbstractTriggerTemplate {
         ddl = FormatUtils.replace("oldTriggerValue", oldTriggerValue, ddl);
         ddl = FormatUtils.replace("newColumnPrefix", newColumnPrefix, ddl);
         ddl = FormatUtils.replace("oldColumnPrefix", oldColumnPrefix, ddl);
+        ddl = FormatUtils.replace("captureTable", getCaptureTableName(tablePrefix), ddl);
         ddl = FormatUtils.replace("prefixName", tablePrefix, ddl);
         ddl = replaceDefaultSchemaAndCatalog(ddl);
 
@@ -594,6 +595,14 @@ abstract public class AbstractTriggerTemplate {
         return ddl;
     }
     
+    /**
+     * @return the name of the table that the $(captureTable) token in a
+     *         trigger template inserts captured changes into
+     */
+    protected String getCaptureTableName(String tablePrefix) {
+        return tablePrefix + "_data";
+    }
+
     protected String toClobExpression(Table table) {
         if (table.hasNTypeColumns()) {
             return "to_nclob('')||";
@@ -0,0 +1,50 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.ext;
+
+import java.util.Date;
+
+import org.jumpmind.extension.IExtensionPoint;
+
+/**
+ * This is an extension point that, when registered and when
+ * job.purge.partition.drop.enabled is true, is called by the outgoing purge
+ * before rows are deleted. It lets a database that keeps the runtime tables in
+ * native partitions drop or truncate whole aged partitions instead of deleting
+ * their rows one window at a time.
+ */
+public interface IPurgePartitionHandler extends IExtensionPoint {
+
+    /**
+     * Drop or truncate the partitions of a table that only hold rows that are
+     * safe to purge. A partition is safe when every id in it is at or below
+     * maxId and every row in it was created before the retention cutoff.
+     * 
+     * @param tableName
+     *            The fully qualified name of the table, for example sym_data
+     * @param idColumnName
+     *            The column the table is partitioned by, for example data_id
+     * @return The number of partitions that were dropped or truncated
+     */
+    public int purgePartitions(String tableName, String idColumnName, long maxId,
+            Date retentionCutoff);
+
+}
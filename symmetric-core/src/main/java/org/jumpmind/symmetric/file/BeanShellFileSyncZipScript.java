@@ -46,6 +46,17 @@ public class BeanShellFileSyncZipScript extends FileSyncZipScript {
     @Override    
     public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
             FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile) {
+        buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, file, targetBaseDir, targetFile, false);
+    }
+    
+    @Override
+    public boolean isDeltaSupported() {
+        return true;
+    }
+    
+    @Override    
+    public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
+            FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile, boolean delta) {
         
         LastEventType eventType = snapshot.getLastEventType();
         StringBuilder command = new StringBuilder();
@@ -124,7 +135,11 @@ public class BeanShellFileSyncZipScript extends FileSyncZipScript {
                     command.append("    if (sourceFile.isDirectory()) {\n");
                     command.append("      org.apache.commons.io.FileUtils.copyDirectory(sourceFile, targetFile, true);\n");                                    
                     command.append("    } else {\n");
-                    command.append("      org.apache.commons.io.FileUtils.copyFile(sourceFile, targetFile, true);\n");                                    
+                    if (delta) {
+                        command.append("      org.jumpmind.symmetric.file.FileDelta.applyDelta(sourceFile, targetFile);\n");
+                    } else {
+                        command.append("      org.apache.commons.io.FileUtils.copyFile(sourceFile, targetFile, true);\n");                                    
+                    }
                     command.append("    }\n");
                     command.append("  }\n");
                     command.append("  fileList.put(").append(targetFile)
@@ -21,8 +21,13 @@
 package org.jumpmind.symmetric.file;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.jumpmind.symmetric.model.FileSnapshot;
@@ -33,6 +38,21 @@ public class DirectorySnapshot extends ArrayList<FileSnapshot> {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Orders files by relative directory and then by file name. Snapshots in
+     * this order can be compared with
+     * {@link #diff(Iterator, Iterator, Collection)}.
+     */
+    public static final Comparator<FileSnapshot> PATH_ORDER = new Comparator<FileSnapshot>() {
+        public int compare(FileSnapshot o1, FileSnapshot o2) {
+            int compare = compareNullsFirst(o1.getRelativeDir(), o2.getRelativeDir());
+            if (compare == 0) {
+                compare = compareNullsFirst(o1.getFileName(), o2.getFileName());
+            }
+            return compare;
+        }
+    };
+
     private FileTriggerRouter fileTriggerRouter;
 
     public DirectorySnapshot(FileTriggerRouter fileTriggerRouter, List<FileSnapshot> snapshot) {
@@ -45,15 +65,24 @@ public class DirectorySnapshot extends ArrayList<FileSnapshot> {
     }
 
     protected void merge(DirectorySnapshot snapshot) {
+        Map<String, List<FileSnapshot>> filesByName = new HashMap<String, List<FileSnapshot>>(size());
+        for (FileSnapshot file : this) {
+            List<FileSnapshot> files = filesByName.get(file.getFileName());
+            if (files == null) {
+                files = new ArrayList<FileSnapshot>(1);
+                filesByName.put(file.getFileName(), files);
+            }
+            files.add(file);
+        }
+
         Set<FileSnapshot> toAdd = new HashSet<FileSnapshot>();
         Set<FileSnapshot> toRemove = new HashSet<FileSnapshot>();
         for (FileSnapshot fileChange : snapshot) {
-            for (FileSnapshot file : this) {
-                if (fileChange.getFileName().equals(file.getFileName())) {
-                    toRemove.add(file);
-                    if (fileChange.getLastEventType() == LastEventType.MODIFY) {
-                        toAdd.add(fileChange);
-                    }
+            List<FileSnapshot> files = filesByName.get(fileChange.getFileName());
+            if (files != null) {
+                toRemove.addAll(files);
+                if (fileChange.getLastEventType() == LastEventType.MODIFY) {
+                    toAdd.add(fileChange);
                 }
             }
         }
@@ -70,42 +99,99 @@ public class DirectorySnapshot extends ArrayList<FileSnapshot> {
 
     public DirectorySnapshot diff(DirectorySnapshot anotherSnapshot) {
         DirectorySnapshot differences = new DirectorySnapshot(anotherSnapshot.getFileTriggerRouter());
+        Map<String, Map<String, FileSnapshot>> files = indexByPath(this);
         for (FileSnapshot anotherFile : anotherSnapshot) {
-            boolean found = false;
-            for (FileSnapshot file : this) {
-                if (anotherFile.sameFile(file)) {
-                    found = true;
-                    if ((file.getLastEventType() == LastEventType.MODIFY || 
-                            file.getLastEventType() == LastEventType.CREATE)
-                            && anotherFile.getLastEventType() == LastEventType.CREATE) {
-                        file.setLastEventType(LastEventType.MODIFY);
-                        anotherFile.setLastEventType(LastEventType.MODIFY);
-                    }
-                    if (!anotherFile.equals(file)) {
-                        differences.add(anotherFile);
-                    }
-                }
-            }
-            if (!found) {
+            FileSnapshot file = findByPath(files, anotherFile);
+            if (file != null) {
+                diff(file, anotherFile, differences);
+            } else {
                 differences.add(anotherFile);
             }
         }
 
+        Map<String, Map<String, FileSnapshot>> anotherFiles = indexByPath(anotherSnapshot);
         for (FileSnapshot file : this) {
-            boolean found = false;
-            for (FileSnapshot anotherFile : anotherSnapshot) {
-                if (anotherFile.sameFile(file)) {
-                    found = true;
-                }
-            }
-            if (file.getLastEventType() != LastEventType.DELETE && !found) {
-                FileSnapshot copy = new FileSnapshot(file);
-                copy.setLastEventType(LastEventType.DELETE);
-                differences.add(copy);
+            if (findByPath(anotherFiles, file) == null) {
+                diffDeleted(file, differences);
             }
         }
         return differences;
     }
+
+    /**
+     * Compares two snapshots that are both sorted in {@link #PATH_ORDER} one
+     * file at a time, so neither snapshot has to be held in memory. The
+     * differences are the same as {@link #diff(DirectorySnapshot)} would find,
+     * in path order.
+     */
+    public static void diff(Iterator<FileSnapshot> files, Iterator<FileSnapshot> anotherFiles,
+            Collection<FileSnapshot> differences) {
+        FileSnapshot file = files.hasNext() ? files.next() : null;
+        FileSnapshot anotherFile = anotherFiles.hasNext() ? anotherFiles.next() : null;
+        while (file != null || anotherFile != null) {
+            int compare = file == null ? 1 : anotherFile == null ? -1 : PATH_ORDER.compare(file, anotherFile);
+            if (compare == 0) {
+                diff(file, anotherFile, differences);
+            } else if (compare < 0) {
+                diffDeleted(file, differences);
+            } else {
+                differences.add(anotherFile);
+            }
+            if (compare <= 0) {
+                file = files.hasNext() ? files.next() : null;
+            }
+            if (compare >= 0) {
+                anotherFile = anotherFiles.hasNext() ? anotherFiles.next() : null;
+            }
+        }
+    }
+
+    protected static void diff(FileSnapshot file, FileSnapshot anotherFile, Collection<FileSnapshot> differences) {
+        if ((file.getLastEventType() == LastEventType.MODIFY || 
+                file.getLastEventType() == LastEventType.CREATE)
+                && anotherFile.getLastEventType() == LastEventType.CREATE) {
+            file.setLastEventType(LastEventType.MODIFY);
+            anotherFile.setLastEventType(LastEventType.MODIFY);
+        }
+        if (!anotherFile.equals(file)) {
+            differences.add(anotherFile);
+        }
+    }
+
+    protected static void diffDeleted(FileSnapshot file, Collection<FileSnapshot> differences) {
+        if (file.getLastEventType() != LastEventType.DELETE) {
+            FileSnapshot copy = new FileSnapshot(file);
+            copy.setLastEventType(LastEventType.DELETE);
+            differences.add(copy);
+        }
+    }
+
+    protected static Map<String, Map<String, FileSnapshot>> indexByPath(List<FileSnapshot> snapshot) {
+        Map<String, Map<String, FileSnapshot>> filesByDir = new HashMap<String, Map<String, FileSnapshot>>();
+        for (FileSnapshot file : snapshot) {
+            Map<String, FileSnapshot> filesByName = filesByDir.get(file.getRelativeDir());
+            if (filesByName == null) {
+                filesByName = new HashMap<String, FileSnapshot>();
+                filesByDir.put(file.getRelativeDir(), filesByName);
+            }
+            filesByName.put(file.getFileName(), file);
+        }
+        return filesByDir;
+    }
+
+    protected static FileSnapshot findByPath(Map<String, Map<String, FileSnapshot>> filesByDir, FileSnapshot file) {
+        Map<String, FileSnapshot> filesByName = filesByDir.get(file.getRelativeDir());
+        return filesByName != null ? filesByName.get(file.getFileName()) : null;
+    }
+
+    protected static int compareNullsFirst(String s1, String s2) {
+        if (s1 == null) {
+            return s2 == null ? 0 : -1;
+        } else if (s2 == null) {
+            return 1;
+        }
+        return s1.compareTo(s2);
+    }
     
     public FileTriggerRouter getFileTriggerRouter() {
         return fileTriggerRouter;
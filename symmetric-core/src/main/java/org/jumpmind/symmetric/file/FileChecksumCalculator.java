@@ -0,0 +1,212 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.util.CustomizableThreadFactory;
+
+/**
+ * Fills in the CRC of the files in a {@link DirectorySnapshot}. A file whose
+ * size and modified time are the same as in the previous snapshot, or as the
+ * last time its CRC was calculated, is not read again. The rest are read on a
+ * fixed number of threads.
+ */
+public class FileChecksumCalculator {
+
+    /**
+     * Some file systems only keep the modified time to the second or two, so
+     * a file could change without its modified time changing right after a
+     * CRC was calculated. Those CRCs are not reused.
+     */
+    static final long MODIFIED_TIME_RESOLUTION_MS = 2000;
+
+    protected int threadCount;
+
+    protected Map<String, CachedChecksum> cache;
+
+    public FileChecksumCalculator(int threadCount, final int maxCachedFiles) {
+        this.threadCount = threadCount;
+        this.cache = new LinkedHashMap<String, CachedChecksum>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedChecksum> eldest) {
+                return size() > maxCachedFiles;
+            }
+        };
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Calculate the CRC of each file in the snapshot that doesn't have one yet.
+     * A file that is gone by the time it is read is changed to a delete, the
+     * same as {@link FileSnapshot} does.
+     * 
+     * @param previousSnapshot
+     *            the last snapshot of the same files, or null
+     */
+    public void calculate(DirectorySnapshot snapshot, DirectorySnapshot previousSnapshot) {
+        FileTrigger fileTrigger = snapshot.getFileTriggerRouter().getFileTrigger();
+        Map<String, Map<String, FileSnapshot>> previousFiles = null;
+        if (previousSnapshot != null && previousSnapshot.size() > 0) {
+            previousFiles = DirectorySnapshot.indexByPath(previousSnapshot);
+        }
+
+        final List<FileSnapshot> pending = new ArrayList<FileSnapshot>();
+        final List<File> pendingFiles = new ArrayList<File>();
+        for (FileSnapshot fileSnapshot : snapshot) {
+            if (fileSnapshot.getCrc32Checksum() == -1
+                    && fileSnapshot.getLastEventType() != LastEventType.DELETE) {
+                File file = fileTrigger.createSourceFile(fileSnapshot);
+                long checksum = -1;
+                if (previousFiles != null) {
+                    checksum = getPreviousChecksum(
+                            DirectorySnapshot.findByPath(previousFiles, fileSnapshot), fileSnapshot);
+                }
+                if (checksum == -1) {
+                    checksum = getCachedChecksum(file, fileSnapshot);
+                }
+                if (checksum != -1) {
+                    fileSnapshot.setCrc32Checksum(checksum);
+                } else if (file.isFile()) {
+                    pending.add(fileSnapshot);
+                    pendingFiles.add(file);
+                }
+            }
+        }
+
+        int threads = Math.min(threadCount, pending.size());
+        if (threads <= 1) {
+            for (int i = 0; i < pending.size(); i++) {
+                calculate(pending.get(i), pendingFiles.get(i));
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads,
+                    new CustomizableThreadFactory("file-sync-crc"));
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(pending.size());
+                for (int i = 0; i < pending.size(); i++) {
+                    final int index = i;
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            calculate(pending.get(index), pendingFiles.get(index));
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException ex) {
+                throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause()
+                        : new RuntimeException(ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ex);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    protected void calculate(FileSnapshot fileSnapshot, File file) {
+        long calculatedTime = System.currentTimeMillis();
+        try {
+            long checksum = FileUtils.checksumCRC32(file);
+            fileSnapshot.setCrc32Checksum(checksum);
+            synchronized (cache) {
+                cache.put(file.getAbsolutePath(), new CachedChecksum(fileSnapshot.getFileSize(),
+                        fileSnapshot.getFileModifiedTime(), checksum, calculatedTime));
+            }
+        } catch (FileNotFoundException ex) {
+            fileSnapshot.setLastEventType(LastEventType.DELETE);
+            fileSnapshot.setFileSize(0);
+            fileSnapshot.setFileModifiedTime(0);
+        } catch (IOException ex) {
+            throw new IoException(ex);
+        }
+    }
+
+    protected long getPreviousChecksum(FileSnapshot previous, FileSnapshot fileSnapshot) {
+        if (previous != null && previous.getCrc32Checksum() != -1
+                && previous.getLastEventType() != LastEventType.DELETE
+                && previous.getFileSize() == fileSnapshot.getFileSize()
+                && previous.getFileModifiedTime() == fileSnapshot.getFileModifiedTime()
+                && previous.getLastUpdateTime() != null
+                && isSettled(fileSnapshot.getFileModifiedTime(), previous.getLastUpdateTime().getTime())) {
+            return previous.getCrc32Checksum();
+        }
+        return -1;
+    }
+
+    protected long getCachedChecksum(File file, FileSnapshot fileSnapshot) {
+        CachedChecksum cached;
+        synchronized (cache) {
+            cached = cache.get(file.getAbsolutePath());
+        }
+        if (cached != null && cached.fileSize == fileSnapshot.getFileSize()
+                && cached.fileModifiedTime == fileSnapshot.getFileModifiedTime()
+                && isSettled(cached.fileModifiedTime, cached.calculatedTime)) {
+            return cached.checksum;
+        }
+        return -1;
+    }
+
+    protected boolean isSettled(long fileModifiedTime, long calculatedTime) {
+        return calculatedTime - fileModifiedTime > MODIFIED_TIME_RESOLUTION_MS;
+    }
+
+    static class CachedChecksum {
+
+        long fileSize;
+
+        long fileModifiedTime;
+
+        long checksum;
+
+        long calculatedTime;
+
+        CachedChecksum(long fileSize, long fileModifiedTime, long checksum, long calculatedTime) {
+            this.fileSize = fileSize;
+            this.fileModifiedTime = fileModifiedTime;
+            this.checksum = checksum;
+            this.calculatedTime = calculatedTime;
+        }
+    }
+}
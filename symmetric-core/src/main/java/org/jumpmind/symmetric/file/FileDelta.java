@@ -0,0 +1,546 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Block level deltas between two versions of a file, in the style of rsync. A
+ * {@link Signature} holds a weak rolling checksum and a strong MD5 checksum for
+ * each fixed size block of the old version. {@link #writeDelta} scans the new
+ * version for blocks that match the signature and writes copy instructions for
+ * those and literal bytes for everything else. {@link #applyDelta} rebuilds the
+ * new version from the old one and only replaces the old one after the
+ * checksum of the result has been verified.
+ */
+public class FileDelta {
+
+    static final int SIGNATURE_MAGIC = 0x53594d53;
+
+    static final int DELTA_MAGIC = 0x53594d44;
+
+    static final byte OP_COPY = 'C';
+
+    static final byte OP_LITERAL = 'L';
+
+    static final byte OP_END = 'E';
+
+    static final int MAX_LITERAL = 64 * 1024;
+
+    private FileDelta() {
+    }
+
+    /**
+     * Pick a block size that grows with the square root of the file length so
+     * large files don't end up with millions of blocks.
+     */
+    public static int chooseBlockSize(long length, int minBlockSize) {
+        long blockSize = Math.max(minBlockSize, (long) Math.sqrt(length));
+        blockSize = ((blockSize + 1023) / 1024) * 1024;
+        return (int) Math.min(blockSize, 1024 * 1024);
+    }
+
+    public static Signature createSignature(File file, int blockSize) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return createSignature(in, blockSize);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    public static Signature createSignature(InputStream in, int blockSize) throws IOException {
+        CRC32 crc = new CRC32();
+        CheckedInputStream cin = new CheckedInputStream(new BufferedInputStream(in), crc);
+        MessageDigest md5 = newDigest();
+        List<Integer> weak = new ArrayList<Integer>();
+        List<byte[]> strong = new ArrayList<byte[]>();
+        byte[] buf = new byte[blockSize];
+        long length = 0;
+        int read;
+        while ((read = fill(cin, buf, 0, blockSize)) > 0) {
+            weak.add(weakChecksum(buf, 0, read));
+            strong.add(strongChecksum(md5, buf, 0, read));
+            length += read;
+        }
+
+        Signature signature = new Signature(blockSize, length, crc.getValue(), weak.size());
+        for (int i = 0; i < weak.size(); i++) {
+            signature.weak[i] = weak.get(i);
+            signature.strong[i] = strong.get(i);
+        }
+        return signature;
+    }
+
+    public static Signature readSignature(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != SIGNATURE_MAGIC) {
+                throw new IOException(file + " is not a file signature");
+            }
+            int blockSize = in.readInt();
+            long length = in.readLong();
+            long crc32 = in.readLong();
+            int blockCount = in.readInt();
+            Signature signature = new Signature(blockSize, length, crc32, blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                signature.weak[i] = in.readInt();
+                signature.strong[i] = new byte[16];
+                in.readFully(signature.strong[i]);
+            }
+            return signature;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    public static void writeSignature(Signature signature, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(SIGNATURE_MAGIC);
+            out.writeInt(signature.blockSize);
+            out.writeLong(signature.length);
+            out.writeLong(signature.crc32);
+            out.writeInt(signature.weak.length);
+            for (int i = 0; i < signature.weak.length; i++) {
+                out.writeInt(signature.weak[i]);
+                out.write(signature.strong[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static long writeDelta(Signature base, File file, OutputStream out) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return writeDelta(base, in, out);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write the instructions to turn the file described by the signature into
+     * the content of the input stream.
+     * 
+     * @return the number of bytes written to the output stream
+     */
+    public static long writeDelta(Signature base, InputStream in, OutputStream out)
+            throws IOException {
+        final int n = base.blockSize;
+        CRC32 crc = new CRC32();
+        CheckedInputStream cin = new CheckedInputStream(in, crc);
+        MessageDigest md5 = newDigest();
+        DeltaWriter writer = new DeltaWriter(out);
+        writer.start(base);
+
+        byte[] buf = new byte[MAX_LITERAL + 2 * n + 2];
+        int end = fill(cin, buf, 0, buf.length);
+        long length = end;
+        boolean eof = end < buf.length;
+        int pos = 0;
+        int literalStart = 0;
+        int a = 0;
+        int b = 0;
+        boolean rolling = false;
+
+        while (true) {
+            if (end - pos <= n && !eof) {
+                System.arraycopy(buf, literalStart, buf, 0, end - literalStart);
+                end -= literalStart;
+                pos -= literalStart;
+                literalStart = 0;
+                int read = fill(cin, buf, end, buf.length - end);
+                end += read;
+                length += read;
+                eof = end < buf.length;
+            }
+
+            if (end - pos < n) {
+                break;
+            }
+
+            if (!rolling) {
+                a = 0;
+                b = 0;
+                for (int i = 0; i < n; i++) {
+                    int x = buf[pos + i] & 0xff;
+                    a += x;
+                    b += (n - i) * x;
+                }
+                rolling = true;
+            }
+
+            int block = base.findBlock((a & 0xffff) | (b << 16), buf, pos, n, md5,
+                    writer.nextBlock());
+            if (block >= 0) {
+                writer.literal(buf, literalStart, pos - literalStart);
+                writer.copy(block);
+                pos += n;
+                literalStart = pos;
+                rolling = false;
+            } else {
+                if (pos - literalStart >= MAX_LITERAL) {
+                    writer.literal(buf, literalStart, pos - literalStart);
+                    literalStart = pos;
+                }
+                if (end - pos == n) {
+                    break;
+                }
+                int out_ = buf[pos] & 0xff;
+                int in_ = buf[pos + n] & 0xff;
+                a += in_ - out_;
+                b += a - n * out_;
+                pos++;
+            }
+        }
+
+        /*
+         * The last block of the old version is usually short, so it is only
+         * found when the new version ends the same way
+         */
+        int remaining = end - pos;
+        int lastBlock = base.weak.length - 1;
+        if (remaining > 0 && remaining < n && remaining == base.getBlockLength(lastBlock)
+                && base.weak[lastBlock] == weakChecksum(buf, pos, remaining)
+                && Arrays.equals(base.strong[lastBlock],
+                        strongChecksum(md5, buf, pos, remaining))) {
+            writer.literal(buf, literalStart, pos - literalStart);
+            writer.copy(lastBlock);
+            literalStart = end;
+        }
+        writer.literal(buf, literalStart, end - literalStart);
+        writer.end(length, crc.getValue());
+        return writer.bytesWritten;
+    }
+
+    /**
+     * Rebuild the target file from its current content and the delta. The
+     * target is replaced by renaming a temporary file in the same directory, so
+     * it is never left partially written.
+     * 
+     * @throws FileDeltaException
+     *             if the target is not the version the delta was computed
+     *             against or the rebuilt file does not match the source
+     */
+    public static void applyDelta(File delta, File target) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(delta)));
+        RandomAccessFile base = null;
+        File temp = null;
+        boolean replaced = false;
+        try {
+            if (in.readInt() != DELTA_MAGIC) {
+                throw new FileDeltaException(delta + " is not a file delta");
+            }
+            int blockSize = in.readInt();
+            long baseLength = in.readLong();
+            long baseCrc32 = in.readLong();
+            if (!target.isFile() || target.length() != baseLength
+                    || FileUtils.checksumCRC32(target) != baseCrc32) {
+                throw new FileDeltaException(target
+                        + " is not the version the delta was computed against");
+            }
+
+            base = new RandomAccessFile(target, "r");
+            temp = File.createTempFile(".sym-delta-", ".tmp", target.getAbsoluteFile()
+                    .getParentFile());
+            CRC32 crc = new CRC32();
+            OutputStream out = new CheckedOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)), crc);
+            long length = 0;
+            try {
+                byte[] buf = new byte[Math.max(blockSize, 8192)];
+                byte op;
+                while ((op = in.readByte()) != OP_END) {
+                    long count;
+                    if (op == OP_COPY) {
+                        long offset = (long) in.readInt() * blockSize;
+                        count = Math.min((long) in.readInt() * blockSize, baseLength - offset);
+                        base.seek(offset);
+                    } else if (op == OP_LITERAL) {
+                        count = in.readInt();
+                    } else {
+                        throw new FileDeltaException("unexpected instruction " + op + " in "
+                                + delta);
+                    }
+                    while (count > 0) {
+                        int len = (int) Math.min(buf.length, count);
+                        if (op == OP_COPY) {
+                            base.readFully(buf, 0, len);
+                        } else {
+                            in.readFully(buf, 0, len);
+                        }
+                        out.write(buf, 0, len);
+                        count -= len;
+                        length += len;
+                    }
+                }
+            } finally {
+                out.close();
+            }
+
+            long expectedLength = in.readLong();
+            long expectedCrc32 = in.readLong();
+            if (length != expectedLength || crc.getValue() != expectedCrc32) {
+                throw new FileDeltaException("the rebuilt " + target
+                        + " does not match the checksum of the source file");
+            }
+
+            base.close();
+            base = null;
+            temp.setLastModified(delta.lastModified());
+            if (!temp.renameTo(target)) {
+                if (!target.delete() || !temp.renameTo(target)) {
+                    throw new IOException("Could not replace " + target + " with " + temp);
+                }
+            }
+            replaced = true;
+        } finally {
+            IOUtils.closeQuietly(in);
+            IOUtils.closeQuietly(base);
+            if (!replaced) {
+                FileUtils.deleteQuietly(temp);
+            }
+        }
+    }
+
+    public static boolean isDelta(File file) {
+        if (file.isFile() && file.length() >= 4) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new FileInputStream(file));
+                return in.readInt() == DELTA_MAGIC;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        return false;
+    }
+
+    static int weakChecksum(byte[] buf, int off, int len) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < len; i++) {
+            int x = buf[off + i] & 0xff;
+            a += x;
+            b += (len - i) * x;
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+    static byte[] strongChecksum(MessageDigest md5, byte[] buf, int off, int len) {
+        md5.reset();
+        md5.update(buf, off, len);
+        return md5.digest();
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static int fill(InputStream in, byte[] buf, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int read = in.read(buf, off + total, len - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    public static class Signature {
+
+        final int blockSize;
+
+        final long length;
+
+        final long crc32;
+
+        final int[] weak;
+
+        final byte[][] strong;
+
+        Map<Integer, List<Integer>> blocksByWeak;
+
+        Signature(int blockSize, long length, long crc32, int blockCount) {
+            this.blockSize = blockSize;
+            this.length = length;
+            this.crc32 = crc32;
+            this.weak = new int[blockCount];
+            this.strong = new byte[blockCount][];
+        }
+
+        public int getBlockSize() {
+            return blockSize;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getCrc32() {
+            return crc32;
+        }
+
+        public int getBlockCount() {
+            return weak.length;
+        }
+
+        int getBlockLength(int block) {
+            return (int) Math.min(blockSize, length - (long) block * blockSize);
+        }
+
+        int findBlock(int weakChecksum, byte[] buf, int off, int len, MessageDigest md5,
+                int preferredBlock) {
+            if (blocksByWeak == null) {
+                blocksByWeak = new HashMap<Integer, List<Integer>>(weak.length * 2);
+                for (int i = 0; i < weak.length; i++) {
+                    List<Integer> blocks = blocksByWeak.get(weak[i]);
+                    if (blocks == null) {
+                        blocks = new ArrayList<Integer>(1);
+                        blocksByWeak.put(weak[i], blocks);
+                    }
+                    blocks.add(i);
+                }
+            }
+
+            List<Integer> blocks = blocksByWeak.get(weakChecksum);
+            int found = -1;
+            if (blocks != null) {
+                byte[] digest = null;
+                for (Integer block : blocks) {
+                    if (getBlockLength(block) == len) {
+                        if (digest == null) {
+                            digest = strongChecksum(md5, buf, off, len);
+                        }
+                        if (Arrays.equals(strong[block], digest)) {
+                            if (block == preferredBlock) {
+                                return block;
+                            } else if (found < 0) {
+                                found = block;
+                            }
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    static class DeltaWriter {
+
+        DataOutputStream out;
+
+        long bytesWritten;
+
+        int runStart = -1;
+
+        int runCount;
+
+        DeltaWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+        }
+
+        void start(Signature base) throws IOException {
+            out.writeInt(DELTA_MAGIC);
+            out.writeInt(base.blockSize);
+            out.writeLong(base.length);
+            out.writeLong(base.crc32);
+            bytesWritten += 24;
+        }
+
+        int nextBlock() {
+            return runStart >= 0 ? runStart + runCount : -1;
+        }
+
+        void copy(int block) throws IOException {
+            if (runStart >= 0 && runStart + runCount == block) {
+                runCount++;
+            } else {
+                flushCopy();
+                runStart = block;
+                runCount = 1;
+            }
+        }
+
+        void literal(byte[] buf, int off, int len) throws IOException {
+            if (len > 0) {
+                flushCopy();
+                out.writeByte(OP_LITERAL);
+                out.writeInt(len);
+                out.write(buf, off, len);
+                bytesWritten += 5 + len;
+            }
+        }
+
+        void end(long length, long crc32) throws IOException {
+            flushCopy();
+            out.writeByte(OP_END);
+            out.writeLong(length);
+            out.writeLong(crc32);
+            bytesWritten += 17;
+            out.flush();
+        }
+
+        void flushCopy() throws IOException {
+            if (runStart >= 0) {
+                out.writeByte(OP_COPY);
+                out.writeInt(runStart);
+                out.writeInt(runCount);
+                bytesWritten += 9;
+                runStart = -1;
+            }
+        }
+    }
+}
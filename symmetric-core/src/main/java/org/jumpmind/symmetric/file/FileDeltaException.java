@@ -0,0 +1,43 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import org.jumpmind.exception.IoException;
+
+/**
+ * Thrown when a block delta cannot be applied because the target file is not
+ * the version the delta was computed against. The source node looks for
+ * {@link #MESSAGE_PREFIX} in the acknowledged error and resends the file whole.
+ */
+public class FileDeltaException extends IoException {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String MESSAGE_PREFIX = "File delta could not be applied";
+
+    public FileDeltaException(String msg) {
+        super(MESSAGE_PREFIX + ": " + msg, (Throwable) null);
+    }
+
+    public static boolean isDeltaError(String message) {
+        return message != null && message.contains(MESSAGE_PREFIX);
+    }
+}
@@ -25,11 +25,15 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
@@ -57,6 +61,18 @@ public class FileSyncZipDataWriter implements IDataWriter {
 
     static final Logger log = LoggerFactory.getLogger(FileSyncZipDataWriter.class);
 
+    public static final String FILECOUNT = "FILECOUNT";
+    public static final String FILEBYTECOUNT = "FILEBYTECOUNT";
+    public static final String COMPRESSEDBYTECOUNT = "COMPRESSEDBYTECOUNT";
+    public static final String STOREDFILECOUNT = "STOREDFILECOUNT";
+    public static final String ZIPMILLIS = "ZIPMILLIS";
+
+    /**
+     * A sample that deflates to more than this fraction of its size is not
+     * worth compressing.
+     */
+    static final double MIN_COMPRESSED_RATIO = 0.9;
+
     protected long byteCount;
     protected long maxBytesToSync;
     protected IFileSyncService fileSyncService;
@@ -68,6 +84,13 @@ public class FileSyncZipDataWriter implements IDataWriter {
     protected List<FileSnapshot> snapshotEvents;
     protected DataContext context;
     protected INodeService nodeService;
+    protected File signatureDir;
+    protected long deltaMinFileSize;
+    protected int deltaMinBlockSize;
+    protected boolean deltaEnabled = true;
+    protected int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    protected Set<String> storedExtensions = new HashSet<String>();
+    protected int compressionSampleSize;
 
     public FileSyncZipDataWriter(long maxBytesToSync, IFileSyncService fileSyncService,
             INodeService nodeService, IStagedResource stagedResource) {
@@ -86,6 +109,47 @@ public class FileSyncZipDataWriter implements IDataWriter {
         // no-op as this is called at batch boundaries, but this writer can handle multiple batches.
     }
 
+    /**
+     * Keep a block signature of each file sent to a target node under the
+     * signature directory, and send a {@link FileDelta} instead of the whole
+     * file when a modified file is at least minFileSize bytes and the target
+     * still has the version the signature was taken from.
+     */
+    public void setDeltaSettings(File signatureDir, long minFileSize, int minBlockSize) {
+        this.signatureDir = signatureDir;
+        this.deltaMinFileSize = minFileSize;
+        this.deltaMinBlockSize = minBlockSize;
+    }
+
+    /**
+     * Whether the batches that are written next may use deltas. Signatures are
+     * still kept up to date when they may not.
+     */
+    public void setDeltaEnabled(boolean deltaEnabled) {
+        this.deltaEnabled = deltaEnabled;
+    }
+
+    /**
+     * @param level
+     *            the deflate level for the zip, from 0 to 9, or -1 for the
+     *            default
+     * @param storedExtensions
+     *            a comma separated list of file extensions that are already
+     *            compressed and are stored in the zip as is
+     * @param sampleSize
+     *            the number of bytes at the start of other files to test
+     *            compress, storing the file as is when they don't compress
+     *            well, or 0 to always compress
+     */
+    public void setCompression(int level, String storedExtensions, int sampleSize) {
+        this.compressionLevel = level;
+        this.storedExtensions = new HashSet<String>();
+        for (String extension : StringUtils.split(StringUtils.defaultString(storedExtensions), ", ")) {
+            this.storedExtensions.add(extension.toLowerCase());
+        }
+        this.compressionSampleSize = sampleSize;
+    }
+
     public Map<Batch, Statistics> getStatistics() {
         return statistics;
     }
@@ -151,13 +215,18 @@ public class FileSyncZipDataWriter implements IDataWriter {
             if (!inError) {
                 if (zos == null) {
                     zos = new ZipOutputStream(stagedResource.getOutputStream());
+                    zos.setLevel(compressionLevel);
                 }
+                Statistics stats = statistics.get(batch);
+                long startTime = System.currentTimeMillis();
                 
                 FileSyncZipScript script = createFileSyncZipScript(batch.getTargetNodeId());
                 script.buildScriptStart(batch);
+                boolean useDeltas = signatureDir != null && deltaEnabled && script.isDeltaSupported();
 
                 Map<String, LastEventType> entriesByLastEventType = new HashMap<String, LastEventType>();
                 Map<String, String> entriesByLastRouterId = new HashMap<String, String>();
+                Set<String> deltaEntries = new HashSet<String>();
                 for (FileSnapshot snapshot : snapshotEvents) {
                     FileTriggerRouter triggerRouter = fileSyncService.getFileTriggerRouter(
                             snapshot.getTriggerId(), snapshot.getRouterId());
@@ -201,23 +270,35 @@ public class FileSyncZipDataWriter implements IDataWriter {
                         String lastRouterId = entriesByLastRouterId.get(entryName.toString());
                         boolean addFileToScript = !snapshot.getRouterId().equals(lastRouterId);
 
+                        File signatureFile = getSignatureFile(batch, snapshot);
                         if (addFileToZip) {
                             if (eventType != LastEventType.DELETE) {
                                 if (file.exists()) {
-                                    byteCount += file.length();
+                                    FileDelta.Signature signature = null;
+                                    if (useDeltas && eventType == LastEventType.MODIFY) {
+                                        signature = getDeltaBase(signatureFile, snapshot, file);
+                                    }
                                     ZipEntry entry = new ZipEntry(entryName.toString());
-                                    entry.setSize(file.length());
                                     entry.setTime(file.lastModified());
-                                    zos.putNextEntry(entry);
+                                    if (signature != null) {
+                                        zos.putNextEntry(entry);
+                                        long deltaSize = FileDelta.writeDelta(signature, file, zos);
+                                        zos.closeEntry();
+                                        byteCount += deltaSize;
+                                        deltaEntries.add(entryName.toString());
+                                        log.debug("Sending {} as a delta of {} bytes instead of {} bytes",
+                                                new Object[] { file.getAbsolutePath(), deltaSize, file.length() });
+                                    } else {
+                                        entry.setSize(file.length());
+                                        byteCount += file.length();
+                                        putFileEntry(entry, file, snapshot, stats);
+                                    }
                                     if (file.isFile()) {
-                                        FileInputStream fis = new FileInputStream(file);
-                                        try {
-                                            IOUtils.copy(fis, zos);
-                                        } finally {
-                                            IOUtils.closeQuietly(fis);
-                                        }
+                                        stats.increment(FILECOUNT);
+                                        stats.increment(FILEBYTECOUNT, file.length());
+                                        stats.increment(COMPRESSEDBYTECOUNT, entry.getCompressedSize());
                                     }
-                                    zos.closeEntry();
+                                    updateSignature(signatureFile, file);
                                     entriesByLastEventType.put(entryName.toString(), eventType);
                                     entriesByLastRouterId.put(entryName.toString(), snapshot.getRouterId());
                                 } else {
@@ -225,12 +306,14 @@ public class FileSyncZipDataWriter implements IDataWriter {
                                             "Could not find the {} file to package for synchronization.  Skipping it.",
                                             file.getAbsolutePath());
                                 }
+                            } else if (signatureFile != null) {
+                                FileUtils.deleteQuietly(signatureFile);
                             }
                         }
                         
                         if (addFileToScript) {
                             script.buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, 
-                                    file, targetBaseDir, targetFile);
+                                    file, targetBaseDir, targetFile, deltaEntries.contains(entryName.toString()));
                         }
 
                     } else {
@@ -251,6 +334,13 @@ public class FileSyncZipDataWriter implements IDataWriter {
                 IOUtils.write(batch.getChannelId(), zos);
                 zos.closeEntry();
 
+                stats.increment(ZIPMILLIS, System.currentTimeMillis() - startTime);
+                if (stats.get(FILECOUNT) > 0) {
+                    log.debug("Zipped {} files for file sync batch {} from {} to {} bytes ({} stored as is) in {} ms",
+                            new Object[] { stats.get(FILECOUNT), batch.getNodeBatchId(), stats.get(FILEBYTECOUNT),
+                                    stats.get(COMPRESSEDBYTECOUNT), stats.get(STOREDFILECOUNT), stats.get(ZIPMILLIS) });
+                }
+
 
             }
         } catch (IOException e) {
@@ -279,6 +369,129 @@ public class FileSyncZipDataWriter implements IDataWriter {
         return byteCount > maxBytesToSync;
     }
 
+    /**
+     * Add a file to the zip, reading it only once. A stored entry needs its
+     * checksum before the data, so a file that does not compress is stored as
+     * is only when the snapshot has the checksum of this version of the file.
+     * Otherwise it is deflated at level 0, which lets the zip work out the
+     * checksum while the file is copied and tolerates a file that changes
+     * while it is read.
+     */
+    protected void putFileEntry(ZipEntry entry, File file, FileSnapshot snapshot, Statistics stats)
+            throws IOException {
+        boolean noCompression = false;
+        if (file.isFile() && !isCompressible(file)) {
+            stats.increment(STOREDFILECOUNT);
+            if (snapshot.getCrc32Checksum() != -1 && snapshot.getFileSize() == file.length()
+                    && snapshot.getFileModifiedTime() == file.lastModified()) {
+                entry.setMethod(ZipEntry.STORED);
+                entry.setCompressedSize(entry.getSize());
+                entry.setCrc(snapshot.getCrc32Checksum());
+            } else {
+                noCompression = true;
+                zos.setLevel(Deflater.NO_COMPRESSION);
+            }
+        }
+        try {
+            zos.putNextEntry(entry);
+            if (file.isFile()) {
+                FileInputStream fis = new FileInputStream(file);
+                try {
+                    IOUtils.copy(fis, zos);
+                } finally {
+                    IOUtils.closeQuietly(fis);
+                }
+            }
+            zos.closeEntry();
+        } finally {
+            if (noCompression) {
+                zos.setLevel(compressionLevel);
+            }
+        }
+    }
+
+    /**
+     * Decide whether a file is worth deflating from its extension, or from
+     * how well a sample from the start of the file compresses.
+     */
+    protected boolean isCompressible(File file) throws IOException {
+        String extension = StringUtils.substringAfterLast(file.getName(), ".").toLowerCase();
+        if (storedExtensions.contains(extension)) {
+            return false;
+        } else if (compressionSampleSize <= 0 || compressionLevel == 0
+                || file.length() <= compressionSampleSize) {
+            return true;
+        }
+
+        byte[] sample = new byte[compressionSampleSize];
+        FileInputStream fis = new FileInputStream(file);
+        int length = 0;
+        try {
+            length = IOUtils.read(fis, sample);
+        } finally {
+            IOUtils.closeQuietly(fis);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            long compressedLength = 0;
+            while (!deflater.finished()) {
+                compressedLength += deflater.deflate(buffer);
+            }
+            return compressedLength < length * MIN_COMPRESSED_RATIO;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    protected File getSignatureFile(Batch batch, FileSnapshot snapshot) {
+        if (signatureDir != null) {
+            return new File(signatureDir, batch.getTargetNodeId() + "/" + snapshot.getTriggerId()
+                    + "/" + snapshot.getRelativeDir() + "/" + snapshot.getFileName() + ".sig");
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Use the signature as the base of a delta only when it was taken from the
+     * version of the file that was replaced by this modification. The target
+     * checks its own copy against the same checksum before applying the delta.
+     */
+    protected FileDelta.Signature getDeltaBase(File signatureFile, FileSnapshot snapshot, File file) {
+        if (file.isFile() && file.length() >= deltaMinFileSize && signatureFile.exists()) {
+            try {
+                FileDelta.Signature signature = FileDelta.readSignature(signatureFile);
+                if (signature.getCrc32() == snapshot.getOldCrc32Checksum()) {
+                    return signature;
+                }
+            } catch (IOException e) {
+                log.warn("Could not read the file sync signature {}.  Sending the whole file. {}",
+                        signatureFile.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    protected void updateSignature(File signatureFile, File file) {
+        if (signatureFile != null) {
+            if (file.isFile() && file.length() >= deltaMinFileSize) {
+                try {
+                    FileDelta.writeSignature(FileDelta.createSignature(file,
+                            FileDelta.chooseBlockSize(file.length(), deltaMinBlockSize)), signatureFile);
+                } catch (IOException e) {
+                    log.warn("Could not write the file sync signature {}. {}",
+                            signatureFile.getAbsolutePath(), e.getMessage());
+                    FileUtils.deleteQuietly(signatureFile);
+                }
+            } else {
+                FileUtils.deleteQuietly(signatureFile);
+            }
+        }
+    }
+
     protected FileSyncZipScript createFileSyncZipScript(String targetNodeId) {
         if (isCClient(targetNodeId)) {
             return new BashFileSyncZipScript();
@@ -38,6 +38,21 @@ public abstract class FileSyncZipScript {
     public abstract void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
             FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile);
     
+    /**
+     * @param delta
+     *            true when the zip entry for the file holds a {@link FileDelta}
+     *            against the version the target already has, instead of the
+     *            whole file
+     */
+    public void buildScriptFileSnapshot(Batch batch, FileSnapshot snapshot, FileTriggerRouter triggerRouter, 
+            FileTrigger fileTrigger, File file, String targetBaseDir, String targetFile, boolean delta) {
+        buildScriptFileSnapshot(batch, snapshot, triggerRouter, fileTrigger, file, targetBaseDir, targetFile);
+    }
+    
+    public boolean isDeltaSupported() {
+        return false;
+    }
+    
     public abstract void buildScriptEnd(Batch batch);
     
     public StringBuilder getScript() {
@@ -48,6 +48,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
     protected ProcessInfo processInfo;
     protected boolean isSyncOnCtlFile;
     protected boolean useCrc;
+    protected FileChecksumCalculator checksumCalculator;
     protected ISymmetricEngine engine;
     protected Map<String, DirectorySnapshot> modifiedDirs = new HashMap<String, DirectorySnapshot>();
 
@@ -58,6 +59,12 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
 
     public FileTriggerFileModifiedListener(FileTriggerRouter fileTriggerRouter, Date fromDate, Date toDate, ProcessInfo processInfo, 
             boolean useCrc, FileModifiedCallback fileModifiedCallback, ISymmetricEngine engine) {
+        this(fileTriggerRouter, fromDate, toDate, processInfo, useCrc, null, fileModifiedCallback, engine);
+    }
+
+    public FileTriggerFileModifiedListener(FileTriggerRouter fileTriggerRouter, Date fromDate, Date toDate, ProcessInfo processInfo, 
+            boolean useCrc, FileChecksumCalculator checksumCalculator, FileModifiedCallback fileModifiedCallback, 
+            ISymmetricEngine engine) {
         this.fileTriggerRouter = fileTriggerRouter;
         this.snapshot = new DirectorySnapshot(fileTriggerRouter);
         this.fromDate = fromDate;
@@ -66,6 +73,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
         this.processInfo = processInfo;
         this.isSyncOnCtlFile = fileTriggerRouter.getFileTrigger().isSyncOnCtlFile();
         this.useCrc = useCrc;
+        this.checksumCalculator = checksumCalculator;
         this.engine = engine;
         this.processInfo.setStatus(ProcessInfo.Status.PROCESSING);
     }
@@ -113,6 +121,7 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
             DirectorySnapshot lastSnapshot = fileModifiedCallback.getLastDirectorySnapshot(relativeDir);
             DirectorySnapshot currentSnapshot = modifiedDirs.get(relativeDir);
             modifiedDirFileCount += currentSnapshot.size();
+            calculateChecksums(currentSnapshot, lastSnapshot);
             DirectorySnapshot changesSinceLastSnapshot = lastSnapshot.diff(currentSnapshot);
             processInfo.setCurrentDataCount(processInfo.getCurrentDataCount() + lastSnapshot.size() + currentSnapshot.size());
             if (changesSinceLastSnapshot.size() > 0) {
@@ -144,7 +153,8 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
     protected void addSnapshot(File file, LastEventType lastEventType, boolean isDir) {
         fileCount++;
         processInfo.incrementCurrentDataCount();
-        FileSnapshot fileSnapshot = new FileSnapshot(fileTriggerRouter, file, lastEventType, useCrc);
+        FileSnapshot fileSnapshot = new FileSnapshot(fileTriggerRouter, file, lastEventType, 
+                useCrc && checksumCalculator == null);
         DirectorySnapshot modifiedDir = modifiedDirs.get(fileSnapshot.getRelativeDir());
         
         if (!isDir && modifiedDir != null) {
@@ -177,10 +187,17 @@ public class FileTriggerFileModifiedListener extends FileAlterationListenerAdapt
     }
 
     protected void commit() {
+        calculateChecksums(snapshot, null);
         fileModifiedCallback.commit(snapshot);
         snapshot.clear();        
     }
 
+    protected void calculateChecksums(DirectorySnapshot snapshot, DirectorySnapshot previousSnapshot) {
+        if (useCrc && checksumCalculator != null) {
+            checksumCalculator.calculate(snapshot, previousSnapshot);
+        }
+    }
+
     public Map<String, DirectorySnapshot> getModifiedDirs() {
         return modifiedDirs;
     }
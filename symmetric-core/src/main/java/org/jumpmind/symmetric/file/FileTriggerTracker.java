@@ -46,6 +46,7 @@ public class FileTriggerTracker {
     private ProcessInfo processInfo;
     private ISymmetricEngine engine;
     protected boolean useCrc;
+    protected FileChecksumCalculator checksumCalculator;
 
     long startTime = System.currentTimeMillis();
     long ts = startTime;
@@ -53,9 +54,20 @@ public class FileTriggerTracker {
     
     public FileTriggerTracker(FileTriggerRouter fileTriggerRouter, DirectorySnapshot lastSnapshot, ProcessInfo processInfo,
             boolean useCrc, ISymmetricEngine engine) {
+        this(fileTriggerRouter, lastSnapshot, processInfo, useCrc, null, engine);
+    }
+    
+    /**
+     * @param checksumCalculator
+     *            when not null, checksums are calculated by the calculator once
+     *            the snapshot is taken instead of one file at a time
+     */
+    public FileTriggerTracker(FileTriggerRouter fileTriggerRouter, DirectorySnapshot lastSnapshot, ProcessInfo processInfo,
+            boolean useCrc, FileChecksumCalculator checksumCalculator, ISymmetricEngine engine) {
         this.fileTriggerRouter = fileTriggerRouter;
         this.processInfo = processInfo;
         this.useCrc = useCrc;
+        this.checksumCalculator = checksumCalculator;
         this.engine = engine;
         
         changesSinceLastSnapshot = new DirectorySnapshot(fileTriggerRouter);
@@ -71,6 +83,7 @@ public class FileTriggerTracker {
             this.lastSnapshot = lastSnapshot;
             DirectorySnapshot currentSnapshot = new DirectorySnapshot(fileTriggerRouter);
             takeFullSnapshot(currentSnapshot);
+            calculateChecksums(currentSnapshot, lastSnapshot);
             changesSinceLastSnapshot.addAll(lastSnapshot.diff(currentSnapshot));
         } catch (RuntimeException e) {
             throw e;
@@ -90,6 +103,7 @@ public class FileTriggerTracker {
     synchronized public DirectorySnapshot trackChanges() {
         pollForChanges();
         DirectorySnapshot changes = changesSinceLastSnapshot;
+        calculateChecksums(changes, lastSnapshot);
         changesSinceLastSnapshot = new DirectorySnapshot(fileTriggerRouter);
         SnapshotUpdater newListener = new SnapshotUpdater(changesSinceLastSnapshot);
         fileObserver.addListener(newListener);
@@ -103,6 +117,12 @@ public class FileTriggerTracker {
         return changes;
     }
 
+    protected void calculateChecksums(DirectorySnapshot snapshot, DirectorySnapshot previousSnapshot) {
+        if (useCrc && checksumCalculator != null) {
+            checksumCalculator.calculate(snapshot, previousSnapshot);
+        }
+    }
+
     synchronized protected void takeFullSnapshot(DirectorySnapshot snapshot) {
         // update the snapshot with every file in the directory spec
         FileAlterationObserver observer = new FileAlterationObserver(fileTriggerRouter.getFileTrigger().getBaseDir(), fileTriggerRouter
@@ -166,7 +186,8 @@ public class FileTriggerTracker {
             if (processInfo != null) {
                 processInfo.incrementCurrentDataCount();
             }
-            snapshot.add(new FileSnapshot(snapshot.getFileTriggerRouter(), file, lastEventType, useCrc));
+            snapshot.add(new FileSnapshot(snapshot.getFileTriggerRouter(), file, lastEventType, 
+                    useCrc && checksumCalculator == null));
             
             if (System.currentTimeMillis() - ts > 60000) {
                 log.info("File tracker has been processing for {} seconds.  The following stats have been gathered: {}", new Object[] {
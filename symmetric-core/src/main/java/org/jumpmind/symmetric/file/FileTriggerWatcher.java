@@ -0,0 +1,265 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives change notifications from the operating system for the directories
+ * of a file trigger, so the tracker only has to rescan the directories that
+ * changed. The java.nio.file watch service is called through reflection
+ * because it is not available on Java 6. When it is missing,
+ * {@link #isSupported()} returns false and the tracker keeps polling.
+ */
+public class FileTriggerWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(FileTriggerWatcher.class);
+
+    protected static boolean supported;
+
+    protected static Method toPathMethod;
+
+    protected static Method newWatchServiceMethod;
+
+    protected static Object defaultFileSystem;
+
+    protected static Method registerMethod;
+
+    protected static Object eventKinds;
+
+    protected static Object overflowKind;
+
+    protected static Object deleteKind;
+
+    protected static Method pollMethod;
+
+    protected static Method closeMethod;
+
+    protected static Method pollEventsMethod;
+
+    protected static Method resetMethod;
+
+    protected static Method kindMethod;
+
+    protected static Method contextMethod;
+
+    static {
+        try {
+            initReflection();
+            supported = true;
+        } catch (Exception e) {
+            supported = false;
+        }
+    }
+
+    protected FileTriggerRouter fileTriggerRouter;
+
+    protected FileFilter fileFilter;
+
+    protected Object watchService;
+
+    protected Map<Object, File> directoriesByKey = new HashMap<Object, File>();
+
+    protected Set<File> directories = new HashSet<File>();
+
+    public FileTriggerWatcher(FileTriggerRouter fileTriggerRouter) {
+        this.fileTriggerRouter = fileTriggerRouter;
+        this.fileFilter = fileTriggerRouter.getFileTrigger().createIOFileFilter();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected static void initReflection() throws Exception {
+        Class fileSystemsClass = Class.forName("java.nio.file.FileSystems");
+        Class fileSystemClass = Class.forName("java.nio.file.FileSystem");
+        Class pathClass = Class.forName("java.nio.file.Path");
+        Class watchServiceClass = Class.forName("java.nio.file.WatchService");
+        Class watchKeyClass = Class.forName("java.nio.file.WatchKey");
+        Class watchEventClass = Class.forName("java.nio.file.WatchEvent");
+        Class kindClass = Class.forName("java.nio.file.WatchEvent$Kind");
+        Class kindsClass = Class.forName("java.nio.file.StandardWatchEventKinds");
+
+        toPathMethod = File.class.getMethod("toPath", (Class[]) null);
+        defaultFileSystem = fileSystemsClass.getMethod("getDefault", (Class[]) null).invoke(null, (Object[]) null);
+        newWatchServiceMethod = fileSystemClass.getMethod("newWatchService", (Class[]) null);
+        registerMethod = pathClass.getMethod("register", new Class[] { watchServiceClass,
+                Array.newInstance(kindClass, 0).getClass() });
+        pollMethod = watchServiceClass.getMethod("poll", (Class[]) null);
+        closeMethod = watchServiceClass.getMethod("close", (Class[]) null);
+        pollEventsMethod = watchKeyClass.getMethod("pollEvents", (Class[]) null);
+        resetMethod = watchKeyClass.getMethod("reset", (Class[]) null);
+        kindMethod = watchEventClass.getMethod("kind", (Class[]) null);
+        contextMethod = watchEventClass.getMethod("context", (Class[]) null);
+
+        overflowKind = kindsClass.getField("OVERFLOW").get(null);
+        deleteKind = kindsClass.getField("ENTRY_DELETE").get(null);
+        eventKinds = Array.newInstance(kindClass, 3);
+        Array.set(eventKinds, 0, kindsClass.getField("ENTRY_CREATE").get(null));
+        Array.set(eventKinds, 1, deleteKind);
+        Array.set(eventKinds, 2, kindsClass.getField("ENTRY_MODIFY").get(null));
+    }
+
+    public static boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Register every directory under the base directory. Any earlier
+     * registrations are dropped, so this should be followed by a full scan.
+     */
+    synchronized public void start() throws IOException {
+        close();
+        watchService = invoke(newWatchServiceMethod, defaultFileSystem);
+        register(new File(fileTriggerRouter.getFileTrigger().getBaseDir()), null);
+        log.info("Watching {} directories for file trigger {}", directories.size(),
+                fileTriggerRouter.getFileTrigger().getTriggerId());
+    }
+
+    synchronized public boolean isStarted() {
+        return watchService != null;
+    }
+
+    /**
+     * @return the directories that had entries created, changed or deleted
+     *         since the last call, or null if events were lost and a full
+     *         scan is needed
+     */
+    synchronized public Set<File> pollChangedDirectories() throws IOException {
+        if (watchService == null) {
+            return null;
+        }
+        Set<File> changedDirectories = new HashSet<File>();
+        Object key = invoke(pollMethod, watchService);
+        while (key != null) {
+            File directory = directoriesByKey.get(key);
+            List<?> events = (List<?>) invoke(pollEventsMethod, key);
+            for (Object event : events) {
+                Object kind = invoke(kindMethod, event);
+                if (kind == overflowKind) {
+                    log.info("File change notifications overflowed for file trigger {}",
+                            fileTriggerRouter.getFileTrigger().getTriggerId());
+                    return null;
+                }
+                File file = new File(directory, invoke(contextMethod, event).toString());
+                if (kind == deleteKind && directories.contains(file)) {
+                    log.debug("Watched directory {} was removed", file);
+                    return null;
+                }
+                if (fileTriggerRouter.getFileTrigger().isRecurse() && !directories.contains(file)
+                        && file.isDirectory()) {
+                    register(file, changedDirectories);
+                }
+            }
+            changedDirectories.add(directory);
+            if (!(Boolean) invoke(resetMethod, key)) {
+                log.debug("Watched directory {} is no longer accessible", directory);
+                return null;
+            }
+            key = invoke(pollMethod, watchService);
+        }
+        return changedDirectories;
+    }
+
+    public String getRelativeDir(File directory) {
+        String relativeDir = directory.getPath().replace('\\', '/');
+        String baseDir = new File(fileTriggerRouter.getFileTrigger().getBaseDir()).getPath().replace('\\', '/');
+        if (relativeDir.startsWith(baseDir)) {
+            relativeDir = relativeDir.substring(baseDir.length());
+        }
+        relativeDir = StringUtils.strip(relativeDir, "/");
+        return StringUtils.isBlank(relativeDir) ? "." : relativeDir;
+    }
+
+    public File[] listFiles(File directory) {
+        File[] files = directory.listFiles(fileFilter);
+        return files != null ? files : new File[0];
+    }
+
+    public boolean matches(FileTriggerRouter fileTriggerRouter) {
+        FileTrigger fileTrigger = fileTriggerRouter.getFileTrigger();
+        FileTrigger watchedFileTrigger = this.fileTriggerRouter.getFileTrigger();
+        return StringUtils.equals(fileTrigger.getBaseDir(), watchedFileTrigger.getBaseDir())
+                && StringUtils.equals(fileTrigger.getIncludesFiles(), watchedFileTrigger.getIncludesFiles())
+                && StringUtils.equals(fileTrigger.getExcludesFiles(), watchedFileTrigger.getExcludesFiles())
+                && fileTrigger.isRecurse() == watchedFileTrigger.isRecurse();
+    }
+
+    synchronized public void close() {
+        if (watchService != null) {
+            try {
+                invoke(closeMethod, watchService);
+            } catch (IOException e) {
+                log.debug("Failed to close watch service", e);
+            }
+            watchService = null;
+        }
+        directoriesByKey.clear();
+        directories.clear();
+    }
+
+    protected void register(File directory, Set<File> changedDirectories) throws IOException {
+        Object path = invoke(toPathMethod, directory);
+        Object key = invoke(registerMethod, path, watchService, eventKinds);
+        directoriesByKey.put(key, directory);
+        directories.add(directory);
+        if (changedDirectories != null) {
+            changedDirectories.add(directory);
+        }
+        if (fileTriggerRouter.getFileTrigger().isRecurse()) {
+            for (File file : listFiles(directory)) {
+                if (file.isDirectory() && !directories.contains(file)) {
+                    register(file, changedDirectories);
+                }
+            }
+        }
+    }
+
+    protected static Object invoke(Method method, Object target, Object... args) throws IOException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
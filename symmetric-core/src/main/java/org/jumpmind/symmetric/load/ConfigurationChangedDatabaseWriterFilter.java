@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.load;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import org.jumpmind.symmetric.job.IJobManager;
 import org.jumpmind.symmetric.model.IncomingBatch;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeSecurity;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.slf4j.Logger;
@@ -94,6 +96,24 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
     final String CTX_KEY_FILE_SYNC_ENABLED = "FileSyncEnabled."
             + ConfigurationChangedDatabaseWriterFilter.class.getSimpleName() + hashCode();
 
+    final String CTX_KEY_CHANGED_CONFIGURATION = "ChangedConfiguration."
+            + ConfigurationChangedDatabaseWriterFilter.class.getSimpleName() + hashCode();
+
+    /**
+     * Tables whose rows are cached by node id. Only the changed rows are
+     * reloaded.
+     */
+    final static String[] VERSIONED_BY_NODE_ID = { TableConstants.SYM_NODE,
+            TableConstants.SYM_NODE_SECURITY };
+
+    /**
+     * Tables whose caches are reloaded completely when they change.
+     */
+    final static String[] VERSIONED = { TableConstants.SYM_CHANNEL,
+            TableConstants.SYM_NODE_CHANNEL_CTL, TableConstants.SYM_NODE_GROUP_LINK,
+            TableConstants.SYM_NODE_GROUP_CHANNEL_WND, TableConstants.SYM_TRIGGER,
+            TableConstants.SYM_ROUTER, TableConstants.SYM_TRIGGER_ROUTER };
+
     private ISymmetricEngine engine;
 
     public ConfigurationChangedDatabaseWriterFilter(ISymmetricEngine engine) {
@@ -131,6 +151,7 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
         recordNodeSecurityFlushNeeded(context, table);
         recordNodeFlushNeeded(context, table, data);
         recordFileSyncEnabled(context, table, data);
+        recordConfigurationChanged(context, table, data);
     }
     
     private void recordGroupletFlushNeeded(DataContext context, Table table) {
@@ -223,6 +244,40 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
         }
     }
     
+    private void recordConfigurationChanged(DataContext context, Table table, CsvData data) {
+        for (String tableSuffix : VERSIONED_BY_NODE_ID) {
+            if (matchesTable(table, tableSuffix)) {
+                String nodeId = data.toKeyColumnValuePairs(table).get("NODE_ID");
+                Set<String> keys = getChangedConfiguration(context).get(tableSuffix);
+                if (keys == null) {
+                    keys = new HashSet<String>();
+                    getChangedConfiguration(context).put(tableSuffix, keys);
+                }
+                if (nodeId != null) {
+                    keys.add(nodeId);
+                }
+                return;
+            }
+        }
+        for (String tableSuffix : VERSIONED) {
+            if (matchesTable(table, tableSuffix)) {
+                getChangedConfiguration(context).put(tableSuffix, new HashSet<String>(0));
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Set<String>> getChangedConfiguration(DataContext context) {
+        Map<String, Set<String>> changed = (Map<String, Set<String>>) context
+                .get(CTX_KEY_CHANGED_CONFIGURATION);
+        if (changed == null) {
+            changed = new HashMap<String, Set<String>>();
+            context.put(CTX_KEY_CHANGED_CONFIGURATION, changed);
+        }
+        return changed;
+    }
+
     private void recordFileSyncEnabled(DataContext context, Table table, CsvData data) {
         if (isFileSyncEnabled(table, data)) {
             context.put(CTX_KEY_FILE_SYNC_ENABLED, true);
@@ -364,6 +419,22 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
                 }
             }
         }       
+
+        /*
+         * Bump the version of the changed tables so the caches built from
+         * them, here and on other servers in the cluster, refresh on next use
+         */
+        if (context.get(CTX_KEY_CHANGED_CONFIGURATION) != null) {
+            IConfigurationVersionService configurationVersionService = engine
+                    .getConfigurationVersionService();
+            for (Map.Entry<String, Set<String>> entry : getChangedConfiguration(context)
+                    .entrySet()) {
+                Set<String> keys = entry.getValue();
+                configurationVersionService.changed(entry.getKey(),
+                        keys.toArray(new String[keys.size()]));
+            }
+            context.remove(CTX_KEY_CHANGED_CONFIGURATION);
+        }
         
         if (context.get(CTX_KEY_FLUSH_GROUPLETS_NEEDED) != null) {
             log.info("Grouplets flushed because new grouplet config came through the data loader");
@@ -379,7 +450,6 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
                 
         if (context.get(CTX_KEY_FLUSH_CHANNELS_NEEDED) != null) {
             log.info("Channels flushed because new channels came through the data loader");
-            engine.getConfigurationService().clearCache();
             context.remove(CTX_KEY_FLUSH_CHANNELS_NEEDED);
         }
         
@@ -397,13 +467,11 @@ public class ConfigurationChangedDatabaseWriterFilter extends DatabaseWriterFilt
 
         if (context.get(CTX_KEY_FLUSH_NODE_SECURITY_NEEDED) != null) {
             log.info("About to refresh the cache of node security because new configuration came through the data loader");
-            nodeService.flushNodeAuthorizedCache();
             context.remove(CTX_KEY_FLUSH_NODE_SECURITY_NEEDED);
         }
 
         if (context.get(CTX_KEY_FLUSH_NODE_NEEDED) != null) {
             log.info("About to refresh the cache of nodes because new configuration came through the data loader");
-            nodeService.flushNodeCache();
             nodeService.flushNodeGroupCache();
             context.remove(CTX_KEY_FLUSH_NODE_NEEDED);
         }    
@@ -109,6 +109,8 @@ public class DefaultDataLoaderFactory implements IDataLoaderFactory, IBuiltInExt
                 .is(ParameterConstants.DATA_LOADER_CREATE_TABLE_ALTER_TO_MATCH_DB_CASE, true));
         settings.setMaxRowsBeforeCommit(parameterService
                 .getLong(ParameterConstants.DATA_LOADER_MAX_ROWS_BEFORE_COMMIT));
+        settings.setMaxRowsInPrimaryKeyBatch(parameterService.getInt(
+                ParameterConstants.DATA_LOADER_MAX_ROWS_IN_PRIMARY_KEY_BATCH, 0));
         settings.setCommitSleepInterval(parameterService
                 .getLong(ParameterConstants.DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT));
         settings.setIgnoreMissingTables(parameterService
@@ -21,12 +21,15 @@
 package org.jumpmind.symmetric.model;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.reader.DataReaderStatistics;
 import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
 import org.jumpmind.util.Statistics;
+import org.jumpmind.util.TableStatistics;
 
 public class IncomingBatch extends AbstractBatch {
 
@@ -69,6 +72,8 @@ public class IncomingBatch extends AbstractBatch {
 
     private boolean retry;
 
+    private Map<String, TableStatistics> tableStatistics = new LinkedHashMap<String, TableStatistics>();
+
     public IncomingBatch() {
     }
 
@@ -96,6 +101,7 @@ public class IncomingBatch extends AbstractBatch {
                     .get(DataWriterStatisticConstants.MISSINGDELETECOUNT);
             setIgnoreCount(writerStatistics.get(DataWriterStatisticConstants.IGNORECOUNT));
             ignoreRowCount = writerStatistics.get(DataWriterStatisticConstants.IGNOREROWCOUNT);
+            tableStatistics = new LinkedHashMap<String, TableStatistics>(writerStatistics.getTableStatistics());
             setLastUpdatedTime(new Date());
             if (!isSuccess) {
                 failedRowNumber = statementCount;
@@ -138,6 +144,10 @@ public class IncomingBatch extends AbstractBatch {
         this.retry = isRetry;
     }
 
+    public Map<String, TableStatistics> getTableStatistics() {
+        return tableStatistics;
+    }
+
     public long getDatabaseMillis() {
         return databaseMillis;
     }
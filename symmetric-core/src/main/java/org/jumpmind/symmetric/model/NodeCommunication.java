@@ -65,6 +65,8 @@ public class NodeCommunication implements Serializable {
     private long totalFailMillis;
     
     private long batchToSendCount;
+
+    private transient long batchToSendBytes;
     
     private int nodePriority;
 
@@ -180,6 +182,14 @@ public class NodeCommunication implements Serializable {
         this.batchToSendCount = batchToSendCount;
     }
 
+    public long getBatchToSendBytes() {
+        return batchToSendBytes;
+    }
+
+    public void setBatchToSendBytes(long batchToSendBytes) {
+        this.batchToSendBytes = batchToSendBytes;
+    }
+
     public int getNodePriority() {
         return nodePriority;
     }
@@ -0,0 +1,58 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.monitor;
+
+import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
+import org.jumpmind.symmetric.model.Monitor;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+
+/**
+ * Reports, in milliseconds, the age of the oldest batch that has been routed but
+ * not acknowledged by its node. The value comes from the in memory watermarks
+ * of this server, so no database query is run.
+ */
+public class MonitorTypeReplicationLag implements IMonitorType, ISymmetricEngineAware, IBuiltInExtensionPoint {
+
+    protected IStatisticManager statisticManager;
+
+    @Override
+    public String getName() {
+        return "replicationLag";
+    }
+
+    @Override
+    public long check(Monitor monitor) {
+        return statisticManager.getReplicationLagTracker().getMaxLagMillis();
+    }
+
+    @Override
+    public boolean requiresClusterLock() {
+        return false;
+    }
+
+    @Override
+    public void setSymmetricEngine(ISymmetricEngine engine) {
+        statisticManager = engine.getStatisticManager();
+    }
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service;
+
+import java.util.Set;
+
+/**
+ * Keeps a monotonic change version for each configuration table so that
+ * caches can be refreshed when (and only when) the configuration they were
+ * built from has changed, instead of waiting for a timeout to expire.
+ */
+public interface IConfigurationVersionService {
+
+    /**
+     * Record that rows in the table with the given suffix have changed. The
+     * keys identify the changed rows. When no keys are passed the whole table
+     * is considered changed.
+     */
+    public void changed(String tableSuffix, String... keys);
+
+    /**
+     * @return a value that increases every time one of the given tables
+     *         changes
+     */
+    public long getVersion(String... tableSuffixes);
+
+    /**
+     * @return the keys of the rows that changed after the given version or
+     *         null if the changes are not known and the table should be
+     *         reloaded completely
+     */
+    public Set<String> getChangedKeys(String tableSuffix, long sinceVersion);
+
+}
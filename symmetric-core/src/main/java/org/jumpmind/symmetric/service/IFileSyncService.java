@@ -83,4 +83,6 @@ public interface IFileSyncService {
     
     public Object[] getStagingPathComponents(OutgoingBatch fileSyncBatch);
 
+    public void stop();
+
 }
@@ -0,0 +1,49 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service;
+
+import java.util.List;
+
+import org.jumpmind.extension.IExtensionPoint;
+import org.jumpmind.symmetric.model.NodeCommunication;
+import org.jumpmind.symmetric.model.NodeCommunication.CommunicationType;
+
+/**
+ * Decides the order in which nodes are handed to the push, pull and file sync
+ * thread pools. The jobs walk the scheduled list and start work for nodes
+ * until the pool has no free threads, so nodes near the front are served
+ * first. The scheduler is picked by the node.communication.scheduler
+ * parameter.
+ */
+public interface INodeCommunicationScheduler extends IExtensionPoint {
+
+    public String getName();
+
+    public List<NodeCommunication> schedule(CommunicationType communicationType,
+            List<NodeCommunication> nodeCommunications);
+
+    /**
+     * Called when work for a node and queue has finished, whether or not it
+     * succeeded.
+     */
+    public void executed(NodeCommunication nodeCommunication, long millis, boolean failed);
+
+}
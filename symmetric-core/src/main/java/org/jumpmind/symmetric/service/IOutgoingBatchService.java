@@ -54,6 +54,8 @@ public interface IOutgoingBatchService {
 
     public OutgoingBatch findOutgoingBatch(long batchId, String nodeId);
 
+    public List<OutgoingBatch> findOutgoingBatches(String nodeId, List<Long> batchIds);
+
     public OutgoingBatches getOutgoingBatches(String nodeId, boolean includeDisabledChannels);
 
     public OutgoingBatches getOutgoingBatches(String nodeId, String channelId, boolean includeDisabledChannels);
@@ -20,8 +20,11 @@
  */
 package org.jumpmind.symmetric.service;
 
+import java.util.Map;
+
 import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.symmetric.model.Sequence;
+import org.jumpmind.symmetric.statistic.SequenceStats;
 
 public interface ISequenceService {
 
@@ -36,5 +39,7 @@ public interface ISequenceService {
     public long currVal(ISqlTransaction transaction, String name);
     
     public long nextVal(ISqlTransaction transaction, String name);
+
+    public Map<String, SequenceStats> getSequenceStats();
     
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.jumpmind.symmetric.statistic.ChannelLatencyStats;
 import org.jumpmind.symmetric.statistic.ChannelStats;
 import org.jumpmind.symmetric.statistic.HostStats;
 import org.jumpmind.symmetric.statistic.JobStats;
@@ -40,12 +41,16 @@ public interface IStatisticService {
     public void save(HostStats stats);
     
     public void save(JobStats stats);
+
+    public void save(ChannelLatencyStats stats);
     
     public TreeMap<Date, Map<String, ChannelStats>> getChannelStatsForPeriod(Date start, Date end, String nodeId, int periodSizeInMinutes);
     
     public TreeMap<Date, HostStats> getHostStatsForPeriod(Date start, Date end, String nodeId, int periodSizeInMinutes);
 
     public List<JobStats> getJobStatsForPeriod(Date start, Date end, String nodeId);
+
+    public List<ChannelLatencyStats> getChannelLatencyStatsForPeriod(Date start, Date end, String nodeId);
     
 
 }
\ No newline at end of file
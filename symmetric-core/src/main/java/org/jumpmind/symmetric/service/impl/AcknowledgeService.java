@@ -21,8 +21,12 @@
 package org.jumpmind.symmetric.service.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.sql.mapper.NumberMapper;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.common.Constants;
@@ -36,6 +40,8 @@ import org.jumpmind.symmetric.model.OutgoingBatch.Status;
 import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.statistic.RouterStats;
 import org.jumpmind.symmetric.transport.IAcknowledgeEventListener;
 
@@ -71,88 +77,208 @@ public class AcknowledgeService extends AbstractService implements IAcknowledgeS
         } else {
             OutgoingBatch outgoingBatch = outgoingBatchService
                     .findOutgoingBatch(batch.getBatchId(), batch.getNodeId());
-            Status status = batch.isOk() ? Status.OK : batch.isResend() ? Status.RS : Status.ER;
             if (outgoingBatch != null) {
-                // Allow an outside system/user to indicate that a batch
-                // is OK.
-                if (outgoingBatch.getStatus() != Status.OK && 
-                        outgoingBatch.getStatus() != Status.IG) {
-                    outgoingBatch.setStatus(status);
-                    outgoingBatch.setErrorFlag(!batch.isOk());
-                } else {
-                    // clearing the error flag in case the user set the batch
-                    // status to OK
-                    Status oldStatus = outgoingBatch.getStatus();
-                    outgoingBatch.setStatus(Status.OK);
-                    outgoingBatch.setErrorFlag(false);
-                    log.info("Batch {} for {} was set to {}.  Updating the status to OK",
-                            new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
+                Status status = applyAck(batch, outgoingBatch);
+                outgoingBatchService.updateOutgoingBatch(outgoingBatch);
+                if (status == Status.OK) {
+                    acknowledged(batch, outgoingBatch);
                 }
-                if (batch.isIgnored()) {
-                    outgoingBatch.incrementIgnoreCount();
+            } else {
+                logBatchNotFound(batch);
+                result.setOk(false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Acknowledge many batches at once. The batches are looked up with one
+     * query per node instead of a lookup for each batch. Listeners are told
+     * about each ack before it is saved, and a listener may expect the acks
+     * before it to be saved already, so the batches are only written back
+     * together with a JDBC batch update when there are no listeners.
+     */
+    public List<BatchAckResult> ack(List<BatchAck> batches) {
+        IRegistrationService registrationService = engine.getRegistrationService();
+        IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
+        List<IAcknowledgeEventListener> listeners = engine.getExtensionService()
+                .getExtensionPointList(IAcknowledgeEventListener.class);
+
+        Map<String, OutgoingBatch> outgoingBatches = findOutgoingBatches(batches);
+        Map<String, OutgoingBatch> updatedBatches = new LinkedHashMap<String, OutgoingBatch>();
+        List<BatchAck> okBatches = new ArrayList<BatchAck>();
+
+        List<BatchAckResult> results = new ArrayList<BatchAckResult>(batches.size());
+        for (BatchAck batch : batches) {
+            BatchAckResult result = new BatchAckResult(batch);
+            for (IAcknowledgeEventListener listener : listeners) {
+                listener.onAcknowledgeEvent(batch);
+            }
+
+            if (batch.getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION) {
+                if (batch.isOk()) {
+                    registrationService.markNodeAsRegistered(batch.getNodeId());
                 }
-                outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
-                outgoingBatch.setFilterMillis(batch.getFilterMillis());
-                outgoingBatch.setLoadMillis(batch.getDatabaseMillis());
-                outgoingBatch.setSqlCode(batch.getSqlCode());
-                outgoingBatch.setSqlState(batch.getSqlState());
-                outgoingBatch.setSqlMessage(batch.getSqlMessage());
-
-                boolean isNewError = false;
-                if (!batch.isOk() && batch.getErrorLine() != 0) {
-                    List<Number> ids = sqlTemplateDirty.query(getSql("selectDataIdSql"),
-                            new NumberMapper(), outgoingBatch.getBatchId());
-                    if (ids.size() >= batch.getErrorLine()) {
-                        long failedDataId = ids.get((int) batch.getErrorLine() - 1).longValue();
-                        if (outgoingBatch.getFailedDataId() == 0 || outgoingBatch.getFailedDataId() != failedDataId) {
-                            isNewError = true;
+            } else {
+                String key = getBatchKey(batch.getNodeId(), batch.getBatchId());
+                OutgoingBatch outgoingBatch = outgoingBatches.get(key);
+                if (outgoingBatch != null) {
+                    Status status = applyAck(batch, outgoingBatch);
+                    if (listeners.size() > 0) {
+                        outgoingBatchService.updateOutgoingBatch(outgoingBatch);
+                        if (status == Status.OK) {
+                            acknowledged(batch, outgoingBatch);
                         }
-                        outgoingBatch.setFailedDataId(failedDataId);
+                    } else {
+                        if (status == Status.OK) {
+                            okBatches.add(batch);
+                        }
+                        updatedBatches.put(key, outgoingBatch);
                     }
+                } else {
+                    logBatchNotFound(batch);
+                    result.setOk(false);
                 }
+            }
+            results.add(result);
+        }
 
-                if (status == Status.ER) {
-                    log.error("The outgoing batch {} failed: {}{}", outgoingBatch.getNodeBatchId(),
-                            (batch.getSqlCode() != 0 ? "[" + batch.getSqlState() + "," + batch.getSqlCode() + "] " : ""), batch.getSqlMessage());
-                    RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
-                    if (routerStats != null) {
-                        log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
-                    }
-                    if (isNewError && outgoingBatch.getSqlCode() == ErrorConstants.FK_VIOLATION_CODE
-                            && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION)) {
-                        Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
-                        if (channel != null && !channel.isReloadFlag()) {
-                            engine.getDataService().reloadMissingForeignKeyRows(outgoingBatch.getNodeId(), outgoingBatch.getFailedDataId());
-                        }
-                    }
-                } else if (status == Status.RS) {
-                    log.info("The outgoing batch {} received resend request", outgoingBatch.getNodeBatchId());
+        outgoingBatchService.updateOutgoingBatches(new ArrayList<OutgoingBatch>(updatedBatches.values()));
+
+        for (BatchAck batch : okBatches) {
+            OutgoingBatch outgoingBatch = updatedBatches.get(getBatchKey(batch.getNodeId(), batch.getBatchId()));
+            if (outgoingBatch.getStatus() == Status.OK) {
+                acknowledged(batch, outgoingBatch);
+            }
+        }
+        return results;
+    }
+
+    protected Map<String, OutgoingBatch> findOutgoingBatches(List<BatchAck> batches) {
+        Map<String, List<Long>> batchIdsByNodeId = new HashMap<String, List<Long>>();
+        for (BatchAck batch : batches) {
+            if (batch.getBatchId() != Constants.VIRTUAL_BATCH_FOR_REGISTRATION) {
+                String nodeId = StringUtils.isNotBlank(batch.getNodeId()) ? batch.getNodeId() : "";
+                List<Long> batchIds = batchIdsByNodeId.get(nodeId);
+                if (batchIds == null) {
+                    batchIds = new ArrayList<Long>();
+                    batchIdsByNodeId.put(nodeId, batchIds);
                 }
-                
-                outgoingBatchService.updateOutgoingBatch(outgoingBatch);
-                if (status == Status.OK) {
-                    Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
-                    if (channel != null && channel.isFileSyncFlag()){
-                        /* Acknowledge the file_sync in case the file needs deleted. */
-                        engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
-                    }
-                    engine.getStatisticManager().removeRouterStatsByBatch(batch.getBatchId());
+                batchIds.add(batch.getBatchId());
+            }
+        }
+
+        Map<String, OutgoingBatch> outgoingBatches = new HashMap<String, OutgoingBatch>();
+        for (Map.Entry<String, List<Long>> entry : batchIdsByNodeId.entrySet()) {
+            for (OutgoingBatch outgoingBatch : engine.getOutgoingBatchService().findOutgoingBatches(
+                    entry.getKey(), entry.getValue())) {
+                /*
+                 * Pushing to an older version of symmetric might result in an
+                 * ack without the node id, so those are found by batch id only
+                 */
+                String key = getBatchKey(entry.getKey(), outgoingBatch.getBatchId());
+                if (!outgoingBatches.containsKey(key)) {
+                    outgoingBatches.put(key, outgoingBatch);
                 }
-            } else {
-                log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
-                        status.name()});
-                result.setOk(false);
             }
         }
-        return result;
+        return outgoingBatches;
     }
 
-	public List<BatchAckResult> ack(List<BatchAck> batches) {
-		
-		List<BatchAckResult> results = new ArrayList<BatchAckResult>();
-		for (BatchAck batch:batches) {
-			results.add(ack(batch));
-		}
-		return results;
-	}
+    protected String getBatchKey(String nodeId, long batchId) {
+        return (StringUtils.isNotBlank(nodeId) ? nodeId : "") + "-" + batchId;
+    }
+
+    protected void logBatchNotFound(BatchAck batch) {
+        Status status = batch.isOk() ? Status.OK : batch.isResend() ? Status.RS : Status.ER;
+        log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
+                status.name()});
+    }
+
+    /**
+     * Apply the status from the ack to the batch, without saving it
+     * 
+     * @return the status the ack asked for
+     */
+    protected Status applyAck(BatchAck batch, OutgoingBatch outgoingBatch) {
+        Status status = batch.isOk() ? Status.OK : batch.isResend() ? Status.RS : Status.ER;
+        // Allow an outside system/user to indicate that a batch
+        // is OK.
+        if (outgoingBatch.getStatus() != Status.OK && 
+                outgoingBatch.getStatus() != Status.IG) {
+            outgoingBatch.setStatus(status);
+            outgoingBatch.setErrorFlag(!batch.isOk());
+        } else {
+            // clearing the error flag in case the user set the batch
+            // status to OK
+            Status oldStatus = outgoingBatch.getStatus();
+            outgoingBatch.setStatus(Status.OK);
+            outgoingBatch.setErrorFlag(false);
+            log.info("Batch {} for {} was set to {}.  Updating the status to OK",
+                    new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
+        }
+        if (batch.isIgnored()) {
+            outgoingBatch.incrementIgnoreCount();
+        }
+        outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
+        outgoingBatch.setFilterMillis(batch.getFilterMillis());
+        outgoingBatch.setLoadMillis(batch.getDatabaseMillis());
+        outgoingBatch.setSqlCode(batch.getSqlCode());
+        outgoingBatch.setSqlState(batch.getSqlState());
+        outgoingBatch.setSqlMessage(batch.getSqlMessage());
+
+        boolean isNewError = false;
+        if (!batch.isOk() && batch.getErrorLine() != 0) {
+            List<Number> ids = sqlTemplateDirty.query(getSql("selectDataIdSql"),
+                    new NumberMapper(), outgoingBatch.getBatchId());
+            if (ids.size() >= batch.getErrorLine()) {
+                long failedDataId = ids.get((int) batch.getErrorLine() - 1).longValue();
+                if (outgoingBatch.getFailedDataId() == 0 || outgoingBatch.getFailedDataId() != failedDataId) {
+                    isNewError = true;
+                }
+                outgoingBatch.setFailedDataId(failedDataId);
+            }
+        }
+
+        if (status == Status.ER) {
+            log.error("The outgoing batch {} failed: {}{}", outgoingBatch.getNodeBatchId(),
+                    (batch.getSqlCode() != 0 ? "[" + batch.getSqlState() + "," + batch.getSqlCode() + "] " : ""), batch.getSqlMessage());
+            RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
+            if (routerStats != null) {
+                log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
+            }
+            if (isNewError && outgoingBatch.getSqlCode() == ErrorConstants.FK_VIOLATION_CODE
+                    && parameterService.is(ParameterConstants.AUTO_RESOLVE_FOREIGN_KEY_VIOLATION)) {
+                Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
+                if (channel != null && !channel.isReloadFlag()) {
+                    engine.getDataService().reloadMissingForeignKeyRows(outgoingBatch.getNodeId(), outgoingBatch.getFailedDataId());
+                }
+            }
+        } else if (status == Status.RS) {
+            log.info("The outgoing batch {} received resend request", outgoingBatch.getNodeBatchId());
+        }
+        return status;
+    }
+
+    /**
+     * Record statistics and release resources for a batch that was saved as OK
+     */
+    protected void acknowledged(BatchAck batch, OutgoingBatch outgoingBatch) {
+        IStatisticManager statisticManager = engine.getStatisticManager();
+        statisticManager.recordLatency(outgoingBatch.getChannelId(),
+                LatencyStage.NETWORK, batch.getNetworkMillis());
+        statisticManager.recordLatency(outgoingBatch.getChannelId(),
+                LatencyStage.LOAD, batch.getFilterMillis() + batch.getDatabaseMillis());
+        if (outgoingBatch.getCreateTime() != null) {
+            statisticManager.getReplicationLagTracker().batchAcknowledged(
+                    outgoingBatch.getNodeId(), outgoingBatch.getChannelId(),
+                    outgoingBatch.getBatchId(), outgoingBatch.getCreateTime().getTime());
+        }
+        Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
+        if (channel != null && channel.isFileSyncFlag()){
+            /* Acknowledge the file_sync in case the file needs deleted. */
+            engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
+        }
+        engine.getStatisticManager().removeRouterStatsByBatch(batch.getBatchId());
+    }
 }
@@ -0,0 +1,136 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
+
+/**
+ * A cache of configuration rows from one table. Readers always see an
+ * immutable snapshot, so lookups do not lock. When the table version moves,
+ * only the keys that changed are reloaded. The whole table is reloaded when
+ * the changes are not known or the snapshot is older than the maximum age.
+ */
+public abstract class ConfigurationCache<V> {
+
+    private final IConfigurationVersionService configurationVersionService;
+
+    private final String tableSuffix;
+
+    private volatile Snapshot<V> snapshot;
+
+    public ConfigurationCache(IConfigurationVersionService configurationVersionService,
+            String tableSuffix) {
+        this.configurationVersionService = configurationVersionService;
+        this.tableSuffix = tableSuffix;
+    }
+
+    /**
+     * Load every row of the table, keyed the same way changes are recorded.
+     */
+    protected abstract Map<String, V> loadAll();
+
+    /**
+     * Load one row or return null if it no longer exists.
+     */
+    protected abstract V load(String key);
+
+    public V get(String key, long maxAgeMs) {
+        return getAll(maxAgeMs).get(key);
+    }
+
+    public Map<String, V> getAll(long maxAgeMs) {
+        Snapshot<V> current = snapshot;
+        if (isCurrent(current, configurationVersionService.getVersion(tableSuffix), maxAgeMs)) {
+            return current.values;
+        }
+        return refresh(maxAgeMs).values;
+    }
+
+    /**
+     * @return the cached value without checking whether it is current or
+     *         null if nothing has been cached yet
+     */
+    public V getIfCached(String key) {
+        Snapshot<V> current = snapshot;
+        return current != null ? current.values.get(key) : null;
+    }
+
+    public void flush() {
+        snapshot = null;
+    }
+
+    protected synchronized Snapshot<V> refresh(long maxAgeMs) {
+        Snapshot<V> current = snapshot;
+        long version = configurationVersionService.getVersion(tableSuffix);
+        if (isCurrent(current, version, maxAgeMs)) {
+            return current;
+        }
+
+        Set<String> changedKeys = null;
+        if (current != null && !isExpired(current, maxAgeMs)) {
+            changedKeys = configurationVersionService.getChangedKeys(tableSuffix, current.version);
+        }
+
+        Snapshot<V> next = null;
+        if (changedKeys != null) {
+            Map<String, V> values = new HashMap<String, V>(current.values);
+            for (String key : changedKeys) {
+                V value = load(key);
+                if (value != null) {
+                    values.put(key, value);
+                } else {
+                    values.remove(key);
+                }
+            }
+            next = new Snapshot<V>(values, version, current.loadTime);
+        } else {
+            next = new Snapshot<V>(loadAll(), version, System.currentTimeMillis());
+        }
+        snapshot = next;
+        return next;
+    }
+
+    protected boolean isCurrent(Snapshot<V> current, long version, long maxAgeMs) {
+        return current != null && current.version == version && !isExpired(current, maxAgeMs);
+    }
+
+    protected boolean isExpired(Snapshot<V> current, long maxAgeMs) {
+        return System.currentTimeMillis() - current.loadTime >= maxAgeMs;
+    }
+
+    static class Snapshot<V> {
+        final Map<String, V> values;
+        final long version;
+        final long loadTime;
+
+        Snapshot(Map<String, V> values, long version, long loadTime) {
+            this.values = Collections.unmodifiableMap(values);
+            this.version = version;
+            this.loadTime = loadTime;
+        }
+    }
+
+}
@@ -33,6 +33,7 @@ import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Channel;
 import org.jumpmind.symmetric.model.ChannelMap;
@@ -43,6 +44,7 @@ import org.jumpmind.symmetric.model.NodeGroupChannelWindow;
 import org.jumpmind.symmetric.model.NodeGroupLink;
 import org.jumpmind.symmetric.model.NodeGroupLinkAction;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
 
@@ -71,10 +73,15 @@ public class ConfigurationService extends AbstractService implements IConfigurat
 
     private Date lastUpdateTime;
 
+    private IConfigurationVersionService configurationVersionService;
+
+    private volatile long configurationVersion = -1;
+
     public ConfigurationService(IParameterService parameterService, ISymmetricDialect dialect,
-            INodeService nodeService) {
+            INodeService nodeService, IConfigurationVersionService configurationVersionService) {
         super(parameterService, dialect);
         this.nodeService = nodeService;
+        this.configurationVersionService = configurationVersionService;
         
         createDefaultChannels();
         
@@ -192,6 +199,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                             link.getLastUpdateTime(),
                     link.getLastUpdateBy(), link.getCreateTime());
         }
+        configurationVersionService.changed(TableConstants.SYM_NODE_GROUP_LINK);
     }
 
     public boolean doesNodeGroupExist(String nodeGroupId) {
@@ -221,10 +229,12 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     public void deleteNodeGroupLink(NodeGroupLink link) {
         sqlTemplate.update(getSql("deleteNodeGroupLinkSql"), link.getSourceNodeGroupId(),
                 link.getTargetNodeGroupId());
+        configurationVersionService.changed(TableConstants.SYM_NODE_GROUP_LINK);
     }
 
     public void deleteAllNodeGroupLinks() {
         sqlTemplate.update(getSql("deleteAllNodeGroupLinksSql"));
+        configurationVersionService.changed(TableConstants.SYM_NODE_GROUP_LINK);
     }
 
     public List<NodeGroup> getNodeGroups() {
@@ -236,6 +246,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
             nodeGroupLinkCacheTime = 0;
             nodeService.flushNodeGroupCache();
         }
+        clearCacheIfConfigurationChanged();
         long cacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_NODE_GROUP_LINK_IN_MS);
         List<NodeGroupLink> links = nodeGroupLinksCache;
@@ -313,6 +324,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                             channel.getQueue(), channel.getMaxKBytesPerSecond(), channel.getDataEventAction()== null ? null : channel.getDataEventAction().name() });
         }
         if (reloadChannels) {
+            configurationVersionService.changed(TableConstants.SYM_CHANNEL);
             clearCache();
         }
     }
@@ -340,6 +352,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
                                     nodeChannel.getLastExtractTime() });
         }
         if (reloadChannels) {
+            configurationVersionService.changed(TableConstants.SYM_NODE_CHANNEL_CTL);
             clearCache();
         }
     }
@@ -347,6 +360,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     public void deleteChannel(Channel channel) {
         sqlTemplate.update(getSql("deleteNodeChannelSql"), new Object[] { channel.getChannelId() });
         sqlTemplate.update(getSql("deleteChannelSql"), new Object[] { channel.getChannelId() });
+        configurationVersionService.changed(TableConstants.SYM_CHANNEL);
         clearCache();
     }
 
@@ -369,6 +383,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     }
 
     public List<NodeChannel> getNodeChannels(final String nodeId, boolean refreshExtractMillis) {
+        clearCacheIfConfigurationChanged();
         boolean loaded = false;
         long channelCacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS);
         List<NodeChannel> nodeChannels = nodeChannelCache != null ? nodeChannelCache.get(nodeId) : null;
@@ -434,6 +449,25 @@ public class ConfigurationService extends AbstractService implements IConfigurat
         }
     }
 
+    /**
+     * Clear the cache when one of the cached tables changed since it was
+     * loaded, whether the change was made locally, loaded from another node
+     * or made by another server in the cluster.
+     */
+    protected void clearCacheIfConfigurationChanged() {
+        long version = configurationVersionService.getVersion(TableConstants.SYM_CHANNEL,
+                TableConstants.SYM_NODE_CHANNEL_CTL, TableConstants.SYM_NODE_GROUP_LINK,
+                TableConstants.SYM_NODE_GROUP_CHANNEL_WND);
+        if (version != configurationVersion) {
+            synchronized (this) {
+                if (version != configurationVersion) {
+                    clearCache();
+                    configurationVersion = version;
+                }
+            }
+        }
+    }
+
     public NodeGroupLinkAction getDataEventActionByGroupLinkId(String sourceGroupId,
             String targetGroupId) {
         String code = (String) sqlTemplate.queryForObject(getSql("selectDataEventActionsByIdSql"),
@@ -479,6 +513,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     }
 
     public List<NodeGroupChannelWindow> getNodeGroupChannelWindows(String notUsed, String channelId) {
+        clearCacheIfConfigurationChanged();
         long channelCacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS, 60000);
         Map<String, List<NodeGroupChannelWindow>> channelWindowsByChannel = channelWindowsByChannelCache;
         if (System.currentTimeMillis() - channelCacheTime >= channelCacheTimeoutInMs || channelWindowsByChannel == null) {
@@ -530,6 +565,7 @@ public class ConfigurationService extends AbstractService implements IConfigurat
     }
     
     public Map<String, Channel> getChannels(boolean refreshCache) {
+        clearCacheIfConfigurationChanged();
         long channelCacheTimeoutInMs = parameterService.getLong(
                 ParameterConstants.CACHE_TIMEOUT_CHANNEL_IN_MS, 60000);
         Map<String, Channel> channels = channelsCache;
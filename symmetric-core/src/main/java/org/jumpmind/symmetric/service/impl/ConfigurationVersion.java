@@ -0,0 +1,117 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * The change version of one configuration table along with a bounded log of
+ * which keys changed at each version.
+ */
+public class ConfigurationVersion {
+
+    private final int maxChangesTracked;
+
+    private volatile long version;
+
+    private final LinkedList<Change> changes = new LinkedList<Change>();
+
+    public ConfigurationVersion(int maxChangesTracked) {
+        this.maxChangesTracked = maxChangesTracked;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Move to the next version, recording the keys that changed. When no keys
+     * are passed the change is recorded as unknown.
+     */
+    public synchronized long increment(String... keys) {
+        return update(version + 1, keys);
+    }
+
+    /**
+     * Move to the given version. The keys are only recorded when the new
+     * version directly follows the current one. Otherwise versions were
+     * skipped (for example, by another node in the cluster) and the change is
+     * recorded as unknown.
+     */
+    public synchronized long update(long newVersion, String... keys) {
+        if (newVersion > version) {
+            Set<String> changedKeys = null;
+            if (newVersion == version + 1 && keys != null && keys.length > 0) {
+                changedKeys = new HashSet<String>(keys.length);
+                for (String key : keys) {
+                    changedKeys.add(key);
+                }
+            }
+            changes.addLast(new Change(newVersion, changedKeys));
+            while (changes.size() > maxChangesTracked) {
+                changes.removeFirst();
+            }
+            version = newVersion;
+        }
+        return version;
+    }
+
+    /**
+     * @return the keys that changed after the given version, an empty set if
+     *         nothing changed or null if the changes are no longer (or never
+     *         were) known
+     */
+    public synchronized Set<String> getChangedKeys(long sinceVersion) {
+        Set<String> changedKeys = new HashSet<String>();
+        if (sinceVersion >= version) {
+            return changedKeys;
+        }
+
+        long expected = sinceVersion + 1;
+        Iterator<Change> it = changes.iterator();
+        while (it.hasNext()) {
+            Change change = it.next();
+            if (change.version < expected) {
+                continue;
+            } else if (change.version != expected || change.keys == null) {
+                return null;
+            }
+            changedKeys.addAll(change.keys);
+            expected++;
+        }
+
+        return expected == version + 1 ? changedKeys : null;
+    }
+
+    static class Change {
+        long version;
+        Set<String> keys;
+
+        Change(long version, Set<String> keys) {
+            this.version = version;
+            this.keys = keys;
+        }
+    }
+
+}
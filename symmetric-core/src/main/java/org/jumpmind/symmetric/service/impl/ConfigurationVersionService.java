@@ -0,0 +1,156 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.UniqueKeyException;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.Sequence;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.ISequenceService;
+
+/**
+ * Tracks configuration table versions in memory. When clustering is enabled
+ * the versions are also kept in the sequence table so that a change made on
+ * one server is seen by the others the next time they check.
+ */
+public class ConfigurationVersionService extends AbstractService implements IConfigurationVersionService {
+
+    protected static final String SEQUENCE_PREFIX = "config_version_";
+
+    protected static final int MAX_CHANGES_TRACKED = 1000;
+
+    private ISequenceService sequenceService;
+
+    private ConcurrentMap<String, ConfigurationVersion> versions = new ConcurrentHashMap<String, ConfigurationVersion>();
+
+    private Set<String> createdSequences = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile long lastCheckTime;
+
+    public ConfigurationVersionService(IParameterService parameterService,
+            ISymmetricDialect symmetricDialect, ISequenceService sequenceService) {
+        super(parameterService, symmetricDialect);
+        this.sequenceService = sequenceService;
+        setSqlMap(new ConfigurationVersionServiceSqlMap(symmetricDialect.getPlatform(),
+                createSqlReplacementTokens()));
+    }
+
+    public void changed(String tableSuffix, String... keys) {
+        ConfigurationVersion version = getConfigurationVersion(tableSuffix);
+        if (isClusteringEnabled()) {
+            try {
+                String name = createSequenceIfNecessary(tableSuffix);
+                version.update(sequenceService.nextVal(name), keys);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to record a change to the {} version in the database: {}",
+                        tableSuffix, ex.getMessage());
+                version.increment();
+            }
+        } else {
+            version.increment(keys);
+        }
+    }
+
+    public long getVersion(String... tableSuffixes) {
+        checkDatabaseVersions();
+        long version = 0;
+        for (String tableSuffix : tableSuffixes) {
+            version += getConfigurationVersion(tableSuffix).getVersion();
+        }
+        return version;
+    }
+
+    public Set<String> getChangedKeys(String tableSuffix, long sinceVersion) {
+        checkDatabaseVersions();
+        return getConfigurationVersion(tableSuffix).getChangedKeys(sinceVersion);
+    }
+
+    protected ConfigurationVersion getConfigurationVersion(String tableSuffix) {
+        ConfigurationVersion version = versions.get(tableSuffix);
+        if (version == null) {
+            version = new ConfigurationVersion(MAX_CHANGES_TRACKED);
+            ConfigurationVersion existing = versions.putIfAbsent(tableSuffix, version);
+            if (existing != null) {
+                version = existing;
+            }
+        }
+        return version;
+    }
+
+    protected boolean isClusteringEnabled() {
+        return parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED);
+    }
+
+    protected String createSequenceIfNecessary(String tableSuffix) {
+        String name = SEQUENCE_PREFIX + tableSuffix;
+        if (!createdSequences.contains(name)) {
+            try {
+                sequenceService.create(new Sequence(name, 0, 1, 0, Long.MAX_VALUE, "system",
+                        true, 0));
+            } catch (UniqueKeyException ex) {
+                log.debug("The {} sequence already exists", name);
+            }
+            createdSequences.add(name);
+        }
+        return name;
+    }
+
+    /**
+     * Pick up changes made by other servers in the cluster. A version that
+     * moved ahead without a local change is recorded as an unknown change, so
+     * caches built from that table are fully reloaded.
+     */
+    protected void checkDatabaseVersions() {
+        long checkMs = parameterService.getLong(ParameterConstants.CACHE_CONFIG_VERSION_CHECK_IN_MS, 10000);
+        if (isClusteringEnabled() && System.currentTimeMillis() - lastCheckTime >= checkMs) {
+            lastCheckTime = System.currentTimeMillis();
+            try {
+                List<Row> rows = sqlTemplate.query(getSql("selectVersionsSql"),
+                        new ISqlRowMapper<Row>() {
+                            public Row mapRow(Row row) {
+                                return row;
+                            }
+                        }, SEQUENCE_PREFIX + "%");
+                for (Row row : rows) {
+                    String name = row.getString("sequence_name");
+                    createdSequences.add(name);
+                    getConfigurationVersion(name.substring(SEQUENCE_PREFIX.length())).update(
+                            row.getLong("current_value"));
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Failed to read configuration versions from the database: {}",
+                        ex.getMessage());
+            }
+        }
+    }
+
+}
@@ -144,6 +144,7 @@ import org.jumpmind.symmetric.service.ITransformService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.transport.BatchBufferedWriter;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
@@ -891,6 +892,15 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                         if (updateBatchStatistics) {
                             changeBatchStatus(Status.QY, currentBatch, mode);
                         }
+                        if (currentBatch.getCreateTime() != null) {
+                            if (currentBatch.getExtractCount() == 1) {
+                                statisticManager.recordLatency(currentBatch.getChannelId(),
+                                        LatencyStage.ROUTE_TO_EXTRACT, ts - currentBatch.getCreateTime().getTime());
+                            }
+                            statisticManager.getReplicationLagTracker().batchExtracted(currentBatch.getNodeId(),
+                                    currentBatch.getChannelId(), currentBatch.getBatchId(),
+                                    currentBatch.getCreateTime().getTime());
+                        }
                         currentBatch.resetStats();
                         DataContext ctx = new DataContext();
                         ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_ID, targetNode.getNodeId());
@@ -1077,6 +1087,15 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             long ts = System.currentTimeMillis();
             IStagedResource extractedBatch = getStagedResource(currentBatch);
             if (extractedBatch != null) {
+                if (currentBatch.getSentCount() == 1) {
+                    statisticManager.recordLatency(currentBatch.getChannelId(),
+                            LatencyStage.EXTRACT_TO_SEND, ts - extractedBatch.getLastUpdateTime());
+                }
+                if (currentBatch.getCreateTime() != null) {
+                    statisticManager.getReplicationLagTracker().batchSent(currentBatch.getNodeId(),
+                            currentBatch.getChannelId(), currentBatch.getBatchId(),
+                            currentBatch.getCreateTime().getTime());
+                }
                 if (mode == ExtractMode.FOR_SYM_CLIENT && writer != null) {                   
                     if (!isRetry && parameterService.is(ParameterConstants.OUTGOING_BATCH_COPY_TO_INCOMING_STAGING) &&
                             !parameterService.is(ParameterConstants.NODE_OFFLINE, false)) {
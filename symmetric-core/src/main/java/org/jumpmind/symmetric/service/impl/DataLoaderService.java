@@ -168,6 +168,8 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
     private Date lastUpdateTime;
     
     private CustomizableThreadFactory threadFactory;
+
+    private Map<String, List<IncomingBatch>> pendingAcks = new HashMap<String, List<IncomingBatch>>();
     
     public DataLoaderService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
@@ -256,11 +258,31 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         if (local == null) {
             local = new Node(this.parameterService, symmetricDialect);
         }
+        /*
+         * Acks taken to be sent with the pull are queued again unless the
+         * remote node applied them or they were sent separately
+         */
+        String piggybackNodeId = null;
+        List<IncomingBatch> piggybackedAcks = new ArrayList<IncomingBatch>();
+        boolean piggybackedAcksDelivered = false;
         try {
             NodeSecurity localSecurity = nodeService.findNodeSecurity(local.getNodeId(), true);
             IIncomingTransport transport = null;
             boolean isRegisterTransport = false;
+            boolean piggybackAcks = false;
             if (remote != null && localSecurity != null) {
+                piggybackAcks = parameterService.is(ParameterConstants.PULL_ACK_PIGGYBACK_ENABLED, false);
+                if (piggybackAcks) {
+                    piggybackNodeId = remote.getNodeId();
+                    piggybackedAcks = takePendingAcks(piggybackNodeId);
+                }
+                long longPollMillis = parameterService.getLong(ParameterConstants.PULL_LONG_POLL_MS, 0);
+                if (longPollMillis > 0 && piggybackedAcks.size() == 0 && transportManager.sendPullWaitRequest(remote, local,
+                        localSecurity.getNodePassword(), status.getChannelId(), longPollMillis,
+                        parameterService.getRegistrationUrl()) == WebConstants.SC_NO_CONTENT) {
+                    log.debug("Nothing to pull from {} after waiting {}ms", remote, longPollMillis);
+                    return;
+                }
                 Map<String, String> requestProperties = new HashMap<String, String>();
                 ChannelMap suspendIgnoreChannels = configurationService
                         .getSuspendIgnoreChannelLists();
@@ -270,7 +292,7 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                         suspendIgnoreChannels.getIgnoreChannelsAsString());
                 requestProperties.put(WebConstants.THREAD_CHANNEL, status.getChannelId());
                 transport = transportManager.getPullTransport(remote, local,
-                        localSecurity.getNodePassword(), requestProperties,
+                        localSecurity.getNodePassword(), requestProperties, piggybackedAcks,
                         parameterService.getRegistrationUrl());
             } else {
                 transport = transportManager.getRegisterTransport(local,
@@ -291,6 +313,14 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     .getNodeId(), status.getChannelId(), local.getNodeId(), ProcessType.PULL_JOB));
             try {
                 List<IncomingBatch> list = loadDataFromTransport(processInfo, remote, transport, null);
+
+                if (piggybackedAcks.size() > 0 && !isAcksApplied(transport)) {
+                    log.debug("Node {} did not apply the {} acks sent with the pull, so sending them separately",
+                            remote.getNodeId(), piggybackedAcks.size());
+                    sendAck(remote, local, localSecurity, piggybackedAcks, transportManager);
+                }
+                piggybackedAcksDelivered = true;
+
                 if (list.size() > 0) {
                     processInfo.setStatus(ProcessInfo.Status.ACKING);
                     status.updateIncomingStatus(list);
@@ -309,8 +339,12 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                             }
                             log.info("Setting the sync url for ack to: {}", url);
                             remote.setSyncUrl(url);
+                            sendAck(remote, local, localSecurity, list, transportManager);
+                        } else if (piggybackAcks && !isRegisterTransport) {
+                            addPendingAcks(remote.getNodeId(), list);
+                        } else {
+                            sendAck(remote, local, localSecurity, list, transportManager);
                         }
-                        sendAck(remote, local, localSecurity, list, transportManager);
                     }
                 }
 
@@ -349,9 +383,68 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 log.error("", e);
             }
             throw e;
+        } finally {
+            if (!piggybackedAcksDelivered) {
+                addPendingAcks(piggybackNodeId, piggybackedAcks);
+            }
         }
     }
 
+    /**
+     * Acknowledgements held back to be sent with the next pull from a node.
+     */
+    protected List<IncomingBatch> takePendingAcks(String nodeId) {
+        synchronized (pendingAcks) {
+            List<IncomingBatch> acks = pendingAcks.remove(nodeId);
+            return acks != null ? acks : new ArrayList<IncomingBatch>();
+        }
+    }
+
+    /**
+     * Send the acknowledgements that are still held back, so they are not
+     * lost when the engine stops.
+     */
+    public void stop() {
+        Map<String, List<IncomingBatch>> acksByNodeId = null;
+        synchronized (pendingAcks) {
+            acksByNodeId = new HashMap<String, List<IncomingBatch>>(pendingAcks);
+            pendingAcks.clear();
+        }
+        if (acksByNodeId.size() > 0) {
+            Node local = nodeService.findIdentity();
+            NodeSecurity localSecurity = local != null ? nodeService.findNodeSecurity(local.getNodeId(), true) : null;
+            for (Map.Entry<String, List<IncomingBatch>> entry : acksByNodeId.entrySet()) {
+                Node remote = nodeService.findNode(entry.getKey());
+                if (remote != null && localSecurity != null) {
+                    try {
+                        sendAck(remote, local, localSecurity, entry.getValue(), transportManager);
+                    } catch (Exception ex) {
+                        log.warn("Failed to send {} held acks to node {} on shutdown: {}",
+                                new Object[] { entry.getValue().size(), entry.getKey(), ex.getMessage() });
+                    }
+                }
+            }
+        }
+    }
+
+    protected void addPendingAcks(String nodeId, List<IncomingBatch> acks) {
+        if (acks != null && acks.size() > 0) {
+            synchronized (pendingAcks) {
+                List<IncomingBatch> pending = pendingAcks.get(nodeId);
+                if (pending == null) {
+                    pending = new ArrayList<IncomingBatch>();
+                    pendingAcks.put(nodeId, pending);
+                }
+                pending.addAll(acks);
+            }
+        }
+    }
+
+    protected boolean isAcksApplied(IIncomingTransport transport) {
+        Map<String, String> headers = transport.getHeaders();
+        return headers != null && headers.containsKey(WebConstants.ACKS_APPLIED);
+    }
+
     protected void updateBatchToSendCount(Node remote, IIncomingTransport transport) {
         Map<String, String> headers = transport.getHeaders();
         if (headers != null && headers.containsKey(WebConstants.BATCH_TO_SEND_COUNT)) {
@@ -527,6 +527,7 @@ public class DataService extends AbstractService implements IDataService {
                         }
                         
                         transaction.commit();
+                        engine.getPullNotifier().notifyNode(targetNode.getNodeId());
                     } catch (Error ex) {
                         if (transaction != null) {
                             transaction.rollback();
@@ -0,0 +1,50 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.List;
+
+import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.model.NodeCommunication;
+import org.jumpmind.symmetric.model.NodeCommunication.CommunicationType;
+import org.jumpmind.symmetric.service.INodeCommunicationScheduler;
+
+/**
+ * Keeps the order the node communication rows were read in, which is by node
+ * priority and then by the time of the last lock.
+ */
+public class DefaultNodeCommunicationScheduler implements INodeCommunicationScheduler, IBuiltInExtensionPoint {
+
+    public static final String NAME = "default";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public List<NodeCommunication> schedule(CommunicationType communicationType,
+            List<NodeCommunication> nodeCommunications) {
+        return nodeCommunications;
+    }
+
+    public void executed(NodeCommunication nodeCommunication, long millis, boolean failed) {
+    }
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.NodeCommunication;
+import org.jumpmind.symmetric.model.NodeCommunication.CommunicationType;
+import org.jumpmind.symmetric.service.INodeCommunicationScheduler;
+import org.jumpmind.symmetric.service.IParameterService;
+
+/**
+ * Shares the threads of a pool between nodes by weighted fair queuing. Each
+ * node and queue has a virtual time that grows by the time its work took
+ * divided by its weight, and the node with the lowest virtual time goes first.
+ * The weight grows with the log of the pending batch count and bytes, so a
+ * node with a large backlog is served more often than a small one, but not so
+ * often that the small one goes stale.
+ * <p>
+ * A node that comes back after being idle starts at the current virtual clock,
+ * so it can neither jump ahead on credit saved while it was idle nor wait
+ * behind the time others have used. A node that has not been locked for
+ * node.communication.scheduler.max.wait.ms goes to the front, which bounds the
+ * wait for every node. Node priority still comes before all of this.
+ */
+public class FairNodeCommunicationScheduler implements INodeCommunicationScheduler, IBuiltInExtensionPoint {
+
+    public static final String NAME = "fair";
+
+    static final long SHARE_EXPIRE_MS = 3600000;
+
+    static final double BYTES_PER_WEIGHT = 1024 * 1024;
+
+    protected IParameterService parameterService;
+
+    private Map<CommunicationType, Map<String, Share>> sharesByType = new HashMap<CommunicationType, Map<String, Share>>();
+
+    private Map<CommunicationType, Double> virtualClocks = new HashMap<CommunicationType, Double>();
+
+    public FairNodeCommunicationScheduler(IParameterService parameterService) {
+        this.parameterService = parameterService;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    public synchronized List<NodeCommunication> schedule(CommunicationType communicationType,
+            List<NodeCommunication> nodeCommunications) {
+        long now = System.currentTimeMillis();
+        long maxWaitMs = getMaxWaitMs();
+        Map<String, Share> shares = getShares(communicationType);
+
+        Double clock = virtualClocks.get(communicationType);
+        double minActive = Double.MAX_VALUE;
+        for (NodeCommunication nodeCommunication : nodeCommunications) {
+            Share share = shares.get(nodeCommunication.getIdentifier());
+            if (share != null && share.active) {
+                minActive = Math.min(minActive, share.virtualTime);
+            }
+        }
+        double virtualClock = clock != null ? clock : 0;
+        if (minActive != Double.MAX_VALUE) {
+            virtualClock = Math.max(virtualClock, minActive);
+        }
+        virtualClocks.put(communicationType, virtualClock);
+
+        for (Share share : shares.values()) {
+            share.active = false;
+        }
+
+        final Map<String, Double> startTimes = new HashMap<String, Double>(nodeCommunications.size());
+        final Map<String, Long> overdueSince = new HashMap<String, Long>();
+        for (NodeCommunication nodeCommunication : nodeCommunications) {
+            String id = nodeCommunication.getIdentifier();
+            Share share = shares.get(id);
+            if (share == null) {
+                share = new Share();
+                shares.put(id, share);
+            }
+            share.virtualTime = Math.max(share.virtualTime, virtualClock);
+            share.weight = weightOf(nodeCommunication);
+            share.lastSeenTime = now;
+            share.active = true;
+            startTimes.put(id, share.virtualTime);
+
+            long lastLockTime = nodeCommunication.getLastLockTime() != null ? nodeCommunication
+                    .getLastLockTime().getTime() : 0;
+            if (now - lastLockTime >= maxWaitMs) {
+                overdueSince.put(id, lastLockTime);
+            }
+        }
+
+        Iterator<Share> i = shares.values().iterator();
+        while (i.hasNext()) {
+            if (now - i.next().lastSeenTime > SHARE_EXPIRE_MS) {
+                i.remove();
+            }
+        }
+
+        List<NodeCommunication> scheduled = new ArrayList<NodeCommunication>(nodeCommunications);
+        Collections.sort(scheduled, new Comparator<NodeCommunication>() {
+            public int compare(NodeCommunication o1, NodeCommunication o2) {
+                if (o1.getNodePriority() != o2.getNodePriority()) {
+                    return o1.getNodePriority() > o2.getNodePriority() ? -1 : 1;
+                }
+                Long overdue1 = overdueSince.get(o1.getIdentifier());
+                Long overdue2 = overdueSince.get(o2.getIdentifier());
+                if (overdue1 != null || overdue2 != null) {
+                    if (overdue2 == null) {
+                        return -1;
+                    } else if (overdue1 == null) {
+                        return 1;
+                    } else if (!overdue1.equals(overdue2)) {
+                        return overdue1 < overdue2 ? -1 : 1;
+                    }
+                }
+                int compareTo = startTimes.get(o1.getIdentifier()).compareTo(
+                        startTimes.get(o2.getIdentifier()));
+                if (compareTo != 0) {
+                    return compareTo;
+                }
+                long lock1 = o1.getLastLockTime() != null ? o1.getLastLockTime().getTime() : 0;
+                long lock2 = o2.getLastLockTime() != null ? o2.getLastLockTime().getTime() : 0;
+                return lock1 < lock2 ? -1 : (lock1 == lock2 ? 0 : 1);
+            }
+        });
+        return scheduled;
+    }
+
+    public synchronized void executed(NodeCommunication nodeCommunication, long millis, boolean failed) {
+        Share share = getShares(nodeCommunication.getCommunicationType()).get(
+                nodeCommunication.getIdentifier());
+        if (share != null) {
+            share.virtualTime += Math.max(millis, 1) / share.weight;
+        }
+    }
+
+    protected long getMaxWaitMs() {
+        return parameterService.getLong(ParameterConstants.NODE_COMMUNICATION_SCHEDULER_MAX_WAIT_MS,
+                600000);
+    }
+
+    protected double weightOf(NodeCommunication nodeCommunication) {
+        return 1 + log2(1 + nodeCommunication.getBatchToSendCount())
+                + log2(1 + nodeCommunication.getBatchToSendBytes() / BYTES_PER_WEIGHT);
+    }
+
+    protected Map<String, Share> getShares(CommunicationType communicationType) {
+        Map<String, Share> shares = sharesByType.get(communicationType);
+        if (shares == null) {
+            shares = new HashMap<String, Share>();
+            sharesByType.put(communicationType, shares);
+        }
+        return shares;
+    }
+
+    private static double log2(double value) {
+        return Math.log(Math.max(value, 1)) / Math.log(2);
+    }
+
+    static class Share {
+        double virtualTime;
+        double weight = 1;
+        long lastSeenTime;
+        boolean active;
+    }
+
+}
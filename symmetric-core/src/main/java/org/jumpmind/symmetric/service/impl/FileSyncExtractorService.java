@@ -116,6 +116,10 @@ public class FileSyncExtractorService extends DataExtractorService {
                                 super.finish();
                             }
                 };
+                fileSyncWriter.setCompression(
+                        parameterService.getInt(ParameterConstants.FILE_SYNC_COMPRESSION_LEVEL, -1),
+                        parameterService.getString(ParameterConstants.FILE_SYNC_STORED_EXTENSIONS),
+                        parameterService.getInt(ParameterConstants.FILE_SYNC_COMPRESSION_SAMPLE_SIZE, 0));
                 return fileSyncWriter;
             }
         };
@@ -27,10 +27,12 @@ import java.io.OutputStream;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -51,11 +53,14 @@ import org.jumpmind.symmetric.common.ContextConstants;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.file.DirectorySnapshot;
+import org.jumpmind.symmetric.file.FileChecksumCalculator;
 import org.jumpmind.symmetric.file.FileConflictException;
+import org.jumpmind.symmetric.file.FileDeltaException;
 import org.jumpmind.symmetric.file.FileSyncZipDataWriter;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener;
 import org.jumpmind.symmetric.file.FileTriggerFileModifiedListener.FileModifiedCallback;
 import org.jumpmind.symmetric.file.FileTriggerTracker;
+import org.jumpmind.symmetric.file.FileTriggerWatcher;
 import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
@@ -106,6 +111,12 @@ INodeCommunicationExecutor {
 
     private ISymmetricEngine engine;
 
+    private Map<String, FileTriggerWatcher> fileTriggerWatchers = new ConcurrentHashMap<String, FileTriggerWatcher>();
+
+    private FileChecksumCalculator checksumCalculator;
+
+    private volatile boolean deltaWithoutCrcLogged;
+
     // TODO cache trigger routers
 
     public FileSyncService(ISymmetricEngine engine) {
@@ -131,11 +142,20 @@ INodeCommunicationExecutor {
                         ProcessInfo processInfo = engine.getStatisticManager().newProcessInfo(
                                 new ProcessInfoKey(local.getNodeId(), null, ProcessInfoKey.ProcessType.FILE_SYNC_TRACKER));
                         boolean useCrc = engine.getParameterService().is(ParameterConstants.FILE_SYNC_USE_CRC);
+                        if (useCrc) {
+                            updateChecksumCalculator();
+                        }
 
-                        if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_FAST_SCAN)) {
-                            trackChangesFastScan(processInfo, useCrc);
+                        if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_USE_WATCHER)
+                                && FileTriggerWatcher.isSupported()) {
+                            trackChangesWithWatcher(processInfo, useCrc);
                         } else {
-                            trackChanges(processInfo, useCrc);
+                            closeWatchers();
+                            if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_FAST_SCAN)) {
+                                trackChangesFastScan(processInfo, useCrc);
+                            } else {
+                                trackChanges(processInfo, useCrc);
+                            }
                         }
                         if (engine.getParameterService().is(ParameterConstants.FILE_SYNC_PREVENT_PING_BACK)) {
                             deleteFromFileIncoming();
@@ -164,17 +184,119 @@ INodeCommunicationExecutor {
         for (FileTriggerRouter fileTriggerRouter : fileTriggerRouters) {
             if (fileTriggerRouter.isEnabled()) {
                 try {
-                    FileTriggerTracker tracker = new FileTriggerTracker(fileTriggerRouter, getDirectorySnapshot(fileTriggerRouter), 
-                            processInfo, useCrc, engine);
-                    DirectorySnapshot dirSnapshot = tracker.trackChanges();
-                    saveDirectorySnapshot(fileTriggerRouter, dirSnapshot);
+                    trackChanges(processInfo, useCrc, fileTriggerRouter);
+                } catch (Exception ex) {
+                    log.error("Failed to track changes for file trigger router: "
+                            + fileTriggerRouter.getFileTrigger().getTriggerId()
+                            + "::" + fileTriggerRouter.getRouter().getRouterId(), ex);
+                }
+            }
+        }
+    }
+
+    protected void trackChanges(ProcessInfo processInfo, boolean useCrc, FileTriggerRouter fileTriggerRouter) {
+        FileTriggerTracker tracker = new FileTriggerTracker(fileTriggerRouter, getDirectorySnapshot(fileTriggerRouter), 
+                processInfo, useCrc, checksumCalculator, engine);
+        DirectorySnapshot dirSnapshot = tracker.trackChanges();
+        saveDirectorySnapshot(fileTriggerRouter, dirSnapshot);
+    }
+
+    protected void trackChangesWithWatcher(ProcessInfo processInfo, boolean useCrc) {
+        List<FileTriggerRouter> fileTriggerRouters = getFileTriggerRoutersForCurrentNode();
+        Set<String> activeKeys = new TreeSet<String>();
+        for (FileTriggerRouter fileTriggerRouter : fileTriggerRouters) {
+            if (fileTriggerRouter.isEnabled()) {
+                String key = fileTriggerRouter.getFileTrigger().getTriggerId() + "::"
+                        + fileTriggerRouter.getRouter().getRouterId();
+                activeKeys.add(key);
+                try {
+                    if (fileTriggerRouter.getFileTrigger().isSyncOnCtlFile()) {
+                        trackChanges(processInfo, useCrc, fileTriggerRouter);
+                        continue;
+                    }
+                    FileTriggerWatcher watcher = fileTriggerWatchers.get(key);
+                    if (watcher != null && !watcher.matches(fileTriggerRouter)) {
+                        watcher.close();
+                        watcher = null;
+                    }
+                    if (watcher == null) {
+                        watcher = new FileTriggerWatcher(fileTriggerRouter);
+                        fileTriggerWatchers.put(key, watcher);
+                    }
+
+                    Set<File> changedDirectories = watcher.pollChangedDirectories();
+                    if (changedDirectories != null) {
+                        trackChangedDirectories(processInfo, useCrc, fileTriggerRouter, watcher, changedDirectories);
+                    } else {
+                        try {
+                            watcher.start();
+                        } catch (IOException ex) {
+                            watcher.close();
+                            log.warn("Failed to watch for file changes for file trigger {}.  Falling back to a full scan.  {}",
+                                    fileTriggerRouter.getFileTrigger().getTriggerId(), ex.getMessage());
+                        }
+                        trackChanges(processInfo, useCrc, fileTriggerRouter);
+                    }
                 } catch (Exception ex) {
+                    /*
+                     * Changes seen by the watcher may not have been saved, so
+                     * start over with a full scan on the next run
+                     */
+                    FileTriggerWatcher watcher = fileTriggerWatchers.get(key);
+                    if (watcher != null) {
+                        watcher.close();
+                    }
                     log.error("Failed to track changes for file trigger router: "
                             + fileTriggerRouter.getFileTrigger().getTriggerId()
                             + "::" + fileTriggerRouter.getRouter().getRouterId(), ex);
                 }
             }
         }
+
+        Iterator<Map.Entry<String, FileTriggerWatcher>> iterator = fileTriggerWatchers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, FileTriggerWatcher> entry = iterator.next();
+            if (!activeKeys.contains(entry.getKey())) {
+                entry.getValue().close();
+                iterator.remove();
+            }
+        }
+    }
+
+    protected void closeWatchers() {
+        Iterator<FileTriggerWatcher> iterator = fileTriggerWatchers.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().close();
+            iterator.remove();
+        }
+    }
+
+    public void stop() {
+        closeWatchers();
+    }
+
+    protected void trackChangedDirectories(ProcessInfo processInfo, boolean useCrc, FileTriggerRouter fileTriggerRouter,
+            FileTriggerWatcher watcher, Set<File> changedDirectories) {
+        int changeCount = 0;
+        for (File directory : changedDirectories) {
+            DirectorySnapshot currentSnapshot = new DirectorySnapshot(fileTriggerRouter);
+            for (File file : watcher.listFiles(directory)) {
+                processInfo.incrementCurrentDataCount();
+                currentSnapshot.add(new FileSnapshot(fileTriggerRouter, file, LastEventType.CREATE, false));
+            }
+            DirectorySnapshot lastSnapshot = getDirectorySnapshot(fileTriggerRouter, watcher.getRelativeDir(directory));
+            if (useCrc) {
+                checksumCalculator.calculate(currentSnapshot, lastSnapshot);
+            }
+            DirectorySnapshot changes = lastSnapshot.diff(currentSnapshot);
+            if (changes.size() > 0) {
+                changeCount += changes.size();
+                saveDirectorySnapshot(fileTriggerRouter, changes);
+            }
+        }
+        if (changeCount > 0) {
+            log.info("File tracker rescanned {} changed directories for {} changes", changedDirectories.size(), changeCount);
+        }
     }
 
     protected void trackChangesFastScan(ProcessInfo processInfo, boolean useCrc) {
@@ -196,7 +318,7 @@ INodeCommunicationExecutor {
                     FileAlterationObserver observer = new FileAlterationObserver(fileTriggerRouter.getFileTrigger().getBaseDir(),
                             fileTriggerRouter.getFileTrigger().createIOFileFilter());
                     FileTriggerFileModifiedListener listener = new FileTriggerFileModifiedListener(fileTriggerRouter, ctxDate,
-                            currentDate, processInfo, useCrc, new FileModifiedCallback(maxRowsBeforeCommit) {
+                            currentDate, processInfo, useCrc, checksumCalculator, new FileModifiedCallback(maxRowsBeforeCommit) {
                         public void commit(DirectorySnapshot dirSnapshot) {
                             saveDirectorySnapshot(fileTriggerRouter, dirSnapshot);
                         }
@@ -216,6 +338,16 @@ INodeCommunicationExecutor {
         }
     }
 
+    protected void updateChecksumCalculator() {
+        int threadCount = parameterService.getInt(ParameterConstants.FILE_SYNC_CRC_THREAD_COUNT, 1);
+        if (checksumCalculator == null) {
+            checksumCalculator = new FileChecksumCalculator(threadCount,
+                    parameterService.getInt(ParameterConstants.FILE_SYNC_CRC_CACHE_SIZE, 0));
+        } else {
+            checksumCalculator.setThreadCount(threadCount);
+        }
+    }
+
     protected long saveDirectorySnapshot(FileTriggerRouter fileTriggerRouter, DirectorySnapshot dirSnapshot) {
         long totalBytes = 0;
         for (FileSnapshot fileSnapshot : dirSnapshot) {
@@ -515,7 +647,23 @@ INodeCommunicationExecutor {
                                     targetNode.getNodeId(), "filesync.zip");                            
                             dataWriter = new FileSyncZipDataWriter(maxBytesToSync, this,
                                     engine.getNodeService(), stagedResource);
+                            dataWriter.setCompression(
+                                    parameterService.getInt(ParameterConstants.FILE_SYNC_COMPRESSION_LEVEL, -1),
+                                    parameterService.getString(ParameterConstants.FILE_SYNC_STORED_EXTENSIONS),
+                                    parameterService.getInt(ParameterConstants.FILE_SYNC_COMPRESSION_SAMPLE_SIZE, 0));
+                            if (parameterService.is(ParameterConstants.FILE_SYNC_DELTA_ENABLED)
+                                    && isDeltaUsable()) {
+                                dataWriter.setDeltaSettings(
+                                        new File(parameterService.getTempDirectory(), "filesync_signatures"),
+                                        parameterService.getLong(ParameterConstants.FILE_SYNC_DELTA_MIN_FILE_SIZE),
+                                        parameterService.getInt(ParameterConstants.FILE_SYNC_DELTA_MIN_BLOCK_SIZE));
+                            }
                         }
+                        /*
+                         * a batch that failed because the target could not apply a
+                         * delta is sent with whole files
+                         */
+                        dataWriter.setDeltaEnabled(!FileDeltaException.isDeltaError(currentBatch.getSqlMessage()));
                         log.debug("Extracting batch {} for filesync.", currentBatch.getNodeBatchId());
 
                         ((DataExtractorService) engine.getDataExtractorService()).extractOutgoingBatch(
@@ -612,6 +760,23 @@ INodeCommunicationExecutor {
         return processedBatches;
     }
 
+    /**
+     * A delta is checked against the checksum of the file it was computed
+     * from, which is only recorded when file.sync.use.crc is on.
+     */
+    protected boolean isDeltaUsable() {
+        if (parameterService.is(ParameterConstants.FILE_SYNC_USE_CRC)) {
+            deltaWithoutCrcLogged = false;
+            return true;
+        }
+        if (!deltaWithoutCrcLogged) {
+            deltaWithoutCrcLogged = true;
+            log.warn("{} is on but {} is off, so whole files will be sent",
+                    ParameterConstants.FILE_SYNC_DELTA_ENABLED, ParameterConstants.FILE_SYNC_USE_CRC);
+        }
+        return false;
+    }
+
     private boolean isFlushBatchesRequired(OutgoingBatch currentBatch, List<OutgoingBatch> processedBatches, IStagedResource previouslyStagedResource) {
         // if we staged some on the fly and now come across a previously staged batch, need to flush the ones in flight.
         boolean isFlushBatchesRequred = previouslyStagedResource != null && !processedBatches.isEmpty();
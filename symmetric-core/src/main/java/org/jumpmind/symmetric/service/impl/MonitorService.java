@@ -37,6 +37,7 @@ import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.Notification;
 import org.jumpmind.symmetric.monitor.IMonitorType;
 import org.jumpmind.symmetric.monitor.MonitorTypeOfflineNodes;
+import org.jumpmind.symmetric.monitor.MonitorTypeReplicationLag;
 import org.jumpmind.symmetric.monitor.MonitorTypeBatchError;
 import org.jumpmind.symmetric.monitor.MonitorTypeBatchUnsent;
 import org.jumpmind.symmetric.monitor.MonitorTypeCpu;
@@ -92,7 +93,8 @@ public class MonitorService extends AbstractService implements IMonitorService {
         hostName = AppUtils.getHostName();
         
         IMonitorType monitorExtensions[] = { new MonitorTypeBatchError(), new MonitorTypeBatchUnsent(), new MonitorTypeCpu(), 
-                new MonitorTypeDataGap(), new MonitorTypeDisk(), new MonitorTypeMemory(), new MonitorTypeUnrouted(), new MonitorTypeOfflineNodes() };
+                new MonitorTypeDataGap(), new MonitorTypeDisk(), new MonitorTypeMemory(), new MonitorTypeUnrouted(), new MonitorTypeOfflineNodes(),
+                new MonitorTypeReplicationLag() };
         for (IMonitorType ext : monitorExtensions) {
             extensionService.addExtensionPoint(ext.getName(), ext);    
         }
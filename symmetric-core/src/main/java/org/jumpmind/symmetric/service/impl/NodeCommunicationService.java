@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -34,14 +35,16 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.Row;
-import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Channel;
@@ -54,6 +57,8 @@ import org.jumpmind.symmetric.model.RemoteNodeStatus;
 import org.jumpmind.symmetric.model.RemoteNodeStatuses;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeCommunicationScheduler;
 import org.jumpmind.symmetric.service.INodeCommunicationService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
@@ -62,6 +67,11 @@ import org.jumpmind.util.RandomTimeSlot;
 
 public class NodeCommunicationService extends AbstractService implements INodeCommunicationService {
 
+    private static final int[] NODE_COMMUNICATION_TYPES = new int[] { Types.TIMESTAMP, Types.VARCHAR,
+            Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.NUMERIC,
+            Types.NUMERIC, Types.TIMESTAMP, Types.NUMERIC, Types.INTEGER, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR };
+
     private Map<CommunicationType, ThreadPoolExecutor> executors = new HashMap<NodeCommunication.CommunicationType, ThreadPoolExecutor>();
 
     private INodeService nodeService;
@@ -70,20 +80,43 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
 
     private IConfigurationService configurationService;
 
-    private boolean initialized = false;
+    private IExtensionService extensionService;
+
+    private volatile boolean initialized = false;
 
     private Map<CommunicationType, Set<String>> currentlyExecuting;
 
     private Map<CommunicationType, Map<String, NodeCommunication>> lockCache;
 
+    private Map<CommunicationType, ConcurrentHashMap<String, AtomicInteger>> threadsByNode;
+
+    /*
+     * When clustering is off the locks live only in lockCache. Changed and
+     * removed rows are queued here and written to the table in batches by
+     * the persister thread.
+     */
+    private ConcurrentHashMap<String, NodeCommunication> changedLocks = new ConcurrentHashMap<String, NodeCommunication>();
+
+    private ConcurrentHashMap<String, NodeCommunication> deletedLocks = new ConcurrentHashMap<String, NodeCommunication>();
+
+    private Set<String> persistedLocks = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private ScheduledExecutorService lockPersister;
+
+    private final Object persistLock = new Object();
+
     public NodeCommunicationService(IClusterService clusterService, INodeService nodeService, IParameterService parameterService,
-            IConfigurationService configurationService, ISymmetricDialect symmetricDialect) {
+            IConfigurationService configurationService, IExtensionService extensionService, ISymmetricDialect symmetricDialect) {
         super(parameterService, symmetricDialect);
         setSqlMap(new NodeCommunicationServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
         this.clusterService = clusterService;
         this.nodeService = nodeService;
         this.configurationService = configurationService;
+        this.extensionService = extensionService;
+
+        extensionService.addExtensionPoint(DefaultNodeCommunicationScheduler.NAME, new DefaultNodeCommunicationScheduler());
+        extensionService.addExtensionPoint(FairNodeCommunicationScheduler.NAME, new FairNodeCommunicationScheduler(parameterService));
 
         this.currentlyExecuting = new HashMap<NodeCommunication.CommunicationType, Set<String>>();
         CommunicationType[] types = CommunicationType.values();
@@ -92,7 +125,11 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
         }
         lockCache = new HashMap<CommunicationType, Map<String, NodeCommunication>>();
         for (CommunicationType type : types) {
-            lockCache.put(type, new HashMap<String, NodeCommunication>());
+            lockCache.put(type, new ConcurrentHashMap<String, NodeCommunication>());
+        }
+        threadsByNode = new HashMap<CommunicationType, ConcurrentHashMap<String, AtomicInteger>>();
+        for (CommunicationType type : types) {
+            threadsByNode.put(type, new ConcurrentHashMap<String, AtomicInteger>());
         }
     }
 
@@ -112,21 +149,182 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
                             initialized = true;
                         }
                     } else {
-                        initialized = true;
+                        try {
+                            loadLockCache();
+                            startLockPersister();
+                        } finally {
+                            initialized = true;
+                        }
                     }
                 }
             }
         }
     }
-    
+
+    /**
+     * Read the rows saved by the persister so that statistics and last lock
+     * times survive a restart. Locks themselves do not.
+     */
+    protected void loadLockCache() {
+        for (CommunicationType communicationType : CommunicationType.values()) {
+            List<NodeCommunication> rows = sqlTemplate.query(getSql("selectNodeCommunicationSql"),
+                    new NodeCommunicationMapper(), communicationType.name());
+            Map<String, NodeCommunication> locks = lockCache.get(communicationType);
+            for (NodeCommunication nodeCommunication : rows) {
+                nodeCommunication.setLockTime(null);
+                persistedLocks.add(getPersistKey(nodeCommunication));
+                if (!locks.containsKey(nodeCommunication.getIdentifier())) {
+                    locks.put(nodeCommunication.getIdentifier(), nodeCommunication);
+                }
+            }
+        }
+    }
+
+    protected void startLockPersister() {
+        long periodMs = parameterService.getLong(ParameterConstants.NODE_COMMUNICATION_PERSIST_PERIOD_MS, 60000);
+        if (periodMs > 0 && lockPersister == null) {
+            lockPersister = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, parameterService.getEngineName().toLowerCase()
+                            + "-node-communication-persister");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            lockPersister.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        persistChangedLocks();
+                    } catch (Throwable ex) {
+                        log.error("Failed to save node communication locks", ex);
+                    }
+                }
+            }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write the node communication rows that changed since the last call in
+     * one transaction, using a batched statement for each of delete, update
+     * and insert. Rows that fail to save are queued again for the next call.
+     */
+    protected void persistChangedLocks() {
+        synchronized (persistLock) {
+            if (changedLocks.isEmpty() && deletedLocks.isEmpty()) {
+                return;
+            }
+            List<NodeCommunication> deletes = drain(deletedLocks);
+            List<NodeCommunication> changes = drain(changedLocks);
+            List<NodeCommunication> updates = new ArrayList<NodeCommunication>(changes.size());
+            List<NodeCommunication> inserts = new ArrayList<NodeCommunication>();
+            for (NodeCommunication nodeCommunication : changes) {
+                if (persistedLocks.contains(getPersistKey(nodeCommunication))) {
+                    updates.add(nodeCommunication);
+                } else {
+                    inserts.add(nodeCommunication);
+                }
+            }
+
+            ISqlTransaction transaction = null;
+            try {
+                transaction = sqlTemplate.startSqlTransaction();
+                transaction.setInBatchMode(true);
+                if (deletes.size() > 0) {
+                    transaction.prepare(getSql("deleteNodeCommunicationSql"));
+                    for (NodeCommunication nodeCommunication : deletes) {
+                        transaction.addRow(nodeCommunication, new Object[] { nodeCommunication.getNodeId(),
+                                nodeCommunication.getQueue(), nodeCommunication.getCommunicationType().name() },
+                                new int[] { Types.VARCHAR, Types.VARCHAR, Types.VARCHAR });
+                    }
+                    transaction.flush();
+                }
+                if (updates.size() > 0) {
+                    transaction.prepare(getSql("updateNodeCommunicationSql"));
+                    for (NodeCommunication nodeCommunication : updates) {
+                        transaction.addRow(nodeCommunication, toArgs(nodeCommunication), NODE_COMMUNICATION_TYPES);
+                    }
+                    transaction.flush();
+                }
+                if (inserts.size() > 0) {
+                    transaction.prepare(getSql("insertNodeCommunicationSql"));
+                    for (NodeCommunication nodeCommunication : inserts) {
+                        transaction.addRow(nodeCommunication, toArgs(nodeCommunication), NODE_COMMUNICATION_TYPES);
+                    }
+                    transaction.flush();
+                }
+                transaction.commit();
+
+                for (NodeCommunication nodeCommunication : deletes) {
+                    persistedLocks.remove(getPersistKey(nodeCommunication));
+                }
+                for (NodeCommunication nodeCommunication : inserts) {
+                    persistedLocks.add(getPersistKey(nodeCommunication));
+                }
+                log.debug("Saved {} node communication rows and deleted {}", changes.size(), deletes.size());
+            } catch (RuntimeException ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                for (NodeCommunication nodeCommunication : deletes) {
+                    deletedLocks.putIfAbsent(getPersistKey(nodeCommunication), nodeCommunication);
+                }
+                for (NodeCommunication nodeCommunication : changes) {
+                    changedLocks.putIfAbsent(getPersistKey(nodeCommunication), nodeCommunication);
+                }
+                throw ex;
+            } finally {
+                if (transaction != null) {
+                    transaction.close();
+                }
+            }
+        }
+    }
+
+    protected Object[] toArgs(NodeCommunication nodeCommunication) {
+        return new Object[] { nodeCommunication.getLockTime(), nodeCommunication.getLockingServerId(),
+                nodeCommunication.getLastLockMillis(), nodeCommunication.getSuccessCount(),
+                nodeCommunication.getFailCount(), nodeCommunication.getTotalSuccessCount(),
+                nodeCommunication.getTotalFailCount(), nodeCommunication.getTotalSuccessMillis(),
+                nodeCommunication.getTotalFailMillis(), nodeCommunication.getLastLockTime(),
+                nodeCommunication.getBatchToSendCount(), nodeCommunication.getNodePriority(),
+                nodeCommunication.getNodeId(), nodeCommunication.getQueue(),
+                nodeCommunication.getCommunicationType().name() };
+    }
+
+    private List<NodeCommunication> drain(ConcurrentHashMap<String, NodeCommunication> queued) {
+        List<NodeCommunication> drained = new ArrayList<NodeCommunication>(queued.size());
+        Iterator<Map.Entry<String, NodeCommunication>> i = queued.entrySet().iterator();
+        while (i.hasNext()) {
+            drained.add(i.next().getValue());
+            i.remove();
+        }
+        return drained;
+    }
+
+    protected String getPersistKey(NodeCommunication nodeCommunication) {
+        return nodeCommunication.getCommunicationType().name() + ":" + nodeCommunication.getIdentifier();
+    }
+
+    protected void lockChanged(NodeCommunication nodeCommunication) {
+        String key = getPersistKey(nodeCommunication);
+        deletedLocks.remove(key);
+        changedLocks.put(key, nodeCommunication);
+    }
+
     @Override
-    public synchronized void persistToTableForSnapshot() {
-        sqlTemplate.update(getSql("deleteSql"));
-        Collection<Map<String, NodeCommunication>> values = lockCache.values();
-        for (Map<String, NodeCommunication> map : values) {
-            Collection<NodeCommunication> nodeCommies = map.values();
-            for (NodeCommunication nodeCommunication : nodeCommies) {
-                save(nodeCommunication, true);
+    public void persistToTableForSnapshot() {
+        synchronized (persistLock) {
+            sqlTemplate.update(getSql("deleteSql"));
+            persistedLocks.clear();
+            changedLocks.clear();
+            deletedLocks.clear();
+            Collection<Map<String, NodeCommunication>> values = lockCache.values();
+            for (Map<String, NodeCommunication> map : values) {
+                Collection<NodeCommunication> nodeCommies = map.values();
+                for (NodeCommunication nodeCommunication : nodeCommies) {
+                    save(nodeCommunication, true);
+                    persistedLocks.add(getPersistKey(nodeCommunication));
+                }
             }
         }
     }
@@ -234,10 +432,13 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
         if (communicationType == CommunicationType.PUSH && 
                 parameterService.getInt(ParameterConstants.PUSH_THREAD_COUNT_PER_SERVER) < communicationRows.size()) {
             ts = System.currentTimeMillis();
-            List<String> nodeIds = getNodeIdsWithUnsentCount();
-            List<NodeCommunication> filteredNodes = new ArrayList<NodeCommunication>(nodeIds.size());
+            Map<String, long[]> unsentCounts = getUnsentCountsByNodeId();
+            List<NodeCommunication> filteredNodes = new ArrayList<NodeCommunication>(unsentCounts.size());
             for (NodeCommunication nodeCommunication : communicationRows) {
-                if (nodeIds.contains(nodeCommunication.getNodeId())) {
+                long[] counts = unsentCounts.get(nodeCommunication.getNodeId());
+                if (counts != null) {
+                    nodeCommunication.setBatchToSendCount(counts[0]);
+                    nodeCommunication.setBatchToSendBytes(counts[1]);
                     filteredNodes.add(nodeCommunication);
                 }
             }
@@ -249,12 +450,32 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
             communicationRows = removeNodesWithNoBatchesToSend(communicationRows);
         }
 
-        return communicationRows;
+        return getScheduler().schedule(communicationType, communicationRows);
     }
     
-    protected List<String> getNodeIdsWithUnsentCount() {
-        return sqlTemplate.query(getSql("selectNodeIdsWithUnsentBatchsSql"),
-                new StringMapper());        
+    protected Map<String, long[]> getUnsentCountsByNodeId() {
+        final Map<String, long[]> counts = new HashMap<String, long[]>();
+        sqlTemplate.query(getSql("selectUnsentBatchCountsByNodeSql"), new ISqlRowMapper<Object>() {
+            public Object mapRow(Row row) {
+                counts.put(row.getString("node_id"),
+                        new long[] { row.getLong("batch_count"), row.getLong("byte_count") });
+                return null;
+            }
+        });
+        return counts;
+    }
+
+    protected INodeCommunicationScheduler getScheduler() {
+        String name = parameterService.getString(ParameterConstants.NODE_COMMUNICATION_SCHEDULER,
+                DefaultNodeCommunicationScheduler.NAME);
+        INodeCommunicationScheduler scheduler = extensionService.getExtensionPointMap(
+                INodeCommunicationScheduler.class).get(name);
+        if (scheduler == null) {
+            log.warn("Could not find a node communication scheduler named '{}'.  Using the default", name);
+            scheduler = extensionService.getExtensionPointMap(INodeCommunicationScheduler.class).get(
+                    DefaultNodeCommunicationScheduler.NAME);
+        }
+        return scheduler;
     }
 
     protected List<NodeCommunication> filterForChannelThreading(List<Node> nodesToCommunicateWith) {
@@ -347,6 +568,11 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
                     nodeCommunication.getNodeId(), nodeCommunication.getQueue(), nodeCommunication.getCommunicationType().name());
         } else {
             Map<String, NodeCommunication> locks = lockCache.get(nodeCommunication.getCommunicationType());
+            String key = getPersistKey(nodeCommunication);
+            changedLocks.remove(key);
+            if (persistedLocks.contains(key)) {
+                deletedLocks.put(key, nodeCommunication);
+            }
             return locks.remove(nodeCommunication.getIdentifier()) != null;
         }
     }
@@ -376,6 +602,7 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
         } else {
             Map<String, NodeCommunication> locks = lockCache.get(nodeCommunication.getCommunicationType());
             locks.put(nodeCommunication.getIdentifier(), nodeCommunication);
+            lockChanged(nodeCommunication);
         }
     }
     
@@ -436,7 +663,7 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
 
         if (service != null && service.getCorePoolSize() != threadCount) {
             log.info("{} has changed from {} to {}.  Restarting thread pool", new Object[] { threadCountParameter, service.getCorePoolSize(), threadCount });
-            stop();
+            stopExecutors();
             service = null;
         }
 
@@ -504,10 +731,17 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
             final INodeCommunicationExecutor executor) {
         Date now = new Date();
         final Set<String> executing = this.currentlyExecuting.get(nodeCommunication.getCommunicationType());
+        final AtomicInteger nodeThreads = getThreadsForNode(nodeCommunication);
+        final INodeCommunicationScheduler scheduler = getScheduler();
+        int maxThreadsPerNode = parameterService.getInt(ParameterConstants.NODE_COMMUNICATION_THREADS_PER_NODE, 0);
+        if (maxThreadsPerNode > 0 && nodeThreads.get() >= maxThreadsPerNode) {
+            return false;
+        }
         try {
             boolean locked = !executing.contains(nodeCommunication.getIdentifier()) && lock(nodeCommunication, now);
             if (locked) {
                 executing.add(nodeCommunication.getIdentifier());
+                nodeThreads.incrementAndGet();
                 nodeCommunication.setLastLockTime(now);
                 nodeCommunication.setLockingServerId(clusterService.getServerId());
                 final RemoteNodeStatus status = statuses.add(nodeCommunication.getNodeId(), nodeCommunication.getQueue());
@@ -525,7 +759,9 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
                         } finally {
                             status.setComplete(true);
                             executing.remove(nodeCommunication.getIdentifier());
+                            nodeThreads.decrementAndGet();
                             unlock(nodeCommunication, failed, ts);
+                            scheduler.executed(nodeCommunication, System.currentTimeMillis() - ts, failed);
                         }
                     }
                 };
@@ -542,12 +778,27 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
         } catch (RuntimeException ex) {
             log.error(String.format("Failed to execute %s for node %s and channel thread %s", nodeCommunication.getCommunicationType().name(),
                     nodeCommunication.getNodeId(), nodeCommunication.getQueue()), ex);
-            executing.remove(nodeCommunication.getIdentifier());
+            if (executing.remove(nodeCommunication.getIdentifier())) {
+                nodeThreads.decrementAndGet();
+            }
             unlock(nodeCommunication, true, System.currentTimeMillis());
             return false;
         }
     }
 
+    protected AtomicInteger getThreadsForNode(NodeCommunication nodeCommunication) {
+        ConcurrentHashMap<String, AtomicInteger> threads = threadsByNode.get(nodeCommunication.getCommunicationType());
+        AtomicInteger count = threads.get(nodeCommunication.getNodeId());
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = threads.putIfAbsent(nodeCommunication.getNodeId(), count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        return count;
+    }
+
     protected boolean lock(NodeCommunication nodeCommunication, Date lockTime) {
         Date lockTimeout = getLockTimeoutDate(nodeCommunication.getCommunicationType());
         if (clusterService.isClusteringEnabled()) {
@@ -559,6 +810,7 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
                 nodeCommunication.setLockingServerId(clusterService.getServerId());
                 nodeCommunication.setLockTime(lockTime);
                 nodeCommunication.setLastLockTime(lockTime);
+                lockChanged(nodeCommunication);
                 return true;
             }
             return false;
@@ -586,6 +838,8 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
                 }
                 if (clusterService.isClusteringEnabled()) {
                     save(nodeCommunication, false);
+                } else {
+                    lockChanged(nodeCommunication);
                 }
                 unlocked = true;
                 if (attempts > 1) {
@@ -608,6 +862,20 @@ public class NodeCommunicationService extends AbstractService implements INodeCo
     }    
 
     public void stop() {
+        stopExecutors();
+        if (lockPersister != null) {
+            lockPersister.shutdown();
+            lockPersister = null;
+            try {
+                persistChangedLocks();
+            } catch (RuntimeException ex) {
+                log.warn("Failed to save node communication locks on shutdown: {}", ex.getMessage());
+            }
+        }
+        initialized = false;
+    }
+
+    protected void stopExecutors() {
         Collection<CommunicationType> services = new HashSet<NodeCommunication.CommunicationType>(
                 executors.keySet());
         for (CommunicationType communicationType : services) {
@@ -40,6 +40,7 @@ import org.jumpmind.db.sql.UniqueKeyException;
 import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.security.ISecurityService;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.config.INodeIdCreator;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.ext.IOfflineServerListener;
@@ -50,6 +51,7 @@ import org.jumpmind.symmetric.model.NodeHost;
 import org.jumpmind.symmetric.model.NodeSecurity;
 import org.jumpmind.symmetric.model.NodeStatus;
 import org.jumpmind.symmetric.security.INodePasswordFilter;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
@@ -65,13 +67,11 @@ public class NodeService extends AbstractService implements INodeService {
 
     private Node cachedNodeIdentity;
     
-    private Map<String, NodeSecurity> securityCache;
+    private IConfigurationVersionService configurationVersionService;
 
-    private long securityCacheTime;
+    private ConfigurationCache<NodeSecurity> securityCache;
 
-    private Map<String, Node> nodeCache = new HashMap<String, Node>();
-    
-    private long nodeCacheTime;
+    private ConfigurationCache<Node> nodeCache;
     
     private Map<String, List<Node>> sourceNodesCache = new HashMap<String, List<Node>>();
     
@@ -86,9 +86,30 @@ public class NodeService extends AbstractService implements INodeService {
     private NodeHost nodeHostForCurrentNode = null;
 
     public NodeService(IParameterService parameterService, ISymmetricDialect dialect, ISecurityService securityService,
-            IExtensionService extensionService) {
+            IExtensionService extensionService, IConfigurationVersionService configurationVersionService) {
         super(parameterService, dialect);
         this.extensionService = extensionService;
+        this.configurationVersionService = configurationVersionService;
+        this.nodeCache = new ConfigurationCache<Node>(configurationVersionService, TableConstants.SYM_NODE) {
+            protected Map<String, Node> loadAll() {
+                return findAllNodesAsMap();
+            }
+
+            protected Node load(String nodeId) {
+                return findNode(nodeId);
+            }
+        };
+        this.securityCache = new ConfigurationCache<NodeSecurity>(configurationVersionService,
+                TableConstants.SYM_NODE_SECURITY) {
+            protected Map<String, NodeSecurity> loadAll() {
+                return sqlTemplate.queryForMap(getSql("findAllNodeSecuritySql"),
+                        new NodeSecurityRowMapper(), "node_id");
+            }
+
+            protected NodeSecurity load(String nodeId) {
+                return findNodeSecurity(nodeId, false);
+            }
+        };
         extensionService.addExtensionPoint(new DefaultNodeIdCreator(parameterService, this, securityService));
         setSqlMap(new NodeServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
@@ -154,24 +175,20 @@ public class NodeService extends AbstractService implements INodeService {
     } 
     
     public Node findNodeInCacheOnly(String id) {
-        return nodeCache.get(id);
+        return nodeCache.getIfCached(id);
     }
 
     public Node findNode(String id, boolean useCache) {
         if (useCache) {
-            long cacheTimeoutInMs = parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_IN_MS);
-            if ((System.currentTimeMillis() - nodeCacheTime) >= cacheTimeoutInMs) {
-                nodeCache = findAllNodesAsMap();
-                nodeCacheTime = System.currentTimeMillis();
-            }
-            return nodeCache.get(id);
+            return nodeCache.get(id,
+                    parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_NODE_IN_MS));
         } else {
             return findNode(id);
         }
     }
 
     public void flushNodeCache() {
-        nodeCacheTime = 0;
+        nodeCache.flush();
     }
 
     public Node findNodeByExternalId(String nodeGroupId, String externalId) {
@@ -253,6 +270,8 @@ public class NodeService extends AbstractService implements INodeService {
                 transaction.prepareAndExecute(getSql("deleteTableReloadRequestSql"), new Object[] { nodeId, nodeId });
                 transaction.prepareAndExecute(getSql("setOutgoingBatchOkSql"), new Object[] { nodeId });
                 transaction.prepareAndExecute(getSql("deleteIncomingBatchSql"), new Object[] { nodeId });
+                configurationVersionService.changed(TableConstants.SYM_NODE, nodeId);
+                configurationVersionService.changed(TableConstants.SYM_NODE_SECURITY, nodeId);
             }
         } catch (Error ex) {
             if (transaction != null) {
@@ -311,6 +330,7 @@ public class NodeService extends AbstractService implements INodeService {
                             Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
                             Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.VARCHAR,
                             Types.VARCHAR, Types.VARCHAR, Types.VARCHAR });
+            configurationVersionService.changed(TableConstants.SYM_NODE, node.getNodeId());
             flushNodeGroupCache();
         }
     }
@@ -329,6 +349,9 @@ public class NodeService extends AbstractService implements INodeService {
                         Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
                         Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.VARCHAR,
                         Types.VARCHAR, Types.VARCHAR, Types.VARCHAR }) == 1;
+        if (updated) {
+            configurationVersionService.changed(TableConstants.SYM_NODE, node.getNodeId());
+        }
         return updated;
     }
 
@@ -509,12 +532,12 @@ public class NodeService extends AbstractService implements INodeService {
         password = filterPasswordOnSaveIfNeeded(password);
         sqlTemplate.update(getSql("insertNodeSecuritySql"), new Object[] { id, password,
                 null });
-        flushNodeAuthorizedCache();
+        configurationVersionService.changed(TableConstants.SYM_NODE_SECURITY, id);
     }
 
     public void deleteNodeSecurity(String nodeId) {
         sqlTemplate.update(getSql("deleteNodeSecuritySql"), new Object[] { nodeId });
-        flushNodeAuthorizedCache();
+        configurationVersionService.changed(TableConstants.SYM_NODE_SECURITY, nodeId);
     }
 
     public List<NodeSecurity> findNodeSecurityWithLoadEnabled() {
@@ -533,17 +556,11 @@ public class NodeService extends AbstractService implements INodeService {
     }
 
     public Map<String, NodeSecurity> findAllNodeSecurity(boolean useCache) {
-        long maxSecurityCacheTime = parameterService
-                .getLong(ParameterConstants.CACHE_TIMEOUT_NODE_SECURITY_IN_MS);
-        Map<String, NodeSecurity> all = securityCache;
-        if (all == null || System.currentTimeMillis() - securityCacheTime >= maxSecurityCacheTime
-                || securityCacheTime == 0 || !useCache) {
-            all = (Map<String, NodeSecurity>) sqlTemplate.queryForMap(
-                    getSql("findAllNodeSecuritySql"), new NodeSecurityRowMapper(), "node_id");
-            securityCache = all;
-            securityCacheTime = System.currentTimeMillis();
+        if (!useCache) {
+            securityCache.flush();
         }
-        return all;
+        return securityCache.getAll(parameterService
+                .getLong(ParameterConstants.CACHE_TIMEOUT_NODE_SECURITY_IN_MS));
     }
 
     /**
@@ -564,7 +581,7 @@ public class NodeService extends AbstractService implements INodeService {
     }
 
     public void flushNodeAuthorizedCache() {
-        securityCacheTime = 0;
+        securityCache.flush();
     }
 
     public boolean updateNodeSecurity(NodeSecurity security) {
@@ -573,6 +590,7 @@ public class NodeService extends AbstractService implements INodeService {
             transaction = sqlTemplate.startSqlTransaction();
             boolean updated = updateNodeSecurity(transaction, security);
             transaction.commit();
+            configurationVersionService.changed(TableConstants.SYM_NODE_SECURITY, security.getNodeId());
             return updated;
         } catch (Error ex) {
             if (transaction != null) {
@@ -609,7 +627,7 @@ public class NodeService extends AbstractService implements INodeService {
                         Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.VARCHAR,
                         Types.VARCHAR });
         boolean updated = (updateCount == 1);
-        flushNodeAuthorizedCache();
+        configurationVersionService.changed(TableConstants.SYM_NODE_SECURITY, security.getNodeId());
         return updated;
     }
 
@@ -62,6 +62,7 @@ import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.ISequenceService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.util.AppUtils;
 import org.jumpmind.util.FormatUtils;
 
@@ -80,16 +81,22 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     
     private IExtensionService extensionService;
 
+    private IStatisticManager statisticManager;
+
+    private static final int MAX_BATCH_IDS_PER_QUERY = 500;
+
     public OutgoingBatchService(IParameterService parameterService,
             ISymmetricDialect symmetricDialect, INodeService nodeService,
             IConfigurationService configurationService, ISequenceService sequenceService,
-            IClusterService clusterService, IExtensionService extensionService) {
+            IClusterService clusterService, IExtensionService extensionService,
+            IStatisticManager statisticManager) {
         super(parameterService, symmetricDialect);
         this.nodeService = nodeService;
         this.configurationService = configurationService;
         this.sequenceService = sequenceService;
         this.clusterService = clusterService;
         this.extensionService = extensionService;
+        this.statisticManager = statisticManager;
         setSqlMap(new OutgoingBatchServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
     }
@@ -159,6 +166,9 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
             sql += getSql("cancelChannelBatchesTableSql");
         }
         sqlTemplate.update(sql, channelId, tableName);
+        if (StringUtils.isEmpty(tableName)) {
+            statisticManager.getReplicationLagTracker().channelSettled(channelId);
+        }
     }
 
     public void copyOutgoingBatches(String channelId, long startBatchId, String fromNodeId, String toNodeId) {
@@ -177,9 +187,44 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         }
     }
 
+    /**
+     * Update the batches in one transaction using a JDBC batch
+     */
     public void updateOutgoingBatches(List<OutgoingBatch> outgoingBatches) {
-        for (OutgoingBatch batch : outgoingBatches) {
-            updateOutgoingBatch(batch);
+        if (outgoingBatches.size() == 0) {
+            return;
+        } else if (outgoingBatches.size() == 1) {
+            updateOutgoingBatch(outgoingBatches.get(0));
+            return;
+        }
+        ISqlTransaction transaction = null;
+        try {
+            transaction = sqlTemplate.startSqlTransaction();
+            transaction.setInBatchMode(true);
+            transaction.prepare(getSql("updateOutgoingBatchSql"));
+            int[] types = getUpdateOutgoingBatchTypes();
+            for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                outgoingBatch.setLastUpdatedTime(new Date());
+                outgoingBatch.setLastUpdatedHostName(clusterService.getServerId());
+                transaction.addRow(outgoingBatch, getUpdateOutgoingBatchArgs(outgoingBatch), types);
+            }
+            transaction.flush();
+            transaction.commit();
+            for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                batchSettled(outgoingBatch);
+            }
+        } catch (Error ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw ex;
+        } finally {
+            close(transaction);
         }
     }
 
@@ -189,6 +234,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
             transaction = sqlTemplate.startSqlTransaction();
             updateOutgoingBatch(transaction, outgoingBatch);
             transaction.commit();
+            batchSettled(outgoingBatch);
         } catch (Error ex) {
             if (transaction != null) {
                 transaction.rollback();
@@ -207,9 +253,33 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     public void updateOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch) {
         outgoingBatch.setLastUpdatedTime(new Date());
         outgoingBatch.setLastUpdatedHostName(clusterService.getServerId());
-        transaction.prepareAndExecute(
-                getSql("updateOutgoingBatchSql"),
-                new Object[] { outgoingBatch.getStatus().name(), outgoingBatch.getLoadId(),
+        transaction.prepareAndExecute(getSql("updateOutgoingBatchSql"),
+                getUpdateOutgoingBatchArgs(outgoingBatch), getUpdateOutgoingBatchTypes());
+    }
+
+    /**
+     * Batches are usually settled by an acknowledgement, but they can also be
+     * marked OK or ignored by an administrator, so let the lag tracker know.
+     */
+    protected void batchSettled(OutgoingBatch outgoingBatch) {
+        if (outgoingBatch.getStatus() == Status.OK || outgoingBatch.getStatus() == Status.IG) {
+            statisticManager.getReplicationLagTracker().batchSettled(outgoingBatch.getNodeId(),
+                    outgoingBatch.getChannelId(), outgoingBatch.getBatchId());
+        }
+    }
+
+    protected int[] getUpdateOutgoingBatchTypes() {
+        return new int[] { Types.CHAR, Types.BIGINT,
+                Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
+                Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, 
+                symmetricDialect.getSqlTypeForIds(), Types.VARCHAR };
+    }
+
+    protected Object[] getUpdateOutgoingBatchArgs(OutgoingBatch outgoingBatch) {
+        return new Object[] { outgoingBatch.getStatus().name(), outgoingBatch.getLoadId(),
                        outgoingBatch.isExtractJobFlag() ? 1: 0,
                         outgoingBatch.isLoadFlag() ? 1 : 0, outgoingBatch.isErrorFlag() ? 1 : 0,
                         outgoingBatch.getByteCount(), outgoingBatch.getExtractCount(),
@@ -223,13 +293,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
                         outgoingBatch.getSqlState(), outgoingBatch.getSqlCode(),
                         FormatUtils.abbreviateForLogging(outgoingBatch.getSqlMessage()),
                         outgoingBatch.getFailedDataId(), outgoingBatch.getLastUpdatedHostName(), outgoingBatch.getSummary(), 
-                        outgoingBatch.getBatchId(), outgoingBatch.getNodeId() }, new int[] { Types.CHAR, Types.BIGINT,
-                        Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
-                        Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, 
-                        symmetricDialect.getSqlTypeForIds(), Types.VARCHAR });
+                        outgoingBatch.getBatchId(), outgoingBatch.getNodeId() };
     }
 
     public void insertOutgoingBatch(final OutgoingBatch outgoingBatch) {
@@ -293,6 +357,24 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         }
     }
 
+    /**
+     * Find many batches for a node with a few queries instead of one per
+     * batch. Batches that are not found are left out.
+     */
+    public List<OutgoingBatch> findOutgoingBatches(String nodeId, List<Long> batchIds) {
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>(batchIds.size());
+        String sql = StringUtils.isNotBlank(nodeId) ? getSql("selectOutgoingBatchPrefixSql",
+                "findOutgoingBatchesSql") : getSql("selectOutgoingBatchPrefixSql",
+                "findOutgoingBatchesByIdOnlySql");
+        for (int i = 0; i < batchIds.size(); i += MAX_BATCH_IDS_PER_QUERY) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("NODE_ID", nodeId);
+            params.put("BATCH_IDS", batchIds.subList(i, Math.min(batchIds.size(), i + MAX_BATCH_IDS_PER_QUERY)));
+            batches.addAll(sqlTemplateDirty.query(sql, new OutgoingBatchMapper(true), params));
+        }
+        return batches;
+    }
+
     public int countOutgoingBatchesInError() {
         return sqlTemplateDirty.queryForInt(getSql("countOutgoingBatchesErrorsSql"));
     }
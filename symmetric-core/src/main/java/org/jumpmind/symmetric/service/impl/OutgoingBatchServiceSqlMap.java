@@ -65,6 +65,10 @@ public class OutgoingBatchServiceSqlMap extends AbstractSqlMap {
 
         putSql("findOutgoingBatchByIdOnlySql", "where batch_id=? ");
 
+        putSql("findOutgoingBatchesSql", "where node_id=:NODE_ID and batch_id in (:BATCH_IDS) ");
+
+        putSql("findOutgoingBatchesByIdOnlySql", "where batch_id in (:BATCH_IDS) ");
+
         putSql("selectOutgoingBatchSql",
                 "where node_id = ? and status in (?, ?, ?, ?, ?, ?, ?, ?) order by batch_id asc   ");
 
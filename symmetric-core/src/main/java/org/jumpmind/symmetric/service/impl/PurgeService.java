@@ -28,14 +28,22 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.time.DateUtils;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.ext.IPurgeListener;
+import org.jumpmind.symmetric.ext.IPurgePartitionHandler;
 import org.jumpmind.symmetric.model.ExtractRequest;
 import org.jumpmind.symmetric.model.IncomingBatch;
 import org.jumpmind.symmetric.model.OutgoingBatch;
@@ -162,6 +170,12 @@ public class PurgeService extends AbstractService implements IPurgeService {
                 .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_BATCH_IDS);
         int maxNumOfDataEventsToPurgeInTx = parameterService
                 .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_EVENT_BATCH_IDS);
+        if (parameterService.is(ParameterConstants.PURGE_PARTITION_DROP_ENABLED)) {
+            long maxBatchId = capMaxId(minMax[1], getSql("selectMinUnfinishedBatchIdSql"),
+                    OutgoingBatch.Status.OK.name());
+            purgePartitions(TableConstants.SYM_DATA_EVENT, "batch_id", maxBatchId, time.getTime());
+            purgePartitions(TableConstants.SYM_OUTGOING_BATCH, "batch_id", maxBatchId, time.getTime());
+        }
         int dataEventsPurgedCount = purgeByMinMax(minMax, minGapStartId, MinMaxDeleteSql.DATA_EVENT,
                 time.getTime(), maxNumOfDataEventsToPurgeInTx);
         statisticManager.incrementPurgedDataEventRows(dataEventsPurgedCount);
@@ -186,9 +200,17 @@ public class PurgeService extends AbstractService implements IPurgeService {
     }
 
     private long purgeDataRows(final Calendar time) {
+        long minGapStartId = sqlTemplate.queryForLong(getSql("minDataGapStartId"));
+        if (parameterService.is(ParameterConstants.PURGE_PARTITION_DROP_ENABLED)) {
+            long maxDataId = capMaxId(sqlTemplate.queryForLong(getSql("selectMaxDataIdSql")),
+                    getSql("selectMinUnfinishedDataIdSql"), OutgoingBatch.Status.OK.name());
+            if (minGapStartId > 0) {
+                maxDataId = Math.min(maxDataId, minGapStartId - 1);
+            }
+            purgePartitions(TableConstants.SYM_DATA, "data_id", maxDataId, time.getTime());
+        }
         log.info("Getting range for data");
         long[] minMax = queryForMinMax(getSql("selectDataRangeSql"), new Object[0]);
-        long minGapStartId = sqlTemplate.queryForLong(getSql("minDataGapStartId"));
         int maxNumOfDataIdsToPurgeInTx = parameterService
                 .getInt(ParameterConstants.PURGE_MAX_NUMBER_OF_DATA_IDS);
         int dataDeletedCount = purgeByMinMax(minMax, minGapStartId, MinMaxDeleteSql.DATA, time.getTime(),
@@ -217,6 +239,33 @@ public class PurgeService extends AbstractService implements IPurgeService {
         }, params);
         return minMax;
     }
+
+    class PurgeProgress {
+        String name;
+        AtomicInteger totalCount = new AtomicInteger();
+        AtomicInteger totalDeleteStmts = new AtomicInteger();
+
+        PurgeProgress(MinMaxDeleteSql identifier) {
+            this.name = identifier.toString().toLowerCase();
+        }
+    }
+
+    class PurgeThreadFactory implements ThreadFactory {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        String namePrefix = parameterService.getEngineName().toLowerCase() + "-purge-";
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            if (thread.isDaemon()) {
+                thread.setDaemon(false);
+            }
+            if (thread.getPriority() != Thread.NORM_PRIORITY) {
+                thread.setPriority(Thread.NORM_PRIORITY);
+            }
+            return thread;
+        }
+    }
     
     private long purgeExtractRequests() {
         Calendar retentionCutoff = Calendar.getInstance();
@@ -258,20 +307,108 @@ public class PurgeService extends AbstractService implements IPurgeService {
         return count;
     }
 
-    private int purgeByMinMax(long[] minMax, long minGapStartId, MinMaxDeleteSql identifier, Date retentionTime,
-            int maxNumtoPurgeinTx) {
+    /**
+     * Delete the rows between the min and max ids. The range is split into
+     * slices that are purged at the same time when job.purge.thread.count is
+     * more than one. Each slice moves through its range one window at a time
+     * and grows or shrinks the window to keep each delete near
+     * job.purge.delete.target.ms.
+     */
+    private int purgeByMinMax(long[] minMax, final long minGapStartId, final MinMaxDeleteSql identifier,
+            Date retentionTime, final int maxNumtoPurgeinTx) {
         long minId = minMax[0];
         long purgeUpToId = minMax[1];
+        final Timestamp cutoffTime = new Timestamp(retentionTime.getTime());
+        final PurgeProgress progress = new PurgeProgress(identifier);
+        log.info("About to purge {}", progress.name);
+
+        int sliceCount = getSliceCount(minId, purgeUpToId, maxNumtoPurgeinTx);
+        if (sliceCount <= 1) {
+            purgeSlice(minId, purgeUpToId, minGapStartId, identifier, cutoffTime, maxNumtoPurgeinTx,
+                    progress);
+        } else {
+            long sliceSize = (purgeUpToId - minId + sliceCount) / sliceCount;
+            log.info("Purging {} in {} slices of {} ids", new Object[] { progress.name, sliceCount,
+                    sliceSize });
+            ExecutorService executor = Executors.newFixedThreadPool(sliceCount,
+                    new PurgeThreadFactory());
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(sliceCount);
+                for (long sliceStart = minId; sliceStart <= purgeUpToId; sliceStart += sliceSize) {
+                    final long startId = sliceStart;
+                    final long endId = Math.min(sliceStart + sliceSize - 1, purgeUpToId);
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            purgeSlice(startId, endId, minGapStartId, identifier, cutoffTime,
+                                    maxNumtoPurgeinTx, progress);
+                        }
+                    }));
+                }
+                awaitSlices(futures);
+            } finally {
+                executor.shutdown();
+            }
+        }
+        log.info("Done purging {} of {} rows", progress.totalCount.get(), progress.name);
+        return progress.totalCount.get();
+    }
+
+    protected int getSliceCount(long minId, long purgeUpToId, int maxNumtoPurgeinTx) {
+        int threadCount = parameterService.getInt(ParameterConstants.PURGE_THREAD_COUNT, 1);
+        long windows = (purgeUpToId - minId) / (maxNumtoPurgeinTx + 1) + 1;
+        return (int) Math.max(1, Math.min(threadCount, windows));
+    }
+
+    /**
+     * Halve the window when a delete took longer than the target and double it
+     * when it took less than half the target. The window stays between a tenth
+     * of and the configured number of ids to purge in a transaction, so it
+     * never holds locks for more rows than the operator allowed.
+     */
+    protected long adjustWindow(long window, long deleteMillis, long targetMillis, int maxNumtoPurgeinTx) {
+        if (targetMillis > 0) {
+            long minWindow = Math.max(1, maxNumtoPurgeinTx / 10);
+            long maxWindow = Math.max(1, maxNumtoPurgeinTx);
+            if (deleteMillis > targetMillis && window > minWindow) {
+                window = Math.max(minWindow, window / 2);
+            } else if (deleteMillis < targetMillis / 2 && window < maxWindow) {
+                window = Math.min(maxWindow, window * 2);
+            }
+        }
+        return window;
+    }
+
+    protected void awaitSlices(List<Future<?>> futures) {
+        RuntimeException error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                if (error == null) {
+                    error = ex.getCause() instanceof RuntimeException ? (RuntimeException) ex
+                            .getCause() : new RuntimeException(ex.getCause());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                error = new RuntimeException(ex);
+                break;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void purgeSlice(long minId, long purgeUpToId, long minGapStartId,
+            MinMaxDeleteSql identifier, Timestamp cutoffTime, int maxNumtoPurgeinTx,
+            PurgeProgress progress) {
         long ts = System.currentTimeMillis();
-        int totalCount = 0;
-        int totalDeleteStmts = 0;
         int idSqlType = symmetricDialect.getSqlTypeForIds();
-        Timestamp cutoffTime = new Timestamp(retentionTime.getTime());
-        log.info("About to purge {}", identifier.toString().toLowerCase());
-        
+        long targetMillis = parameterService.getLong(ParameterConstants.PURGE_DELETE_TARGET_MS, 0);
+        long window = maxNumtoPurgeinTx;
+
         while (minId <= purgeUpToId) {
-            totalDeleteStmts++;
-            long maxId = minId + maxNumtoPurgeinTx;
+            long maxId = minId + window;
             if (maxId > purgeUpToId) {
                 maxId = purgeUpToId;
             }
@@ -315,20 +452,56 @@ public class PurgeService extends AbstractService implements IPurgeService {
             }
 
             log.debug("Running the following statement: {} with the following arguments: {}", deleteSql, Arrays.toString(args));
+            long deleteTs = System.currentTimeMillis();
             int count = sqlTemplate.update(deleteSql, args, argTypes);
+            long deleteMillis = System.currentTimeMillis() - deleteTs;
             log.debug("Deleted {} rows", count);
-            totalCount += count;
+            int totalCount = progress.totalCount.addAndGet(count);
+            int totalDeleteStmts = progress.totalDeleteStmts.incrementAndGet();
+            statisticManager.addPurgeStats(progress.name, count, deleteMillis);
+
+            window = adjustWindow(window, deleteMillis, targetMillis, maxNumtoPurgeinTx);
 
             if (totalCount > 0
                     && (System.currentTimeMillis() - ts > DateUtils.MILLIS_PER_MINUTE * 5)) {
                 log.info("Purged {} of {} rows so far using {} statements", new Object[] {
-                        totalCount, identifier.toString().toLowerCase(), totalDeleteStmts });
+                        totalCount, progress.name, totalDeleteStmts });
                 ts = System.currentTimeMillis();
             }
             minId = maxId + 1;
         }
-        log.info("Done purging {} of {} rows", totalCount, identifier.toString().toLowerCase());
-        return totalCount;
+    }
+
+    /**
+     * Give each registered {@link IPurgePartitionHandler} the chance to drop
+     * or truncate aged partitions of a table before its rows are deleted.
+     */
+    protected void purgePartitions(String tableSuffix, String idColumnName, long maxId,
+            Date retentionCutoff) {
+        if (maxId > 0 && parameterService.is(ParameterConstants.PURGE_PARTITION_DROP_ENABLED)) {
+            String tableName = TableConstants.getTableName(tablePrefix, tableSuffix);
+            for (IPurgePartitionHandler handler : extensionService
+                    .getExtensionPointList(IPurgePartitionHandler.class)) {
+                long ts = System.currentTimeMillis();
+                int partitions = handler.purgePartitions(tableName, idColumnName, maxId,
+                        retentionCutoff);
+                statisticManager.addPurgePartitionStats(tableSuffix, partitions,
+                        System.currentTimeMillis() - ts);
+                if (partitions > 0) {
+                    log.info("Purged {} partitions of {} up to id {}", new Object[] { partitions,
+                            tableName, maxId });
+                }
+            }
+        }
+    }
+
+    /**
+     * @return one less than the value the query returns or the given max id
+     *         if it is lower or the query returns nothing
+     */
+    protected long capMaxId(long maxId, String sql, Object... args) {
+        long id = sqlTemplate.queryForLong(sql, args);
+        return id > 0 ? Math.min(maxId, id - 1) : maxId;
     }
 
     public long purgeIncoming(Calendar retentionCutoff, boolean force) {
@@ -429,6 +602,8 @@ public class PurgeService extends AbstractService implements IPurgeService {
             try {
                 int purgedCount = sqlTemplate.update(getSql("purgeNodeHostChannelStatsSql"),
                         retentionCutoff.getTime());
+                purgedCount += sqlTemplate.update(getSql("purgeNodeHostChannelLatencySql"),
+                        retentionCutoff.getTime());
                 purgedCount += sqlTemplate.update(getSql("purgeNodeHostStatsSql"),
                         retentionCutoff.getTime());
                 purgedCount += sqlTemplate.update(getSql("purgeNodeHostJobStatsSql"),
@@ -54,6 +54,14 @@ public class PurgeServiceSqlMap extends AbstractSqlMap {
 "  $(outgoing_batch) where batch_id between ? and ? and status != ?)                 " + 
 "  and batch_id between ? and ?                                                      " );
 
+        putSql("selectMaxDataIdSql", "select max(data_id) from $(data)");
+
+        putSql("selectMinUnfinishedBatchIdSql", "select min(batch_id) from $(outgoing_batch) where status != ?");
+
+        putSql("selectMinUnfinishedDataIdSql" ,
+"select min(e.data_id) from $(data_event) e inner join $(outgoing_batch) b on b.batch_id = e.batch_id   " + 
+"  where b.status != ?                                                                                 " );
+
         putSql("selectDataRangeSql" ,
 "select min(data_id) as min_id, max(data_id) as max_id from $(data) where data_id < (select max(data_id) from $(data))   " );
 
@@ -100,6 +108,7 @@ public class PurgeServiceSqlMap extends AbstractSqlMap {
 "delete from $(incoming_batch) where node_id = ?   " );
         
         putSql("purgeNodeHostChannelStatsSql", "delete from $(node_host_channel_stats) where start_time < ?");
+        putSql("purgeNodeHostChannelLatencySql", "delete from $(node_host_channel_latency) where start_time < ?");
         
         putSql("purgeNodeHostStatsSql", "delete from $(node_host_stats) where start_time < ?");
                 
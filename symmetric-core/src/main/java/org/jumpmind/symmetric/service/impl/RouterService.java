@@ -25,6 +25,7 @@ import static org.apache.commons.lang.StringUtils.isNotBlank;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -41,6 +42,7 @@ import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.SyntaxParsingException;
@@ -95,6 +97,8 @@ import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IRouterService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.statistic.LatencyStage;
+import org.jumpmind.symmetric.statistic.ReplicationLagTracker;
 import org.jumpmind.symmetric.statistic.StatisticConstants;
 import org.jumpmind.util.FormatUtils;
 
@@ -444,6 +448,9 @@ public class RouterService extends AbstractService implements IRouterService {
                 new ProcessInfoKey(sourceNode.getNodeId(), null, ProcessType.ROUTER_JOB));
         processInfo.setStatus(ProcessInfo.Status.PROCESSING);
         try {
+            if (parameterService.is(ParameterConstants.ROUTING_COLLECT_CAPTURED_WATERMARK)) {
+                updateCapturedWatermark();
+            }
             final List<NodeChannel> channels = engine.getConfigurationService().getNodeChannels(false);
             Set<String> readyChannels = null;
             if (parameterService.is(ParameterConstants.ROUTING_QUERY_CHANNELS_FIRST)) {
@@ -733,6 +740,19 @@ public class RouterService extends AbstractService implements IRouterService {
         }
     }
 
+    protected void updateCapturedWatermark() {
+        try {
+            Row row = sqlTemplate.queryForRow(getSql("selectCapturedWatermarkSql"));
+            if (row != null && row.get("data_id") != null) {
+                Date createTime = row.getDateTime("create_time");
+                engine.getStatisticManager().getReplicationLagTracker().dataCaptured(
+                        row.getLong("data_id"), createTime != null ? createTime.getTime() : 0);
+            }
+        } catch (SqlException ex) {
+            log.warn("Failed to read the captured data watermark: {}", ex.getMessage());
+        }
+    }
+
     protected void completeBatchesAndCommit(ChannelRouterContext context) {
         Set<IDataRouter> usedRouters = new HashSet<IDataRouter>(context.getUsedDataRouters());
         List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>(context.getBatchesByNodes()
@@ -762,12 +782,40 @@ public class RouterService extends AbstractService implements IRouterService {
         
         context.commit();
 
+        updateReplicationLag(context, batches);
+        notifyPullWaiters(batches);
+
         for (IDataRouter dataRouter : usedRouters) {
             dataRouter.contextCommitted(context);
         }
         context.setNeedsCommitted(false);
     }
 
+    protected void updateReplicationLag(ChannelRouterContext context, List<OutgoingBatch> batches) {
+        ReplicationLagTracker lagTracker = engine.getStatisticManager().getReplicationLagTracker();
+        Data lastDataProcessed = context.getLastDataProcessed();
+        if (lastDataProcessed != null && lastDataProcessed.getCreateTime() != null) {
+            lagTracker.dataRouted(context.getChannel().getChannelId(), lastDataProcessed.getDataId(),
+                    lastDataProcessed.getCreateTime().getTime());
+        }
+        for (OutgoingBatch batch : batches) {
+            if (!Constants.UNROUTED_NODE_ID.equals(batch.getNodeId())) {
+                lagTracker.batchRouted(batch.getNodeId(), batch.getChannelId(), batch.getBatchId(),
+                        batch.getCreateTime().getTime(), batch.getDataEventCount());
+            }
+        }
+    }
+
+    protected void notifyPullWaiters(List<OutgoingBatch> batches) {
+        Set<String> nodeIds = new HashSet<String>();
+        for (OutgoingBatch batch : batches) {
+            if (!Constants.UNROUTED_NODE_ID.equals(batch.getNodeId())) {
+                nodeIds.add(batch.getNodeId());
+            }
+        }
+        engine.getPullNotifier().notifyNodes(nodeIds);
+    }
+
     protected Set<Node> findAvailableNodes(TriggerRouter triggerRouter, ChannelRouterContext context) {
         Set<Node> nodes = context.getAvailableNodes().get(triggerRouter);
         if (nodes == null) {
@@ -866,6 +914,12 @@ public class RouterService extends AbstractService implements IRouterService {
                         statsDataEventCount += dataEventsInserted;
                         totalDataEventCount += dataEventsInserted;
                         long insertTs = System.currentTimeMillis();
+                        if (data.getCreateTime() != null) {
+                            engine.getStatisticManager().recordLatency(
+                                    context.getChannel().getChannelId(),
+                                    LatencyStage.CAPTURE_TO_ROUTE,
+                                    insertTs - data.getCreateTime().getTime());
+                        }
                         try {
                             if (maxNumberOfEventsBeforeFlush <= context.getDataEventList().size()
                                     || context.isNeedsCommitted()) {
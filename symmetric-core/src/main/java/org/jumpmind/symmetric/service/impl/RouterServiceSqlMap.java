@@ -65,6 +65,9 @@ public class RouterServiceSqlMap extends AbstractSqlMap {
         putSql("selectLastDataIdRoutedUsingDataGapSql", ""
                 + "select max(start_id) from $(data_gap)   ");
 
+        putSql("selectCapturedWatermarkSql", ""
+                + "select data_id, create_time from $(data) where data_id=(select max(data_id) from $(data))   ");
+
     }
 
 }
\ No newline at end of file
@@ -21,10 +21,15 @@
 package org.jumpmind.symmetric.service.impl;
 
 import java.sql.Types;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.Row;
@@ -37,12 +42,23 @@ import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Sequence;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.ISequenceService;
+import org.jumpmind.symmetric.statistic.SequenceStats;
 
+/**
+ * Sequences that have a block size greater than one reserve a block of values
+ * from sym_sequence with a single update and hand them out without locking.
+ * The update is atomic, so servers in a cluster always reserve disjoint
+ * blocks.
+ */
 public class SequenceService extends AbstractService implements ISequenceService {
 
-    private Map<String, Sequence> sequenceDefinitionCache = new HashMap<String, Sequence>();
+    private Map<String, Sequence> sequenceDefinitionCache = new ConcurrentHashMap<String, Sequence>();
     
-    private Map<String, CachedRange> sequenceCache = new HashMap<String, CachedRange>();
+    private ConcurrentMap<String, CachedBlock> sequenceCache = new ConcurrentHashMap<String, CachedBlock>();
+
+    private ConcurrentMap<String, Object> sequenceLocks = new ConcurrentHashMap<String, Object>();
+
+    private ConcurrentMap<String, SequenceStats> sequenceStats = new ConcurrentHashMap<String, SequenceStats>();
 
     public SequenceService(IParameterService parameterService, ISymmetricDialect symmetricDialect) {
         super(parameterService, symmetricDialect);
@@ -85,40 +101,151 @@ public class SequenceService extends AbstractService implements ISequenceService
         }
     }
 
-    public synchronized long nextVal(String name) {
-        if (!parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED) && getSequenceDefinition(name).getCacheSize() > 0) {
-            return nextValFromCache(null, name);
+    public long nextVal(String name) {
+        if (getBlockSize(getSequenceDefinition(name)) > 1) {
+            return nextValFromBlock(null, name);
+        }
+        synchronized (getSequenceLock(name)) {
+            return nextValFromDatabase(name);
+        }
+    }
+
+    public long nextVal(ISqlTransaction transaction, final String name) {
+        Sequence sequence = transaction == null ? getSequenceDefinition(name)
+                : getSequenceDefinition(transaction, name);
+        if (getBlockSize(sequence) > 1) {
+            return nextValFromBlock(transaction, name);
+        }
+        synchronized (getSequenceLock(name)) {
+            return nextValFromDatabase(transaction, name);
         }
-        return nextValFromDatabase(name);
     }
 
-    public synchronized long nextVal(ISqlTransaction transaction, final String name) {
-        if (transaction != null) {
+    /**
+     * The block size comes from the sequence.block.size.&lt;sequence name&gt;
+     * parameter and defaults to the cache size of the sequence.
+     */
+    protected int getBlockSize(Sequence sequence) {
+        return parameterService.getInt(ParameterConstants.SEQUENCE_BLOCK_SIZE + "."
+                + sequence.getSequenceName(), sequence.getCacheSize());
+    }
+
+    protected long nextValFromBlock(ISqlTransaction transaction, String name) {
+        while (true) {
+            CachedBlock block = sequenceCache.get(name);
+            if (block != null) {
+                long value = block.nextValue();
+                if (block.isInRange(value)) {
+                    return value;
+                }
+            }
+
+            synchronized (getSequenceLock(name)) {
+                if (sequenceCache.get(name) == block) {
+                    /*
+                     * Take the first value before the block is published, so
+                     * currVal never sees a block that has not handed out a
+                     * value
+                     */
+                    CachedBlock reserved = reserveBlock(transaction, name);
+                    long value = reserved.nextValue();
+                    sequenceCache.put(name, reserved);
+                    return value;
+                } else {
+                    getSequenceStats(name).incrementContention();
+                }
+            }
+        }
+    }
+
+    protected CachedBlock reserveBlock(ISqlTransaction transaction, final String name) {
+        long ts = System.currentTimeMillis();
+        final CachedBlock block;
+        if (transaction != null && isReserveBlockInCallerTransaction()) {
+            block = reserveBlockFromDatabase(transaction, name);
             transaction.addSqlTransactionListener(new SqlTransactionListenerAdapter() {
                 @Override
                 public void transactionRolledBack() {
-                    sequenceCache.remove(name);
+                    sequenceCache.remove(name, block);
                 }
             });
+        } else {
+            /*
+             * The block is committed on its own so a rollback of the caller
+             * leaves a gap instead of handing out values that other threads
+             * already received from this block
+             */
+            block = new DoTransaction<CachedBlock>() {
+                public CachedBlock execute(ISqlTransaction transaction) {
+                    return reserveBlockFromDatabase(transaction, name);
+                }
+            }.execute();
         }
-        if (!parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED) && getSequenceDefinition(transaction, name).getCacheSize() > 0) {
-            return nextValFromCache(transaction, name);
+
+        long millis = System.currentTimeMillis() - ts;
+        getSequenceStats(name).incrementRefill(block.getSize(), millis);
+        if (log.isDebugEnabled()) {
+            log.debug("Reserved {} values for sequence {} starting at {} in {}ms", new Object[] {
+                    block.getSize(), name, block.getFirstValue(), millis });
         }
-        return nextValFromDatabase(transaction, name);
+        return block;
     }
 
-    protected long nextValFromCache(ISqlTransaction transaction, String name) {
-        CachedRange range = sequenceCache.get(name);
-        if (range != null) {
-            long currentValue = range.getCurrentValue();
-            if (currentValue < range.getEndValue()) {
-                range.setCurrentValue(++currentValue);
-                return currentValue;
-            } else {
-                sequenceCache.remove(name);
+    /**
+     * SQLite locks the whole database for a write, so a block cannot be
+     * reserved on a second connection while the caller's transaction holds
+     * that lock.
+     */
+    protected boolean isReserveBlockInCallerTransaction() {
+        return DatabaseNamesConstants.SQLITE.equals(platform.getName());
+    }
+
+    protected CachedBlock reserveBlockFromDatabase(ISqlTransaction transaction, String name) {
+        Sequence sequence = getSequenceDefinition(transaction, name);
+        int blockSize = getBlockSize(sequence);
+        long blockIncrement = sequence.getIncrementBy() * (long) blockSize;
+        int updateCount = transaction.prepareAndExecute(getSql("reserveBlockSql"),
+                blockIncrement, name, blockIncrement);
+        if (updateCount == 1) {
+            long endValue = transaction.queryForLong(getSql("getCurrentValueSql"), name);
+            long firstValue = endValue - blockIncrement + sequence.getIncrementBy();
+            return new CachedBlock(firstValue, sequence.getIncrementBy(), blockSize);
+        } else {
+            /*
+             * The block would pass the min or max value of the sequence, so
+             * take one value at a time, which handles cycling
+             */
+            return new CachedBlock(nextValFromDatabase(transaction, name),
+                    sequence.getIncrementBy(), 1);
+        }
+    }
+
+    protected Object getSequenceLock(String name) {
+        Object lock = sequenceLocks.get(name);
+        if (lock == null) {
+            lock = new Object();
+            Object existing = sequenceLocks.putIfAbsent(name, lock);
+            if (existing != null) {
+                lock = existing;
+            }
+        }
+        return lock;
+    }
+
+    protected SequenceStats getSequenceStats(String name) {
+        SequenceStats stats = sequenceStats.get(name);
+        if (stats == null) {
+            stats = new SequenceStats(name);
+            SequenceStats existing = sequenceStats.putIfAbsent(name, stats);
+            if (existing != null) {
+                stats = existing;
             }
         }
-        return nextValFromDatabase(transaction, name);
+        return stats;
+    }
+
+    public Map<String, SequenceStats> getSequenceStats() {
+        return Collections.unmodifiableMap(sequenceStats);
     }
     
     protected long nextValFromDatabase(final String name) {
@@ -150,7 +277,7 @@ public class SequenceService extends AbstractService implements ISequenceService
     }
 
     protected long tryToGetNextVal(ISqlTransaction transaction, String name) {
-        long currVal = currVal(transaction, name);
+        long currVal = transaction.queryForLong(getSql("getCurrentValueSql"), name);
         Sequence sequence = getSequenceDefinition(transaction, name);
         long nextVal = currVal + sequence.getIncrementBy();
         if (nextVal > sequence.getMaxValue()) {
@@ -171,20 +298,10 @@ public class SequenceService extends AbstractService implements ISequenceService
             }
         }
 
-        CachedRange range = null;
-        if (!parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED) && sequence.getCacheSize() > 0) {
-            long endVal = nextVal + (sequence.getIncrementBy() * (sequence.getCacheSize() - 1));
-            range = new CachedRange(nextVal, endVal);
-            nextVal = endVal;
-        }
-
         int updateCount = transaction.prepareAndExecute(getSql("updateCurrentValueSql"), nextVal,
                 name, currVal);
         if (updateCount != 1) {
             nextVal = -1;
-        } else if (range != null) {
-            sequenceCache.put(name, range);
-            nextVal = range.getCurrentValue();
         }
         return nextVal;
     }
@@ -217,22 +334,18 @@ public class SequenceService extends AbstractService implements ISequenceService
         return sequence;
     }
 
-    public synchronized long currVal(ISqlTransaction transaction, String name) {
-        if (!parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)) {
-            CachedRange range = sequenceCache.get(name);
-            if (range != null) {
-                return range.getCurrentValue();
-            }
+    public long currVal(ISqlTransaction transaction, String name) {
+        CachedBlock block = sequenceCache.get(name);
+        if (block != null) {
+            return block.getCurrentValue();
         }
         return transaction.queryForLong(getSql("getCurrentValueSql"), name);
     }
 
-    public synchronized long currVal(final String name) {
-        if (!parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)) {
-            CachedRange range = sequenceCache.get(name);
-            if (range != null) {
-                return range.getCurrentValue();
-            }
+    public long currVal(final String name) {
+        CachedBlock block = sequenceCache.get(name);
+        if (block != null) {
+            return block.getCurrentValue();
         }
 
         return new DoTransaction<Long>() {
@@ -266,26 +379,54 @@ public class SequenceService extends AbstractService implements ISequenceService
         return map;
     }
 
-    class CachedRange {
-        long currentValue;
-        long endValue;
-        
-        public CachedRange(long currentValue, long endValue) {
-            this.currentValue = currentValue;
-            this.endValue = endValue;
+    /**
+     * A reserved block of sequence values. Values are handed out by
+     * incrementing a position, so no lock is needed until the block is used
+     * up.
+     */
+    class CachedBlock {
+        long firstValue;
+        long incrementBy;
+        int size;
+        AtomicInteger position = new AtomicInteger();
+
+        public CachedBlock(long firstValue, long incrementBy, int size) {
+            this.firstValue = firstValue;
+            this.incrementBy = incrementBy;
+            this.size = size;
         }
 
+        public long nextValue() {
+            int index = position.getAndIncrement();
+            if (index < size) {
+                return firstValue + index * incrementBy;
+            } else {
+                position.set(size);
+                return firstValue + size * incrementBy;
+            }
+        }
+
+        public boolean isInRange(long value) {
+            long index = (value - firstValue) / incrementBy;
+            return index >= 0 && index < size;
+        }
+
+        /**
+         * @return the last value handed out from this block. A block is only
+         *         published after its first value is taken.
+         */
         public long getCurrentValue() {
-            return currentValue;
+            int index = Math.min(position.get(), size);
+            return firstValue + (index - 1) * incrementBy;
         }
-        
-        public void setCurrentValue(long currentValue) {
-            this.currentValue = currentValue;
+
+        public long getFirstValue() {
+            return firstValue;
+        }
+
+        public int getSize() {
+            return size;
         }
-        
-        public long getEndValue() {
-            return endValue;
-        }        
     }
     
     abstract class DoTransaction<T> {
@@ -44,6 +44,10 @@ public class SequenceServiceSqlMap extends AbstractSqlMap {
         putSql("updateCurrentValueSql",
                 "update $(sequence) set current_value=?, last_update_time=current_timestamp " +
                 "  where sequence_name=? and current_value=?                                ");          
+
+        putSql("reserveBlockSql",
+                "update $(sequence) set current_value=current_value+?, last_update_time=current_timestamp " +
+                "  where sequence_name=? and current_value+? between min_value and max_value              ");
         
         putSql("insertSequenceSql",
                 "insert into $(sequence)                                               " +
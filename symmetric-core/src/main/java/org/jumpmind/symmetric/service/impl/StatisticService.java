@@ -32,11 +32,14 @@ import org.jumpmind.db.sql.Row;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IStatisticService;
+import org.jumpmind.symmetric.statistic.ChannelLatencyStats;
 import org.jumpmind.symmetric.statistic.ChannelStats;
 import org.jumpmind.symmetric.statistic.ChannelStatsByPeriodMap;
 import org.jumpmind.symmetric.statistic.HostStats;
 import org.jumpmind.symmetric.statistic.HostStatsByPeriodMap;
 import org.jumpmind.symmetric.statistic.JobStats;
+import org.jumpmind.symmetric.statistic.LatencyHistogram;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 
 /**
  * @see IStatisticService
@@ -74,6 +77,25 @@ public class StatisticService extends AbstractService implements IStatisticServi
                         Types.TIMESTAMP, Types.BIGINT }); 
     }
     
+    public void save(ChannelLatencyStats stats) {
+        sqlTemplate.update(
+                getSql("insertChannelLatencySql"),
+                new Object[] { stats.getNodeId(), stats.getHostName(), stats.getChannelId(),
+                        stats.getStage().name(), stats.getStartTime(), stats.getEndTime(),
+                        stats.getCount(), stats.getMeanMillis(), stats.getP50Millis(),
+                        stats.getP99Millis(), stats.getMaxMillis(),
+                        stats.getHistogram().encode() }, new int[] { Types.VARCHAR,
+                        Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
+                        Types.TIMESTAMP, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                        Types.BIGINT, Types.LONGVARCHAR });
+    }
+
+    public List<ChannelLatencyStats> getChannelLatencyStatsForPeriod(Date start, Date end,
+            String nodeId) {
+        return sqlTemplateDirty.query(getSql("selectChannelLatencySql"),
+                new ChannelLatencyStatsMapper(), start, end, nodeId);
+    }
+
     public List<JobStats> getJobStatsForPeriod(Date start, Date end,
             String nodeId) {
         return sqlTemplate.query(getSql("selectChannelStatsSql"),
@@ -159,6 +181,20 @@ public class StatisticService extends AbstractService implements IStatisticServi
         }
     }
 
+    class ChannelLatencyStatsMapper implements ISqlRowMapper<ChannelLatencyStats> {
+        public ChannelLatencyStats mapRow(Row rs) {
+            ChannelLatencyStats stats = new ChannelLatencyStats();
+            stats.setNodeId(rs.getString("node_id"));
+            stats.setHostName(rs.getString("host_name"));
+            stats.setChannelId(rs.getString("channel_id"));
+            stats.setStage(LatencyStage.valueOf(rs.getString("stage")));
+            stats.setStartTime(truncateToMinutes(rs.getDateTime("start_time")));
+            stats.setEndTime(truncateToMinutes(rs.getDateTime("end_time")));
+            stats.setHistogram(LatencyHistogram.decode(rs.getString("histogram")));
+            return stats;
+        }
+    }
+
     class HostStatsMapper implements ISqlRowMapper<HostStats> {
         public HostStats mapRow(Row rs) {
             HostStats stats = new HostStats();
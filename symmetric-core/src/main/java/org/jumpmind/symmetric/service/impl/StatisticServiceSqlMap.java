@@ -45,6 +45,18 @@ public class StatisticServiceSqlMap extends AbstractSqlMap {
 "  data_sent, data_bytes_sent, data_sent_errors,                                    " + 
 "  data_loaded, data_bytes_loaded, data_loaded_errors                               " + 
 "  from $(node_host_channel_stats)                                            " + 
+"  where  start_time >= ? and end_time <= ? and node_id=? order by start_time asc   " );
+
+        putSql("insertChannelLatencySql" ,"" + 
+"insert into $(node_host_channel_latency)                         " + 
+"  (node_id, host_name, channel_id, stage, start_time, end_time,   " + 
+"  sample_count, mean_millis, p50_millis, p99_millis, max_millis,  " + 
+"  histogram)                                                      " + 
+"  values(?,?,?,?,?,?,?,?,?,?,?,?)                                 " );
+
+        putSql("selectChannelLatencySql" ,"" + 
+"select node_id, host_name, channel_id, stage, start_time, end_time, histogram      " + 
+"  from $(node_host_channel_latency)                                                " + 
 "  where  start_time >= ? and end_time <= ? and node_id=? order by start_time asc   " );
 
         putSql("insertHostStatsSql" ,"" + 
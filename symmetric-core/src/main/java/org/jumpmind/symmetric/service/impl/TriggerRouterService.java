@@ -72,6 +72,7 @@ import org.jumpmind.symmetric.route.FileSyncDataRouter;
 import org.jumpmind.symmetric.service.ClusterConstants;
 import org.jumpmind.symmetric.service.IClusterService;
 import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IConfigurationVersionService;
 import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.IGroupletService;
 import org.jumpmind.symmetric.service.INodeService;
@@ -129,6 +130,10 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     private Date lastUpdateTime;
 
     private Object cacheLock = new Object();    
+
+    private IConfigurationVersionService configurationVersionService;
+
+    private volatile long configurationVersion = -1;
     
     /**
      * Cache the history for performance. History never changes and does not
@@ -146,6 +151,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         this.sequenceService = engine.getSequenceService();
         this.extensionService = engine.getExtensionService();
         this.parameterService = engine.getParameterService();
+        this.configurationVersionService = engine.getConfigurationVersionService();
         engine.getExtensionService().addExtensionPoint(failureListener);
         setSqlMap(new TriggerRouterServiceSqlMap(symmetricDialect.getPlatform(),
                 createSqlReplacementTokens()));
@@ -203,6 +209,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
     public void deleteTrigger(Trigger trigger) {
         sqlTemplate.update(getSql("deleteTriggerSql"), (Object) trigger.getTriggerId());
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER);
     }
 
     public void dropTriggers() {
@@ -704,6 +711,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
 
     protected TriggerRoutersCache getTriggerRoutersCacheForCurrentNode(boolean refreshCache) {
+        clearCacheIfConfigurationChanged();
         String myNodeGroupId = parameterService.getNodeGroupId();
         long triggerRouterCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
@@ -777,6 +785,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     }
 
     public Trigger getTriggerById(String triggerId, boolean refreshCache) {        
+        clearCacheIfConfigurationChanged();
         Trigger trigger = null;
         final long triggerCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
@@ -806,6 +815,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     }
 
     public Router getRouterById(String routerId, boolean refreshCache) {
+        clearCacheIfConfigurationChanged();
         final long routerCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         Map<String, Router> cache = this.routersCache;
@@ -848,6 +858,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     }
 
     public List<TriggerRouter> getTriggerRouters(boolean refreshCache) {
+        clearCacheIfConfigurationChanged();
         long triggerRouterCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         List<TriggerRouter> testValue = triggerRoutersCache;
@@ -920,6 +931,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
 
     public Map<String, List<TriggerRouter>> getTriggerRoutersByChannel(String nodeGroupId,
             boolean refreshCache) {
+        clearCacheIfConfigurationChanged();
         long triggerRouterCacheTimeoutInMs = parameterService
                 .getLong(ParameterConstants.CACHE_TIMEOUT_TRIGGER_ROUTER_IN_MS);
         Map<String, List<TriggerRouter>> testValue = triggerRouterCacheByChannel;
@@ -976,17 +988,20 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     @Override
     public void deleteTriggerRouter(String triggerId, String routerId) {
         sqlTemplate.update(getSql("deleteTriggerRouterSql"), triggerId, routerId);
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER_ROUTER);
         clearCache();
     }
 
     public void deleteTriggerRouter(TriggerRouter triggerRouter) {
         sqlTemplate.update(getSql("deleteTriggerRouterSql"), (Object) triggerRouter.getTrigger()
                 .getTriggerId(), triggerRouter.getRouter().getRouterId());
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER_ROUTER);
         clearCache();
     }
 
     public void deleteAllTriggerRouters() {
         sqlTemplate.update(getSql("deleteAllTriggerRoutersSql"));
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER_ROUTER);
         clearCache();
     }
 
@@ -1031,6 +1046,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             Types.VARCHAR, Types.TIMESTAMP, Types.SMALLINT, Types.VARCHAR, Types.VARCHAR });
         }
         
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER_ROUTER);
         clearCache();
     }
 
@@ -1074,6 +1090,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             Types.SMALLINT, Types.SMALLINT, Types.SMALLINT, Types.TIMESTAMP, Types.VARCHAR,
                             Types.TIMESTAMP, Types.VARCHAR });
         }
+        configurationVersionService.changed(TableConstants.SYM_ROUTER);
         clearCache();
     }
 
@@ -1084,11 +1101,13 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     public void deleteRouter(Router router) {
         if (router != null) {
             sqlTemplate.update(getSql("deleteRouterSql"), (Object) router.getRouterId());
+            configurationVersionService.changed(TableConstants.SYM_ROUTER);
         }
     }
 
     public void deleteAllRouters() {
         sqlTemplate.update(getSql("deleteAllRoutersSql"));
+        configurationVersionService.changed(TableConstants.SYM_ROUTER);
     }
 
     public void saveTrigger(Trigger trigger) {
@@ -1147,6 +1166,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             Types.VARCHAR, Types.VARCHAR, Types.VARCHAR });
         }
         
+        configurationVersionService.changed(TableConstants.SYM_TRIGGER);
         clearCache();
     }
 
@@ -1244,6 +1264,24 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         }
     }
 
+    /**
+     * Clear the cache when triggers or routers changed since it was loaded,
+     * whether the change was made locally, loaded from another node or made by
+     * another server in the cluster.
+     */
+    protected void clearCacheIfConfigurationChanged() {
+        long version = configurationVersionService.getVersion(TableConstants.SYM_TRIGGER,
+                TableConstants.SYM_ROUTER, TableConstants.SYM_TRIGGER_ROUTER);
+        if (version != configurationVersion) {
+            synchronized (cacheLock) {
+                if (version != configurationVersion) {
+                    clearCache();
+                    configurationVersion = version;
+                }
+            }
+        }
+    }
+
     protected Set<String> getTriggerIdsFrom(List<Trigger> triggersThatShouldBeActive) {
         Set<String> triggerIds = new HashSet<String>(triggersThatShouldBeActive.size());
         for (Trigger trigger : triggersThatShouldBeActive) {
@@ -0,0 +1,99 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.Date;
+
+public class ChannelLatencyStats extends AbstractNodeHostStats {
+
+    private String channelId;
+    private LatencyStage stage;
+    private LatencyHistogram histogram;
+
+    public ChannelLatencyStats() {
+        this.histogram = new LatencyHistogram();
+    }
+
+    public ChannelLatencyStats(String nodeId, String hostName, Date startTime, Date endTime,
+            String channelId, LatencyStage stage, LatencyHistogram histogram) {
+        super(nodeId, hostName, startTime, endTime);
+        this.channelId = channelId;
+        this.stage = stage;
+        this.histogram = histogram;
+    }
+
+    public void add(ChannelLatencyStats stats) {
+        histogram.add(stats.getHistogram());
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public LatencyStage getStage() {
+        return stage;
+    }
+
+    public void setStage(LatencyStage stage) {
+        this.stage = stage;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(LatencyHistogram histogram) {
+        this.histogram = histogram;
+    }
+
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    public long getMeanMillis() {
+        return histogram.getMean();
+    }
+
+    public long getMaxMillis() {
+        return histogram.getMax();
+    }
+
+    public long getP50Millis() {
+        return histogram.getValueAtPercentile(50);
+    }
+
+    public long getP90Millis() {
+        return histogram.getValueAtPercentile(90);
+    }
+
+    public long getP99Millis() {
+        return histogram.getValueAtPercentile(99);
+    }
+
+    public long getP999Millis() {
+        return histogram.getValueAtPercentile(99.9);
+    }
+
+}
@@ -104,6 +104,15 @@ public interface IStatisticManager {
     public void incrementPurgedDataRows(long count);
 
     public void incrementPurgedDataEventRows(long count);
+
+    public void addPurgeStats(String tableName, long rowsPurged, long deleteMillis);
+
+    public void addPurgePartitionStats(String tableName, long partitionsPurged, long millis);
+
+    /**
+     * @return the purge statistics by table since the statistics were last flushed
+     */
+    public Map<String, PurgeStats> getPurgeStats();
  
     public void incrementTriggersRemovedCount(long count);
     
@@ -114,5 +123,24 @@ public interface IStatisticManager {
     public Map<String, ChannelStats> getWorkingChannelStats();
     
     public HostStats getWorkingHostStats();
+
+    /**
+     * Record how long a change or batch on a channel spent in a stage of
+     * replication. This is called from the routing, extract and acknowledge
+     * hot paths, so implementations must not block.
+     */
+    public void recordLatency(String channelId, LatencyStage stage, long millis);
+
+    /**
+     * @return the latency histograms recorded since the last flush, keyed by
+     *         channel id and then by stage
+     */
+    public Map<String, Map<LatencyStage, ChannelLatencyStats>> getWorkingChannelLatencyStats();
+
+    /**
+     * @return the in memory watermarks used to report how far behind routing
+     *         and each node are
+     */
+    public ReplicationLagTracker getReplicationLagTracker();
         
 }
\ No newline at end of file
@@ -0,0 +1,216 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram in milliseconds with log-linear buckets in the style of
+ * HdrHistogram. Values below 32 get a bucket each. Larger values share a bucket
+ * with the values that have the same five most significant bits, so a reported
+ * percentile is off by at most 1/16 of its value for anything up to the maximum
+ * of about 34 years.
+ * <p>
+ * Recording is lock free. {@link #drain()} swaps each bucket for zero so a
+ * value recorded during a drain is counted either by that drain or the next
+ * one.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private static final int MAX_VALUE_BITS = 40;
+
+    public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    static final int BUCKET_COUNT = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long millis) {
+        long value = millis < 0 ? 0 : millis > MAX_VALUE ? MAX_VALUE : millis;
+        counts.incrementAndGet(indexOf(value));
+        sum.addAndGet(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public void add(LatencyHistogram histogram) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = histogram.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        sum.addAndGet(histogram.sum.get());
+        long value = histogram.max.get();
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return a copy of this histogram
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * @return the values recorded since the last drain, leaving this histogram
+     *         empty
+     */
+    public LatencyHistogram drain() {
+        LatencyHistogram drained = new LatencyHistogram();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.getAndSet(i, 0);
+            if (count != 0) {
+                drained.counts.set(i, count);
+            }
+        }
+        drained.sum.set(sum.getAndSet(0));
+        drained.max.set(max.getAndSet(0));
+        return drained;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        long count = getCount();
+        return count > 0 ? sum.get() / count : 0;
+    }
+
+    /**
+     * @param percentile
+     *            a percentile between 0 and 100, for example 99.9
+     * @return the highest value that falls in the same bucket as the value at
+     *         the percentile, but no more than the max that was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Encode the histogram as text that is small enough to store with each
+     * statistics period. The format is sum;max;gap:count,gap:count... where
+     * each gap is the number of buckets skipped since the previous non empty
+     * bucket.
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        encoded.append(sum.get()).append(';').append(max.get()).append(';');
+        int last = -1;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+            if (count != 0) {
+                if (last >= 0) {
+                    encoded.append(',');
+                }
+                encoded.append(Integer.toString(i - last - 1, Character.MAX_RADIX)).append(':')
+                        .append(Long.toString(count, Character.MAX_RADIX));
+                last = i;
+            }
+        }
+        return encoded.toString();
+    }
+
+    public static LatencyHistogram decode(String encoded) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (encoded != null && encoded.length() > 0) {
+            String[] parts = encoded.split(";", 3);
+            histogram.sum.set(Long.parseLong(parts[0]));
+            histogram.max.set(Long.parseLong(parts[1]));
+            if (parts.length > 2 && parts[2].length() > 0) {
+                int index = -1;
+                for (String bucket : parts[2].split(",")) {
+                    int separator = bucket.indexOf(':');
+                    index += Integer.parseInt(bucket.substring(0, separator), Character.MAX_RADIX) + 1;
+                    histogram.counts.set(index,
+                            Long.parseLong(bucket.substring(separator + 1), Character.MAX_RADIX));
+                }
+            }
+        }
+        return histogram;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT
+                + (int) (value >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    static long lowestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        return lowestValueOf(index) + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+/**
+ * The stages of replication that latency is recorded for. Each stage is
+ * measured for the channel the data or batch belongs to.
+ */
+public enum LatencyStage {
+
+    /** From the time a change was captured until it was routed */
+    CAPTURE_TO_ROUTE,
+
+    /** From the time a batch was created by the router until it was extracted */
+    ROUTE_TO_EXTRACT,
+
+    /** From the time a batch was extracted until it was first sent */
+    EXTRACT_TO_SEND,
+
+    /** The network time reported by the target node when it acknowledged a batch */
+    NETWORK,
+
+    /** The filter and database time reported by the target node when it acknowledged a batch */
+    LOAD
+
+}
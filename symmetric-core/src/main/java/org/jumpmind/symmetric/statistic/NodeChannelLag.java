@@ -0,0 +1,171 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Watermarks for the outgoing batches of one channel to one node. Besides the
+ * routed, extracted, sent and acknowledged marks it remembers the batches that
+ * were routed but not yet acknowledged, so the lag can be given in time and in
+ * rows without counting outgoing batches in the database.
+ * <p>
+ * Only batches routed since this engine started are known. A batch left over
+ * from before a restart is not counted until it is acknowledged, which is
+ * usually soon after startup.
+ */
+public class NodeChannelLag {
+
+    /*
+     * Past this many outstanding batches the newer ones are folded into the
+     * oldest, which keeps the time lag exact and the row count whole while
+     * bounding the memory used for an offline node.
+     */
+    static final int MAX_PENDING_BATCHES = 1000;
+
+    private final String nodeId;
+
+    private final String channelId;
+
+    private Watermark routed = Watermark.NONE;
+
+    private Watermark extracted = Watermark.NONE;
+
+    private Watermark sent = Watermark.NONE;
+
+    private Watermark acknowledged = Watermark.NONE;
+
+    /* batch id to {create time, row count, rows folded in from newer batches} */
+    private TreeMap<Long, long[]> pendingBatches = new TreeMap<Long, long[]>();
+
+    public NodeChannelLag(String nodeId, String channelId) {
+        this.nodeId = nodeId;
+        this.channelId = channelId;
+    }
+
+    public synchronized void batchRouted(long batchId, long createTime, long rowCount) {
+        long now = System.currentTimeMillis();
+        routed = routed.advance(batchId, createTime, now);
+        if (batchId > acknowledged.getId() && !pendingBatches.containsKey(batchId)) {
+            if (pendingBatches.size() >= MAX_PENDING_BATCHES) {
+                Map.Entry<Long, long[]> oldest = pendingBatches.firstEntry();
+                Long second = pendingBatches.higherKey(oldest.getKey());
+                long[] folded = pendingBatches.remove(second);
+                oldest.getValue()[2] += folded[1] + folded[2];
+            }
+            pendingBatches.put(batchId, new long[] { createTime, rowCount, 0 });
+        }
+    }
+
+    public synchronized void batchExtracted(long batchId, long createTime) {
+        extracted = extracted.advance(batchId, createTime, System.currentTimeMillis());
+    }
+
+    public synchronized void batchSent(long batchId, long createTime) {
+        sent = sent.advance(batchId, createTime, System.currentTimeMillis());
+    }
+
+    /**
+     * Batches on a channel are loaded in order, so an acknowledgement also
+     * settles every older batch that is still pending, such as one that was
+     * ignored.
+     */
+    public synchronized void batchAcknowledged(long batchId, long createTime) {
+        acknowledged = acknowledged.advance(batchId, createTime, System.currentTimeMillis());
+        pendingBatches.headMap(batchId, true).clear();
+    }
+
+    /**
+     * Forget one batch that was settled without an acknowledgement, for
+     * example when it was marked OK or ignored by an administrator. Rows
+     * folded into it from newer batches stay pending on the next batch.
+     */
+    public synchronized void batchSettled(long batchId) {
+        long[] settled = pendingBatches.remove(batchId);
+        if (settled != null && settled[2] > 0) {
+            Map.Entry<Long, long[]> next = pendingBatches.higherEntry(batchId);
+            if (next != null) {
+                next.getValue()[2] += settled[2];
+            }
+        }
+    }
+
+    /**
+     * Forget every pending batch, for example after all batches for the
+     * channel were marked OK.
+     */
+    public synchronized void allSettled() {
+        pendingBatches.clear();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public synchronized Watermark getRouted() {
+        return routed;
+    }
+
+    public synchronized Watermark getExtracted() {
+        return extracted;
+    }
+
+    public synchronized Watermark getSent() {
+        return sent;
+    }
+
+    public synchronized Watermark getAcknowledged() {
+        return acknowledged;
+    }
+
+    public synchronized int getUnacknowledgedBatchCount() {
+        return pendingBatches.size();
+    }
+
+    public synchronized long getUnacknowledgedRowCount() {
+        long rows = 0;
+        Iterator<long[]> i = pendingBatches.values().iterator();
+        while (i.hasNext()) {
+            long[] batch = i.next();
+            rows += batch[1] + batch[2];
+        }
+        return rows;
+    }
+
+    /**
+     * @return how long the oldest unacknowledged batch has been waiting since
+     *         it was created, or zero when the node has caught up
+     */
+    public synchronized long getLagMillis(long now) {
+        if (pendingBatches.isEmpty()) {
+            return 0;
+        } else {
+            return Math.max(0, now - pendingBatches.firstEntry().getValue()[0]);
+        }
+    }
+
+}
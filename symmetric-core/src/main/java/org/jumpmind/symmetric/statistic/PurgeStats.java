@@ -0,0 +1,93 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+/**
+ * Counts the rows removed from one table by the purge and how long the
+ * deletes took.
+ */
+public class PurgeStats {
+
+    private String tableName;
+    private long rowsPurged;
+    private long deleteCount;
+    private long totalDeleteMillis;
+    private long maxDeleteMillis;
+    private long partitionsPurged;
+
+    public PurgeStats(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public synchronized void incrementDelete(long rows, long millis) {
+        deleteCount++;
+        rowsPurged += rows;
+        totalDeleteMillis += millis;
+        if (millis > maxDeleteMillis) {
+            maxDeleteMillis = millis;
+        }
+    }
+
+    public synchronized void incrementPartitions(long partitions, long millis) {
+        partitionsPurged += partitions;
+        totalDeleteMillis += millis;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public synchronized long getRowsPurged() {
+        return rowsPurged;
+    }
+
+    public synchronized long getDeleteCount() {
+        return deleteCount;
+    }
+
+    public synchronized long getTotalDeleteMillis() {
+        return totalDeleteMillis;
+    }
+
+    public synchronized long getMaxDeleteMillis() {
+        return maxDeleteMillis;
+    }
+
+    public synchronized long getPartitionsPurged() {
+        return partitionsPurged;
+    }
+
+    public synchronized long getAverageDeleteMillis() {
+        return deleteCount > 0 ? totalDeleteMillis / deleteCount : 0;
+    }
+
+    public synchronized long getRowsPerSecond() {
+        return totalDeleteMillis > 0 ? rowsPurged * 1000 / totalDeleteMillis : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s rows=%d deletes=%d partitions=%d avg=%dms max=%dms rows/sec=%d",
+                tableName, rowsPurged, deleteCount, partitionsPurged, getAverageDeleteMillis(),
+                maxDeleteMillis, getRowsPerSecond());
+    }
+
+}
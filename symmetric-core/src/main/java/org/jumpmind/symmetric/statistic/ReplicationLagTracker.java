@@ -0,0 +1,244 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps in memory watermarks for each step of replication so that lag can be
+ * watched without the count queries used by the unrouted and unsent monitors.
+ * <ul>
+ * <li>captured: the highest data id in sym_data and its create time</li>
+ * <li>routed: the highest data id routed for each channel</li>
+ * <li>routed, extracted, sent and acknowledged: the highest batch id for each
+ * node and channel</li>
+ * </ul>
+ * The router, extractor and acknowledge services advance the watermarks as
+ * they work. Watermarks only move forward, so late or repeated events are
+ * harmless.
+ */
+public class ReplicationLagTracker {
+
+    private volatile Watermark captured = Watermark.NONE;
+
+    private final ConcurrentMap<String, Watermark> routedByChannel = new ConcurrentHashMap<String, Watermark>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, NodeChannelLag>> lagsByNode = new ConcurrentHashMap<String, ConcurrentMap<String, NodeChannelLag>>();
+
+    public synchronized void dataCaptured(long dataId, long createTime) {
+        captured = captured.advance(dataId, createTime, System.currentTimeMillis());
+    }
+
+    public void dataRouted(String channelId, long dataId, long createTime) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            Watermark current = routedByChannel.get(channelId);
+            if (current == null) {
+                if (routedByChannel.putIfAbsent(channelId, Watermark.NONE.advance(dataId,
+                        createTime, now)) == null) {
+                    break;
+                }
+            } else {
+                Watermark next = current.advance(dataId, createTime, now);
+                if (next == current || routedByChannel.replace(channelId, current, next)) {
+                    break;
+                }
+            }
+        }
+        if (dataId > captured.getId()) {
+            dataCaptured(dataId, createTime);
+        }
+    }
+
+    public void batchRouted(String nodeId, String channelId, long batchId, long createTime,
+            long rowCount) {
+        getOrCreate(nodeId, channelId).batchRouted(batchId, createTime, rowCount);
+    }
+
+    public void batchExtracted(String nodeId, String channelId, long batchId, long createTime) {
+        getOrCreate(nodeId, channelId).batchExtracted(batchId, createTime);
+    }
+
+    public void batchSent(String nodeId, String channelId, long batchId, long createTime) {
+        getOrCreate(nodeId, channelId).batchSent(batchId, createTime);
+    }
+
+    public void batchAcknowledged(String nodeId, String channelId, long batchId, long createTime) {
+        getOrCreate(nodeId, channelId).batchAcknowledged(batchId, createTime);
+    }
+
+    /**
+     * A batch was marked OK or ignored outside of the acknowledgement path, so
+     * it no longer counts toward the lag of the node.
+     */
+    public void batchSettled(String nodeId, String channelId, long batchId) {
+        NodeChannelLag lag = getNodeChannelLag(nodeId, channelId);
+        if (lag != null) {
+            lag.batchSettled(batchId);
+        }
+    }
+
+    /**
+     * Every outstanding batch on a channel was marked OK, for all nodes.
+     */
+    public void channelSettled(String channelId) {
+        for (Map<String, NodeChannelLag> lags : lagsByNode.values()) {
+            NodeChannelLag lag = lags.get(channelId);
+            if (lag != null) {
+                lag.allSettled();
+            }
+        }
+    }
+
+    /**
+     * Forget a node, for example after it has been unregistered.
+     */
+    public void removeNode(String nodeId) {
+        lagsByNode.remove(nodeId);
+    }
+
+    public Watermark getCaptured() {
+        return captured;
+    }
+
+    public Watermark getRouted(String channelId) {
+        Watermark routed = routedByChannel.get(channelId);
+        return routed != null ? routed : Watermark.NONE;
+    }
+
+    public Map<String, Watermark> getRoutedByChannel() {
+        return Collections.unmodifiableMap(routedByChannel);
+    }
+
+    /**
+     * @return the number of data ids that have been captured past the highest
+     *         routed data id. Gaps in the data ids make this an upper bound.
+     */
+    public long getUnroutedDataCount() {
+        Watermark routed = getHighestRouted();
+        return Math.max(0, captured.getId() - Math.max(routed.getId(), 0));
+    }
+
+    /**
+     * @return the create time of the newest captured data minus the create
+     *         time of the newest routed data, or zero when routing has caught
+     *         up
+     */
+    public long getRoutingLagMillis() {
+        Watermark routed = getHighestRouted();
+        if (routed.isSet() && captured.getId() > routed.getId()) {
+            return Math.max(0, captured.getCreateTime() - routed.getCreateTime());
+        } else {
+            return 0;
+        }
+    }
+
+    protected Watermark getHighestRouted() {
+        Watermark highest = Watermark.NONE;
+        for (Watermark routed : routedByChannel.values()) {
+            if (routed.getId() > highest.getId()) {
+                highest = routed;
+            }
+        }
+        return highest;
+    }
+
+    public NodeChannelLag getNodeChannelLag(String nodeId, String channelId) {
+        Map<String, NodeChannelLag> lags = lagsByNode.get(nodeId);
+        return lags != null ? lags.get(channelId) : null;
+    }
+
+    public List<NodeChannelLag> getNodeChannelLags() {
+        List<NodeChannelLag> list = new ArrayList<NodeChannelLag>();
+        for (Map<String, NodeChannelLag> lags : lagsByNode.values()) {
+            list.addAll(lags.values());
+        }
+        return list;
+    }
+
+    public List<NodeChannelLag> getNodeChannelLags(String nodeId) {
+        Map<String, NodeChannelLag> lags = lagsByNode.get(nodeId);
+        if (lags != null) {
+            return new ArrayList<NodeChannelLag>(lags.values());
+        } else {
+            return new ArrayList<NodeChannelLag>(0);
+        }
+    }
+
+    /**
+     * @return the age of the oldest batch not yet acknowledged by the node on
+     *         any channel
+     */
+    public long getLagMillis(String nodeId) {
+        long now = System.currentTimeMillis();
+        long max = 0;
+        for (NodeChannelLag lag : getNodeChannelLags(nodeId)) {
+            max = Math.max(max, lag.getLagMillis(now));
+        }
+        return max;
+    }
+
+    /**
+     * @return the age of the oldest batch not yet acknowledged by any node
+     */
+    public long getMaxLagMillis() {
+        long now = System.currentTimeMillis();
+        long max = 0;
+        for (NodeChannelLag lag : getNodeChannelLags()) {
+            max = Math.max(max, lag.getLagMillis(now));
+        }
+        return max;
+    }
+
+    public long getUnacknowledgedRowCount(String nodeId) {
+        long rows = 0;
+        for (NodeChannelLag lag : getNodeChannelLags(nodeId)) {
+            rows += lag.getUnacknowledgedRowCount();
+        }
+        return rows;
+    }
+
+    protected NodeChannelLag getOrCreate(String nodeId, String channelId) {
+        ConcurrentMap<String, NodeChannelLag> lags = lagsByNode.get(nodeId);
+        if (lags == null) {
+            lags = new ConcurrentHashMap<String, NodeChannelLag>();
+            ConcurrentMap<String, NodeChannelLag> existing = lagsByNode.putIfAbsent(nodeId, lags);
+            if (existing != null) {
+                lags = existing;
+            }
+        }
+        NodeChannelLag lag = lags.get(channelId);
+        if (lag == null) {
+            lag = new NodeChannelLag(nodeId, channelId);
+            NodeChannelLag existing = lags.putIfAbsent(channelId, lag);
+            if (existing != null) {
+                lag = existing;
+            }
+        }
+        return lag;
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+/**
+ * Counts the blocks of values that have been reserved from sym_sequence for
+ * one sequence and how long it took to reserve them. Contention counts the
+ * threads that waited on a refill that another thread then did for them.
+ */
+public class SequenceStats {
+
+    private String sequenceName;
+    private long refillCount;
+    private long valuesReserved;
+    private long totalRefillMillis;
+    private long maxRefillMillis;
+    private long lastRefillMillis;
+    private long contentionCount;
+
+    public SequenceStats(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    public synchronized void incrementRefill(long values, long millis) {
+        refillCount++;
+        valuesReserved += values;
+        totalRefillMillis += millis;
+        lastRefillMillis = millis;
+        if (millis > maxRefillMillis) {
+            maxRefillMillis = millis;
+        }
+    }
+
+    public synchronized void incrementContention() {
+        contentionCount++;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public synchronized long getRefillCount() {
+        return refillCount;
+    }
+
+    public synchronized long getValuesReserved() {
+        return valuesReserved;
+    }
+
+    public synchronized long getTotalRefillMillis() {
+        return totalRefillMillis;
+    }
+
+    public synchronized long getMaxRefillMillis() {
+        return maxRefillMillis;
+    }
+
+    public synchronized long getLastRefillMillis() {
+        return lastRefillMillis;
+    }
+
+    public synchronized long getContentionCount() {
+        return contentionCount;
+    }
+
+    public synchronized long getAverageRefillMillis() {
+        return refillCount > 0 ? totalRefillMillis / refillCount : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s refills=%d values=%d avg=%dms max=%dms contention=%d", sequenceName,
+                refillCount, valuesReserved, getAverageRefillMillis(), maxRefillMillis, contentionCount);
+    }
+
+}
@@ -31,7 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -59,16 +59,39 @@ public class StatisticManager implements IStatisticManager {
 
     private static final String UNKNOWN = "Unknown";
 
-    private static final int NUMBER_OF_PERMITS = 1000;
+    enum ChannelCounter {
+        DATA_ROUTED, DATA_UNROUTED, DATA_EXTRACTED, DATA_BYTES_EXTRACTED, DATA_EXTRACTED_ERRORS,
+        DATA_EVENT_INSERTED, DATA_SENT, DATA_BYTES_SENT, DATA_SENT_ERRORS, DATA_LOADED,
+        DATA_BYTES_LOADED, DATA_LOADED_ERRORS
+    };
 
-    private Map<String, ChannelStats> channelStats = new ConcurrentHashMap<String, ChannelStats>();
+    enum HostCounter {
+        RESTARTED, NODES_PULLED, TOTAL_NODES_PULL_TIME, NODES_PUSHED, TOTAL_NODES_PUSH_TIME,
+        NODES_REJECTED, NODES_REGISTERED, NODES_LOADED, NODES_DISABLED, PURGED_DATA_ROWS,
+        PURGED_DATA_EVENT_ROWS, PURGED_BATCH_OUTGOING_ROWS, PURGED_BATCH_INCOMING_ROWS,
+        TRIGGERS_CREATED_COUNT, TRIGGERS_REBUILT_COUNT, TRIGGERS_REMOVED_COUNT
+    };
 
-    private List<JobStats> jobStats = new ArrayList<JobStats>();
+    private ConcurrentHashMap<String, StripedCounters> channelCounters = new ConcurrentHashMap<String, StripedCounters>();
 
-    private HostStats hostStats;
+    private StripedCounters hostCounters = new StripedCounters(HostCounter.values().length);
+
+    private ConcurrentHashMap<String, LatencyHistogram[]> channelLatencies = new ConcurrentHashMap<String, LatencyHistogram[]>();
+
+    private ReplicationLagTracker replicationLagTracker = new ReplicationLagTracker();
+
+    /*
+     * The start of the period being counted. flush() swaps in a new period
+     * and then drains the counters, so increments never wait on a flush.
+     */
+    private volatile Date periodStartTime = new Date();
+
+    private ConcurrentLinkedQueue<JobStats> jobStats = new ConcurrentLinkedQueue<JobStats>();
 
     private ConcurrentHashMap<Long, RouterStats> routerStatsByBatch = new ConcurrentHashMap<Long, RouterStats>();
 
+    private ConcurrentHashMap<String, PurgeStats> purgeStats = new ConcurrentHashMap<String, PurgeStats>();
+
     protected INodeService nodeService;
 
     protected IStatisticService statisticService;
@@ -79,12 +102,6 @@ public class StatisticManager implements IStatisticManager {
 
     protected IClusterService clusterService;
 
-    protected Semaphore channelStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
-    protected Semaphore hostStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
-    protected Semaphore jobStatsLock = new Semaphore(NUMBER_OF_PERMITS, true);
-
     protected Map<ProcessInfoKey, ProcessInfo> processInfos = new ConcurrentHashMap<ProcessInfoKey, ProcessInfo>();
 
     protected Map<ProcessInfoKey, ProcessInfo> processInfosThatHaveDoneWork = new ConcurrentHashMap<ProcessInfoKey, ProcessInfo>();
@@ -165,13 +182,7 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public void addJobStats(String jobName, long startTime, long endTime, long processedCount) {
-        jobStatsLock.acquireUninterruptibly();
-        try {
-            JobStats stats = new JobStats(jobName, startTime, endTime, processedCount);
-            jobStats.add(stats);
-        } finally {
-            jobStatsLock.release();
-        }
+        jobStats.add(new JobStats(jobName, startTime, endTime, processedCount));
     }
 
     public RouterStats getRouterStatsByBatch(Long batchId) {
@@ -195,391 +206,336 @@ public class StatisticManager implements IStatisticManager {
     }
 
     public void incrementDataRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_ROUTED.ordinal(), count);
     }
 
     public void setDataUnRouted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).setDataUnRouted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).set(ChannelCounter.DATA_UNROUTED.ordinal(), count);
     }
 
     public void incrementDataExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_EXTRACTED.ordinal(), count);
     }
 
     public void incrementDataBytesExtracted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesExtracted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_BYTES_EXTRACTED.ordinal(), count);
     }
 
     public void incrementDataExtractedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataExtractedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_EXTRACTED_ERRORS.ordinal(), count);
     }
 
     public void incrementDataEventInserted(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataEventInserted(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_EVENT_INSERTED.ordinal(), count);
     }
 
     public void incrementDataSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_SENT.ordinal(), count);
     }
 
     public void incrementDataBytesSent(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesSent(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_BYTES_SENT.ordinal(), count);
     }
 
     public void incrementDataSentErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataSentErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_SENT_ERRORS.ordinal(), count);
     }
 
     public void incrementDataLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_LOADED.ordinal(), count);
     }
 
     public void incrementDataBytesLoaded(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataBytesLoaded(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_BYTES_LOADED.ordinal(), count);
     }
 
     public void incrementDataLoadedErrors(String channelId, long count) {
-        channelStatsLock.acquireUninterruptibly();
-        try {
-            getChannelStats(channelId).incrementDataLoadedErrors(count);
-        } finally {
-            channelStatsLock.release();
-        }
+        getChannelCounters(channelId).add(ChannelCounter.DATA_LOADED_ERRORS.ordinal(), count);
     }
 
     public void incrementRestart() {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementRestarted(1);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.RESTARTED.ordinal(), 1);
     }
 
     public void incrementNodesPulled(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesPulled(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_PULLED.ordinal(), count);
     }
 
     public void incrementNodesPushed(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesPushed(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_PUSHED.ordinal(), count);
     }
 
     public void incrementTotalNodesPulledTime(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTotalNodesPullTime(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.TOTAL_NODES_PULL_TIME.ordinal(), count);
     }
 
     public void incrementTotalNodesPushedTime(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTotalNodesPushTime(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.TOTAL_NODES_PUSH_TIME.ordinal(), count);
     }
 
     public void incrementNodesRejected(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesRejected(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_REJECTED.ordinal(), count);
     }
 
     public void incrementNodesRegistered(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesRegistered(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_REGISTERED.ordinal(), count);
     }
 
     public void incrementNodesLoaded(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesLoaded(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_LOADED.ordinal(), count);
     }
 
     public void incrementNodesDisabled(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementNodesDisabled(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.NODES_DISABLED.ordinal(), count);
     }
 
     public void incrementPurgedBatchIncomingRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedBatchIncomingRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.PURGED_BATCH_INCOMING_ROWS.ordinal(), count);
     }
 
     public void incrementPurgedBatchOutgoingRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedBatchOutgoingRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.PURGED_BATCH_OUTGOING_ROWS.ordinal(), count);
     }
 
     public void incrementPurgedDataRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedDataRows(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.PURGED_DATA_ROWS.ordinal(), count);
     }
 
     public void incrementPurgedDataEventRows(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementPurgedDataEventRows(count);
-        } finally {
-            hostStatsLock.release();
+        hostCounters.add(HostCounter.PURGED_DATA_EVENT_ROWS.ordinal(), count);
+    }
+
+    public void addPurgeStats(String tableName, long rowsPurged, long deleteMillis) {
+        getPurgeStats(tableName).incrementDelete(rowsPurged, deleteMillis);
+    }
+
+    public void addPurgePartitionStats(String tableName, long partitionsPurged, long millis) {
+        getPurgeStats(tableName).incrementPartitions(partitionsPurged, millis);
+    }
+
+    public Map<String, PurgeStats> getPurgeStats() {
+        return Collections.unmodifiableMap(purgeStats);
+    }
+
+    protected PurgeStats getPurgeStats(String tableName) {
+        PurgeStats stats = purgeStats.get(tableName);
+        if (stats == null) {
+            stats = new PurgeStats(tableName);
+            PurgeStats existing = purgeStats.putIfAbsent(tableName, stats);
+            if (existing != null) {
+                stats = existing;
+            }
         }
+        return stats;
     }
 
     public void incrementTriggersRemovedCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersRemovedCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.TRIGGERS_REMOVED_COUNT.ordinal(), count);
     }
 
     public void incrementTriggersRebuiltCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersRebuiltCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.TRIGGERS_REBUILT_COUNT.ordinal(), count);
     }
 
     public void incrementTriggersCreatedCount(long count) {
-        hostStatsLock.acquireUninterruptibly();
-        try {
-            getHostStats().incrementTriggersCreatedCount(count);
-        } finally {
-            hostStatsLock.release();
-        }
+        hostCounters.add(HostCounter.TRIGGERS_CREATED_COUNT.ordinal(), count);
     }
 
     protected void saveAdditionalStats(Date endTime, ChannelStats stats) {
     }
     
-    public void flush() {
-
+    public synchronized void flush() {
         boolean recordStatistics = parameterService.is(ParameterConstants.STATISTIC_RECORD_ENABLE,
                 false);
-        if (channelStats != null) {
-            channelStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                if (recordStatistics) {
-                    Date endTime = new Date();
-                    for (ChannelStats stats : channelStats.values()) {
-                        if (stats.getNodeId().equals(UNKNOWN)) {
-                            Node node = nodeService.getCachedIdentity();
-                            if (node != null) {
-                                stats.setNodeId(node.getNodeId());
-                            }
+        Date startTime = periodStartTime;
+        Date endTime = new Date();
+        periodStartTime = endTime;
+
+        Set<String> channelIds = new HashSet<String>();
+        for (NodeChannel nodeChannel : configurationService.getNodeChannels(false)) {
+            channelIds.add(nodeChannel.getChannelId());
+            getChannelCounters(nodeChannel.getChannelId());
+        }
+
+        Node node = nodeService.getCachedIdentity();
+        String serverId = clusterService.getServerId();
+        for (Map.Entry<String, StripedCounters> entry : channelCounters.entrySet()) {
+            long[] values = entry.getValue().drain();
+            if (!channelIds.contains(entry.getKey()) && isZero(values)) {
+                /*
+                 * The channel is no longer configured, so stop recording it.
+                 * Anything added while it was being removed is moved to a
+                 * new set of counters.
+                 */
+                if (channelCounters.remove(entry.getKey(), entry.getValue())) {
+                    long[] late = entry.getValue().drain();
+                    if (!isZero(late)) {
+                        StripedCounters counters = getChannelCounters(entry.getKey());
+                        for (int i = 0; i < late.length; i++) {
+                            counters.add(i, late[i]);
                         }
-                        stats.setEndTime(endTime);
-                        saveAdditionalStats(endTime, stats);
-                        statisticService.save(stats);
                     }
                 }
-                resetChannelStats(true);
-            } finally {
-                channelStatsLock.release(NUMBER_OF_PERMITS);
+            } else if (recordStatistics && node != null) {
+                ChannelStats stats = toChannelStats(node.getNodeId(), serverId, startTime,
+                        endTime, entry.getKey(), values);
+                saveAdditionalStats(endTime, stats);
+                statisticService.save(stats);
             }
         }
 
-        if (hostStats != null) {
-            hostStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                if (recordStatistics) {
-                    if (hostStats.getNodeId().equals(UNKNOWN)) {
-                        Node node = nodeService.getCachedIdentity();
-                        if (node != null) {
-                            hostStats.setNodeId(node.getNodeId());
-                        }
-                    }
-                    hostStats.setEndTime(new Date());
-                    statisticService.save(hostStats);
+        for (Map.Entry<String, LatencyHistogram[]> entry : channelLatencies.entrySet()) {
+            for (LatencyStage stage : LatencyStage.values()) {
+                LatencyHistogram histogram = entry.getValue()[stage.ordinal()].drain();
+                if (recordStatistics && node != null && histogram.getCount() > 0) {
+                    statisticService.save(new ChannelLatencyStats(node.getNodeId(), serverId,
+                            startTime, endTime, entry.getKey(), stage, histogram));
                 }
-                hostStats = null;
-            } finally {
-                hostStatsLock.release(NUMBER_OF_PERMITS);
             }
         }
 
-        if (jobStats != null) {
-            List<JobStats> toFlush = null;
-            jobStatsLock.acquireUninterruptibly(NUMBER_OF_PERMITS);
-            try {
-                toFlush = jobStats;
-                jobStats = new ArrayList<JobStats>();
-            } finally {
-                jobStatsLock.release(NUMBER_OF_PERMITS);
-            }
+        purgeStats.clear();
 
-            if (toFlush != null && recordStatistics) {
-                Node node = nodeService.getCachedIdentity();
-                if (node != null) {
-                    String nodeId = node.getNodeId();
-                    String serverId = clusterService.getServerId();
-                    for (JobStats stats : toFlush) {
-                        stats.setNodeId(nodeId);
-                        stats.setHostName(serverId);
-                        statisticService.save(stats);
-                    }
-                }
+        long[] hostValues = hostCounters.drain();
+        if (recordStatistics && !isZero(hostValues)) {
+            statisticService.save(toHostStats(node != null ? node.getNodeId() : UNKNOWN,
+                    serverId, startTime, endTime, hostValues));
+        }
+
+        List<JobStats> toFlush = new ArrayList<JobStats>();
+        JobStats job = null;
+        while ((job = jobStats.poll()) != null) {
+            toFlush.add(job);
+        }
+
+        if (recordStatistics && node != null) {
+            String nodeId = node.getNodeId();
+            for (JobStats stats : toFlush) {
+                stats.setNodeId(nodeId);
+                stats.setHostName(serverId);
+                statisticService.save(stats);
             }
         }
     }
 
     public Map<String, ChannelStats> getWorkingChannelStats() {
-        if (channelStats != null) {
-            return new HashMap<String, ChannelStats>(channelStats);
-        } else {
-            return new HashMap<String, ChannelStats>();
+        Node node = nodeService.getCachedIdentity();
+        String nodeId = node != null ? node.getNodeId() : UNKNOWN;
+        String serverId = clusterService.getServerId();
+        Date startTime = periodStartTime;
+        Map<String, ChannelStats> stats = new HashMap<String, ChannelStats>(channelCounters.size());
+        for (Map.Entry<String, StripedCounters> entry : channelCounters.entrySet()) {
+            stats.put(entry.getKey(), toChannelStats(nodeId, serverId, startTime, null,
+                    entry.getKey(), entry.getValue().get()));
         }
+        return stats;
     }
 
     public HostStats getWorkingHostStats() {
-        if (this.hostStats != null) {
-            return new HostStats(this.hostStats);
-        } else {
-            return new HostStats();
+        Node node = nodeService.getCachedIdentity();
+        return toHostStats(node != null ? node.getNodeId() : UNKNOWN,
+                clusterService.getServerId(), periodStartTime, null, hostCounters.get());
+    }
+
+    public void recordLatency(String channelId, LatencyStage stage, long millis) {
+        getChannelLatencies(channelId)[stage.ordinal()].record(millis);
+    }
+
+    public Map<String, Map<LatencyStage, ChannelLatencyStats>> getWorkingChannelLatencyStats() {
+        Node node = nodeService.getCachedIdentity();
+        String nodeId = node != null ? node.getNodeId() : UNKNOWN;
+        String serverId = clusterService.getServerId();
+        Date startTime = periodStartTime;
+        Map<String, Map<LatencyStage, ChannelLatencyStats>> stats = new HashMap<String, Map<LatencyStage, ChannelLatencyStats>>();
+        for (Map.Entry<String, LatencyHistogram[]> entry : channelLatencies.entrySet()) {
+            Map<LatencyStage, ChannelLatencyStats> byStage = new HashMap<LatencyStage, ChannelLatencyStats>();
+            for (LatencyStage stage : LatencyStage.values()) {
+                byStage.put(stage, new ChannelLatencyStats(nodeId, serverId, startTime, null,
+                        entry.getKey(), stage, entry.getValue()[stage.ordinal()].copy()));
+            }
+            stats.put(entry.getKey(), byStage);
         }
+        return stats;
     }
 
-    protected void resetChannelStats(boolean force) {
-        if (force) {
-            channelStats = null;
-        }
+    public ReplicationLagTracker getReplicationLagTracker() {
+        return replicationLagTracker;
+    }
 
-        if (channelStats == null) {
-            List<NodeChannel> channels = configurationService.getNodeChannels(false);
-            channelStats = new HashMap<String, ChannelStats>(channels.size());
-            for (NodeChannel nodeChannel : channels) {
-                getChannelStats(nodeChannel.getChannelId());
+    protected LatencyHistogram[] getChannelLatencies(String channelId) {
+        LatencyHistogram[] histograms = channelLatencies.get(channelId);
+        if (histograms == null) {
+            histograms = new LatencyHistogram[LatencyStage.values().length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            LatencyHistogram[] existing = channelLatencies.putIfAbsent(channelId, histograms);
+            if (existing != null) {
+                histograms = existing;
             }
         }
+        return histograms;
     }
 
-    protected ChannelStats getChannelStats(String channelId) {
-        resetChannelStats(false);
-        ChannelStats stats = channelStats.get(channelId);
-        if (stats == null) {
-            Node node = nodeService.getCachedIdentity();
-            if (node != null) {
-                stats = new ChannelStats(node.getNodeId(), clusterService.getServerId(),
-                        new Date(), null, channelId);
-                channelStats.put(channelId, stats);
-            } else {
-                stats = new ChannelStats(UNKNOWN, clusterService.getServerId(), new Date(), null,
-                        channelId);
+    protected StripedCounters getChannelCounters(String channelId) {
+        StripedCounters counters = channelCounters.get(channelId);
+        if (counters == null) {
+            counters = new StripedCounters(ChannelCounter.values().length);
+            StripedCounters existing = channelCounters.putIfAbsent(channelId, counters);
+            if (existing != null) {
+                counters = existing;
             }
-
         }
+        return counters;
+    }
+
+    protected ChannelStats toChannelStats(String nodeId, String serverId, Date startTime,
+            Date endTime, String channelId, long[] values) {
+        ChannelStats stats = new ChannelStats(nodeId, serverId, startTime, endTime, channelId);
+        stats.setDataRouted(values[ChannelCounter.DATA_ROUTED.ordinal()]);
+        stats.setDataUnRouted(values[ChannelCounter.DATA_UNROUTED.ordinal()]);
+        stats.setDataExtracted(values[ChannelCounter.DATA_EXTRACTED.ordinal()]);
+        stats.setDataBytesExtracted(values[ChannelCounter.DATA_BYTES_EXTRACTED.ordinal()]);
+        stats.setDataExtractedErrors(values[ChannelCounter.DATA_EXTRACTED_ERRORS.ordinal()]);
+        stats.setDataEventInserted(values[ChannelCounter.DATA_EVENT_INSERTED.ordinal()]);
+        stats.setDataSent(values[ChannelCounter.DATA_SENT.ordinal()]);
+        stats.setDataBytesSent(values[ChannelCounter.DATA_BYTES_SENT.ordinal()]);
+        stats.setDataSentErrors(values[ChannelCounter.DATA_SENT_ERRORS.ordinal()]);
+        stats.setDataLoaded(values[ChannelCounter.DATA_LOADED.ordinal()]);
+        stats.setDataBytesLoaded(values[ChannelCounter.DATA_BYTES_LOADED.ordinal()]);
+        stats.setDataLoadedErrors(values[ChannelCounter.DATA_LOADED_ERRORS.ordinal()]);
         return stats;
     }
 
-    protected HostStats getHostStats() {
-        if (hostStats == null) {
-            Node node = nodeService.getCachedIdentity();
-            if (node != null) {
-                hostStats = new HostStats(node.getNodeId(), clusterService.getServerId(),
-                        new Date(), null);
-            } else {
-                hostStats = new HostStats(UNKNOWN, clusterService.getServerId(), new Date(), null);
-            }
+    protected HostStats toHostStats(String nodeId, String serverId, Date startTime, Date endTime,
+            long[] values) {
+        HostStats stats = new HostStats(nodeId, serverId, startTime, endTime);
+        stats.setRestarted(values[HostCounter.RESTARTED.ordinal()]);
+        stats.setNodesPulled(values[HostCounter.NODES_PULLED.ordinal()]);
+        stats.setTotalNodesPullTime(values[HostCounter.TOTAL_NODES_PULL_TIME.ordinal()]);
+        stats.setNodesPushed(values[HostCounter.NODES_PUSHED.ordinal()]);
+        stats.setTotalNodesPushTime(values[HostCounter.TOTAL_NODES_PUSH_TIME.ordinal()]);
+        stats.setNodesRejected(values[HostCounter.NODES_REJECTED.ordinal()]);
+        stats.setNodesRegistered(values[HostCounter.NODES_REGISTERED.ordinal()]);
+        stats.setNodesLoaded(values[HostCounter.NODES_LOADED.ordinal()]);
+        stats.setNodesDisabled(values[HostCounter.NODES_DISABLED.ordinal()]);
+        stats.setPurgedDataRows(values[HostCounter.PURGED_DATA_ROWS.ordinal()]);
+        stats.setPurgedDataEventRows(values[HostCounter.PURGED_DATA_EVENT_ROWS.ordinal()]);
+        stats.setPurgedBatchOutgoingRows(values[HostCounter.PURGED_BATCH_OUTGOING_ROWS.ordinal()]);
+        stats.setPurgedBatchIncomingRows(values[HostCounter.PURGED_BATCH_INCOMING_ROWS.ordinal()]);
+        stats.setTriggersCreatedCount(values[HostCounter.TRIGGERS_CREATED_COUNT.ordinal()]);
+        stats.setTriggersRebuiltCount(values[HostCounter.TRIGGERS_REBUILT_COUNT.ordinal()]);
+        stats.setTriggersRemovedCount(values[HostCounter.TRIGGERS_REMOVED_COUNT.ordinal()]);
+        return stats;
+    }
 
+    private static boolean isZero(long[] values) {
+        for (long value : values) {
+            if (value != 0) {
+                return false;
+            }
         }
-        return hostStats;
+        return true;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed set of counters that many threads can add to without contending on
+ * a lock or a single memory location. Each counter is spread over a number of
+ * stripes and a thread always adds to the stripe picked by its thread id. The
+ * counters of one stripe sit next to each other and each stripe is padded to a
+ * cache line boundary so threads working on different stripes do not share
+ * cache lines.
+ * <p>
+ * Reading a counter sums its stripes. Draining a counter swaps each stripe for
+ * zero, so an add that races with a drain is either counted by that drain or
+ * left for the next one, but never lost. Setting a counter clears the stripes
+ * and swaps the value into a stripe of its own that adds never use, so a set
+ * that races with a drain is likewise counted once.
+ */
+public class StripedCounters {
+
+    private static final int LONGS_PER_CACHE_LINE = 8;
+
+    private static final int MAX_STRIPES = 64;
+
+    static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private final int counterCount;
+
+    private final int stride;
+
+    private final AtomicLongArray cells;
+
+    public StripedCounters(int counterCount) {
+        this.counterCount = counterCount;
+        this.stride = ((counterCount + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE)
+                * LONGS_PER_CACHE_LINE;
+        /*
+         * an extra line in front keeps the first stripe off the array header
+         * and the stripe after the last is the one set uses
+         */
+        this.cells = new AtomicLongArray(LONGS_PER_CACHE_LINE + (STRIPES + 1) * stride);
+    }
+
+    static int stripeCount(int processors) {
+        int stripes = 1;
+        while (stripes < processors * 2 && stripes < MAX_STRIPES) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    public int getCounterCount() {
+        return counterCount;
+    }
+
+    public void add(int counter, long value) {
+        if (value != 0) {
+            cells.getAndAdd(offset(stripe()) + counter, value);
+        }
+    }
+
+    /**
+     * Replace the value of a counter. Adds that race with the set may be
+     * replaced by it.
+     */
+    public void set(int counter, long value) {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.getAndSet(offset(i) + counter, 0);
+        }
+        cells.getAndSet(offset(STRIPES) + counter, value);
+    }
+
+    public long get(int counter) {
+        long sum = 0;
+        for (int i = 0; i <= STRIPES; i++) {
+            sum += cells.get(offset(i) + counter);
+        }
+        return sum;
+    }
+
+    public long drain(int counter) {
+        long sum = 0;
+        for (int i = 0; i <= STRIPES; i++) {
+            sum += cells.getAndSet(offset(i) + counter, 0);
+        }
+        return sum;
+    }
+
+    public long[] get() {
+        long[] values = new long[counterCount];
+        for (int counter = 0; counter < counterCount; counter++) {
+            values[counter] = get(counter);
+        }
+        return values;
+    }
+
+    public long[] drain() {
+        long[] values = new long[counterCount];
+        for (int counter = 0; counter < counterCount; counter++) {
+            values[counter] = drain(counter);
+        }
+        return values;
+    }
+
+    private int offset(int stripe) {
+        return LONGS_PER_CACHE_LINE + stripe * stride;
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32));
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+}
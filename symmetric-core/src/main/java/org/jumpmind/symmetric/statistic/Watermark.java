@@ -0,0 +1,77 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+/**
+ * An immutable high water mark: the highest data or batch id seen at some
+ * point of replication, the create time of the row or batch with that id and
+ * the time the mark last advanced.
+ */
+public class Watermark {
+
+    public static final Watermark NONE = new Watermark(-1, 0, 0);
+
+    private final long id;
+
+    private final long createTime;
+
+    private final long updateTime;
+
+    public Watermark(long id, long createTime, long updateTime) {
+        this.id = id;
+        this.createTime = createTime;
+        this.updateTime = updateTime;
+    }
+
+    /**
+     * @return this mark if it is already at or past the id, otherwise a new
+     *         mark for the id
+     */
+    public Watermark advance(long id, long createTime, long updateTime) {
+        if (id > this.id) {
+            return new Watermark(id, createTime, updateTime);
+        } else {
+            return this;
+        }
+    }
+
+    public boolean isSet() {
+        return id >= 0;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    @Override
+    public String toString() {
+        return isSet() ? id + "@" + createTime : "none";
+    }
+
+}
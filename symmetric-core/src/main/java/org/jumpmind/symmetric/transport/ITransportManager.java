@@ -46,6 +46,15 @@ public interface ITransportManager {
 
     public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken, Map<String,String> requestProperties, String registrationUrl) throws IOException;
 
+    /**
+     * Get a pull transport that also delivers acknowledgements for batches
+     * loaded by an earlier pull. The remote node reports that it applied them
+     * with the {@link org.jumpmind.symmetric.web.WebConstants#ACKS_APPLIED}
+     * header.
+     */
+    public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken, Map<String,String> requestProperties, 
+            List<IncomingBatch> acks, String registrationUrl) throws IOException;
+
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local, String securityToken, String registrationUrl) throws IOException;
 
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local, String securityToken, Map<String,String> requestProperties, String registrationUrl) throws IOException;
@@ -67,4 +76,13 @@ public interface ITransportManager {
     
     public int sendStatusRequest(Node local, Map<String, String> statuses) throws IOException;
 
+    /**
+     * Wait at the remote node for up to waitMillis until it has batches to
+     * send to the local node.
+     * 
+     * @return 200 if a pull should be run or 204 if there is nothing to pull
+     */
+    public int sendPullWaitRequest(Node remote, Node local, String securityToken, String queue,
+            long waitMillis, String registrationUrl) throws IOException;
+
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wakes pull requests that are parked on this server waiting for new batches.
+ * Each node has a version that advances whenever batches are created for it.
+ * A waiter reads the version, checks for batches and then waits for the version
+ * to move, so a notification that arrives between the check and the wait is
+ * not lost. Waiters that do not hold a thread register a listener instead,
+ * which is run once by the thread that notifies the node.
+ */
+public class PullNotifier {
+
+    protected ConcurrentMap<String, NodeSignal> signalsByNodeId = new ConcurrentHashMap<String, NodeSignal>();
+
+    protected AtomicInteger parkedCount = new AtomicInteger();
+
+    public long getVersion(String nodeId) {
+        NodeSignal signal = getSignal(nodeId);
+        synchronized (signal) {
+            return signal.version;
+        }
+    }
+
+    public void notifyNode(String nodeId) {
+        NodeSignal signal = getSignal(nodeId);
+        List<Runnable> listeners = null;
+        synchronized (signal) {
+            signal.version++;
+            signal.notifyAll();
+            if (signal.listeners != null && signal.listeners.size() > 0) {
+                listeners = signal.listeners;
+                signal.listeners = null;
+            }
+        }
+        if (listeners != null) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    public void notifyNodes(Collection<String> nodeIds) {
+        for (String nodeId : nodeIds) {
+            notifyNode(nodeId);
+        }
+    }
+
+    /**
+     * Wait for the version of the node to advance past the given version.
+     * 
+     * @return true if the node was notified, false if the wait timed out
+     */
+    public boolean await(String nodeId, long version, long timeoutMs) throws InterruptedException {
+        NodeSignal signal = getSignal(nodeId);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (signal) {
+            long remaining = timeoutMs;
+            while (signal.version == version && remaining > 0) {
+                signal.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return signal.version != version;
+        }
+    }
+
+    /**
+     * Register a listener to run the next time the node is notified. The
+     * listener runs on the notifying thread, so it should only hand off work.
+     * 
+     * @return false if the version of the node already advanced past the given
+     *         version, in which case the listener was not registered
+     */
+    public boolean addListener(String nodeId, long version, Runnable listener) {
+        NodeSignal signal = getSignal(nodeId);
+        synchronized (signal) {
+            if (signal.version != version) {
+                return false;
+            }
+            if (signal.listeners == null) {
+                signal.listeners = new ArrayList<Runnable>(1);
+            }
+            signal.listeners.add(listener);
+            return true;
+        }
+    }
+
+    public void removeListener(String nodeId, Runnable listener) {
+        NodeSignal signal = getSignal(nodeId);
+        synchronized (signal) {
+            if (signal.listeners != null) {
+                signal.listeners.remove(listener);
+            }
+        }
+    }
+
+    /**
+     * Reserve a parking spot for a waiter.
+     * 
+     * @return false if maxParked waiters are already parked
+     */
+    public boolean park(int maxParked) {
+        while (true) {
+            int count = parkedCount.get();
+            if (count >= maxParked) {
+                return false;
+            }
+            if (parkedCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void unpark() {
+        parkedCount.decrementAndGet();
+    }
+
+    public int getParkedCount() {
+        return parkedCount.get();
+    }
+
+    protected NodeSignal getSignal(String nodeId) {
+        NodeSignal signal = signalsByNodeId.get(nodeId);
+        if (signal == null) {
+            signal = new NodeSignal();
+            NodeSignal existing = signalsByNodeId.putIfAbsent(nodeId, signal);
+            if (existing != null) {
+                signal = existing;
+            }
+        }
+        return signal;
+    }
+
+    static class NodeSignal {
+        long version;
+        List<Runnable> listeners;
+    }
+
+}
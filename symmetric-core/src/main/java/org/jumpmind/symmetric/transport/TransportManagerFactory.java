@@ -46,6 +46,8 @@ import org.jumpmind.symmetric.transport.internal.InternalTransportManager;
 
 public class TransportManagerFactory {
 
+    private static SSLSocketFactory selfSignedSocketFactory;
+
     private ISymmetricEngine symmetricEngine;
 
     public TransportManagerFactory(ISymmetricEngine symmetricEngine) {
@@ -79,7 +81,7 @@ public class TransportManagerFactory {
             }
 
             if (allowSelfSignedCerts) {
-                HttpsURLConnection.setDefaultSSLSocketFactory(createSelfSignedSocketFactory());
+                HttpsURLConnection.setDefaultSSLSocketFactory(getSelfSignedSocketFactory());
             }
 
         } catch (GeneralSecurityException ex) {
@@ -88,6 +90,21 @@ public class TransportManagerFactory {
 
     }
 
+    /**
+     * The JDK keeps idle HTTP connections in a cache that is sized and
+     * switched on by system properties read once, the first time a connection
+     * is made. Only set them when they have not already been set on the
+     * command line.
+     */
+    public static void initHttpKeepAlive(boolean keepAlive, int maxConnectionsPerHost) {
+        if (System.getProperty("http.keepAlive") == null) {
+            System.setProperty("http.keepAlive", Boolean.toString(keepAlive));
+        }
+        if (maxConnectionsPerHost > 0 && System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", Integer.toString(maxConnectionsPerHost));
+        }
+    }
+
     public ITransportManager create() {
         return create(symmetricEngine.getParameterService().getString(
                 ParameterConstants.TRANSPORT_TYPE));
@@ -101,6 +118,11 @@ public class TransportManagerFactory {
             boolean allowSelfSignedCerts = symmetricEngine.getParameterService().is(
                     ServerConstants.HTTPS_ALLOW_SELF_SIGNED_CERTS, false);
             initHttps(httpSslVerifiedServerNames, allowSelfSignedCerts);
+            initHttpKeepAlive(
+                    symmetricEngine.getParameterService().is(
+                            ParameterConstants.TRANSPORT_HTTP_KEEP_ALIVE, true),
+                    symmetricEngine.getParameterService().getInt(
+                            ParameterConstants.TRANSPORT_HTTP_MAX_CONNECTIONS_PER_HOST, 20));
             return new HttpTransportManager(symmetricEngine);
         } else if (Constants.PROTOCOL_FILE.equalsIgnoreCase(transport)) {
             return new FileTransportManager(symmetricEngine);
@@ -112,6 +134,19 @@ public class TransportManagerFactory {
         }
     }
 
+    /**
+     * Pooled HTTPS connections are only reused when they were opened with the
+     * same socket factory, and TLS sessions are cached per {@link SSLContext},
+     * so the self signed socket factory is created once and shared.
+     */
+    private static synchronized SSLSocketFactory getSelfSignedSocketFactory()
+            throws NoSuchAlgorithmException, KeyManagementException, KeyStoreException {
+        if (selfSignedSocketFactory == null) {
+            selfSignedSocketFactory = createSelfSignedSocketFactory();
+        }
+        return selfSignedSocketFactory;
+    }
+
     /**
      * Create an SSL Socket Factory that accepts self signed certificates.
      * 
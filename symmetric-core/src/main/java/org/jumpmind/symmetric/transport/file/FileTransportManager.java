@@ -84,6 +84,18 @@ public class FileTransportManager extends HttpTransportManager implements ITrans
                 getDirName(ParameterConstants.NODE_OFFLINE_ERROR_DIR, local));
     }
 
+    @Override
+    public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken, Map<String, String> requestProperties,
+            List<IncomingBatch> acks, String registrationUrl) throws IOException {
+        return getPullTransport(remote, local, securityToken, requestProperties, registrationUrl);
+    }
+
+    @Override
+    public int sendPullWaitRequest(Node remote, Node local, String securityToken, String queue,
+            long waitMillis, String registrationUrl) throws IOException {
+        return HttpURLConnection.HTTP_OK;
+    }
+
     @Override
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local, String securityToken, String registrationUrl)
             throws IOException {   
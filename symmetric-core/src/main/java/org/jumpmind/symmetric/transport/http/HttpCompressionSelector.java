@@ -0,0 +1,205 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IBandwidthService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks the gzip compression level to use on the link to each node. The
+ * bandwidth of the link is sampled with the {@link IBandwidthService} and the
+ * cost of each level is measured on this machine. The level that moves the
+ * most uncompressed bytes per second wins, which can be no compression at
+ * all on a fast network. The choice is kept for each node until it is time to
+ * sample the link again. Only one caller samples a link at a time, and the
+ * others keep using the previous level until the new sample finishes.
+ */
+public class HttpCompressionSelector {
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    static final int[] LEVELS = { 1, 3, 6, 9 };
+
+    static final int CALIBRATION_SAMPLE_SIZE = 256 * 1024;
+
+    private static CompressionCost[] compressionCosts;
+
+    private IParameterService parameterService;
+
+    private IBandwidthService bandwidthService;
+
+    private ConcurrentMap<String, LinkCompression> linkCompressions = new ConcurrentHashMap<String, LinkCompression>();
+
+    public HttpCompressionSelector(IParameterService parameterService,
+            IBandwidthService bandwidthService) {
+        this.parameterService = parameterService;
+        this.bandwidthService = bandwidthService;
+    }
+
+    /**
+     * @return the compression level to use with a node, where 0 means do not
+     *         compress
+     */
+    public int getCompressionLevel(String nodeId, String syncUrl) {
+        LinkCompression link = linkCompressions.get(nodeId);
+        if (link == null) {
+            linkCompressions.putIfAbsent(nodeId, new LinkCompression(
+                    parameterService.getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL)));
+            link = linkCompressions.get(nodeId);
+        }
+        long recalibrateMs = parameterService.getLong(
+                ParameterConstants.TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_RECALIBRATE_MS, 3600000);
+        if ((link.calibrationTime == 0 || System.currentTimeMillis() - link.calibrationTime > recalibrateMs)
+                && link.calibrating.compareAndSet(false, true)) {
+            try {
+                link.level = calibrate(nodeId, syncUrl);
+                link.calibrationTime = System.currentTimeMillis();
+            } finally {
+                link.calibrating.set(false);
+            }
+        }
+        return link.level;
+    }
+
+    protected int calibrate(String nodeId, String syncUrl) {
+        int defaultLevel = parameterService.getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL);
+        double kbps = bandwidthService.getDownloadKbpsFor(syncUrl, parameterService.getLong(
+                ParameterConstants.TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_SAMPLE_SIZE, 262144),
+                parameterService.getLong(
+                        ParameterConstants.TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_SAMPLE_MS, 2000));
+        if (kbps <= 0) {
+            log.info("Could not sample the bandwidth to node {}, so using compression level {}",
+                    nodeId, defaultLevel);
+            return defaultLevel;
+        }
+        double bytesPerMs = kbps * 1024 / 8 / 1000;
+        int level = chooseLevel(bytesPerMs, getCompressionCosts());
+        log.info("Using compression level {} with node {}, which has a bandwidth of {} kbps",
+                new Object[] { level, nodeId, (long) kbps });
+        return level;
+    }
+
+    /**
+     * Compression and the network work on the data at the same time, so the
+     * slower of the two limits how fast the data gets across.
+     */
+    protected static int chooseLevel(double bandwidthBytesPerMs, CompressionCost[] costs) {
+        int bestLevel = 0;
+        double bestBytesPerMs = bandwidthBytesPerMs;
+        for (CompressionCost cost : costs) {
+            double bytesPerMs = Math.min(cost.bytesPerMs, bandwidthBytesPerMs / cost.ratio);
+            if (bytesPerMs > bestBytesPerMs) {
+                bestLevel = cost.level;
+                bestBytesPerMs = bytesPerMs;
+            }
+        }
+        return bestLevel;
+    }
+
+    protected static synchronized CompressionCost[] getCompressionCosts() {
+        if (compressionCosts == null) {
+            byte[] sample = createSample(CALIBRATION_SAMPLE_SIZE);
+            compress(sample, LEVELS[0]);
+            CompressionCost[] costs = new CompressionCost[LEVELS.length];
+            for (int i = 0; i < LEVELS.length; i++) {
+                long start = System.nanoTime();
+                int compressedSize = compress(sample, LEVELS[i]);
+                double millis = Math.max((System.nanoTime() - start) / 1000000d, 0.001d);
+                costs[i] = new CompressionCost(LEVELS[i], sample.length / millis,
+                        (double) compressedSize / sample.length);
+            }
+            compressionCosts = costs;
+        }
+        return compressionCosts;
+    }
+
+    /**
+     * Rows of csv shaped like a batch in the sync protocol, with repeated
+     * names and varying numbers, so the ratio is close to what a batch gets.
+     */
+    protected static byte[] createSample(int size) {
+        Random random = new Random(0);
+        StringBuilder sample = new StringBuilder(size + 256);
+        String[] tables = { "customer", "sale_transaction", "sale_return_line_item", "item" };
+        String[] words = { "store", "register", "order", "shipped", "pending", "north", "south" };
+        while (sample.length() < size) {
+            sample.append("insert,\"").append(tables[random.nextInt(tables.length)]).append("\",\"")
+                    .append(random.nextInt(10000000)).append("\",\"")
+                    .append(words[random.nextInt(words.length)]).append(' ')
+                    .append(words[random.nextInt(words.length)]).append("\",\"")
+                    .append(random.nextInt(1000)).append('.').append(random.nextInt(100))
+                    .append("\",\"2015-0").append(1 + random.nextInt(9)).append("-1")
+                    .append(random.nextInt(10)).append(" 1").append(random.nextInt(10))
+                    .append(":").append(10 + random.nextInt(50)).append(":00.000\"\n");
+        }
+        return sample.toString().getBytes();
+    }
+
+    protected static int compress(byte[] data, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            DeflaterOutputStream dos = new DeflaterOutputStream(out, deflater, 8192);
+            dos.write(data);
+            dos.finish();
+        } catch (IOException ex) {
+            // not thrown when writing to memory
+        } finally {
+            deflater.end();
+        }
+        return out.size();
+    }
+
+    static class CompressionCost {
+        int level;
+        double bytesPerMs;
+        double ratio;
+
+        CompressionCost(int level, double bytesPerMs, double ratio) {
+            this.level = level;
+            this.bytesPerMs = bytesPerMs;
+            this.ratio = ratio;
+        }
+    }
+
+    static class LinkCompression {
+        volatile int level;
+        volatile long calibrationTime;
+        AtomicBoolean calibrating = new AtomicBoolean();
+
+        LinkCompression(int level) {
+            this.level = level;
+        }
+    }
+
+}
@@ -99,7 +99,16 @@ public class HttpIncomingTransport implements IIncomingTransport {
             connection = this.openConnectionCheckRedirects(connection);
         }
         
-        switch (connection.getResponseCode()) {
+        int responseCode = connection.getResponseCode();
+        if (responseCode >= 400) {
+            /*
+             * Consume the error page so the connection can be kept alive
+             * for the next request
+             */
+            HttpTransportManager.closeResponse(connection);
+        }
+
+        switch (responseCode) {
         case WebConstants.REGISTRATION_NOT_OPEN:
             throw new RegistrationNotOpenException();
         case WebConstants.REGISTRATION_REQUIRED:
@@ -81,6 +81,8 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
     private boolean fileUpload = false;
 
     private Map<String, String> requestProperties;
+
+    private boolean responseRead = false;
     
     public HttpOutgoingTransport(URL url, int httpTimeout, boolean useCompression,
             int compressionStrategy, int compressionLevel, String basicAuthUsername,
@@ -120,7 +122,14 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         closeOutputStream(true);
         closeReader();
         if (connection != null) {
-            connection.disconnect();
+            /*
+             * Once the response has been read, closing the reader hands the
+             * socket back to the keep-alive cache. Otherwise the request did
+             * not finish and the socket cannot be reused.
+             */
+            if (!responseRead) {
+                connection.disconnect();
+            }
             connection = null;
         }
     }
@@ -209,6 +218,7 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
 
     public OutputStream openStream() {
         try {
+            responseRead = false;
             connection = HttpTransportManager.openConnection(url, basicAuthUsername,
                     basicAuthPassword);
             if (streamOutputEnabled) {
@@ -301,6 +311,7 @@ public class HttpOutgoingTransport implements IOutgoingWithResponseTransport {
         closeOutputStream(false);
         analyzeResponseCode(connection.getResponseCode());
         this.reader = HttpTransportManager.getReaderFrom(connection);
+        this.responseRead = true;
         return this.reader;
     }
 
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.codec.binary.Base64;
@@ -61,11 +62,14 @@ import org.jumpmind.util.AppUtils;
  */
 public class HttpTransportManager extends AbstractTransportManager implements ITransportManager {
 
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
+
     private ISymmetricEngine engine;
     private AtomicReference<String> cachedHostName = new AtomicReference<String>();
     private AtomicReference<String> cachedIpAddress = new AtomicReference<String>();
     private AtomicLong cacheTime = new AtomicLong(-1);
     private long hostCacheTtl = 0;
+    private HttpCompressionSelector compressionSelector;
 
     public HttpTransportManager() {
     }
@@ -74,6 +78,8 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         super(engine.getExtensionService());
         this.engine = engine;
         hostCacheTtl = engine.getParameterService().getLong("cache.security.token.host.time.ms", 5*60*1000);
+        compressionSelector = new HttpCompressionSelector(engine.getParameterService(),
+                engine.getBandwidthService());
     }
 
     public int sendCopyRequest(Node local) throws IOException {
@@ -113,6 +119,20 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return sendMessage(new URL(url), "");        
     }
 
+    public int sendPullWaitRequest(Node remote, Node local, String securityToken, String queue,
+            long waitMillis, String registrationUrl) throws IOException {
+        HttpURLConnection conn = createGetConnectionFor(new URL(buildURL("pullwait", remote, local,
+                securityToken, registrationUrl)));
+        conn.setReadTimeout((int) (getHttpTimeOutInMs() + waitMillis));
+        conn.addRequestProperty(WebConstants.THREAD_CHANNEL, queue);
+        conn.addRequestProperty(WebConstants.LONG_POLL_MILLIS, Long.toString(waitMillis));
+        try {
+            return conn.getResponseCode();
+        } finally {
+            closeResponse(conn);
+        }
+    }
+
     public int sendAcknowledgement(Node remote, List<IncomingBatch> list, Node local,
             String securityToken, String registrationUrl) throws IOException {
         if (list != null && list.size() > 0) {
@@ -146,6 +166,36 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
             return conn.getResponseCode();
         } finally {
             IOUtils.closeQuietly(os);
+            closeResponse(conn);
+        }
+    }
+
+    /**
+     * Read what is left of a response so the underlying socket goes back to
+     * the JDK keep-alive cache and can be reused, along with its TLS session,
+     * by the next request to the same host. Calling disconnect() instead would
+     * close the socket. A response that is too large to be worth reading is
+     * disconnected. Only call this after the request has been sent.
+     */
+    public static void closeResponse(HttpURLConnection conn) {
+        InputStream in = null;
+        try {
+            in = conn.getResponseCode() >= 400 ? conn.getErrorStream() : conn.getInputStream();
+            if (in != null) {
+                byte[] buffer = new byte[1024];
+                long remaining = MAX_DRAIN_BYTES;
+                int read = 0;
+                while (remaining > 0 && (read = in.read(buffer)) >= 0) {
+                    remaining -= read;
+                }
+                if (read >= 0) {
+                    conn.disconnect();
+                }
+            }
+        } catch (IOException ex) {
+            conn.disconnect();
+        } finally {
+            IOUtils.closeQuietly(in);
         }
     }
 
@@ -185,6 +235,39 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL);
     }
 
+    public boolean isAdaptiveCompression() {
+        return engine.getParameterService().is(
+                ParameterConstants.TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_ENABLED, false);
+    }
+
+    /**
+     * The compression level to use on the link to a remote node, which is
+     * picked for the link when adaptive compression is turned on.
+     */
+    public int getCompressionLevel(Node remote, String registrationUrl) {
+        if (isAdaptiveCompression() && compressionSelector != null) {
+            return compressionSelector.getCompressionLevel(remote.getNodeId(),
+                    resolveURL(remote.getSyncUrl(), registrationUrl));
+        }
+        return getCompressionLevel();
+    }
+
+    /**
+     * Ask the remote node to compress the pull response at the level picked
+     * for the link, or not at all.
+     */
+    protected void setCompressionLevel(HttpURLConnection conn, Node remote, String registrationUrl) {
+        if (isAdaptiveCompression()) {
+            int compressionLevel = getCompressionLevel(remote, registrationUrl);
+            if (compressionLevel == Deflater.NO_COMPRESSION) {
+                conn.setRequestProperty("accept-encoding", "identity");
+            } else {
+                conn.setRequestProperty(WebConstants.COMPRESSION_LEVEL,
+                        Integer.toString(compressionLevel));
+            }
+        }
+    }
+
     public int getCompressionStrategy() {
         return engine.getParameterService().getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
     }
@@ -219,6 +302,7 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
             Map<String, String> requestProperties, String registrationUrl) throws IOException {
         HttpURLConnection conn = createGetConnectionFor(new URL(buildURL("pull", remote, local,
                 securityToken, registrationUrl)));
+        setCompressionLevel(conn, remote, registrationUrl);
         if (requestProperties != null) {
             for (String key : requestProperties.keySet()) {
                 conn.addRequestProperty(key, requestProperties.get(key));
@@ -227,28 +311,65 @@ public class HttpTransportManager extends AbstractTransportManager implements IT
         return new HttpIncomingTransport(conn, engine.getParameterService());
     }
 
+    /**
+     * The acknowledgements are posted as form parameters in the body of the
+     * pull request, the same way they are posted to the ack url.
+     */
+    public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken,
+            Map<String, String> requestProperties, List<IncomingBatch> acks,
+            String registrationUrl) throws IOException {
+        if (acks == null || acks.size() == 0) {
+            return getPullTransport(remote, local, securityToken, requestProperties, registrationUrl);
+        }
+        HttpURLConnection conn = createGetConnectionFor(new URL(buildURL("pull", remote, local,
+                securityToken, registrationUrl)));
+        setCompressionLevel(conn, remote, registrationUrl);
+        if (requestProperties != null) {
+            for (String key : requestProperties.keySet()) {
+                conn.addRequestProperty(key, requestProperties.get(key));
+            }
+        }
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        OutputStream os = conn.getOutputStream();
+        try {
+            writeMessage(os, getAcknowledgementData(remote.requires13Compatiblity(),
+                    local.getNodeId(), acks));
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+        return new HttpIncomingTransport(conn, engine.getParameterService());
+    }
+
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local,
             String securityToken, Map<String, String> requestProperties, 
             String registrationUrl) throws IOException {
         URL url = new URL(buildURL("push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(),
-                getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
+        int compressionLevel = getCompressionLevel(remote, registrationUrl);
+        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(),
+                isUseCompression() && compressionLevel != Deflater.NO_COMPRESSION,
+                getCompressionStrategy(), compressionLevel, getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false, requestProperties);
     }
     
     public IOutgoingWithResponseTransport getPushTransport(Node remote, Node local,
             String securityToken, String registrationUrl) throws IOException {
         URL url = new URL(buildURL("push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(),
-                getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
+        int compressionLevel = getCompressionLevel(remote, registrationUrl);
+        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(),
+                isUseCompression() && compressionLevel != Deflater.NO_COMPRESSION,
+                getCompressionStrategy(), compressionLevel, getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), false);
     }
     
     public IOutgoingWithResponseTransport getFilePushTransport(Node remote, Node local,
             String securityToken, String registrationUrl) throws IOException {
         URL url = new URL(buildURL("filesync/push", remote, local, securityToken, registrationUrl));
-        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(), isUseCompression(),
-                getCompressionStrategy(), getCompressionLevel(), getBasicAuthUsername(),
+        int compressionLevel = getCompressionLevel(remote, registrationUrl);
+        return new HttpOutgoingTransport(url, getHttpTimeOutInMs(),
+                isUseCompression() && compressionLevel != Deflater.NO_COMPRESSION,
+                getCompressionStrategy(), compressionLevel, getBasicAuthUsername(),
                 getBasicAuthPassword(), isOutputStreamEnabled(), getOutputStreamSize(), true);
     }    
 
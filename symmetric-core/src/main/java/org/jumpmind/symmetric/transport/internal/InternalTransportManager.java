@@ -91,6 +91,11 @@ public class InternalTransportManager extends AbstractTransportManager implement
         return new InternalIncomingTransport(respIs);
     }
 
+    public IIncomingTransport getPullTransport(Node remote, Node local, String securityToken,
+            Map<String, String> requestProperties, List<IncomingBatch> acks, String registrationUrl) throws IOException {
+        return getPullTransport(remote, local, securityToken, requestProperties, registrationUrl);
+    }
+
     public IIncomingTransport getPullTransport(Node remote, final Node local, String securityToken,
             Map<String, String> requestProperties, String registrationUrl) throws IOException {
         final PipedOutputStream respOs = new PipedOutputStream();
@@ -189,6 +194,12 @@ public class InternalTransportManager extends AbstractTransportManager implement
         return -1;
     }
 
+    @Override
+    public int sendPullWaitRequest(Node remote, Node local, String securityToken, String queue,
+            long waitMillis, String registrationUrl) throws IOException {
+        return HttpURLConnection.HTTP_OK;
+    }
+
     public int sendAcknowledgement(Node remote, List<IncomingBatch> list, Node local,
             String securityToken, String registrationUrl) throws IOException {
         try {
@@ -197,9 +208,7 @@ public class InternalTransportManager extends AbstractTransportManager implement
                 String ackData = getAcknowledgementData(remote.requires13Compatiblity(),
                         local.getNodeId(), list);
                 List<BatchAck> batches = readAcknowledgement(ackData);
-                for (BatchAck batchInfo : batches) {
-                    remoteEngine.getAcknowledgeService().ack(batchInfo);
-                }
+                remoteEngine.getAcknowledgeService().ack(batches);
             }
             return HttpURLConnection.HTTP_OK;
         } catch (Exception ex) {
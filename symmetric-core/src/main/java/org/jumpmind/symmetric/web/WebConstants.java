@@ -115,6 +115,12 @@ public class WebConstants {
     
     public static final String THREAD_CHANNEL = "threadChannel";
     
+    public static final String LONG_POLL_MILLIS = "Long-Poll-Millis";
+    
+    public static final String ACKS_APPLIED = "Acks-Applied";
+    
+    public static final String COMPRESSION_LEVEL = "Compression-Level";
+    
     public static final String CONFIG_VERSION = "configVersion";
 
 }
\ No newline at end of file
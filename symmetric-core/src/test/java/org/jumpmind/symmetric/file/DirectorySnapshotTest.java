@@ -0,0 +1,120 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.junit.Test;
+
+public class DirectorySnapshotTest {
+
+    @Test
+    public void testDiff() throws Exception {
+        DirectorySnapshot lastSnapshot = new DirectorySnapshot(null);
+        lastSnapshot.add(newFile(".", "same.txt", 10, LastEventType.MODIFY));
+        lastSnapshot.add(newFile(".", "changed.txt", 10, LastEventType.MODIFY));
+        lastSnapshot.add(newFile("a", "deleted.txt", 10, LastEventType.MODIFY));
+        lastSnapshot.add(newFile("a", "gone.txt", 10, LastEventType.DELETE));
+
+        DirectorySnapshot currentSnapshot = new DirectorySnapshot(null);
+        currentSnapshot.add(newFile(".", "same.txt", 10, LastEventType.CREATE));
+        currentSnapshot.add(newFile(".", "changed.txt", 20, LastEventType.CREATE));
+        currentSnapshot.add(newFile("b", "deleted.txt", 10, LastEventType.CREATE));
+
+        DirectorySnapshot differences = lastSnapshot.diff(currentSnapshot);
+        assertEquals(3, differences.size());
+        assertEquals(newFile(".", "changed.txt", 20, LastEventType.MODIFY), differences.get(0));
+        assertEquals(newFile("b", "deleted.txt", 10, LastEventType.CREATE), differences.get(1));
+        assertEquals(newFile("a", "deleted.txt", 0, LastEventType.DELETE).getFileName(), differences.get(2).getFileName());
+        assertEquals("a", differences.get(2).getRelativeDir());
+        assertEquals(LastEventType.DELETE, differences.get(2).getLastEventType());
+    }
+
+    @Test
+    public void testStreamingDiffMatchesDiff() throws Exception {
+        List<FileSnapshot> lastFiles = new ArrayList<FileSnapshot>();
+        List<FileSnapshot> currentFiles = new ArrayList<FileSnapshot>();
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 != 0) {
+                lastFiles.add(newFile("dir" + (i % 7), i + ".txt", 10, LastEventType.MODIFY));
+            }
+            if (i % 5 != 0) {
+                currentFiles.add(newFile("dir" + (i % 7), i + ".txt", i % 11 == 0 ? 20 : 10, LastEventType.CREATE));
+            }
+        }
+
+        DirectorySnapshot expected = new DirectorySnapshot(null, copy(lastFiles)).diff(
+                new DirectorySnapshot(null, copy(currentFiles)));
+        Collections.sort(expected, DirectorySnapshot.PATH_ORDER);
+
+        Collections.sort(lastFiles, DirectorySnapshot.PATH_ORDER);
+        Collections.sort(currentFiles, DirectorySnapshot.PATH_ORDER);
+        List<FileSnapshot> actual = new ArrayList<FileSnapshot>();
+        DirectorySnapshot.diff(lastFiles.iterator(), currentFiles.iterator(), actual);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        DirectorySnapshot snapshot = new DirectorySnapshot(null);
+        snapshot.add(newFile(".", "kept.txt", 10, LastEventType.CREATE));
+        snapshot.add(newFile(".", "changed.txt", 10, LastEventType.MODIFY));
+
+        DirectorySnapshot changes = new DirectorySnapshot(null);
+        changes.add(newFile(".", "changed.txt", 20, LastEventType.MODIFY));
+        changes.add(newFile(".", "new.txt", 10, LastEventType.MODIFY));
+
+        snapshot.merge(changes);
+        assertEquals(2, snapshot.size());
+        assertEquals("kept.txt", snapshot.get(0).getFileName());
+        assertEquals(newFile(".", "changed.txt", 20, LastEventType.MODIFY), snapshot.get(1));
+    }
+
+    protected List<FileSnapshot> copy(List<FileSnapshot> files) {
+        List<FileSnapshot> copy = new ArrayList<FileSnapshot>(files.size());
+        for (FileSnapshot file : files) {
+            copy.add(new FileSnapshot(file));
+        }
+        return copy;
+    }
+
+    protected FileSnapshot newFile(String relativeDir, String fileName, long fileSize, LastEventType lastEventType) {
+        FileSnapshot file = new FileSnapshot();
+        file.setRelativeDir(relativeDir);
+        file.setFileName(fileName);
+        file.setFileSize(fileSize);
+        file.setLastEventType(lastEventType);
+        file.setTriggerId("trigger");
+        file.setRouterId("router");
+        return file;
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Date;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.symmetric.model.FileSnapshot.LastEventType;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.Router;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileChecksumCalculatorTest {
+
+    File directory = new File("target/crc");
+    File file = new File(directory, "1.txt");
+
+    FileTriggerRouter fileTriggerRouter;
+
+    FileChecksumCalculator calculator = new FileChecksumCalculator(2, 10);
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        FileUtils.write(file, "1");
+        file.setLastModified(System.currentTimeMillis() - 60000);
+        Router router = new Router();
+        router.setRouterId("router");
+        fileTriggerRouter = new FileTriggerRouter(new FileTrigger(directory.getPath(), true, null, null), router);
+    }
+
+    @Test
+    public void testCalculate() throws Exception {
+        DirectorySnapshot snapshot = newSnapshot();
+        for (int i = 2; i <= 5; i++) {
+            File anotherFile = new File(directory, i + ".txt");
+            FileUtils.write(anotherFile, Integer.toString(i));
+            snapshot.add(new FileSnapshot(fileTriggerRouter, anotherFile, LastEventType.CREATE, false));
+        }
+        calculator.calculate(snapshot, null);
+        for (FileSnapshot fileSnapshot : snapshot) {
+            assertEquals(FileUtils.checksumCRC32(new File(directory, fileSnapshot.getFileName())),
+                    fileSnapshot.getCrc32Checksum());
+        }
+    }
+
+    @Test
+    public void testPreviousChecksumReused() throws Exception {
+        DirectorySnapshot previousSnapshot = newSnapshot();
+        previousSnapshot.get(0).setCrc32Checksum(42);
+        previousSnapshot.get(0).setLastUpdateTime(new Date());
+
+        DirectorySnapshot snapshot = newSnapshot();
+        calculator.calculate(snapshot, previousSnapshot);
+        assertEquals(42, snapshot.get(0).getCrc32Checksum());
+
+        file.setLastModified(file.lastModified() - 1000);
+        snapshot = newSnapshot();
+        calculator.calculate(snapshot, previousSnapshot);
+        assertEquals(FileUtils.checksumCRC32(file), snapshot.get(0).getCrc32Checksum());
+    }
+
+    @Test
+    public void testCachedChecksumReused() throws Exception {
+        long checksum = FileUtils.checksumCRC32(file);
+        calculator.calculate(newSnapshot(), null);
+        long lastModified = file.lastModified();
+        FileUtils.write(file, "2");
+        file.setLastModified(lastModified);
+
+        DirectorySnapshot snapshot = newSnapshot();
+        calculator.calculate(snapshot, null);
+        assertEquals(checksum, snapshot.get(0).getCrc32Checksum());
+    }
+
+    @Test
+    public void testRecentlyModifiedFileNotReused() throws Exception {
+        file.setLastModified(System.currentTimeMillis());
+        calculator.calculate(newSnapshot(), null);
+        long lastModified = file.lastModified();
+        FileUtils.write(file, "2");
+        file.setLastModified(lastModified);
+
+        DirectorySnapshot snapshot = newSnapshot();
+        calculator.calculate(snapshot, null);
+        assertEquals(FileUtils.checksumCRC32(file), snapshot.get(0).getCrc32Checksum());
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        DirectorySnapshot snapshot = newSnapshot();
+        FileUtils.deleteQuietly(file);
+        calculator.calculate(snapshot, null);
+        assertEquals(-1, snapshot.get(0).getCrc32Checksum());
+    }
+
+    protected DirectorySnapshot newSnapshot() {
+        DirectorySnapshot snapshot = new DirectorySnapshot(fileTriggerRouter);
+        snapshot.add(new FileSnapshot(fileTriggerRouter, file, LastEventType.CREATE, false));
+        return snapshot;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileDeltaTest {
+
+    File directory = new File("target/delta");
+    File target = new File(directory, "target.dat");
+    File delta = new File(directory, "target.delta");
+
+    byte[] original;
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        original = new byte[200000];
+        new Random(42).nextBytes(original);
+        FileUtils.writeByteArrayToFile(target, original);
+    }
+
+    @Test
+    public void testSmallChangeSendsSmallDelta() throws Exception {
+        byte[] modified = new byte[original.length + 100];
+        new Random(7).nextBytes(modified);
+        System.arraycopy(original, 0, modified, 0, 50000);
+        System.arraycopy(original, 50000, modified, 50100, original.length - 50000);
+
+        long deltaSize = writeDelta(modified);
+        assertTrue("delta was " + deltaSize + " bytes", deltaSize < 5000);
+
+        FileDelta.applyDelta(delta, target);
+        assertArrayEquals(modified, FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testUnrelatedContent() throws Exception {
+        byte[] modified = new byte[1000];
+        new Random(7).nextBytes(modified);
+        writeDelta(modified);
+        FileDelta.applyDelta(delta, target);
+        assertArrayEquals(modified, FileUtils.readFileToByteArray(target));
+    }
+
+    @Test
+    public void testTargetChangedSinceSignature() throws Exception {
+        byte[] modified = original.clone();
+        modified[10] ^= 1;
+        writeDelta(modified);
+
+        byte[] changed = original.clone();
+        changed[100000] ^= 1;
+        FileUtils.writeByteArrayToFile(target, changed);
+        try {
+            FileDelta.applyDelta(delta, target);
+            fail("Expected the delta to be rejected");
+        } catch (FileDeltaException e) {
+            assertTrue(FileDeltaException.isDeltaError(e.getMessage()));
+        }
+        assertArrayEquals(changed, FileUtils.readFileToByteArray(target));
+        assertEquals(2, directory.list().length);
+    }
+
+    protected long writeDelta(byte[] modified) throws Exception {
+        FileDelta.Signature signature = FileDelta.createSignature(target, 2048);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        File source = new File(directory, "source.dat");
+        FileUtils.writeByteArrayToFile(source, modified);
+        long size = FileDelta.writeDelta(signature, source, out);
+        FileUtils.deleteQuietly(source);
+        FileUtils.writeByteArrayToFile(delta, out.toByteArray());
+        return size;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.symmetric.model.FileSnapshot;
+import org.jumpmind.util.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileSyncZipDataWriterTest {
+
+    File directory = new File("target/zip");
+
+    FileSyncZipDataWriter writer = new FileSyncZipDataWriter(0, null, null, null);
+
+    @Before
+    public void setupTest() throws Exception {
+        FileUtils.deleteQuietly(directory);
+        directory.mkdirs();
+        writer.setCompression(-1, "jpg, zip", 1024);
+    }
+
+    @Test
+    public void testStoredExtension() throws Exception {
+        File file = new File(directory, "picture.JPG");
+        FileUtils.write(file, StringUtils.repeat("a", 10000));
+        assertFalse(writer.isCompressible(file));
+    }
+
+    @Test
+    public void testSampledCompressibility() throws Exception {
+        File text = new File(directory, "text.txt");
+        FileUtils.write(text, StringUtils.repeat("compressible ", 1000));
+        assertTrue(writer.isCompressible(text));
+
+        File random = new File(directory, "random.dat");
+        byte[] bytes = new byte[10000];
+        new Random(1).nextBytes(bytes);
+        FileUtils.writeByteArrayToFile(random, bytes);
+        assertFalse(writer.isCompressible(random));
+
+        writer.setCompression(-1, "", 0);
+        assertTrue(writer.isCompressible(random));
+    }
+
+    @Test
+    public void testStoredWithSnapshotChecksum() throws Exception {
+        File random = writeRandomFile("random.dat", 1);
+        FileSnapshot snapshot = newSnapshot(random, FileUtils.checksumCRC32(random));
+
+        ZipFile zip = writeZip(random, snapshot);
+        try {
+            ZipEntry entry = zip.getEntry("random.dat");
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals(random.length(), entry.getCompressedSize());
+            assertEntryEquals(zip, entry, random);
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void testNoCompressionWithoutSnapshotChecksum() throws Exception {
+        File random = writeRandomFile("random.dat", 1);
+        FileSnapshot snapshot = newSnapshot(random, -1);
+
+        ZipFile zip = writeZip(random, snapshot);
+        try {
+            ZipEntry entry = zip.getEntry("random.dat");
+            assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+            assertTrue(entry.getCompressedSize() >= random.length());
+            assertEntryEquals(zip, entry, random);
+
+            entry = zip.getEntry("text.txt");
+            assertTrue(entry.getCompressedSize() < entry.getSize() / 10);
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void testFileChangedSinceSnapshot() throws Exception {
+        File random = writeRandomFile("random.dat", 1);
+        FileSnapshot snapshot = newSnapshot(random, FileUtils.checksumCRC32(random));
+        random = writeRandomFile("random.dat", 2);
+        random.setLastModified(snapshot.getFileModifiedTime() + 2000);
+
+        ZipFile zip = writeZip(random, snapshot);
+        try {
+            assertEntryEquals(zip, zip.getEntry("random.dat"), random);
+        } finally {
+            zip.close();
+        }
+    }
+
+    protected File writeRandomFile(String name, long seed) throws Exception {
+        File file = new File(directory, name);
+        byte[] bytes = new byte[10000];
+        new Random(seed).nextBytes(bytes);
+        FileUtils.writeByteArrayToFile(file, bytes);
+        return file;
+    }
+
+    protected FileSnapshot newSnapshot(File file, long crc32Checksum) {
+        FileSnapshot snapshot = new FileSnapshot();
+        snapshot.setFileName(file.getName());
+        snapshot.setFileSize(file.length());
+        snapshot.setFileModifiedTime(file.lastModified());
+        snapshot.setCrc32Checksum(crc32Checksum);
+        return snapshot;
+    }
+
+    /**
+     * Zip the file followed by a compressible text file, which should be
+     * deflated at the normal level again.
+     */
+    protected ZipFile writeZip(File file, FileSnapshot snapshot) throws Exception {
+        File text = new File(directory, "text.txt");
+        FileUtils.write(text, StringUtils.repeat("compressible ", 1000));
+        File zipFile = new File(directory, "test.zip");
+        Statistics stats = new Statistics();
+        writer.zos = new ZipOutputStream(new FileOutputStream(zipFile));
+        try {
+            ZipEntry entry = new ZipEntry(file.getName());
+            entry.setSize(file.length());
+            writer.putFileEntry(entry, file, snapshot, stats);
+            entry = new ZipEntry(text.getName());
+            entry.setSize(text.length());
+            writer.putFileEntry(entry, text, newSnapshot(text, -1), stats);
+        } finally {
+            writer.zos.close();
+        }
+        assertEquals(1, stats.get(FileSyncZipDataWriter.STOREDFILECOUNT));
+        return new ZipFile(zipFile);
+    }
+
+    protected void assertEntryEquals(ZipFile zip, ZipEntry entry, File file) throws Exception {
+        InputStream is = zip.getInputStream(entry);
+        try {
+            assertArrayEquals(FileUtils.readFileToByteArray(file), IOUtils.toByteArray(is));
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.model.FileTrigger;
+import org.jumpmind.symmetric.model.FileTriggerRouter;
+import org.jumpmind.symmetric.model.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileTriggerWatcherTest {
+
+    File directory = new File("target/watch");
+    File subdirectory = new File(directory, "a");
+
+    FileTriggerWatcher watcher;
+
+    @Before
+    public void setupTest() throws Exception {
+        assumeTrue(FileTriggerWatcher.isSupported());
+        FileUtils.deleteQuietly(directory);
+        subdirectory.mkdirs();
+        FileUtils.write(new File(directory, "1.txt"), "1");
+        FileTrigger fileTrigger = new FileTrigger(directory.getPath(), true, null, null);
+        watcher = new FileTriggerWatcher(new FileTriggerRouter(fileTrigger, new Router()));
+    }
+
+    @After
+    public void cleanupTest() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testFullScanNeededBeforeStart() throws Exception {
+        assertNull(watcher.pollChangedDirectories());
+    }
+
+    @Test
+    public void testChangedDirectories() throws Exception {
+        watcher.start();
+        FileUtils.write(new File(subdirectory, "2.txt"), "2");
+        Set<File> changedDirectories = waitForChanges();
+        assertNotNull(changedDirectories);
+        assertTrue(changedDirectories.contains(subdirectory));
+        assertEquals("a", watcher.getRelativeDir(subdirectory));
+        assertEquals(".", watcher.getRelativeDir(directory));
+    }
+
+    @Test
+    public void testNewDirectoryIsWatched() throws Exception {
+        watcher.start();
+        File newDirectory = new File(directory, "b");
+        newDirectory.mkdirs();
+        Set<File> changedDirectories = waitForChanges();
+        assertTrue(changedDirectories.contains(directory));
+        assertTrue(changedDirectories.contains(newDirectory));
+
+        FileUtils.write(new File(newDirectory, "3.txt"), "3");
+        changedDirectories = waitForChanges();
+        assertTrue(changedDirectories.contains(newDirectory));
+    }
+
+    @Test
+    public void testRemovedDirectoryNeedsFullScan() throws Exception {
+        watcher.start();
+        FileUtils.deleteDirectory(subdirectory);
+        Set<File> changedDirectories = watcher.pollChangedDirectories();
+        for (int i = 0; i < 50 && changedDirectories != null; i++) {
+            Thread.sleep(100);
+            changedDirectories = watcher.pollChangedDirectories();
+        }
+        assertNull(changedDirectories);
+    }
+
+    protected Set<File> waitForChanges() throws Exception {
+        Set<File> changedDirectories = watcher.pollChangedDirectories();
+        for (int i = 0; i < 50 && changedDirectories != null && changedDirectories.size() == 0; i++) {
+            Thread.sleep(100);
+            changedDirectories = watcher.pollChangedDirectories();
+        }
+        return changedDirectories;
+    }
+
+}
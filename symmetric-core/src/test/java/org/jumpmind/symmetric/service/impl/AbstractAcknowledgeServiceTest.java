@@ -0,0 +1,186 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.symmetric.TestConstants;
+import org.jumpmind.symmetric.model.BatchAck;
+import org.jumpmind.symmetric.model.BatchAckResult;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.OutgoingBatch.Status;
+import org.jumpmind.symmetric.service.IAcknowledgeService;
+import org.jumpmind.symmetric.transport.IAcknowledgeEventListener;
+import org.junit.After;
+import org.junit.Test;
+
+public abstract class AbstractAcknowledgeServiceTest extends AbstractServiceTest {
+
+    @After
+    public void resetForTest() {
+        getSqlTemplate().update("update sym_outgoing_batch set status='OK', error_flag=0 where status != 'OK'");
+    }
+
+    @Test
+    public void testAckAcrossQueryChunks() {
+        List<OutgoingBatch> outgoingBatches = insertBatches(505);
+        List<BatchAck> acks = new ArrayList<BatchAck>();
+        for (OutgoingBatch outgoingBatch : outgoingBatches) {
+            acks.add(newAck(outgoingBatch.getBatchId(), TestConstants.TEST_CLIENT_EXTERNAL_ID));
+        }
+        acks.add(newAck(Long.MAX_VALUE - 1, TestConstants.TEST_CLIENT_EXTERNAL_ID));
+
+        List<BatchAckResult> results = getAcknowledgeService().ack(acks);
+        assertEquals(results.size(), 506);
+        for (int i = 0; i < 505; i++) {
+            assertTrue(results.get(i).isOk(), "Expected batch " + results.get(i).getBatchId() + " to be found");
+        }
+        assertFalse(results.get(505).isOk(), "Expected the unknown batch to be reported");
+        assertEquals(countBatches(outgoingBatches, Status.OK), 505);
+    }
+
+    @Test
+    public void testAckWithoutNodeId() {
+        List<OutgoingBatch> outgoingBatches = insertBatches(2);
+        List<BatchAck> acks = new ArrayList<BatchAck>();
+        acks.add(newAck(outgoingBatches.get(0).getBatchId(), null));
+        acks.add(newAck(outgoingBatches.get(1).getBatchId(), ""));
+
+        List<BatchAckResult> results = getAcknowledgeService().ack(acks);
+        assertTrue(results.get(0).isOk());
+        assertTrue(results.get(1).isOk());
+        assertEquals(countBatches(outgoingBatches, Status.OK), 2);
+    }
+
+    @Test
+    public void testAckError() {
+        OutgoingBatch outgoingBatch = insertBatches(1).get(0);
+        long batchId = outgoingBatch.getBatchId();
+        for (int i = 1; i <= 3; i++) {
+            getSqlTemplate().update(
+                    "insert into sym_data_event (data_id, batch_id, router_id) values (?, ?, ?)",
+                    batchId * 10 + i, batchId, TestConstants.ROUTER_ID_ROOT_2_TEST);
+        }
+
+        BatchAck ack = new BatchAck(batchId, 2);
+        ack.setNodeId(TestConstants.TEST_CLIENT_EXTERNAL_ID);
+        ack.setSqlCode(100);
+        ack.setSqlMessage("test failure");
+        List<BatchAck> acks = new ArrayList<BatchAck>();
+        acks.add(ack);
+        assertTrue(getAcknowledgeService().ack(acks).get(0).isOk());
+
+        OutgoingBatch saved = getOutgoingBatchService().findOutgoingBatch(batchId,
+                TestConstants.TEST_CLIENT_EXTERNAL_ID);
+        assertEquals(saved.getStatus(), Status.ER);
+        assertTrue(saved.isErrorFlag());
+        assertEquals(saved.getFailedDataId(), batchId * 10 + 2);
+        assertEquals(saved.getSqlCode(), 100);
+        assertEquals(saved.getSqlMessage(), "test failure");
+    }
+
+    @Test
+    public void testUpdateOutgoingBatches() {
+        List<OutgoingBatch> outgoingBatches = insertBatches(3);
+        outgoingBatches.get(0).setStatus(Status.OK);
+        outgoingBatches.get(1).setStatus(Status.ER);
+        outgoingBatches.get(1).setErrorFlag(true);
+        outgoingBatches.get(2).setStatus(Status.IG);
+        outgoingBatches.get(2).setIgnoreCount(1);
+        getOutgoingBatchService().updateOutgoingBatches(outgoingBatches);
+
+        for (OutgoingBatch outgoingBatch : outgoingBatches) {
+            OutgoingBatch saved = getOutgoingBatchService().findOutgoingBatch(
+                    outgoingBatch.getBatchId(), TestConstants.TEST_CLIENT_EXTERNAL_ID);
+            assertEquals(saved.getStatus(), outgoingBatch.getStatus());
+            assertEquals(saved.isErrorFlag(), outgoingBatch.isErrorFlag());
+            assertEquals(saved.getIgnoreCount(), outgoingBatch.getIgnoreCount());
+        }
+    }
+
+    @Test
+    public void testListenerSeesEarlierAcksSaved() {
+        final List<OutgoingBatch> outgoingBatches = insertBatches(3);
+        final List<Status> statusOfPreviousBatch = new ArrayList<Status>();
+        IAcknowledgeEventListener listener = new IAcknowledgeEventListener() {
+            public void onAcknowledgeEvent(BatchAck batchInfo) {
+                for (int i = 1; i < outgoingBatches.size(); i++) {
+                    if (outgoingBatches.get(i).getBatchId() == batchInfo.getBatchId()) {
+                        statusOfPreviousBatch.add(getOutgoingBatchService().findOutgoingBatch(
+                                outgoingBatches.get(i - 1).getBatchId(),
+                                TestConstants.TEST_CLIENT_EXTERNAL_ID).getStatus());
+                    }
+                }
+            }
+        };
+
+        List<BatchAck> acks = new ArrayList<BatchAck>();
+        for (OutgoingBatch outgoingBatch : outgoingBatches) {
+            acks.add(newAck(outgoingBatch.getBatchId(), TestConstants.TEST_CLIENT_EXTERNAL_ID));
+        }
+        getSymmetricEngine().getExtensionService().addExtensionPoint(listener);
+        try {
+            getAcknowledgeService().ack(acks);
+        } finally {
+            getSymmetricEngine().getExtensionService().removeExtensionPoint(listener);
+        }
+
+        assertEquals(statusOfPreviousBatch.size(), 2);
+        assertEquals(statusOfPreviousBatch.get(0), Status.OK);
+        assertEquals(statusOfPreviousBatch.get(1), Status.OK);
+        assertEquals(countBatches(outgoingBatches, Status.OK), 3);
+    }
+
+    protected IAcknowledgeService getAcknowledgeService() {
+        return getSymmetricEngine().getAcknowledgeService();
+    }
+
+    protected List<OutgoingBatch> insertBatches(int count) {
+        List<OutgoingBatch> outgoingBatches = new ArrayList<OutgoingBatch>(count);
+        for (int i = 0; i < count; i++) {
+            OutgoingBatch outgoingBatch = new OutgoingBatch(TestConstants.TEST_CLIENT_EXTERNAL_ID,
+                    TestConstants.TEST_CHANNEL_ID, Status.LD);
+            getOutgoingBatchService().insertOutgoingBatch(outgoingBatch);
+            outgoingBatches.add(outgoingBatch);
+        }
+        return outgoingBatches;
+    }
+
+    protected BatchAck newAck(long batchId, String nodeId) {
+        BatchAck ack = new BatchAck(batchId);
+        ack.setNodeId(nodeId);
+        return ack;
+    }
+
+    protected int countBatches(List<OutgoingBatch> outgoingBatches, Status status) {
+        int count = 0;
+        for (OutgoingBatch outgoingBatch : outgoingBatches) {
+            OutgoingBatch saved = getOutgoingBatchService().findOutgoingBatch(
+                    outgoingBatch.getBatchId(), TestConstants.TEST_CLIENT_EXTERNAL_ID);
+            if (saved != null && saved.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
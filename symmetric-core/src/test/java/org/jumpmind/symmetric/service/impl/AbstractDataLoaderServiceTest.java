@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.service.impl;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -29,6 +30,8 @@ import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
@@ -50,6 +53,7 @@ import org.jumpmind.symmetric.service.IDataLoaderService;
 import org.jumpmind.symmetric.service.impl.DataLoaderService.ConflictNodeGroupLink;
 import org.jumpmind.symmetric.transport.MockTransportManager;
 import org.jumpmind.symmetric.transport.internal.InternalIncomingTransport;
+import org.jumpmind.symmetric.web.WebConstants;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
@@ -606,6 +610,119 @@ abstract public class AbstractDataLoaderServiceTest extends AbstractServiceTest
         assertEquals(batch.getChannelId(), TestConstants.TEST_CHANNEL_ID, "Wrong channel. " + printDatabase());
     }
 
+    @Test
+    public void test14PiggybackedAcks() throws Exception {
+        MockTransportManager transportManager = getTransportManager();
+        DataLoaderService dataLoaderService = (DataLoaderService) getDataLoaderService();
+        getParameterService().saveParameter(ParameterConstants.PULL_ACK_PIGGYBACK_ENABLED, true, "unit_test");
+        try {
+            dataLoaderService.takePendingAcks(client.getNodeId());
+            transportManager.getSentAcks().clear();
+
+            load(writeInsertBatch());
+            long firstBatchId = batchId;
+            Assert.assertEquals(0, transportManager.getSentAcks().size());
+
+            transportManager.setIncomingTransport(new InternalIncomingTransport(new ByteArrayInputStream(new byte[0])) {
+                public BufferedReader openReader() throws IOException {
+                    throw new IOException("Simulated failed pull");
+                }
+            });
+            try {
+                String channelId = null;
+                dataLoaderService.loadDataFromPull(client, channelId);
+                Assert.fail("The pull should have failed");
+            } catch (IOException e) {
+            }
+            assertBatchIds(transportManager.getPiggybackedAcks(), firstBatchId);
+            Assert.assertEquals(0, transportManager.getSentAcks().size());
+
+            load(writeInsertBatch());
+            long secondBatchId = batchId;
+            assertBatchIds(transportManager.getPiggybackedAcks(), firstBatchId);
+            assertBatchIds(transportManager.getSentAcks(), firstBatchId);
+
+            transportManager.getSentAcks().clear();
+            ByteArrayInputStream in = new ByteArrayInputStream(writeInsertBatch().toByteArray());
+            transportManager.setIncomingTransport(new InternalIncomingTransport(in) {
+                public Map<String, String> getHeaders() {
+                    Map<String, String> headers = new HashMap<String, String>();
+                    headers.put(WebConstants.ACKS_APPLIED, "1");
+                    return headers;
+                }
+            });
+            String channelId = null;
+            dataLoaderService.loadDataFromPull(client, channelId);
+            assertBatchIds(transportManager.getPiggybackedAcks(), secondBatchId);
+            Assert.assertEquals(0, transportManager.getSentAcks().size());
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.PULL_ACK_PIGGYBACK_ENABLED, false, "unit_test");
+            dataLoaderService.takePendingAcks(client.getNodeId());
+        }
+    }
+
+    @Test
+    public void test15PiggybackedAcksKeptWhenPullFailsToConnect() throws Exception {
+        MockTransportManager transportManager = getTransportManager();
+        DataLoaderService dataLoaderService = (DataLoaderService) getDataLoaderService();
+        getParameterService().saveParameter(ParameterConstants.PULL_ACK_PIGGYBACK_ENABLED, true, "unit_test");
+        try {
+            dataLoaderService.takePendingAcks(client.getNodeId());
+            transportManager.getSentAcks().clear();
+
+            load(writeInsertBatch());
+            long heldBatchId = batchId;
+            Assert.assertEquals(0, transportManager.getSentAcks().size());
+
+            transportManager.setPullTransportError(new IOException("Simulated failed connect"));
+            try {
+                String channelId = null;
+                dataLoaderService.loadDataFromPull(client, channelId);
+                Assert.fail("The pull should have failed");
+            } catch (IOException e) {
+            } finally {
+                transportManager.setPullTransportError(null);
+            }
+            assertBatchIds(transportManager.getPiggybackedAcks(), heldBatchId);
+            Assert.assertEquals(0, transportManager.getSentAcks().size());
+
+            dataLoaderService.stop();
+            assertBatchIds(transportManager.getSentAcks(), heldBatchId);
+            Assert.assertEquals(0, dataLoaderService.takePendingAcks(client.getNodeId()).size());
+        } finally {
+            getParameterService().saveParameter(ParameterConstants.PULL_ACK_PIGGYBACK_ENABLED, false, "unit_test");
+            dataLoaderService.takePendingAcks(client.getNodeId());
+            transportManager.getSentAcks().clear();
+        }
+    }
+
+    protected ByteArrayOutputStream writeInsertBatch() throws IOException {
+        String[] values = new String[TEST_COLUMNS.length];
+        values[2] = values[4] = "piggyback test";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = getWriter(out);
+        writer.writeRecord(new String[] { CsvConstants.NODEID,
+                TestConstants.TEST_CLIENT_EXTERNAL_ID });
+        writer.writeRecord(new String[] { CsvConstants.CHANNEL,
+                TestConstants.TEST_CHANNEL_ID });
+        String nextBatchId = getNextBatchId();
+        writer.writeRecord(new String[] { CsvConstants.BATCH, nextBatchId });
+        writeTable(writer, TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        values[0] = getNextId();
+        writer.write(CsvConstants.INSERT);
+        writer.writeRecord(values, true);
+        writer.writeRecord(new String[] { CsvConstants.COMMIT, nextBatchId });
+        writer.close();
+        return out;
+    }
+
+    protected void assertBatchIds(List<IncomingBatch> batches, long... batchIds) {
+        Assert.assertEquals(batchIds.length, batches.size());
+        for (int i = 0; i < batchIds.length; i++) {
+            Assert.assertEquals(batchIds[i], batches.get(i).getBatchId());
+        }
+    }
+
     protected CsvWriter getWriter(OutputStream out) {
         CsvWriter writer = new CsvWriter(new OutputStreamWriter(out), ',');
         writer.setEscapeMode(CsvWriter.ESCAPE_MODE_BACKSLASH);
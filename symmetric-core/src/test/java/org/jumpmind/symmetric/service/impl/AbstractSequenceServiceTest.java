@@ -0,0 +1,118 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.symmetric.model.Sequence;
+import org.junit.Before;
+import org.junit.Test;
+
+public abstract class AbstractSequenceServiceTest extends AbstractServiceTest {
+
+    protected static final String TEST_SEQUENCE = "test_block_sequence";
+
+    protected SequenceService sequenceService;
+
+    @Before
+    public void setupForTest() {
+        getSqlTemplate().update("delete from sym_sequence where sequence_name=?", TEST_SEQUENCE);
+        sequenceService = new SequenceService(getParameterService(), getDbDialect());
+        sequenceService.create(new Sequence(TEST_SEQUENCE, 0, 1, 1, 9999999999l, "test", false, 3));
+    }
+
+    @Test
+    public void testNextValAcrossBlockRefill() {
+        for (long expected = 1; expected <= 7; expected++) {
+            assertEquals(sequenceService.nextVal(TEST_SEQUENCE), expected);
+            assertEquals(sequenceService.currVal(TEST_SEQUENCE), expected,
+                    "currVal should report the last value handed out");
+        }
+        assertEquals(getDatabaseValue(), 9l, "Expected three blocks of three to be reserved");
+        assertEquals(sequenceService.getSequenceStats().get(TEST_SEQUENCE).getRefillCount(), 3l);
+    }
+
+    @Test
+    public void testCurrValOnNewBlock() {
+        for (int i = 0; i < 3; i++) {
+            sequenceService.nextVal(TEST_SEQUENCE);
+        }
+        assertEquals(sequenceService.currVal(TEST_SEQUENCE), 3l);
+        assertEquals(sequenceService.nextVal(TEST_SEQUENCE), 4l);
+        assertEquals(sequenceService.currVal(TEST_SEQUENCE), 4l,
+                "currVal should not report a value below the new block");
+    }
+
+    @Test
+    public void testCallerRollbackLeavesGap() {
+        ISqlTransaction transaction = getSqlTemplate().startSqlTransaction();
+        long value;
+        try {
+            value = sequenceService.nextVal(transaction, TEST_SEQUENCE);
+            assertEquals(sequenceService.currVal(transaction, TEST_SEQUENCE), value);
+        } finally {
+            transaction.rollback();
+            transaction.close();
+        }
+        assertEquals(value, 1l);
+        assertEquals(getDatabaseValue(), 3l,
+                "The block should be reserved in its own transaction and survive the rollback");
+        assertEquals(sequenceService.nextVal(TEST_SEQUENCE), 2l,
+                "Values handed out before the rollback should not be handed out again");
+    }
+
+    @Test
+    public void testReserveBlockInCallerTransaction() {
+        sequenceService = new SequenceService(getParameterService(), getDbDialect()) {
+            @Override
+            protected boolean isReserveBlockInCallerTransaction() {
+                return true;
+            }
+        };
+
+        ISqlTransaction transaction = getSqlTemplate().startSqlTransaction();
+        try {
+            assertEquals(sequenceService.nextVal(transaction, TEST_SEQUENCE), 1l);
+            assertEquals(sequenceService.nextVal(transaction, TEST_SEQUENCE), 2l);
+        } finally {
+            transaction.rollback();
+            transaction.close();
+        }
+        assertEquals(getDatabaseValue(), 0l, "The block should be rolled back with the caller");
+        assertEquals(sequenceService.nextVal(TEST_SEQUENCE), 1l,
+                "The rolled back block should not be used");
+        assertEquals(getDatabaseValue(), 3l);
+
+        transaction = getSqlTemplate().startSqlTransaction();
+        try {
+            assertEquals(sequenceService.nextVal(transaction, TEST_SEQUENCE), 2l);
+            transaction.commit();
+        } finally {
+            transaction.close();
+        }
+        assertEquals(getDatabaseValue(), 3l, "Values from a committed block should not reserve another");
+    }
+
+    protected long getDatabaseValue() {
+        return getSqlTemplate().queryForLong(
+                "select current_value from sym_sequence where sequence_name=?", TEST_SEQUENCE);
+    }
+
+}
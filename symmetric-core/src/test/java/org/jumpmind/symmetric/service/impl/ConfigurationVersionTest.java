@@ -0,0 +1,75 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ConfigurationVersionTest {
+
+    @Test
+    public void testChangedKeys() {
+        ConfigurationVersion version = new ConfigurationVersion(10);
+        assertTrue(version.getChangedKeys(0).isEmpty());
+        version.increment("00001");
+        version.increment("00002", "00003");
+        assertEquals(2, version.getVersion());
+
+        Set<String> keys = version.getChangedKeys(0);
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("00001"));
+        assertTrue(keys.contains("00003"));
+
+        keys = version.getChangedKeys(1);
+        assertEquals(2, keys.size());
+        assertTrue(version.getChangedKeys(2).isEmpty());
+    }
+
+    @Test
+    public void testUnknownChanges() {
+        ConfigurationVersion version = new ConfigurationVersion(10);
+        version.increment("00001");
+        version.increment();
+        version.increment("00002");
+        assertNull(version.getChangedKeys(0));
+        assertEquals(1, version.getChangedKeys(2).size());
+
+        version.update(5, "00003");
+        assertEquals(5, version.getVersion());
+        assertNull(version.getChangedKeys(3));
+    }
+
+    @Test
+    public void testChangesNoLongerTracked() {
+        ConfigurationVersion version = new ConfigurationVersion(2);
+        version.increment("00001");
+        version.increment("00002");
+        version.increment("00003");
+        assertNull(version.getChangedKeys(0));
+        assertEquals(2, version.getChangedKeys(1).size());
+    }
+
+}
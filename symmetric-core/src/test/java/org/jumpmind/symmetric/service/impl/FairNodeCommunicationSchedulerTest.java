@@ -0,0 +1,126 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jumpmind.symmetric.model.NodeCommunication;
+import org.jumpmind.symmetric.model.NodeCommunication.CommunicationType;
+import org.junit.Test;
+
+public class FairNodeCommunicationSchedulerTest {
+
+    @Test
+    public void testSmallNodesAreNotStarved() {
+        FairNodeCommunicationScheduler scheduler = newScheduler(Long.MAX_VALUE);
+        NodeCommunication big = newNodeCommunication("big", 10000, 0);
+        NodeCommunication small = newNodeCommunication("small", 1, 0);
+        List<NodeCommunication> list = new ArrayList<NodeCommunication>();
+        list.add(big);
+        list.add(small);
+
+        int bigRuns = 0;
+        int smallRuns = 0;
+        for (int i = 0; i < 100; i++) {
+            NodeCommunication first = scheduler.schedule(CommunicationType.PUSH, list).get(0);
+            scheduler.executed(first, 1000, false);
+            if (first == big) {
+                bigRuns++;
+            } else {
+                smallRuns++;
+            }
+        }
+        assertEquals(100, bigRuns + smallRuns);
+        assertEquals(true, bigRuns > smallRuns);
+        assertEquals(true, smallRuns >= 10);
+    }
+
+    @Test
+    public void testPriorityAndOverdueComeFirst() {
+        FairNodeCommunicationScheduler scheduler = newScheduler(60000);
+        NodeCommunication fresh = newNodeCommunication("fresh", 10, 0);
+        NodeCommunication overdue = newNodeCommunication("overdue", 1, 120000);
+        NodeCommunication priority = newNodeCommunication("priority", 1, 0);
+        priority.setNodePriority(1);
+        List<NodeCommunication> list = new ArrayList<NodeCommunication>();
+        list.add(fresh);
+        list.add(overdue);
+        list.add(priority);
+        scheduler.schedule(CommunicationType.PUSH, list);
+        scheduler.executed(overdue, 100000, false);
+
+        List<NodeCommunication> scheduled = scheduler.schedule(CommunicationType.PUSH, list);
+        assertEquals("priority", scheduled.get(0).getNodeId());
+        assertEquals("overdue", scheduled.get(1).getNodeId());
+        assertEquals("fresh", scheduled.get(2).getNodeId());
+    }
+
+    @Test
+    public void testIdleNodeDoesNotBankCredit() {
+        FairNodeCommunicationScheduler scheduler = newScheduler(Long.MAX_VALUE);
+        NodeCommunication busy = newNodeCommunication("busy", 1, 0);
+        NodeCommunication idle = newNodeCommunication("idle", 1, 0);
+        List<NodeCommunication> onlyBusy = new ArrayList<NodeCommunication>();
+        onlyBusy.add(busy);
+        List<NodeCommunication> both = new ArrayList<NodeCommunication>();
+        both.add(busy);
+        both.add(idle);
+
+        scheduler.schedule(CommunicationType.PUSH, both);
+        for (int i = 0; i < 50; i++) {
+            scheduler.schedule(CommunicationType.PUSH, onlyBusy);
+            scheduler.executed(busy, 1000, false);
+        }
+
+        int idleRuns = 0;
+        for (int i = 0; i < 10; i++) {
+            NodeCommunication first = scheduler.schedule(CommunicationType.PUSH, both).get(0);
+            scheduler.executed(first, 1000, false);
+            if (first == idle) {
+                idleRuns++;
+            }
+        }
+        assertEquals(5, idleRuns);
+    }
+
+    protected FairNodeCommunicationScheduler newScheduler(final long maxWaitMs) {
+        return new FairNodeCommunicationScheduler(null) {
+            @Override
+            protected long getMaxWaitMs() {
+                return maxWaitMs;
+            }
+        };
+    }
+
+    protected NodeCommunication newNodeCommunication(String nodeId, long batchCount, long lockedMillisAgo) {
+        NodeCommunication nodeCommunication = new NodeCommunication();
+        nodeCommunication.setNodeId(nodeId);
+        nodeCommunication.setCommunicationType(CommunicationType.PUSH);
+        nodeCommunication.setBatchToSendCount(batchCount);
+        nodeCommunication.setLastLockTime(new Date(System.currentTimeMillis() - lockedMillisAgo));
+        return nodeCommunication;
+    }
+
+}
@@ -21,14 +21,127 @@
 package org.jumpmind.symmetric.service.impl;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.symmetric.db.AbstractSymmetricDialect;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.NodeCommunication;
 import org.jumpmind.symmetric.model.NodeCommunication.CommunicationType;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class NodeCommunicationServiceTest {
 
+    static final String[] NODE_COMMUNICATION_COLUMNS = { "lock_time", "locking_server_id",
+            "last_lock_millis", "success_count", "fail_count", "total_success_count",
+            "total_fail_count", "total_success_millis", "total_fail_millis", "last_lock_time",
+            "batch_to_send_count", "node_priority", "node_id", "queue", "communication_type" };
+
+    ISqlTemplate sqlTemplate;
+    ISqlTransaction transaction;
+    ISymmetricDialect symmetricDialect;
+    IParameterService parameterService;
+    IClusterService clusterService;
+
+    @Before
+    public void setUp() throws Exception {
+        sqlTemplate = mock(ISqlTemplate.class);
+        transaction = mock(ISqlTransaction.class);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        symmetricDialect = mock(AbstractSymmetricDialect.class);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+        parameterService = mock(ParameterService.class);
+        clusterService = mock(IClusterService.class);
+        when(clusterService.getServerId()).thenReturn("server1");
+    }
+
+    protected NodeCommunicationService createService() {
+        return new NodeCommunicationService(clusterService, mock(INodeService.class), parameterService,
+                mock(IConfigurationService.class), mock(ExtensionService.class), symmetricDialect);
+    }
+
+    @Test
+    public void testPersistAndReloadLockCache() throws Exception {
+        NodeCommunicationService service = createService();
+        NodeCommunication lock = service.find("00001", "default", CommunicationType.PUSH);
+        Date lockTime = new Date();
+        assertTrue(service.lock(lock, lockTime));
+        service.unlock(lock, false, lockTime.getTime());
+
+        service.persistChangedLocks();
+        ArgumentCaptor<Object[]> values = ArgumentCaptor.forClass(Object[].class);
+        verify(transaction).prepare(service.getSql("insertNodeCommunicationSql"));
+        verify(transaction).addRow(Matchers.any(), values.capture(), Matchers.any(int[].class));
+        verify(transaction).commit();
+
+        final Row row = new Row(NODE_COMMUNICATION_COLUMNS.length);
+        for (int i = 0; i < NODE_COMMUNICATION_COLUMNS.length; i++) {
+            row.put(NODE_COMMUNICATION_COLUMNS[i], values.getValue()[i]);
+        }
+        when(sqlTemplate.query(Matchers.eq(service.getSql("selectNodeCommunicationSql")),
+                Matchers.any(ISqlRowMapper.class), (Object[]) Matchers.anyVararg())).thenAnswer(
+                new Answer<List<NodeCommunication>>() {
+                    public List<NodeCommunication> answer(InvocationOnMock invocation) {
+                        List<NodeCommunication> rows = new ArrayList<NodeCommunication>();
+                        if (CommunicationType.PUSH.name().equals(invocation.getArguments()[2])) {
+                            @SuppressWarnings("unchecked")
+                            ISqlRowMapper<NodeCommunication> mapper = (ISqlRowMapper<NodeCommunication>) invocation
+                                    .getArguments()[1];
+                            rows.add(mapper.mapRow(row));
+                        }
+                        return rows;
+                    }
+                });
+
+        NodeCommunicationService reloaded = createService();
+        reloaded.loadLockCache();
+        NodeCommunication cached = reloaded.find("00001", "default", CommunicationType.PUSH);
+        assertEquals("00001", cached.getNodeId());
+        assertEquals("default", cached.getQueue());
+        assertNull(cached.getLockTime());
+        assertEquals("server1", cached.getLockingServerId());
+        assertEquals(lockTime, cached.getLastLockTime());
+        assertEquals(1, cached.getSuccessCount());
+        assertEquals(1, cached.getTotalSuccessCount());
+        assertSame(cached, reloaded.find("00001", "default", CommunicationType.PUSH));
+        assertTrue(reloaded.find(CommunicationType.PULL).isEmpty());
+
+        /* rows that were loaded are updated rather than inserted again */
+        assertTrue(reloaded.lock(cached, new Date()));
+        reloaded.persistChangedLocks();
+        verify(transaction).prepare(reloaded.getSql("updateNodeCommunicationSql"));
+        verify(transaction, times(2)).addRow(Matchers.any(), Matchers.any(Object[].class),
+                Matchers.any(int[].class));
+    }
+
     @Test
     public void testNodeCommunicationTypeLengths() {
         final int MAX_LENGTH_IN_DB = 10;
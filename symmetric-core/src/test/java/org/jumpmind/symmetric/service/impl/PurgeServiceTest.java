@@ -0,0 +1,131 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.AbstractSymmetricDialect;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+public class PurgeServiceTest {
+
+    ISqlTemplate sqlTemplate;
+    IParameterService parameterService;
+    PurgeService purgeService;
+
+    @Before
+    public void setUp() throws Exception {
+        sqlTemplate = mock(ISqlTemplate.class);
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        ISymmetricDialect symmetricDialect = mock(AbstractSymmetricDialect.class);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+        parameterService = mock(ParameterService.class);
+        purgeService = new PurgeService(parameterService, symmetricDialect,
+                mock(IClusterService.class), mock(IStatisticManager.class),
+                mock(IExtensionService.class));
+    }
+
+    @Test
+    public void testSliceCountLimitedByThreadCount() throws Exception {
+        setThreadCount(4);
+        assertEquals(4, purgeService.getSliceCount(1, 1000000, 10000));
+    }
+
+    @Test
+    public void testSliceCountLimitedByWindows() throws Exception {
+        setThreadCount(8);
+        assertEquals(3, purgeService.getSliceCount(1, 25000, 10000));
+        assertEquals(1, purgeService.getSliceCount(1, 10000, 10000));
+        assertEquals(1, purgeService.getSliceCount(5, 5, 10000));
+    }
+
+    @Test
+    public void testSliceCountIsAtLeastOne() throws Exception {
+        setThreadCount(0);
+        assertEquals(1, purgeService.getSliceCount(1, 1000000, 10000));
+    }
+
+    @Test
+    public void testWindowShrinksToTenthOfMax() throws Exception {
+        long window = 10000;
+        window = purgeService.adjustWindow(window, 2000, 1000, 10000);
+        assertEquals(5000, window);
+        for (int i = 0; i < 10; i++) {
+            window = purgeService.adjustWindow(window, 2000, 1000, 10000);
+        }
+        assertEquals(1000, window);
+    }
+
+    @Test
+    public void testWindowGrowsBackToMax() throws Exception {
+        long window = 1000;
+        window = purgeService.adjustWindow(window, 100, 1000, 10000);
+        assertEquals(2000, window);
+        for (int i = 0; i < 10; i++) {
+            window = purgeService.adjustWindow(window, 100, 1000, 10000);
+        }
+        assertEquals(10000, window);
+    }
+
+    @Test
+    public void testWindowNeverGrowsPastMax() throws Exception {
+        assertEquals(10000, purgeService.adjustWindow(10000, 100, 1000, 10000));
+        assertEquals(10000, purgeService.adjustWindow(6000, 100, 1000, 10000));
+    }
+
+    @Test
+    public void testWindowUnchangedNearTargetOrWithoutTarget() throws Exception {
+        assertEquals(10000, purgeService.adjustWindow(10000, 700, 1000, 10000));
+        assertEquals(10000, purgeService.adjustWindow(10000, 1000, 1000, 10000));
+        assertEquals(10000, purgeService.adjustWindow(10000, 5000, 0, 10000));
+        assertEquals(1, purgeService.adjustWindow(1, 5000, 1000, 5));
+    }
+
+    @Test
+    public void testCapMaxId() throws Exception {
+        when(sqlTemplate.queryForLong(Matchers.eq("min"), (Object[]) Matchers.anyVararg())).thenReturn(500l);
+        assertEquals(499, purgeService.capMaxId(1000, "min", "OK"));
+        when(sqlTemplate.queryForLong(Matchers.eq("min"), (Object[]) Matchers.anyVararg())).thenReturn(2000l);
+        assertEquals(1000, purgeService.capMaxId(1000, "min", "OK"));
+        when(sqlTemplate.queryForLong(Matchers.eq("min"), (Object[]) Matchers.anyVararg())).thenReturn(0l);
+        assertEquals(1000, purgeService.capMaxId(1000, "min", "OK"));
+    }
+
+    protected void setThreadCount(int threadCount) {
+        when(parameterService.getInt(ParameterConstants.PURGE_THREAD_COUNT, 1)).thenReturn(threadCount);
+    }
+
+}
@@ -123,6 +123,18 @@ public class MockStatisticManager implements IStatisticManager {
         return null;
     }
 
+    public void recordLatency(String channelId, LatencyStage stage, long millis) {
+
+    }
+
+    public Map<String, Map<LatencyStage, ChannelLatencyStats>> getWorkingChannelLatencyStats() {
+        return null;
+    }
+
+    public ReplicationLagTracker getReplicationLagTracker() {
+        return new ReplicationLagTracker();
+    }
+
     public void incrementNodesLoaded(long count) {
 
     }
@@ -147,6 +159,18 @@ public class MockStatisticManager implements IStatisticManager {
 
     }
 
+    public void addPurgeStats(String tableName, long rowsPurged, long deleteMillis) {
+
+    }
+
+    public void addPurgePartitionStats(String tableName, long partitionsPurged, long millis) {
+
+    }
+
+    public Map<String, PurgeStats> getPurgeStats() {
+        return null;
+    }
+
     public void incrementTriggersRemovedCount(long count) {
 
     }
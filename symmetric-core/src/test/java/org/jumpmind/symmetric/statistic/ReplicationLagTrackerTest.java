@@ -0,0 +1,111 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ReplicationLagTrackerTest {
+
+    @Test
+    public void testRoutingLag() {
+        ReplicationLagTracker tracker = new ReplicationLagTracker();
+        tracker.dataCaptured(100, 50000);
+        tracker.dataRouted("default", 60, 20000);
+        tracker.dataRouted("other", 80, 30000);
+        tracker.dataRouted("other", 70, 25000);
+        assertEquals(20, tracker.getUnroutedDataCount());
+        assertEquals(20000, tracker.getRoutingLagMillis());
+        assertEquals(80, tracker.getRouted("other").getId());
+
+        tracker.dataRouted("default", 100, 50000);
+        assertEquals(0, tracker.getUnroutedDataCount());
+        assertEquals(0, tracker.getRoutingLagMillis());
+    }
+
+    @Test
+    public void testNodeLag() {
+        ReplicationLagTracker tracker = new ReplicationLagTracker();
+        long now = System.currentTimeMillis();
+        tracker.batchRouted("001", "default", 1, now - 60000, 10);
+        tracker.batchRouted("001", "default", 2, now - 30000, 5);
+        tracker.batchRouted("002", "default", 3, now - 1000, 7);
+        tracker.batchExtracted("001", "default", 1, now - 60000);
+        tracker.batchSent("001", "default", 1, now - 60000);
+
+        NodeChannelLag lag = tracker.getNodeChannelLag("001", "default");
+        assertEquals(2, lag.getRouted().getId());
+        assertEquals(1, lag.getSent().getId());
+        assertEquals(15, lag.getUnacknowledgedRowCount());
+        assertTrue(tracker.getLagMillis("001") >= 60000);
+        assertTrue(tracker.getMaxLagMillis() >= 60000);
+
+        tracker.batchAcknowledged("001", "default", 1, now - 60000);
+        assertEquals(5, tracker.getUnacknowledgedRowCount("001"));
+        assertTrue(tracker.getLagMillis("001") < 60000);
+
+        tracker.batchAcknowledged("001", "default", 2, now - 30000);
+        assertEquals(0, tracker.getLagMillis("001"));
+        assertEquals(0, lag.getUnacknowledgedBatchCount());
+        assertEquals(7, tracker.getUnacknowledgedRowCount("002"));
+    }
+
+    @Test
+    public void testPendingBatchesAreBounded() {
+        NodeChannelLag lag = new NodeChannelLag("001", "default");
+        for (int i = 1; i <= NodeChannelLag.MAX_PENDING_BATCHES + 10; i++) {
+            lag.batchRouted(i, 1000 + i, 1);
+        }
+        assertEquals(NodeChannelLag.MAX_PENDING_BATCHES, lag.getUnacknowledgedBatchCount());
+        assertEquals(NodeChannelLag.MAX_PENDING_BATCHES + 10, lag.getUnacknowledgedRowCount());
+        assertEquals(1000, lag.getLagMillis(2001));
+
+        lag.batchSettled(1);
+        assertEquals(NodeChannelLag.MAX_PENDING_BATCHES - 1, lag.getUnacknowledgedBatchCount());
+        assertEquals(NodeChannelLag.MAX_PENDING_BATCHES + 9, lag.getUnacknowledgedRowCount());
+    }
+
+    @Test
+    public void testSettledOutsideOfAcknowledgement() {
+        ReplicationLagTracker tracker = new ReplicationLagTracker();
+        long now = System.currentTimeMillis();
+        tracker.batchRouted("001", "default", 1, now - 60000, 10);
+        tracker.batchRouted("001", "default", 2, now - 30000, 5);
+        tracker.batchRouted("001", "other", 3, now - 20000, 3);
+        tracker.batchRouted("002", "default", 4, now - 10000, 7);
+
+        tracker.batchSettled("001", "default", 1);
+        assertEquals(8, tracker.getUnacknowledgedRowCount("001"));
+        assertTrue(tracker.getLagMillis("001") < 60000);
+        assertEquals(0, tracker.getNodeChannelLag("001", "default").getAcknowledged().getId());
+
+        tracker.channelSettled("default");
+        assertEquals(3, tracker.getUnacknowledgedRowCount("001"));
+        assertEquals(0, tracker.getUnacknowledgedRowCount("002"));
+
+        tracker.removeNode("001");
+        assertEquals(0, tracker.getNodeChannelLags("001").size());
+        assertEquals(1, tracker.getNodeChannelLags().size());
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class StripedCountersTest {
+
+    @Test
+    public void testAddGetAndDrain() {
+        StripedCounters counters = new StripedCounters(3);
+        counters.add(0, 5);
+        counters.add(2, 7);
+        counters.add(2, 1);
+        assertEquals(5, counters.get(0));
+        assertEquals(0, counters.get(1));
+        assertEquals(8, counters.get(2));
+
+        long[] drained = counters.drain();
+        assertEquals(5, drained[0]);
+        assertEquals(8, drained[2]);
+        assertEquals(0, counters.get(2));
+    }
+
+    @Test
+    public void testSet() {
+        StripedCounters counters = new StripedCounters(1);
+        counters.add(0, 10);
+        counters.set(0, 3);
+        assertEquals(3, counters.get(0));
+        counters.add(0, 2);
+        assertEquals(5, counters.get(0));
+        counters.set(0, 4);
+        assertEquals(4, counters.drain(0));
+        assertEquals(0, counters.get(0));
+    }
+
+    @Test
+    public void testConcurrentSetsAreNotLostByDrains() throws Exception {
+        final StripedCounters counters = new StripedCounters(1);
+        final int sets = 100000;
+        Thread setter = new Thread() {
+            public void run() {
+                for (int i = 1; i <= sets; i++) {
+                    counters.set(0, i);
+                }
+            }
+        };
+        setter.start();
+        long lastDrained = 0;
+        while (setter.isAlive()) {
+            long drained = counters.drain(0);
+            if (drained != 0) {
+                assertTrue(drained > lastDrained);
+                lastDrained = drained;
+            }
+        }
+        setter.join();
+        long drained = counters.drain(0);
+        assertEquals(sets, drained != 0 ? drained : lastDrained);
+    }
+
+    @Test
+    public void testConcurrentAddsAreNotLostByDrains() throws Exception {
+        final StripedCounters counters = new StripedCounters(2);
+        final int threadCount = 8;
+        final int addsPerThread = 100000;
+        final AtomicLong drained = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread() {
+                public void run() {
+                    for (int j = 0; j < addsPerThread; j++) {
+                        counters.add(1, 1);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (int i = 0; i < 100; i++) {
+            drained.addAndGet(counters.drain(1));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        drained.addAndGet(counters.drain(1));
+        assertEquals((long) threadCount * addsPerThread, drained.get());
+        assertEquals(0, counters.get(0));
+    }
+
+}
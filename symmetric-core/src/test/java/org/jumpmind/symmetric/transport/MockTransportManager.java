@@ -24,6 +24,7 @@ package org.jumpmind.symmetric.transport;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +38,12 @@ public class MockTransportManager implements ITransportManager {
 
     protected IOutgoingWithResponseTransport outgoingTransport;
 
+    protected List<IncomingBatch> piggybackedAcks = new ArrayList<IncomingBatch>();
+
+    protected List<IncomingBatch> sentAcks = new ArrayList<IncomingBatch>();
+
+    protected IOException pullTransportError;
+
     public String resolveURL(String url, String registrationUrl) {
         return null;
     }
@@ -49,6 +56,16 @@ public class MockTransportManager implements ITransportManager {
             throws IOException {
         return incomingTransport;
     }
+
+    public IIncomingTransport getPullTransport(Node remote, Node local,
+            String securityToken, Map<String, String> requestProperties, List<IncomingBatch> acks,
+            String registrationUrl) throws IOException {
+        piggybackedAcks = new ArrayList<IncomingBatch>(acks);
+        if (pullTransportError != null) {
+            throw pullTransportError;
+        }
+        return incomingTransport;
+    }
     
     public IIncomingTransport getFilePullTransport(Node remote, Node local, String securityToken,
             Map<String, String> requestProperties, String registrationUrl) throws IOException {
@@ -62,6 +79,7 @@ public class MockTransportManager implements ITransportManager {
 
     public int sendAcknowledgement(Node remote, List<IncomingBatch> list,
                 Node local, String securityToken, String registrationUrl) throws IOException {
+        sentAcks.addAll(list);
         return HttpURLConnection.HTTP_OK;
     }
     
@@ -75,6 +93,12 @@ public class MockTransportManager implements ITransportManager {
         return -1;
     }
 
+    @Override
+    public int sendPullWaitRequest(Node remote, Node local, String securityToken, String queue,
+            long waitMillis, String registrationUrl) throws IOException {
+        return HttpURLConnection.HTTP_OK;
+    }
+
     public void writeAcknowledgement(OutputStream out, Node remote,
             List<IncomingBatch> list, Node local, String securityToken)
             throws IOException {
@@ -88,6 +112,18 @@ public class MockTransportManager implements ITransportManager {
         this.incomingTransport = is;
     }
 
+    public List<IncomingBatch> getPiggybackedAcks() {
+        return piggybackedAcks;
+    }
+
+    public List<IncomingBatch> getSentAcks() {
+        return sentAcks;
+    }
+
+    public void setPullTransportError(IOException pullTransportError) {
+        this.pullTransportError = pullTransportError;
+    }
+
     public IOutgoingWithResponseTransport getOutgoingTransport() {
         return outgoingTransport;
     }
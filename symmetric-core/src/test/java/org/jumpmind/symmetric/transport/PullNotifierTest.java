@@ -0,0 +1,109 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PullNotifierTest {
+
+    @Test
+    public void testAwaitTimesOutWithoutNotification() throws Exception {
+        PullNotifier notifier = new PullNotifier();
+        long version = notifier.getVersion("00001");
+        assertFalse(notifier.await("00001", version, 10));
+    }
+
+    @Test
+    public void testNotificationBeforeAwaitIsNotLost() throws Exception {
+        PullNotifier notifier = new PullNotifier();
+        long version = notifier.getVersion("00001");
+        notifier.notifyNode("00001");
+        assertTrue(notifier.await("00001", version, 10000));
+        assertFalse(notifier.await("00002", notifier.getVersion("00002"), 10));
+    }
+
+    @Test
+    public void testNotifyWakesParkedWaiter() throws Exception {
+        final PullNotifier notifier = new PullNotifier();
+        final long version = notifier.getVersion("00001");
+        final boolean[] notified = new boolean[1];
+        Thread waiter = new Thread() {
+            public void run() {
+                try {
+                    notified[0] = notifier.await("00001", version, 10000);
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        waiter.start();
+        Thread.sleep(50);
+        notifier.notifyNode("00001");
+        waiter.join(10000);
+        assertTrue(notified[0]);
+    }
+
+    @Test
+    public void testListenerRunsOnceOnNotify() throws Exception {
+        PullNotifier notifier = new PullNotifier();
+        final int[] runs = new int[1];
+        Runnable listener = new Runnable() {
+            public void run() {
+                runs[0]++;
+            }
+        };
+        assertTrue(notifier.addListener("00001", notifier.getVersion("00001"), listener));
+        notifier.notifyNode("00002");
+        assertEquals(0, runs[0]);
+        notifier.notifyNode("00001");
+        notifier.notifyNode("00001");
+        assertEquals(1, runs[0]);
+    }
+
+    @Test
+    public void testListenerNotAddedAfterNotify() throws Exception {
+        PullNotifier notifier = new PullNotifier();
+        long version = notifier.getVersion("00001");
+        notifier.notifyNode("00001");
+        Runnable listener = new Runnable() {
+            public void run() {
+            }
+        };
+        assertFalse(notifier.addListener("00001", version, listener));
+        assertTrue(notifier.addListener("00001", notifier.getVersion("00001"), listener));
+        notifier.removeListener("00001", listener);
+    }
+
+    @Test
+    public void testParkLimit() throws Exception {
+        PullNotifier notifier = new PullNotifier();
+        assertTrue(notifier.park(2));
+        assertTrue(notifier.park(2));
+        assertFalse(notifier.park(2));
+        notifier.unpark();
+        assertEquals(1, notifier.getParkedCount());
+        assertTrue(notifier.park(2));
+    }
+
+}
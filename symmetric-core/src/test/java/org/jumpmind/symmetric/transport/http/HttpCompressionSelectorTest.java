@@ -0,0 +1,117 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IBandwidthService;
+import org.jumpmind.symmetric.service.impl.MockParameterService;
+import org.jumpmind.symmetric.transport.http.HttpCompressionSelector.CompressionCost;
+import org.junit.Test;
+
+public class HttpCompressionSelectorTest {
+
+    @Test
+    public void testChooseLevel() {
+        CompressionCost[] costs = new CompressionCost[] { new CompressionCost(1, 50, 0.3),
+                new CompressionCost(9, 5, 0.2) };
+        assertEquals(0, HttpCompressionSelector.chooseLevel(125000, costs));
+        assertEquals(1, HttpCompressionSelector.chooseLevel(10, costs));
+        assertEquals(9, HttpCompressionSelector.chooseLevel(1, costs));
+    }
+
+    @Test
+    public void testCompressionCosts() {
+        CompressionCost[] costs = HttpCompressionSelector.getCompressionCosts();
+        assertEquals(HttpCompressionSelector.LEVELS.length, costs.length);
+        for (CompressionCost cost : costs) {
+            assertTrue(cost.bytesPerMs > 0);
+            assertTrue(cost.ratio > 0 && cost.ratio < 1);
+        }
+        assertTrue(costs[costs.length - 1].ratio <= costs[0].ratio);
+    }
+
+    @Test
+    public void testLevelIsKeptForNode() {
+        final int[] samples = new int[1];
+        Properties properties = new Properties();
+        properties.setProperty(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL, "6");
+        HttpCompressionSelector selector = new HttpCompressionSelector(new MockParameterService(
+                properties), new IBandwidthService() {
+            public double getDownloadKbpsFor(String url, long sampleSize, long maxTestDuration) {
+                samples[0]++;
+                return -1;
+            }
+        });
+        assertEquals(6, selector.getCompressionLevel("00001", "http://localhost/sync"));
+        assertEquals(6, selector.getCompressionLevel("00001", "http://localhost/sync"));
+        assertEquals(1, samples[0]);
+        selector.getCompressionLevel("00002", "http://localhost/sync");
+        assertEquals(2, samples[0]);
+    }
+
+    @Test
+    public void testPreviousLevelUsedWhileSampling() throws Exception {
+        final int[] samples = new int[1];
+        final CountDownLatch sampling = new CountDownLatch(1);
+        final CountDownLatch finishSample = new CountDownLatch(1);
+        Properties properties = new Properties();
+        properties.setProperty(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL, "6");
+        properties.setProperty(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_ADAPTIVE_RECALIBRATE_MS, "-1");
+        final HttpCompressionSelector selector = new HttpCompressionSelector(new MockParameterService(
+                properties), new IBandwidthService() {
+            public double getDownloadKbpsFor(String url, long sampleSize, long maxTestDuration) {
+                if (++samples[0] == 1) {
+                    return -1;
+                }
+                sampling.countDown();
+                try {
+                    finishSample.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                }
+                return Double.MAX_VALUE;
+            }
+        });
+        assertEquals(6, selector.getCompressionLevel("00001", "http://localhost/sync"));
+
+        final int[] sampledLevel = new int[] { -1 };
+        Thread sampler = new Thread() {
+            public void run() {
+                sampledLevel[0] = selector.getCompressionLevel("00001", "http://localhost/sync");
+            }
+        };
+        sampler.start();
+        assertTrue(sampling.await(10, TimeUnit.SECONDS));
+        assertEquals(6, selector.getCompressionLevel("00001", "http://localhost/sync"));
+        assertEquals(2, samples[0]);
+
+        finishSample.countDown();
+        sampler.join(10000);
+        assertEquals(0, sampledLevel[0]);
+    }
+
+}
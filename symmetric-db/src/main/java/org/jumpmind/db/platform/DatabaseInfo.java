@@ -224,6 +224,24 @@ public class DatabaseInfo {
     private boolean requiresAutoCommitForDdl = false;
     
     private boolean requiresSavePointsInTransaction = false;
+
+    /**
+     * Indicates whether an insert statement may list several rows in its
+     * values clause.
+     */
+    private boolean multiRowInsertSupported = false;
+
+    /**
+     * The maximum number of bind parameters allowed in a single statement, or
+     * -1 if the database does not have a limit.
+     */
+    private int maxBindParameters = -1;
+
+    /**
+     * The maximum number of values allowed in an in list, or -1 if the database
+     * does not have a limit.
+     */
+    private int maxInListSize = -1;
     
     private String catalogSeparator = ".";
     
@@ -1349,6 +1367,30 @@ public class DatabaseInfo {
         return schemaSeparator;
     }
 
+    public void setMultiRowInsertSupported(boolean multiRowInsertSupported) {
+        this.multiRowInsertSupported = multiRowInsertSupported;
+    }
+
+    public boolean isMultiRowInsertSupported() {
+        return multiRowInsertSupported;
+    }
+
+    public void setMaxBindParameters(int maxBindParameters) {
+        this.maxBindParameters = maxBindParameters;
+    }
+
+    public int getMaxBindParameters() {
+        return maxBindParameters;
+    }
+
+    public void setMaxInListSize(int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    public int getMaxInListSize() {
+        return maxInListSize;
+    }
+
 	public boolean isNotNullColumnsSupported() {
 		return notNullColumnsSupported;
 	}
@@ -49,6 +49,7 @@ public class HsqlDb2DdlBuilder extends AbstractDdlBuilder {
         
         databaseInfo.setNonPKIdentityColumnsSupported(false);
         databaseInfo.setIdentityOverrideAllowed(false);
+        databaseInfo.setMultiRowInsertSupported(true);
         databaseInfo.setSystemForeignKeyIndicesAlwaysNonUnique(true);
 
         databaseInfo.addNativeTypeMapping(Types.ARRAY, "LONGVARBINARY", Types.LONGVARBINARY);
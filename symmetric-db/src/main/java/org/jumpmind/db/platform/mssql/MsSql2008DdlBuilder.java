@@ -34,6 +34,8 @@ public class MsSql2008DdlBuilder extends MsSql2005DdlBuilder {
     public MsSql2008DdlBuilder() {
         super(DatabaseNamesConstants.MSSQL2008);
         
+        databaseInfo.setMaxBindParameters(2100);
+
         databaseInfo.addNativeTypeMapping(Types.DATE, "DATE", Types.DATE);
         databaseInfo.addNativeTypeMapping(Types.DATE, "TIME", Types.TIME);
         databaseInfo.addNativeTypeMapping(ColumnTypes.MSSQL_SQL_VARIANT, "SQL_VARIANT", Types.BLOB);
@@ -52,6 +52,7 @@ public class MySqlDdlBuilder extends AbstractDdlBuilder {
 
         databaseInfo.setSystemForeignKeyIndicesAlwaysNonUnique(true);
         databaseInfo.setMaxIdentifierLength(64);
+        databaseInfo.setMaxBindParameters(65535);
         databaseInfo.setNullAsDefaultValueRequired(true);
         databaseInfo.setDefaultValuesForLongTypesSupported(false);
         // see
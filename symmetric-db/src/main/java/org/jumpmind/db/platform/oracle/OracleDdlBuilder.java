@@ -60,6 +60,7 @@ public class OracleDdlBuilder extends AbstractDdlBuilder {
 
         databaseInfo.setMaxIdentifierLength(30);
         databaseInfo.setIdentityStatusReadingSupported(false);
+        databaseInfo.setMaxInListSize(1000);
 
         // Note that the back-mappings are partially done by the model reader,
         // not the driver
@@ -56,6 +56,7 @@ public class PostgreSqlDdlBuilder extends AbstractDdlBuilder {
 
         databaseInfo.setRequiresSavePointsInTransaction(true);
         databaseInfo.setRequiresAutoCommitForDdl(true);
+        databaseInfo.setMaxBindParameters(32767);
 
         databaseInfo.addNativeTypeMapping(Types.ARRAY, "BYTEA", Types.LONGVARBINARY);
         databaseInfo.addNativeTypeMapping(Types.BINARY, "BYTEA", Types.LONGVARBINARY);
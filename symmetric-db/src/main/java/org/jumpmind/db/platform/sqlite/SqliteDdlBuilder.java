@@ -41,6 +41,7 @@ public class SqliteDdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setPrimaryKeyEmbedded(true);
         databaseInfo.setNonPKIdentityColumnsSupported(false);
         databaseInfo.setIdentityOverrideAllowed(false);
+        databaseInfo.setMaxBindParameters(999);
         databaseInfo.setSystemForeignKeyIndicesAlwaysNonUnique(true);
         databaseInfo.setNullAsDefaultValueRequired(false);
         databaseInfo.setRequiresAutoCommitForDdl(true);
@@ -72,6 +72,8 @@ public class DmlStatement {
     protected boolean[] nullKeyValues;
     
     protected String textColumnExpression;
+
+    protected String qualifiedTableName;
     
     public DmlStatement(DmlType type, String catalogName, String schemaName, String tableName,
             Column[] keysColumns, Column[] columns, boolean[] nullKeyValues, 
@@ -118,6 +120,8 @@ public class DmlStatement {
         }
         this.quote = databaseInfo.getDelimiterToken() == null || !useQuotedIdentifiers ? "" : 
             databaseInfo.getDelimiterToken();
+        this.qualifiedTableName = Table.getFullyQualifiedTableName(catalogName, schemaName,
+                tableName, quote, databaseInfo.getCatalogSeparator(), databaseInfo.getSchemaSeparator());
         if (type == DmlType.INSERT) {
             this.sql = buildInsertSql(Table.getFullyQualifiedTableName(catalogName, schemaName,
                     tableName, quote, databaseInfo.getCatalogSeparator(), databaseInfo.getSchemaSeparator()), keysColumns, columns);
@@ -210,6 +214,74 @@ public class DmlStatement {
         return sql.toString();
     }
     
+    /**
+     * Builds an insert statement that lists rowCount rows in its values
+     * clause. The bind parameters are the insert's parameters repeated for
+     * each row, so the values and types for the statement are the single row
+     * values and types concatenated rowCount times.
+     */
+    public String buildMultiRowInsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder("insert into " + qualifiedTableName + " (");
+        appendColumns(sql, columns, false);
+        sql.append(") values ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(");
+            appendColumnParameters(sql, columns);
+            sql.append(")");
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Builds a delete, update or count statement whose where clause matches
+     * rowCount sets of key values. A single key column is matched with an in
+     * list and multiple key columns with or'ed key conditions. The bind
+     * parameters are the set column values (for an update) followed by the
+     * key values repeated for each row.
+     */
+    public String buildMultiKeySql(int rowCount) {
+        StringBuilder sql = null;
+        switch (dmlType) {
+            case DELETE:
+                sql = new StringBuilder("delete from ").append(qualifiedTableName);
+                break;
+            case UPDATE:
+                sql = new StringBuilder("update ").append(qualifiedTableName).append(" set ");
+                appendColumnsEquals(sql, columns, ", ");
+                break;
+            case COUNT:
+                sql = new StringBuilder("select count(*) from ").append(qualifiedTableName);
+                break;
+            default:
+                throw new NotImplementedException("Unimplemented multiple key SQL type: " + dmlType);
+        }
+        sql.append(" where ");
+        if (keys.length == 1) {
+            appendColumnNameForSql(sql, keys[0], false);
+            sql.append(" in (");
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                appendColumnParameters(sql, keys);
+            }
+            sql.append(")");
+        } else {
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) {
+                    sql.append(" or ");
+                }
+                sql.append("(");
+                appendColumnsEquals(sql, keys, " and ");
+                sql.append(")");
+            }
+        }
+        return sql.toString();
+    }
+
     protected String buildUpsertSql(String tableName, Column[] keyColumns, Column[] columns) {
         throw new NotImplementedException("Unimplemented SQL type: " + DmlType.UPSERT);
     }
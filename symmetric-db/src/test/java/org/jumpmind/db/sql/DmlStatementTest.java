@@ -0,0 +1,65 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Types;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.junit.Test;
+
+public class DmlStatementTest {
+
+    @Test
+    public void testBuildMultiRowInsertSql() {
+        Column[] columns = new Column[] { new Column("id", true, Types.INTEGER, 0, 0),
+                new Column("name", false, Types.VARCHAR, 50, 0) };
+        DmlStatement statement = new DmlStatement(DmlType.INSERT, null, null, "test", null, columns,
+                null, new DatabaseInfo(), true, null);
+        assertEquals("insert into \"test\" (\"id\", \"name\") values (?,?)", statement.getSql());
+        assertEquals("insert into \"test\" (\"id\", \"name\") values (?,?), (?,?), (?,?)",
+                statement.buildMultiRowInsertSql(3));
+    }
+
+    @Test
+    public void testBuildMultiKeySql() {
+        Column id = new Column("id", true, Types.INTEGER, 0, 0);
+        Column name = new Column("name", false, Types.VARCHAR, 50, 0);
+        DmlStatement delete = new DmlStatement(DmlType.DELETE, null, null, "test",
+                new Column[] { id }, null, null, new DatabaseInfo(), true, null);
+        assertEquals("delete from \"test\" where \"id\" in (?, ?, ?)", delete.buildMultiKeySql(3));
+
+        DmlStatement update = new DmlStatement(DmlType.UPDATE, null, null, "test",
+                new Column[] { id }, new Column[] { name }, null, new DatabaseInfo(), true, null);
+        assertEquals("update \"test\" set \"name\" = ? where \"id\" in (?, ?)",
+                update.buildMultiKeySql(2));
+
+        Column code = new Column("code", true, Types.VARCHAR, 10, 0);
+        DmlStatement count = new DmlStatement(DmlType.COUNT, null, null, "test",
+                new Column[] { id, code }, null, null, new DatabaseInfo(), true, null);
+        assertEquals("select count(*) from \"test\" where (\"id\" = ? and \"code\" = ?) or (\"id\" = ? and \"code\" = ?)",
+                count.buildMultiKeySql(2));
+    }
+
+}
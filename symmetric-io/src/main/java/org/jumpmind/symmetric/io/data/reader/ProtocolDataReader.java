@@ -53,6 +53,7 @@ import org.jumpmind.symmetric.io.data.IDataReader;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
 import org.jumpmind.util.CollectionUtils;
 import org.jumpmind.util.Statistics;
+import org.jumpmind.util.TableStatistics;
 
 public class ProtocolDataReader extends AbstractDataReader implements IDataReader {
 
@@ -62,6 +63,8 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
     protected IStagedResource stagedResource;
     protected Reader reader;
     protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
+
+    protected TableStatistics tableStatistics;
     protected CsvReader csvReader;
     protected DataContext context;
     protected Object next;
@@ -158,6 +161,18 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                 if (stats != null && (tokens[0].equals(CsvConstants.INSERT) || tokens[0].equals(CsvConstants.UPDATE)
                         || tokens[0].equals(CsvConstants.DELETE))) {
                     stats.increment(DataReaderStatistics.READ_RECORD_COUNT, 1);
+                    if (tableStatistics == null && context.getLastParsedTable() != null) {
+                        tableStatistics = stats.getTableStatistics(context.getLastParsedTable().getName());
+                    }
+                    if (tableStatistics != null) {
+                        if (tokens[0].equals(CsvConstants.INSERT)) {
+                            tableStatistics.incrementInsertCount(1);
+                        } else if (tokens[0].equals(CsvConstants.UPDATE)) {
+                            tableStatistics.incrementUpdateCount(1);
+                        } else {
+                            tableStatistics.incrementDeleteCount(1);
+                        }
+                    }
                 }
                 
                 if (tokens[0].equals(CsvConstants.INSERT)) {
@@ -203,6 +218,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                     Batch batch = new Batch(batchType, Long.parseLong(tokens[1]), channelId,
                             binaryEncoding, sourceNodeId, targetNodeId, false);
                     statistics.put(batch, new DataReaderStatistics());
+                    tableStatistics = null;
                     tokens = null;
                     return batch;
                 } else if (tokens[0].equals(CsvConstants.NO_BINARY_OLD_DATA)) {
@@ -229,6 +245,7 @@ public class ProtocolDataReader extends AbstractDataReader implements IDataReade
                     
                 } else if (tokens[0].equals(CsvConstants.TABLE)) {
                     String tableName = tokens[1];
+                    tableStatistics = null;
                     table = context.getParsedTables().get(Table.getFullyQualifiedTableName(catalogName, schemaName,
                             tableName));
                     if (table != null) {
@@ -38,6 +38,7 @@ import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.IDataWriter;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.util.Statistics;
+import org.jumpmind.util.TableStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,8 +51,13 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
     public static final String CONFLICT_ERROR = "DatabaseWriter.ConflictError";
     
+    /**
+     * QUEUED means the row was set aside to be applied together with other
+     * rows. The writer calls the after write filters for the row once it has
+     * actually been applied.
+     */
     public static enum LoadStatus {
-        SUCCESS, CONFLICT
+        SUCCESS, CONFLICT, QUEUED
     };
 
     protected boolean lastUseConflictDetection = true;
@@ -76,6 +82,8 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
     protected Map<Batch, Statistics> statistics = new HashMap<Batch, Statistics>();
 
+    protected TableStatistics targetTableStatistics;
+
     protected IDatabaseWriterConflictResolver conflictResolver;
 
     protected Set<String> missingTables = new HashSet<String>();
@@ -101,6 +109,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
     public void start(Batch batch) {
         this.batch = batch;
+        this.targetTableStatistics = null;
         this.statistics.put(batch, new Statistics());
     }
 
@@ -109,6 +118,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
             throw new NullPointerException("Cannot load a null table");
         }
         this.lastData = null;
+        this.targetTableStatistics = null;
         this.sourceTable = table;
         this.targetTable = lookupTableAtTarget(this.sourceTable);
         this.sourceTable.copyColumnTypesFrom(this.targetTable);
@@ -205,9 +215,11 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
 
                         uncommittedCount++;
 
-                        lastData = data;
+                        if (loadStatus != LoadStatus.QUEUED) {
+                            lastData = data;
 
-                        filterAfter(data);
+                            filterAfter(data);
+                        }
 
                         checkForEarlyCommit();
 
@@ -306,6 +318,7 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
                     targetTable = lookupTableAtTarget(this.sourceTable);
                 }
                 if (targetTable!=null && !targetTable.equals(oldTargetTable)) {
+                     targetTableStatistics = null;
                      targetTableWasChangedByFilter(oldTargetTable);
                 }
             } finally {
@@ -549,6 +562,17 @@ abstract public class AbstractDatabaseWriter implements IDataWriter {
         return statistics;
     }
 
+    /**
+     * The per table counters for the current target table. They are resolved
+     * once per table and batch so row level statistics don't build or hash keys.
+     */
+    protected TableStatistics getTargetTableStatistics() {
+        if (targetTableStatistics == null) {
+            targetTableStatistics = statistics.get(batch).getTableStatistics(targetTable.getName());
+        }
+        return targetTableStatistics;
+    }
+
     public DatabaseWriterSettings getWriterSettings() {
         return writerSettings;
     }
@@ -32,6 +32,9 @@ public class DatabaseWriterSettings {
 
     protected long maxRowsBeforeCommit = 10000;
 
+    // Consecutive deletes and updates to group by primary key. Zero or one disables grouping.
+    protected int maxRowsInPrimaryKeyBatch = 0;
+
     // Milliseconds to sleep between commits.
     protected long commitSleepInterval = 5;
 
@@ -103,6 +106,14 @@ public class DatabaseWriterSettings {
         this.maxRowsBeforeCommit = maxRowsBeforeCommit;
     }
 
+    public int getMaxRowsInPrimaryKeyBatch() {
+        return maxRowsInPrimaryKeyBatch;
+    }
+
+    public void setMaxRowsInPrimaryKeyBatch(int maxRowsInPrimaryKeyBatch) {
+        this.maxRowsInPrimaryKeyBatch = maxRowsInPrimaryKeyBatch;
+    }
+
     public boolean isTreatDateTimeFieldsAsVarchar() {
         return treatDateTimeFieldsAsVarchar;
     }
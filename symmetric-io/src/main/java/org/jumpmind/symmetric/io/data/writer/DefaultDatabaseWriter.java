@@ -26,9 +26,11 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
@@ -53,6 +55,7 @@ import org.jumpmind.symmetric.io.data.Batch;
 import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.CsvUtils;
 import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectExpressionKey;
 import org.jumpmind.util.CollectionUtils;
@@ -74,6 +77,26 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     
     protected Object[] currentDmlValues;
 
+    protected List<CsvData> primaryKeyBatch = new ArrayList<CsvData>();
+
+    protected Set<String> primaryKeyBatchKeys = new HashSet<String>();
+
+    protected List<Long> primaryKeyBatchStatementCounts = new ArrayList<Long>();
+
+    protected List<Long> primaryKeyBatchLineNumbers = new ArrayList<Long>();
+
+    protected DmlStatement primaryKeyBatchStatement;
+
+    protected List<String> primaryKeyBatchColumnValues;
+
+    protected Table primaryKeyBatchSourceTable;
+
+    protected Table primaryKeyBatchTargetTable;
+
+    protected int primaryKeyBatchMaxRows;
+
+    protected boolean flushingPrimaryKeyBatch = false;
+
     public DefaultDatabaseWriter(IDatabasePlatform platform) {
         this(platform, null, null);
     }
@@ -96,6 +119,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     public boolean start(Table table) {
+        flushPrimaryKeyBatch();
         this.currentDmlStatement = null;
         boolean process = super.start(table);
         if (process && targetTable != null) {
@@ -104,14 +128,31 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         return process;
     }    
 
+    @Override
+    public void write(CsvData data) {
+        DataEventType eventType = data.getDataEventType();
+        if (eventType != DataEventType.DELETE && eventType != DataEventType.UPDATE) {
+            flushPrimaryKeyBatch();
+        }
+        super.write(data);
+    }
+
     @Override
     public void end(Table table) {
+        flushPrimaryKeyBatch();
         super.end(table);
         allowInsertIntoAutoIncrementColumns(false, this.targetTable);
     }
 
     @Override
     public void end(Batch batch, boolean inError) {
+        if (!inError) {
+            /*
+             * Queued rows have to be applied before the filters are told the
+             * batch is complete
+             */
+            flushPrimaryKeyBatch();
+        }
         this.currentDmlStatement = null;
         super.end(batch, inError);
     }
@@ -126,6 +167,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected void commit(boolean earlyCommit) {
+        flushPrimaryKeyBatch();
         if (transaction != null) {
             try {
                 statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
@@ -145,6 +187,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
 
     @Override
     protected void rollback() {
+        clearPrimaryKeyBatch();
         if (transaction != null) {
             try {
                 statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
@@ -176,7 +219,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                         this.currentDmlStatement.getLookupKeyData(getLookupDataMap(data, conflict)));
                 long count = execute(data, values);
                 statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT, count);
-                statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.INSERTCOUNT), count);
+                getTargetTableStatistics().incrementInsertCount(count);
                 if (count > 0) {
                         return LoadStatus.SUCCESS;
                 } else {
@@ -209,6 +252,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     protected LoadStatus delete(CsvData data, boolean useConflictDetection) {
         try {
             statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            if (addToPrimaryKeyBatch(data, useConflictDetection, null, null)) {
+                return LoadStatus.QUEUED;
+            }
             Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
             Map<String, String> lookupDataMap = null;
             if (requireNewStatement(DmlType.DELETE, data, useConflictDetection, useConflictDetection,
@@ -297,7 +343,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                 lookupDataMap = lookupDataMap == null ? getLookupDataMap(data, conflict) : lookupDataMap;
                 long count = execute(data, this.currentDmlStatement.getLookupKeyData(lookupDataMap));
                 statistics.get(batch).increment(DataWriterStatisticConstants.DELETECOUNT, count);
-                statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.DELETECOUNT), count);
+                getTargetTableStatistics().incrementDeleteCount(count);
                 if (count > 0) {
                         return LoadStatus.SUCCESS;
                 } else {
@@ -343,6 +389,10 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
             }
 
             if (changedColumnNameList.size() > 0) {
+                if (addToPrimaryKeyBatch(data, useConflictDetection, changedColumnsList,
+                        changedColumnValueList)) {
+                    return LoadStatus.QUEUED;
+                }
                 Map<String, String> lookupDataMap = null;
                 Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
                 if (requireNewStatement(DmlType.UPDATE, data, applyChangesOnly,
@@ -461,7 +511,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                     long count = execute(data, values);
                     statistics.get(batch)
                             .increment(DataWriterStatisticConstants.UPDATECOUNT, count);
-                    statistics.get(batch).increment(String.format("%s %s", targetTable.getName(), DataWriterStatisticConstants.UPDATECOUNT), count);
+                    getTargetTableStatistics().incrementUpdateCount(count);
                     if (count > 0) {
                         return LoadStatus.SUCCESS;
                     } else {
@@ -559,6 +609,289 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
         }
     }
     
+    /**
+     * Queues a delete or an update that is looked up by its primary key so
+     * consecutive rows for the same table can be applied with one statement.
+     * Updates are only grouped when they set the same columns to the same
+     * values. Returns false if the row has to be applied on its own, in which
+     * case any queued rows are flushed first. The statement count and line
+     * number of each queued row are remembered so a failure while the rows are
+     * flushed is reported against the row that caused it.
+     */
+    protected boolean addToPrimaryKeyBatch(CsvData data, boolean useConflictDetection,
+            List<Column> changedColumns, List<String> changedColumnValues) {
+        int maxRows = writerSettings.getMaxRowsInPrimaryKeyBatch();
+        if (maxRows <= 1 || flushingPrimaryKeyBatch) {
+            return false;
+        }
+
+        Column[] keys = targetTable.getPrimaryKeyColumns();
+        Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
+        boolean batchable = useConflictDetection && keys.length > 0
+                && conflict.getDetectType() == DetectConflict.USE_PK_DATA
+                && (writerSettings.getResolvedData() == null || writerSettings.getResolvedData()
+                        .size() == 0);
+
+        String[] keyValues = null;
+        if (batchable) {
+            Map<String, String> lookupDataMap = getLookupDataMap(data, conflict);
+            keyValues = new String[keys.length];
+            for (int i = 0; i < keys.length && batchable; i++) {
+                keyValues[i] = lookupDataMap.get(keys[i].getName());
+                batchable = keyValues[i] != null && !platform.isLob(keys[i].getMappedTypeCode())
+                        && platform.canColumnBeUsedInWhereClause(keys[i]);
+            }
+        }
+
+        if (batchable && changedColumns != null) {
+            for (Column column : changedColumns) {
+                batchable &= !column.isPrimaryKey() && !platform.isLob(column.getMappedTypeCode());
+            }
+        }
+
+        String key = batchable ? Arrays.toString(keyValues) : null;
+        if (primaryKeyBatch.size() > 0
+                && (!batchable || primaryKeyBatchKeys.contains(key) || !isSamePrimaryKeyBatch(
+                        data.getDataEventType(), changedColumns, changedColumnValues))) {
+            flushPrimaryKeyBatch();
+            /*
+             * The flush times itself, so restart the timer for the row being
+             * written
+             */
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+        }
+
+        if (batchable) {
+            if (primaryKeyBatch.size() == 0) {
+                Column[] columns = changedColumns == null ? null : changedColumns
+                        .toArray(new Column[changedColumns.size()]);
+                primaryKeyBatchStatement = platform.createDmlStatement(
+                        data.getDataEventType() == DataEventType.DELETE ? DmlType.DELETE
+                                : DmlType.UPDATE, targetTable.getCatalog(),
+                        targetTable.getSchema(), targetTable.getName(), keys, columns, null,
+                        writerSettings.getTextColumnExpression());
+                primaryKeyBatchColumnValues = changedColumnValues == null ? null
+                        : new ArrayList<String>(changedColumnValues);
+                primaryKeyBatchSourceTable = sourceTable;
+                primaryKeyBatchTargetTable = targetTable;
+                primaryKeyBatchMaxRows = maxRows;
+                int maxBindParameters = platform.getDatabaseInfo().getMaxBindParameters();
+                if (maxBindParameters > 0) {
+                    int columnCount = columns == null ? 0 : columns.length;
+                    primaryKeyBatchMaxRows = Math.min(maxRows, (maxBindParameters - columnCount)
+                            / keys.length);
+                }
+                int maxInListSize = platform.getDatabaseInfo().getMaxInListSize();
+                if (maxInListSize > 0 && keys.length == 1) {
+                    primaryKeyBatchMaxRows = Math.min(primaryKeyBatchMaxRows, maxInListSize);
+                }
+            }
+            primaryKeyBatch.add(data);
+            primaryKeyBatchKeys.add(key);
+            primaryKeyBatchStatementCounts.add(statistics.get(batch).get(
+                    DataWriterStatisticConstants.STATEMENTCOUNT));
+            primaryKeyBatchLineNumbers.add(statistics.get(batch).get(
+                    DataWriterStatisticConstants.LINENUMBER));
+            if (primaryKeyBatch.size() >= primaryKeyBatchMaxRows) {
+                flushPrimaryKeyBatch();
+            }
+        }
+        return batchable;
+    }
+
+    protected boolean isSamePrimaryKeyBatch(DataEventType eventType, List<Column> changedColumns,
+            List<String> changedColumnValues) {
+        DmlType dmlType = eventType == DataEventType.DELETE ? DmlType.DELETE : DmlType.UPDATE;
+        if (primaryKeyBatchStatement.getDmlType() != dmlType) {
+            return false;
+        } else if (dmlType == DmlType.UPDATE) {
+            Column[] columns = primaryKeyBatchStatement.getColumns();
+            if (columns.length != changedColumns.size()
+                    || !primaryKeyBatchColumnValues.equals(changedColumnValues)) {
+                return false;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (!columns[i].getName().equals(changedColumns.get(i).getName())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the queued deletes or updates. The rows are first counted by
+     * primary key. If any of them are missing, or the grouped statement fails
+     * on a database that can keep using the transaction, each row is applied on
+     * its own so conflicts are detected and resolved for the individual rows.
+     * The after write filters are called for each row once it has been applied.
+     */
+    protected void flushPrimaryKeyBatch() {
+        if (primaryKeyBatch.size() == 0 || flushingPrimaryKeyBatch) {
+            return;
+        }
+
+        List<CsvData> rows = new ArrayList<CsvData>(primaryKeyBatch);
+        List<Long> statementCounts = new ArrayList<Long>(primaryKeyBatchStatementCounts);
+        List<Long> lineNumbers = new ArrayList<Long>(primaryKeyBatchLineNumbers);
+        DmlStatement statement = primaryKeyBatchStatement;
+        List<String> columnValues = primaryKeyBatchColumnValues;
+        Table currentSourceTable = sourceTable;
+        Table currentTargetTable = targetTable;
+        CsvData currentLastData = lastData;
+        clearPrimaryKeyBatch();
+
+        /*
+         * A filter can change the target table before the queued rows are
+         * flushed, so apply them against the tables they were queued for
+         */
+        this.flushingPrimaryKeyBatch = true;
+        this.sourceTable = primaryKeyBatchSourceTable;
+        this.targetTable = primaryKeyBatchTargetTable;
+        this.targetTableStatistics = null;
+        this.currentDmlStatement = null;
+        int rowIndex = 0;
+        boolean failed = false;
+        try {
+            boolean applied = false;
+            if (rows.size() > 1) {
+                try {
+                    applied = executePrimaryKeyBatch(statement, columnValues, rows);
+                } catch (SqlException ex) {
+                    if (platform.getDatabaseInfo().isRequiresSavePointsInTransaction()) {
+                        throw ex;
+                    }
+                    log.debug("Failed to apply {} rows with one statement.  Applying them one at a time",
+                            rows.size());
+                }
+            }
+
+            for (rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+                CsvData row = rows.get(rowIndex);
+                if (!applied) {
+                    context.put(CONFLICT_ERROR, null);
+                    LoadStatus loadStatus = row.getDataEventType() == DataEventType.DELETE ? delete(
+                            row, true) : update(row, writerSettings.isApplyChangesOnly(), true);
+                    if (loadStatus == LoadStatus.CONFLICT) {
+                        if (conflictResolver != null) {
+                            conflictResolver.needsResolved(this, row, loadStatus);
+                        } else {
+                            throw new ConflictException(row, targetTable, false,
+                                    writerSettings.pickConflict(targetTable, batch),
+                                    (Exception) context.get(AbstractDatabaseWriter.CONFLICT_ERROR));
+                        }
+                    }
+                }
+                lastData = row;
+                filterAfter(row);
+            }
+        } catch (RuntimeException ex) {
+            /*
+             * Report the failure against the queued row instead of the row
+             * that caused the flush
+             */
+            failed = true;
+            int failedIndex = Math.min(rowIndex, rows.size() - 1);
+            statistics.get(batch).set(DataWriterStatisticConstants.STATEMENTCOUNT,
+                    statementCounts.get(failedIndex));
+            statistics.get(batch).set(DataWriterStatisticConstants.LINENUMBER,
+                    lineNumbers.get(failedIndex));
+            context.setData(rows.get(failedIndex));
+            lastData = rows.get(failedIndex);
+            throw ex;
+        } finally {
+            this.flushingPrimaryKeyBatch = false;
+            this.sourceTable = currentSourceTable;
+            this.targetTable = currentTargetTable;
+            this.targetTableStatistics = null;
+            if (!failed) {
+                this.lastData = currentLastData;
+            }
+            this.currentDmlStatement = null;
+        }
+    }
+
+    protected boolean executePrimaryKeyBatch(DmlStatement statement, List<String> columnValues,
+            List<CsvData> rows) {
+        try {
+            statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            Column[] keys = statement.getKeys();
+            Column[] columns = statement.getColumns();
+            int columnCount = columns == null ? 0 : columns.length;
+            String[] values = new String[columnCount + keys.length * rows.size()];
+            Column[] metaData = new Column[values.length];
+            int index = 0;
+            for (int i = 0; i < columnCount; i++) {
+                metaData[index] = columns[i];
+                values[index++] = columnValues.get(i);
+            }
+
+            Conflict conflict = writerSettings.pickConflict(this.targetTable, batch);
+            for (CsvData row : rows) {
+                Map<String, String> lookupDataMap = getLookupDataMap(row, conflict);
+                for (Column key : keys) {
+                    metaData[index] = key;
+                    values[index++] = lookupDataMap.get(key.getName());
+                }
+            }
+
+            Object[] objectValues = platform.getObjectValues(batch.getBinaryEncoding(), values,
+                    metaData, false, writerSettings.isFitToColumn());
+            int[] keyTypes = ArrayUtils.subarray(statement.getTypes(), columnCount,
+                    statement.getTypes().length);
+            int[] types = ArrayUtils.subarray(statement.getTypes(), 0, columnCount);
+            for (int i = 0; i < rows.size(); i++) {
+                types = ArrayUtils.addAll(types, keyTypes);
+            }
+            Object[] keyValues = ArrayUtils.subarray(objectValues, columnCount,
+                    objectValues.length);
+            int[] keyValueTypes = ArrayUtils.subarray(types, columnCount, types.length);
+
+            DmlStatement countStatement = platform.createDmlStatement(DmlType.COUNT,
+                    targetTable.getCatalog(), targetTable.getSchema(), targetTable.getName(),
+                    keys, null, null, writerSettings.getTextColumnExpression());
+            List<Long> counts = transaction.query(countStatement.buildMultiKeySql(rows.size()),
+                    new ISqlRowMapper<Long>() {
+                        public Long mapRow(Row row) {
+                            return row.longValue();
+                        }
+                    }, keyValues, keyValueTypes);
+            long found = counts.size() > 0 && counts.get(0) != null ? counts.get(0) : 0;
+            if (found != rows.size()) {
+                if (log.isDebugEnabled()) {
+                    log.debug(
+                            "Found {} of {} rows by primary key in {}.  Applying the rows one at a time",
+                            new Object[] { found, rows.size(),
+                                    targetTable.getFullyQualifiedTableName() });
+                }
+                return false;
+            }
+
+            String sql = statement.buildMultiKeySql(rows.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Applying {} rows with dml: {}", rows.size(), sql);
+            }
+            long count = transaction.prepareAndExecute(sql, objectValues, types);
+            if (statement.getDmlType() == DmlType.DELETE) {
+                statistics.get(batch).increment(DataWriterStatisticConstants.DELETECOUNT, count);
+                getTargetTableStatistics().incrementDeleteCount(count);
+            } else {
+                statistics.get(batch).increment(DataWriterStatisticConstants.UPDATECOUNT, count);
+                getTargetTableStatistics().incrementUpdateCount(count);
+            }
+            return true;
+        } finally {
+            statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+        }
+    }
+
+    protected void clearPrimaryKeyBatch() {
+        primaryKeyBatch.clear();
+        primaryKeyBatchKeys.clear();
+        primaryKeyBatchStatementCounts.clear();
+        primaryKeyBatchLineNumbers.clear();
+    }
+
     protected boolean requireNewStatement(DmlType currentType, CsvData data,
             boolean applyChangesOnly, boolean useConflictDetection,
             Conflict.DetectConflict detectType) {
@@ -619,6 +952,7 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     
     @Override
     protected void targetTableWasChangedByFilter(Table oldTargetTable) {
+        flushPrimaryKeyBatch();
         // allow for auto increment columns to be inserted into if appropriate
         if (oldTargetTable!=null) {
             allowInsertIntoAutoIncrementColumns(false, oldTargetTable);            
@@ -46,6 +46,7 @@ import org.jumpmind.db.platform.sqlanywhere.SqlAnywhereDatabasePlatform;
 import org.jumpmind.db.platform.tibero.TiberoDatabasePlatform;
 import org.jumpmind.symmetric.io.AbstractWriterTest;
 import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.writer.Conflict.DetectConflict;
 import org.jumpmind.symmetric.io.data.writer.Conflict.ResolveConflict;
@@ -502,6 +503,147 @@ public class DatabaseWriterTest extends AbstractWriterTest {
         writeData(new CsvData(DataEventType.DELETE, new String[] { getNextId() }, null), null);
     }
 
+    @Test
+    public void testPrimaryKeyBatchDeletes() throws Exception {
+        List<CsvData> afterWrite = recordAfterWrite();
+        writerSettings.setMaxRowsInPrimaryKeyBatch(10);
+        List<String> ids = insertRows(5);
+        afterWrite.clear();
+
+        List<CsvData> deletes = new ArrayList<CsvData>();
+        for (String id : ids) {
+            deletes.add(new CsvData(DataEventType.DELETE, new String[] { id }, null));
+        }
+        Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        Assert.assertEquals(5, writeData(new TableCsvData(table, deletes)));
+
+        Assert.assertEquals(deletes, afterWrite);
+        Statistics stats = lastDataWriterUsed.getStatistics().values().iterator().next();
+        Assert.assertEquals(5, stats.get(DataWriterStatisticConstants.DELETECOUNT));
+        Assert.assertEquals(0, stats.get(DataWriterStatisticConstants.MISSINGDELETECOUNT));
+        for (String id : ids) {
+            assertTestTableEquals(id, null);
+        }
+    }
+
+    @Test
+    public void testPrimaryKeyBatchUpdates() throws Exception {
+        List<CsvData> afterWrite = recordAfterWrite();
+        writerSettings.setMaxRowsInPrimaryKeyBatch(10);
+        List<String> ids = insertRows(3);
+        afterWrite.clear();
+
+        List<CsvData> updates = new ArrayList<CsvData>();
+        List<String[]> expectedValues = new ArrayList<String[]>();
+        for (String id : ids) {
+            String[] values = { id, "grouped update", "string not null2", "char2", "char not null2",
+                    "2007-01-02 03:20:10.000", "2007-02-03 04:05:06.000", "1", "48", "67.89",
+                    "-0.0747663" };
+            updates.add(new CsvData(DataEventType.UPDATE, new String[] { id },
+                    (String[]) ArrayUtils.clone(values)));
+            expectedValues.add(massageExpectectedResultsForDialect(values));
+        }
+        Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        Assert.assertEquals(3, writeData(new TableCsvData(table, updates)));
+
+        Assert.assertEquals(updates, afterWrite);
+        Statistics stats = lastDataWriterUsed.getStatistics().values().iterator().next();
+        Assert.assertEquals(3, stats.get(DataWriterStatisticConstants.UPDATECOUNT));
+        Assert.assertEquals(0, stats.get(DataWriterStatisticConstants.FALLBACKINSERTCOUNT));
+        for (int i = 0; i < ids.size(); i++) {
+            assertTestTableEquals(ids.get(i), expectedValues.get(i));
+        }
+    }
+
+    @Test
+    public void testPrimaryKeyBatchCountMismatch() throws Exception {
+        List<CsvData> afterWrite = recordAfterWrite();
+        writerSettings.setMaxRowsInPrimaryKeyBatch(10);
+        List<String> ids = insertRows(2);
+        afterWrite.clear();
+
+        List<CsvData> deletes = new ArrayList<CsvData>();
+        deletes.add(new CsvData(DataEventType.DELETE, new String[] { ids.get(0) }, null));
+        deletes.add(new CsvData(DataEventType.DELETE, new String[] { getNextId() }, null));
+        deletes.add(new CsvData(DataEventType.DELETE, new String[] { ids.get(1) }, null));
+        Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        Assert.assertEquals(3, writeData(new TableCsvData(table, deletes)));
+
+        Assert.assertEquals(deletes, afterWrite);
+        Statistics stats = lastDataWriterUsed.getStatistics().values().iterator().next();
+        Assert.assertEquals(2, stats.get(DataWriterStatisticConstants.DELETECOUNT));
+        Assert.assertEquals(1, stats.get(DataWriterStatisticConstants.MISSINGDELETECOUNT));
+        for (String id : ids) {
+            assertTestTableEquals(id, null);
+        }
+    }
+
+    @Test
+    public void testPrimaryKeyBatchFailureReportedForQueuedRow() throws Exception {
+        writerSettings.setMaxRowsInPrimaryKeyBatch(10);
+        List<String> ids = insertRows(3);
+
+        final String failingId = ids.get(1);
+        List<IDatabaseWriterFilter> filters = new ArrayList<IDatabaseWriterFilter>();
+        filters.add(new DatabaseWriterFilterAdapter() {
+            @Override
+            public void afterWrite(DataContext context, Table table, CsvData data) {
+                if (data.getDataEventType() == DataEventType.DELETE
+                        && failingId.equals(data.getParsedData(CsvData.PK_DATA)[0])) {
+                    throw new IllegalStateException("Failed after deleting " + failingId);
+                }
+            }
+        });
+        writerSettings.setDatabaseWriterFilters(filters);
+
+        List<CsvData> datas = new ArrayList<CsvData>();
+        for (String id : ids) {
+            datas.add(new CsvData(DataEventType.DELETE, new String[] { id }, null));
+        }
+        String[] values = { getNextId(), "flushes the deletes", "string not null2", "char2",
+                "char not null2", "2007-01-02 03:20:10.000", "2007-02-03 04:05:06.000", "0", "47",
+                "67.89", "-0.0747663" };
+        datas.add(new CsvData(DataEventType.INSERT, values));
+        Table table = buildSourceTable(TEST_TABLE, TEST_KEYS, TEST_COLUMNS);
+        setErrorExpected(true);
+        writeData(new TableCsvData(table, datas));
+
+        Statistics stats = lastDataWriterUsed.getStatistics().values().iterator().next();
+        Assert.assertEquals(2, stats.get(DataWriterStatisticConstants.STATEMENTCOUNT));
+        Assert.assertEquals(2, stats.get(DataWriterStatisticConstants.LINENUMBER));
+        assertTestTableEquals(ids.get(1), massageExpectectedResultsForDialect(newRowValues(ids.get(1))));
+    }
+
+    protected List<CsvData> recordAfterWrite() {
+        final List<CsvData> afterWrite = new ArrayList<CsvData>();
+        List<IDatabaseWriterFilter> filters = new ArrayList<IDatabaseWriterFilter>();
+        filters.add(new DatabaseWriterFilterAdapter() {
+            @Override
+            public void afterWrite(DataContext context, Table table, CsvData data) {
+                afterWrite.add(data);
+            }
+        });
+        writerSettings.setDatabaseWriterFilters(filters);
+        return afterWrite;
+    }
+
+    protected List<String> insertRows(int count) {
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            String id = getNextId();
+            String[] values = newRowValues(id);
+            writeData(new CsvData(DataEventType.INSERT, values),
+                    massageExpectectedResultsForDialect((String[]) ArrayUtils.clone(values)));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    protected String[] newRowValues(String id) {
+        return new String[] { id, "primary key batch", "string not null2", "char2", "char not null2",
+                "2007-01-02 03:20:10.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663" };
+    }
+
     @Test
     public void testColumnNotExisting() throws Exception {
         List<String> testColumns = new ArrayList<String>(Arrays.asList(TEST_COLUMNS));
@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.web;
 
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -47,6 +48,7 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
                     .getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_LEVEL);
             int compressionStrategy = parameterService
                     .getInt(ParameterConstants.TRANSPORT_HTTP_COMPRESSION_STRATEGY);
+            compressionLevel = getRequestedCompressionLevel(req, compressionLevel);
             log.debug("@doFilter");
 
             boolean supportCompression = false;
@@ -93,6 +95,25 @@ abstract public class AbstractCompressionUriHandler extends AbstractUriHandler {
 
     }
 
+    /**
+     * A node that picks the compression level for its link asks for it with
+     * a header.
+     */
+    protected int getRequestedCompressionLevel(HttpServletRequest req, int defaultLevel) {
+        String level = req.getHeader(WebConstants.COMPRESSION_LEVEL);
+        if (level != null) {
+            try {
+                int requestedLevel = Integer.parseInt(level.trim());
+                if (requestedLevel >= Deflater.BEST_SPEED && requestedLevel <= Deflater.BEST_COMPRESSION) {
+                    return requestedLevel;
+                }
+            } catch (NumberFormatException ex) {
+                log.debug("Ignoring a requested compression level of {}", level);
+            }
+        }
+        return defaultLevel;
+    }
+
     abstract protected void handleWithCompression(HttpServletRequest req, HttpServletResponse res)
             throws IOException, ServletException;
 
@@ -44,6 +44,8 @@ abstract public class AbstractUriHandler implements IUriHandler {
     
     private boolean enabled = true;
     
+    private boolean async = false;
+    
     public AbstractUriHandler(String uriPattern, IParameterService parameterService, 
             IInterceptor... interceptors) {
         this.uriPattern = uriPattern;
@@ -85,6 +87,14 @@ abstract public class AbstractUriHandler implements IUriHandler {
     public boolean isEnabled() {
         return enabled;
     }
+    
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+    
+    public boolean isAsync() {
+        return async;
+    }
 
     public void setParameterService(IParameterService parameterService) {
         this.parameterService = parameterService;
@@ -0,0 +1,90 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.util.CustomizableThreadFactory;
+
+/**
+ * The threads that serve asynchronous requests once the web server thread has
+ * returned. Push and pull requests run on a bounded pool of workers and parked
+ * pull wait requests are checked and timed out by a small timer pool.
+ */
+public class AsyncRequestExecutor {
+
+    protected ThreadPoolExecutor workers;
+
+    protected ScheduledExecutorService timer;
+
+    public AsyncRequestExecutor(IParameterService parameterService) {
+        String prefix = parameterService.getEngineName().toLowerCase();
+        int workerThreads = Math.max(1, parameterService.getInt(ParameterConstants.WEB_ASYNC_WORKER_THREADS));
+        int queueSize = Math.max(1, parameterService.getInt(ParameterConstants.WEB_ASYNC_WORKER_QUEUE_SIZE));
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new CustomizableThreadFactory(prefix
+                        + "-web-worker"));
+        this.workers.allowCoreThreadTimeOut(true);
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(Math.max(1,
+                parameterService.getInt(ParameterConstants.WEB_ASYNC_TIMER_THREADS)),
+                new CustomizableThreadFactory(prefix + "-web-timer"));
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timer = timer;
+    }
+
+    /**
+     * @return false if all workers are busy and the queue is full
+     */
+    public boolean execute(Runnable work) {
+        try {
+            workers.execute(work);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdown();
+    }
+
+}
@@ -39,4 +39,10 @@ public interface IUriHandler {
     
     public boolean isEnabled();
 
+    /**
+     * @return true if the request can be handed to a worker thread so that
+     *         the web server thread is freed while the request is handled
+     */
+    public boolean isAsync();
+
 }
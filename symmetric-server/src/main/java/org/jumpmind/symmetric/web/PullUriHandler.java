@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.web;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +32,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.BatchAck;
 import org.jumpmind.symmetric.model.ChannelMap;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.NodeSecurity;
@@ -39,6 +41,7 @@ import org.jumpmind.symmetric.model.ProcessInfo;
 import org.jumpmind.symmetric.model.ProcessInfo.Status;
 import org.jumpmind.symmetric.model.ProcessInfoKey;
 import org.jumpmind.symmetric.model.ProcessInfoKey.ProcessType;
+import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IDataExtractorService;
 import org.jumpmind.symmetric.service.INodeService;
@@ -46,6 +49,7 @@ import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.IRegistrationService;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.transport.AbstractTransportManager;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
 
@@ -66,17 +70,22 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
     
     private IOutgoingBatchService outgoingBatchService;
     
+    private IAcknowledgeService acknowledgeService;
+    
     public PullUriHandler(IParameterService parameterService,
             INodeService nodeService,
             IConfigurationService configurationService, IDataExtractorService dataExtractorService,
-            IRegistrationService registrationService, IStatisticManager statisticManager,  IOutgoingBatchService outgoingBatchService, IInterceptor... interceptors) {
+            IRegistrationService registrationService, IStatisticManager statisticManager,  IOutgoingBatchService outgoingBatchService, 
+            IAcknowledgeService acknowledgeService, IInterceptor... interceptors) {
         super("/pull/*", parameterService, interceptors);
+        this.acknowledgeService = acknowledgeService;
         this.nodeService = nodeService;
         this.configurationService = configurationService;
         this.dataExtractorService = dataExtractorService;
         this.registrationService = registrationService;
         this.statisticManager = statisticManager;
         this.outgoingBatchService = outgoingBatchService;
+        setAsync(true);
     }
 
     public void handleWithCompression(HttpServletRequest req, HttpServletResponse res) throws IOException,
@@ -96,6 +105,8 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         map.addIgnoreChannels(req.getHeader(WebConstants.IGNORED_CHANNELS));
         map.setThreadChannel(req.getHeader(WebConstants.THREAD_CHANNEL));
         
+        ackPiggybackedBatches(req, res);
+        
         // pull out headers and pass to pull() method
         pull(nodeId, req.getRemoteHost(), req.getRemoteAddr(), res.getOutputStream(), req.getHeader(WebConstants.HEADER_ACCEPT_CHARSET), res, map);
 
@@ -151,6 +162,23 @@ public class PullUriHandler extends AbstractCompressionUriHandler {
         }
     }
     
+    /**
+     * A node can send the acknowledgements for its last pull along with this
+     * one. Apply them before extracting so those batches are not sent again,
+     * and let the node know they were applied.
+     */
+    protected void ackPiggybackedBatches(HttpServletRequest req, HttpServletResponse res) {
+        if ("POST".equalsIgnoreCase(req.getMethod())) {
+            List<BatchAck> batches = AbstractTransportManager.readAcknowledgement(req.getParameterMap());
+            if (batches.size() > 0) {
+                log.debug("Applying {} acks sent with the pull", batches.size());
+                Collections.sort(batches, AckUriHandler.BATCH_ID_COMPARATOR);
+                acknowledgeService.ack(batches);
+                res.setHeader(WebConstants.ACKS_APPLIED, Integer.toString(batches.size()));
+            }
+        }
+    }
+
     private void addPendingBatchCounts(String targetNodeId, HttpServletResponse res) {
         if (this.parameterService.is(ParameterConstants.HYBRID_PUSH_PULL_ENABLED))   {            
             Map<String, Integer> batchesToSendByChannel = 
@@ -0,0 +1,260 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.web;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.model.NodeSecurity;
+import org.jumpmind.symmetric.transport.PullNotifier;
+
+/**
+ * Parks a pull until there are batches for the requesting node. The request
+ * is answered with 200 when the node should pull and with 204 when the wait
+ * timed out with nothing to send. Parked requests do not hold a pull
+ * connection reservation, so only the authentication interceptor should be
+ * applied. When asynchronous requests are enabled a parked request does not
+ * hold a thread. It is woken by the pull notifier and checked and timed out
+ * by the timer threads of the {@link AsyncRequestExecutor}.
+ */
+public class PullWaitUriHandler extends AbstractUriHandler {
+
+    private static final long ASYNC_TIMEOUT_MARGIN_MS = 30000;
+
+    private ServerSymmetricEngine engine;
+
+    public PullWaitUriHandler(ServerSymmetricEngine engine, IInterceptor... interceptors) {
+        super("/pullwait/*", engine.getParameterService(), interceptors);
+        this.engine = engine;
+    }
+
+    public void handle(HttpServletRequest req, HttpServletResponse res) throws IOException,
+            ServletException {
+        String nodeId = ServletUtils.getParameter(req, WebConstants.NODE_ID);
+        if (StringUtils.isBlank(nodeId)) {
+            ServletUtils.sendError(res, HttpServletResponse.SC_BAD_REQUEST, "Node must be specified");
+            return;
+        }
+
+        long waitMillis = Math.min(NumberUtils.toLong(req.getHeader(WebConstants.LONG_POLL_MILLIS)),
+                parameterService.getLong(ParameterConstants.PULL_LONG_POLL_MAX_MS));
+        PullNotifier pullNotifier = engine.getPullNotifier();
+        long version = pullNotifier.getVersion(nodeId);
+
+        if (waitMillis <= 0 || isPullNeeded(nodeId)) {
+            res.setStatus(HttpServletResponse.SC_OK);
+        } else if (!pullNotifier.park(parameterService.getInt(ParameterConstants.PULL_LONG_POLL_MAX_PARKED))) {
+            log.debug("Too many parked pull requests to park the request from {}", nodeId);
+            res.setStatus(WebConstants.SC_NO_CONTENT);
+        } else if (engine.isAsyncEnabled() && req.isAsyncSupported()) {
+            log.debug("Parking pull request from {} for up to {}ms without a thread", nodeId, waitMillis);
+            new ParkedPull(req.startAsync(), nodeId, version, waitMillis).park();
+        } else {
+            try {
+                log.debug("Parking pull request from {} for up to {}ms", nodeId, waitMillis);
+                res.setStatus(waitForBatches(nodeId, version, waitMillis) ? HttpServletResponse.SC_OK
+                        : WebConstants.SC_NO_CONTENT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                res.setStatus(WebConstants.SC_NO_CONTENT);
+            } finally {
+                pullNotifier.unpark();
+            }
+        }
+    }
+
+    protected boolean waitForBatches(String nodeId, long version, long waitMillis)
+            throws InterruptedException {
+        PullNotifier pullNotifier = engine.getPullNotifier();
+        long checkMillis = getCheckMillis(waitMillis);
+        long deadline = System.currentTimeMillis() + waitMillis;
+        long remaining = waitMillis;
+        while (remaining > 0) {
+            if (pullNotifier.await(nodeId, version, Math.min(checkMillis, remaining))) {
+                return true;
+            }
+            remaining = deadline - System.currentTimeMillis();
+            if (remaining > 0 && isPullNeeded(nodeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected long getCheckMillis(long waitMillis) {
+        long checkMillis = parameterService.getLong(ParameterConstants.PULL_LONG_POLL_CHECK_MS, waitMillis);
+        return checkMillis > 0 ? checkMillis : waitMillis;
+    }
+
+    protected boolean isPullNeeded(String nodeId) {
+        NodeSecurity nodeSecurity = engine.getNodeService().findNodeSecurity(nodeId, true);
+        if (nodeSecurity == null || nodeSecurity.isRegistrationEnabled()) {
+            return true;
+        }
+        Map<String, Integer> batchesToSendByChannel = engine.getOutgoingBatchService()
+                .countOutgoingBatchesPendingByChannel(nodeId);
+        return batchesToSendByChannel != null && !batchesToSendByChannel.isEmpty();
+    }
+
+    /**
+     * A pull wait request that is parked without a thread. It is answered once,
+     * by whichever comes first of a notification, a check that finds batches,
+     * the end of the wait or an error on the connection.
+     */
+    class ParkedPull implements Runnable, AsyncListener {
+
+        AsyncContext asyncContext;
+
+        String nodeId;
+
+        long version;
+
+        long deadline;
+
+        long checkMillis;
+
+        AtomicBoolean answered = new AtomicBoolean();
+
+        volatile ScheduledFuture<?> check;
+
+        ParkedPull(AsyncContext asyncContext, String nodeId, long version, long waitMillis) {
+            this.asyncContext = asyncContext;
+            this.nodeId = nodeId;
+            this.version = version;
+            this.deadline = System.currentTimeMillis() + waitMillis;
+            this.checkMillis = getCheckMillis(waitMillis);
+            asyncContext.setTimeout(waitMillis + ASYNC_TIMEOUT_MARGIN_MS);
+            asyncContext.addListener(this);
+        }
+
+        void park() {
+            if (!engine.getPullNotifier().addListener(nodeId, version, this)) {
+                answer(true);
+            } else {
+                scheduleCheck();
+            }
+        }
+
+        /**
+         * Called by the pull notifier when batches were created for the node.
+         * The answer is handed to a timer thread so that completing the
+         * request does not hold up the thread that created the batches.
+         */
+        public void run() {
+            try {
+                engine.getAsyncRequestExecutor().schedule(new Runnable() {
+                    public void run() {
+                        answer(true);
+                    }
+                }, 0);
+            } catch (RejectedExecutionException e) {
+                answer(true);
+            }
+        }
+
+        void scheduleCheck() {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                answer(false);
+            } else if (!answered.get()) {
+                try {
+                    check = engine.getAsyncRequestExecutor().schedule(new Runnable() {
+                        public void run() {
+                            check();
+                        }
+                    }, Math.min(checkMillis, remaining));
+                } catch (RejectedExecutionException e) {
+                    answer(false);
+                }
+            }
+        }
+
+        void check() {
+            if (!answered.get()) {
+                boolean pullNeeded = false;
+                try {
+                    pullNeeded = deadline > System.currentTimeMillis() && isPullNeeded(nodeId);
+                } catch (Exception e) {
+                    log.warn("Failed to check for batches for parked pull request from " + nodeId, e);
+                }
+                if (pullNeeded) {
+                    answer(true);
+                } else {
+                    scheduleCheck();
+                }
+            }
+        }
+
+        void answer(boolean pull) {
+            if (answered.compareAndSet(false, true)) {
+                release();
+                try {
+                    ((HttpServletResponse) asyncContext.getResponse()).setStatus(pull ? HttpServletResponse.SC_OK
+                            : WebConstants.SC_NO_CONTENT);
+                    asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    log.debug("Parked pull request from {} was already completed", nodeId);
+                }
+            }
+        }
+
+        void release() {
+            ScheduledFuture<?> check = this.check;
+            if (check != null) {
+                check.cancel(false);
+            }
+            engine.getPullNotifier().removeListener(nodeId, this);
+            engine.getPullNotifier().unpark();
+        }
+
+        public void onTimeout(AsyncEvent event) throws IOException {
+            answer(false);
+        }
+
+        public void onError(AsyncEvent event) throws IOException {
+            answer(false);
+        }
+
+        public void onComplete(AsyncEvent event) throws IOException {
+            if (answered.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+
+    }
+
+}
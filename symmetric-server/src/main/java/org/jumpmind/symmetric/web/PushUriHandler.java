@@ -53,6 +53,7 @@ public class PushUriHandler extends AbstractUriHandler {
         this.dataLoaderService = dataLoaderService;
         this.statisticManager = statisticManager;
         this.nodeService = nodeService;
+        setAsync(true);
     }
 
     public void handle(HttpServletRequest req, HttpServletResponse res) throws IOException,
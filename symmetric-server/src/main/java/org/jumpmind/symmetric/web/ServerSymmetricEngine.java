@@ -39,6 +39,8 @@ public class ServerSymmetricEngine extends ClientSymmetricEngine {
         
     protected Map<String, Integer> errorCountByNode = new HashMap<String, Integer>();
 
+    protected AsyncRequestExecutor asyncRequestExecutor;
+
     public ServerSymmetricEngine(File propertiesFile) {
         super(propertiesFile);
     }
@@ -78,7 +80,8 @@ public class ServerSymmetricEngine extends ClientSymmetricEngine {
         this.uriHandlers.add(new BandwidthSamplerUriHandler(parameterService));
         this.uriHandlers.add(new PullUriHandler(parameterService, nodeService,
                 configurationService, dataExtractorService, registrationService, statisticManager, outgoingBatchService,
-                concurrencyInterceptor, authInterceptor));
+                acknowledgeService, concurrencyInterceptor, authInterceptor));
+        this.uriHandlers.add(new PullWaitUriHandler(this, authInterceptor));
         this.uriHandlers.add(new PushUriHandler(parameterService, dataLoaderService,
                 statisticManager, nodeService, concurrencyInterceptor, authInterceptor));
         this.uriHandlers.add(new PushStatusUriHandler(parameterService, nodeCommunicationService, 
@@ -120,4 +123,24 @@ public class ServerSymmetricEngine extends ClientSymmetricEngine {
         return uriHandlers;
     }
 
+    public boolean isAsyncEnabled() {
+        return parameterService.is(ParameterConstants.WEB_ASYNC_ENABLED);
+    }
+
+    public synchronized AsyncRequestExecutor getAsyncRequestExecutor() {
+        if (asyncRequestExecutor == null) {
+            asyncRequestExecutor = new AsyncRequestExecutor(parameterService);
+        }
+        return asyncRequestExecutor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        if (asyncRequestExecutor != null) {
+            asyncRequestExecutor.shutdown();
+            asyncRequestExecutor = null;
+        }
+    }
+
 }
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -111,19 +112,18 @@ public class SymmetricServlet extends HttpServlet {
                             }
                         }
                     }
-                    handler.handle(req, res);
-                    engine.resetErrorCountForNode(nodeId);
-                } catch (Exception e) {
-                    logException(req, engine, e);
-                    if (!res.isCommitted()) {
-                        ServletUtils.sendError(res, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-                    }
-                } finally {
-                    if (afterInterceptors != null) {
-                        for (IInterceptor interceptor : afterInterceptors) {
-                            interceptor.after(req, res);
+                    if (handler.isAsync() && engine.isAsyncEnabled() && req.isAsyncSupported()) {
+                        if (handleAsync(engine, handler, req, afterInterceptors)) {
+                            afterInterceptors = null;
                         }
+                    } else {
+                        handler.handle(req, res);
+                        engine.resetErrorCountForNode(nodeId);
                     }
+                } catch (Exception e) {
+                    handleException(engine, req, res, e);
+                } finally {
+                    runAfterInterceptors(afterInterceptors, req, res);
                 }
             } else {
                 log.warn(
@@ -163,6 +163,86 @@ public class SymmetricServlet extends HttpServlet {
 
     }
 
+    /**
+     * Hand the request to a worker thread so the web server thread can go back
+     * to serving other connections. The worker runs the after interceptors and
+     * completes the request. When every worker is busy and the queue is full,
+     * the request is answered as busy.
+     * 
+     * @return false if the request was rejected or could not be handed off
+     *         and the after interceptors still need to be run by the caller
+     */
+    protected boolean handleAsync(final ServerSymmetricEngine engine, final IUriHandler handler,
+            HttpServletRequest req, final List<IInterceptor> afterInterceptors) throws IOException,
+            ServletException {
+        final AsyncContext asyncContext = req.startAsync();
+        try {
+            asyncContext.setTimeout(0);
+            final String nodeId = req.getParameter(WebConstants.NODE_ID);
+            Runnable work = new Runnable() {
+                public void run() {
+                    MDC.put("engineName", engine.getEngineName());
+                    HttpServletRequest req = (HttpServletRequest) asyncContext.getRequest();
+                    HttpServletResponse res = (HttpServletResponse) asyncContext.getResponse();
+                    try {
+                        try {
+                            handler.handle(req, res);
+                            engine.resetErrorCountForNode(nodeId);
+                        } catch (Exception e) {
+                            handleException(engine, req, res, e);
+                        } finally {
+                            runAfterInterceptors(afterInterceptors, req, res);
+                        }
+                    } catch (Exception e) {
+                        logException(req, engine, e);
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            };
+
+            if (!engine.getAsyncRequestExecutor().execute(work)) {
+                log.debug("Rejecting the {} request from {} because all web workers are busy",
+                        ServletUtils.normalizeRequestUri(req), nodeId);
+                try {
+                    ServletUtils.sendError(asyncContext.getResponse(), WebConstants.SC_SERVICE_BUSY);
+                } finally {
+                    asyncContext.complete();
+                }
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            /*
+             * Nothing will complete the request if the work could not be
+             * handed off, so answer it here
+             */
+            try {
+                handleException(engine, req, (HttpServletResponse) asyncContext.getResponse(), e);
+            } finally {
+                asyncContext.complete();
+            }
+            return false;
+        }
+    }
+
+    protected void handleException(ServerSymmetricEngine engine, HttpServletRequest req,
+            HttpServletResponse res, Exception e) throws IOException {
+        logException(req, engine, e);
+        if (!res.isCommitted()) {
+            ServletUtils.sendError(res, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    protected void runAfterInterceptors(List<IInterceptor> afterInterceptors, HttpServletRequest req,
+            HttpServletResponse res) throws IOException, ServletException {
+        if (afterInterceptors != null) {
+            for (IInterceptor interceptor : afterInterceptors) {
+                interceptor.after(req, res);
+            }
+        }
+    }
+
     protected ServerSymmetricEngine findEngine(HttpServletRequest req) {
         String engineName = getEngineNameFromUrl((HttpServletRequest) req);
         ServerSymmetricEngine engine = null;
@@ -30,6 +30,7 @@ import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -80,7 +81,9 @@ import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IOutgoingBatchService;
 import org.jumpmind.symmetric.service.IRegistrationService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.statistic.ChannelLatencyStats;
 import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.LatencyStage;
 import org.jumpmind.symmetric.web.ServerSymmetricEngine;
 import org.jumpmind.symmetric.web.SymmetricEngineHolder;
 import org.jumpmind.symmetric.web.WebConstants;
@@ -90,6 +93,7 @@ import org.jumpmind.symmetric.web.rest.model.BatchResult;
 import org.jumpmind.symmetric.web.rest.model.BatchResults;
 import org.jumpmind.symmetric.web.rest.model.BatchSummaries;
 import org.jumpmind.symmetric.web.rest.model.BatchSummary;
+import org.jumpmind.symmetric.web.rest.model.ChannelLatency;
 import org.jumpmind.symmetric.web.rest.model.ChannelStatus;
 import org.jumpmind.symmetric.web.rest.model.Engine;
 import org.jumpmind.symmetric.web.rest.model.EngineList;
@@ -786,6 +790,37 @@ public class RestService {
         return channelStatusImpl(getSymmetricEngine(engineName));
     }
 
+    /**
+     * Returns latency percentiles for each channel and stage of replication
+     * for the single engine of the node. The current statistics period is
+     * always included. Periods that have already been flushed are merged in
+     * when minutes is greater than zero.
+     * 
+     * @return List<{@link ChannelLatency}>
+     */
+    @ApiOperation(value = "Obtain latency percentiles by channel and stage for the single engine")
+    @RequestMapping(value = "/engine/channellatency", method = RequestMethod.GET)
+    @ResponseBody
+    public final List<ChannelLatency> getChannelLatency(
+            @RequestParam(value = "minutes", defaultValue = "0") int minutes) {
+        return channelLatencyImpl(getSymmetricEngine(), minutes);
+    }
+
+    /**
+     * Returns latency percentiles for each channel and stage of replication
+     * for the specified engine of the node.
+     * 
+     * @return List<{@link ChannelLatency}>
+     */
+    @ApiOperation(value = "Obtain latency percentiles by channel and stage for the specified engine")
+    @RequestMapping(value = "/engine/{engine}/channellatency", method = RequestMethod.GET)
+    @ResponseBody
+    public final List<ChannelLatency> getChannelLatencyByEngine(
+            @PathVariable("engine") String engineName,
+            @RequestParam(value = "minutes", defaultValue = "0") int minutes) {
+        return channelLatencyImpl(getSymmetricEngine(engineName), minutes);
+    }
+
     /**
      * Removes (unregisters and cleans up) a node for the single engine
      */
@@ -1667,6 +1702,50 @@ public class RestService {
         return channelStatus;
     }
 
+    private List<ChannelLatency> channelLatencyImpl(ISymmetricEngine engine, int minutes) {
+        Map<String, Map<LatencyStage, ChannelLatencyStats>> stats = engine.getStatisticManager()
+                .getWorkingChannelLatencyStats();
+        if (minutes > 0) {
+            Date end = new Date();
+            Date start = new Date(end.getTime() - minutes * 60000l);
+            List<ChannelLatencyStats> flushed = engine.getStatisticService()
+                    .getChannelLatencyStatsForPeriod(start, end, engine.getNodeService().findIdentityNodeId());
+            for (ChannelLatencyStats periodStats : flushed) {
+                Map<LatencyStage, ChannelLatencyStats> byStage = stats.get(periodStats.getChannelId());
+                if (byStage == null) {
+                    byStage = new HashMap<LatencyStage, ChannelLatencyStats>();
+                    stats.put(periodStats.getChannelId(), byStage);
+                }
+                ChannelLatencyStats total = byStage.get(periodStats.getStage());
+                if (total == null) {
+                    byStage.put(periodStats.getStage(), periodStats);
+                } else {
+                    total.add(periodStats);
+                }
+            }
+        }
+
+        List<ChannelLatency> latencies = new ArrayList<ChannelLatency>();
+        for (Map<LatencyStage, ChannelLatencyStats> byStage : stats.values()) {
+            for (ChannelLatencyStats stageStats : byStage.values()) {
+                if (stageStats.getCount() > 0) {
+                    ChannelLatency latency = new ChannelLatency();
+                    latency.setChannelId(stageStats.getChannelId());
+                    latency.setStage(stageStats.getStage().name());
+                    latency.setCount(stageStats.getCount());
+                    latency.setMeanMillis(stageStats.getMeanMillis());
+                    latency.setP50Millis(stageStats.getP50Millis());
+                    latency.setP90Millis(stageStats.getP90Millis());
+                    latency.setP99Millis(stageStats.getP99Millis());
+                    latency.setP999Millis(stageStats.getP999Millis());
+                    latency.setMaxMillis(stageStats.getMaxMillis());
+                    latencies.add(latency);
+                }
+            }
+        }
+        return latencies;
+    }
+
     private QueryResults queryNodeImpl(ISymmetricEngine engine, String sql, boolean isQuery) {
 
         QueryResults results = new QueryResults();
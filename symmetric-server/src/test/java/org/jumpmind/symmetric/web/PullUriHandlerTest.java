@@ -0,0 +1,151 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jumpmind.symmetric.model.BatchAck;
+import org.jumpmind.symmetric.model.ChannelMap;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeSecurity;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.service.IAcknowledgeService;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IOutgoingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.transport.IOutgoingTransport;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+
+public class PullUriHandlerTest {
+
+    IAcknowledgeService acknowledgeService;
+    IDataExtractorService dataExtractorService;
+    HttpServletRequest req;
+    HttpServletResponse res;
+    PullUriHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        acknowledgeService = mock(IAcknowledgeService.class);
+        dataExtractorService = mock(IDataExtractorService.class);
+        INodeService nodeService = mock(INodeService.class);
+        IConfigurationService configurationService = mock(IConfigurationService.class);
+        IStatisticManager statisticManager = mock(IStatisticManager.class);
+
+        when(nodeService.findNodeSecurity("00001", true)).thenReturn(new NodeSecurity());
+        when(nodeService.findNode("00001", true)).thenReturn(new Node("00001", "client"));
+        when(nodeService.findIdentityNodeId()).thenReturn("00000");
+        when(configurationService.getSuspendIgnoreChannelLists("00001")).thenReturn(new ChannelMap());
+        when(statisticManager.newProcessInfo(Matchers.any(ProcessInfoKey.class))).thenReturn(new ProcessInfo());
+        when(dataExtractorService.extract(Matchers.any(ProcessInfo.class), Matchers.any(Node.class),
+                Matchers.anyString(), Matchers.any(IOutgoingTransport.class))).thenReturn(
+                new ArrayList<OutgoingBatch>());
+
+        handler = new PullUriHandler(mock(IParameterService.class), nodeService,
+                configurationService, dataExtractorService, mock(IRegistrationService.class),
+                statisticManager, mock(IOutgoingBatchService.class), acknowledgeService);
+
+        req = mock(HttpServletRequest.class);
+        res = mock(HttpServletResponse.class);
+        when(req.getParameter(WebConstants.NODE_ID)).thenReturn("00001");
+        when(req.getHeader(WebConstants.THREAD_CHANNEL)).thenReturn("default");
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            public boolean isReady() {
+                return true;
+            }
+
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPostedAcksAppliedBeforeExtract() throws Exception {
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put(WebConstants.NODE_ID, new String[] { "00001" });
+        parameters.put(WebConstants.ACK_BATCH_NAME + "12", new String[] { WebConstants.ACK_BATCH_OK });
+        parameters.put(WebConstants.ACK_BATCH_NAME + "11", new String[] { WebConstants.ACK_BATCH_OK });
+        when(req.getMethod()).thenReturn("POST");
+        when(req.getParameterMap()).thenReturn(parameters);
+
+        handler.handleWithCompression(req, res);
+
+        ArgumentCaptor<List> acks = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(acknowledgeService, res, dataExtractorService);
+        inOrder.verify(acknowledgeService).ack(acks.capture());
+        inOrder.verify(res).setHeader(WebConstants.ACKS_APPLIED, "2");
+        inOrder.verify(dataExtractorService).extract(Matchers.any(ProcessInfo.class),
+                Matchers.any(Node.class), Matchers.anyString(), Matchers.any(IOutgoingTransport.class));
+
+        List<BatchAck> applied = acks.getValue();
+        assertEquals(2, applied.size());
+        assertEquals(11, applied.get(0).getBatchId());
+        assertEquals(12, applied.get(1).getBatchId());
+        assertEquals("00001", applied.get(0).getNodeId());
+        assertEquals(true, applied.get(0).isOk());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetDoesNotApplyAcks() throws Exception {
+        when(req.getMethod()).thenReturn("GET");
+
+        handler.handleWithCompression(req, res);
+
+        verify(acknowledgeService, never()).ack(Matchers.any(List.class));
+        verify(res, never()).setHeader(Matchers.eq(WebConstants.ACKS_APPLIED), Matchers.anyString());
+    }
+
+}
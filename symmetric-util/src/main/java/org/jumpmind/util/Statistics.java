@@ -20,7 +20,9 @@
  */
 package org.jumpmind.util;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class Statistics {
@@ -29,6 +31,8 @@ public class Statistics {
 
     Map<String, Long> timers = new HashMap<String, Long>();
 
+    Map<String, TableStatistics> tableStats = new LinkedHashMap<String, TableStatistics>();
+
     public void increment(String category) {
         increment(category, 1);
     }
@@ -71,9 +75,30 @@ public class Statistics {
         return time;
     }
     
+    /**
+     * Returns the counter handle for a table, creating it on first use. Callers
+     * are expected to hold on to the handle rather than look it up per row.
+     */
+    public TableStatistics getTableStatistics(String tableName) {
+        TableStatistics tableStatistics = tableStats.get(tableName);
+        if (tableStatistics == null) {
+            tableStatistics = new TableStatistics(tableName);
+            tableStats.put(tableName, tableStatistics);
+        }
+        return tableStatistics;
+    }
+
+    public Map<String, TableStatistics> getTableStatistics() {
+        return Collections.unmodifiableMap(tableStats);
+    }
+
     @Override
     public String toString() {
-        return stats.toString();
+        if (tableStats.size() > 0) {
+            return stats.toString() + " " + tableStats.toString();
+        } else {
+            return stats.toString();
+        }
     }
 
 }
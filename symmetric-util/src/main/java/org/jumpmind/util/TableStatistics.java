@@ -0,0 +1,90 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.util;
+
+import java.io.Serializable;
+
+/**
+ * Row counts for a single table within a batch. A handle is resolved once per
+ * table from {@link Statistics#getTableStatistics(String)} and then
+ * incremented directly so that no keys are built or hashed for each row.
+ */
+public class TableStatistics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String tableName;
+
+    private long insertCount;
+
+    private long updateCount;
+
+    private long deleteCount;
+
+    public TableStatistics(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void incrementInsertCount(long count) {
+        insertCount += count;
+    }
+
+    public void incrementUpdateCount(long count) {
+        updateCount += count;
+    }
+
+    public void incrementDeleteCount(long count) {
+        deleteCount += count;
+    }
+
+    public long getInsertCount() {
+        return insertCount;
+    }
+
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    public long getDeleteCount() {
+        return deleteCount;
+    }
+
+    public long getTotalCount() {
+        return insertCount + updateCount + deleteCount;
+    }
+
+    public void add(TableStatistics other) {
+        insertCount += other.insertCount;
+        updateCount += other.updateCount;
+        deleteCount += other.deleteCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{inserts=%d, updates=%d, deletes=%d}", insertCount, updateCount,
+                deleteCount);
+    }
+
+}
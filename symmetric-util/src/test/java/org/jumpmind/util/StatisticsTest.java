@@ -0,0 +1,46 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StatisticsTest {
+
+    @Test
+    public void testTableStatisticsHandleIsReused() {
+        Statistics statistics = new Statistics();
+        TableStatistics handle = statistics.getTableStatistics("TEST");
+        handle.incrementInsertCount(2);
+        handle.incrementUpdateCount(1);
+        statistics.getTableStatistics("TEST").incrementDeleteCount(3);
+        statistics.getTableStatistics("OTHER").incrementInsertCount(1);
+
+        assertSame(handle, statistics.getTableStatistics("TEST"));
+        assertEquals(2, handle.getInsertCount());
+        assertEquals(1, handle.getUpdateCount());
+        assertEquals(3, handle.getDeleteCount());
+        assertEquals(6, handle.getTotalCount());
+        assertEquals(2, statistics.getTableStatistics().size());
+    }
+
+}